@@ -10,6 +10,7 @@ package abcd;
 
 import androidx.annotation.Keep;
 import com.aide.codemodel.AIDEModel;
+import com.aide.codemodel.SyntaxTreeWalker;
 import com.aide.codemodel.api.FileEntry;
 import com.aide.codemodel.api.FileSpace;
 import com.aide.codemodel.api.SyntaxTree;
@@ -45,6 +46,10 @@ public class h0 {
 	FileSpace fileSpace;
 
 	HighlighterCallback highlighterCallback;
+
+	// 遍历SyntaxTree，仅在调用线程中使用
+	private final SyntaxTreeWalker syntaxTreeWalker = new SyntaxTreeWalker();
+
 	@Keep
 	public h0(AIDEModel aideModel) {
 		this.aideModel = aideModel;
@@ -58,7 +63,7 @@ public class h0 {
 	}
 
 	// 高亮 根据SyntaxTree
-	private void fillSemanticHighlighter(SyntaxTree syntaxTree) {
+	private void fillSemanticHighlighter(final SyntaxTree syntaxTree) {
 
 		// 编辑器 渲染时采用倒序查询
 		// 哪个优先添加用哪个，奇怪, 不是倒序查询吗
@@ -70,10 +75,24 @@ public class h0 {
 		}
 
 		// 根据 SyntaxTree(AIDE语义) 填充高亮
-		fillSemanticHighlighter(syntaxTree, syntaxTree.getRootNode());
-
+		this.syntaxTreeWalker.walk(new SyntaxTreeWalker.Nodes(){
+				@Override
+				public int getChildCount(int nodeIndex) {
+					return syntaxTree.getChildCount(nodeIndex);
+				}
+				@Override
+				public int getChildNode(int nodeIndex, int childIndex) {
+					return syntaxTree.getChildNode(nodeIndex, childIndex);
+				}
+			}, syntaxTree.getRootNode(), new SyntaxTreeWalker.Visitor(){
+				@Override
+				public void visit(int nodeIndex) {
+					fillSemanticHighlighter(syntaxTree, nodeIndex);
+				}
+			});
 	}
 
+	// 单个节点的语义高亮
 	private void fillSemanticHighlighter(SyntaxTree syntaxTree, int nodeIndex) {
 		if (syntaxTree.isIdentifierNode(nodeIndex)) {
 
@@ -156,11 +175,6 @@ public class h0 {
 			}
 			// this.highlighterCallback.typeFound(syntaxTree.getLanguage(), syntaxTree.getStartLine(nodeIndex), syntaxTree.getStartColumn(nodeIndex), syntaxTree.getEndLine(nodeIndex), syntaxTree.getEndColumn(nodeIndex));
 		}
-
-		int childCount = syntaxTree.getChildCount(nodeIndex);
-		for (int childNodeIndex = 0; childNodeIndex < childCount; childNodeIndex++) {
-			fillSemanticHighlighter(syntaxTree, syntaxTree.getChildNode(nodeIndex, childNodeIndex));
-		}
 	}
 
 	// fillSemanticHighlighter
@@ -395,7 +409,7 @@ public class h0 {
 
 		int childCount = syntaxTree.getChildCount(nodeIndex);
 		for (int childNodeIndex = 0; childNodeIndex < childCount; childNodeIndex++) {
-			fillSemanticHighlighter(syntaxTree, syntaxTree.getChildNode(nodeIndex, childNodeIndex));
+			fillSemanticHighlighter_bak(syntaxTree, syntaxTree.getChildNode(nodeIndex, childNodeIndex));
 		}
 	}
 }
@@ -20,17 +20,10 @@ import com.aide.ui.views.editor.EditorModel;
 import com.aide.ui.views.editor.SelectedRegion;
 import io.github.zeroaicy.aide.preference.ZeroAicySetting;
 import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
+import io.github.zeroaicy.aide.utils.JavaCodeFormatter;
+import io.github.zeroaicy.aide.utils.JavaCodeFormatter.FormatEdit;
 import java.io.StringReader;
-import java.util.HashMap;
-import java.util.Map;
-import org.eclipse.jdt.core.formatter.CodeFormatter;
-import org.eclipse.jdt.internal.formatter.DefaultCodeFormatter;
-import org.eclipse.jdt.internal.formatter.DefaultCodeFormatterOptions;
-import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.Document;
-import org.eclipse.jface.text.IDocument;
-import org.eclipse.text.edits.MalformedTreeException;
-import org.eclipse.text.edits.TextEdit;
+import java.util.List;
 
 /**
  * 代码格式化
@@ -77,8 +70,18 @@ public class ma implements MenuItemCommand, KeyStrokeCommand {
 			if ("java".equals(suffixName)) {
 				// 
 				AIDEEditor currentEditor = AIDEEditorExtend.getCurrentEditor(aideEditorPager);
+				
+				// 有选择多行时只格式化选中的行
+				FileSpan currentFileSpan = aideEditorPager.getCurrentFileSpan();
+				int startLine = 0;
+				int endLine = 0;
+				if (currentFileSpan != null
+					&& currentFileSpan.DW != currentFileSpan.Hw) {
+					startLine = Math.min(currentFileSpan.DW, currentFileSpan.Hw);
+					endLine = Math.max(currentFileSpan.DW, currentFileSpan.Hw);
+				}
 				ThreadPoolService defaultThreadPoolService = ThreadPoolService.getDefaultThreadPoolService();
-				defaultThreadPoolService.submit(new FormatterRunnable(currentEditor));
+				defaultThreadPoolService.submit(new FormatterRunnable(currentEditor, startLine, endLine));
 				return true;
 			}
 		}
@@ -104,9 +107,18 @@ public class ma implements MenuItemCommand, KeyStrokeCommand {
 	public static class FormatterRunnable implements Runnable {
 
 		AIDEEditor currentEditor;
+		// 格式化的行 从1开始 为0时格式化整个文件
+		int startLine;
+		int endLine;
 
 		public FormatterRunnable(AIDEEditor currentEditor) {
+			this(currentEditor, 0, 0);
+		}
+
+		public FormatterRunnable(AIDEEditor currentEditor, int startLine, int endLine) {
 			this.currentEditor = currentEditor;
+			this.startLine = startLine;
+			this.endLine = endLine;
 		}
 
 		@Override
@@ -128,48 +140,39 @@ public class ma implements MenuItemCommand, KeyStrokeCommand {
 
 		}
 
-		// 防止污染 defaultSettingsMap
-		private static final Map<String, String> defaultSettingsMap = DefaultCodeFormatterOptions.getDefaultSettings()
-		.getMap();
-
-		private void format(AIDEEditor.t editorModel) throws MalformedTreeException, BadLocationException {
+		private void format(AIDEEditor.t editorModel) {
 			EditorModel.h textBuffer = editorModel.pN(new char[0x8000]);
 			String inputText = String.valueOf(textBuffer.j6, 0, textBuffer.DW);
 
-			
-			IDocument doc = new Document(inputText);
-
-			int kind = CodeFormatter.K_COMPILATION_UNIT;
-
-			// 防止污染 defaultSettingsMap
-			HashMap<String, String> settings = new HashMap<String, String>(defaultSettingsMap);
-			// DefaultCodeFormatterOptions options = new DefaultCodeFormatterOptions(settings);
-			DefaultCodeFormatter codeFormatter = new DefaultCodeFormatter(settings);
-
-			int indentationLevel = 0;
-			String lineSeparator = "\n";
-			// 修改增量 基于 charArray offset
-			TextEdit edit = codeFormatter.format(kind, inputText, 0, inputText.length(), indentationLevel,
-												 lineSeparator);
-			if (edit == null) {
+			List<FormatEdit> edits = JavaCodeFormatter.format(inputText, this.startLine, this.endLine);
+			if (edits.isEmpty()) {
 				return;
 			}
-			// 提交修改
-			edit.apply(doc);
 
-			String outputText = doc.get();
+			// 格式化后的文本 用于计算光标位置
+			String outputText = JavaCodeFormatter.apply(inputText, edits);
+
 			// 在主线程修改 EditorModel
-			currentEditor.post(new ApplyTextRunnable(currentEditor, outputText));
+			currentEditor.post(new ApplyEditsRunnable(currentEditor, inputText, JavaCodeFormatter.getLineStarts(inputText), edits, JavaCodeFormatter.getLineStarts(outputText)));
 		}
-
 	}
 
-	public static class ApplyTextRunnable implements Runnable {
+	/**
+	 * 只替换改变的部分，保留撤销记录与光标位置
+	 */
+	public static class ApplyEditsRunnable implements Runnable {
 		AIDEEditor currentEditor;
-		String formatterOutputText;
-		public ApplyTextRunnable(AIDEEditor currentEditor, String formatterOutputText) {
+		String inputText;
+		int[] inputLineStarts;
+		List<FormatEdit> edits;
+		int[] outputLineStarts;
+
+		public ApplyEditsRunnable(AIDEEditor currentEditor, String inputText, int[] inputLineStarts, List<FormatEdit> edits, int[] outputLineStarts) {
 			this.currentEditor = currentEditor;
-			this.formatterOutputText = formatterOutputText;
+			this.inputText = inputText;
+			this.inputLineStarts = inputLineStarts;
+			this.edits = edits;
+			this.outputLineStarts = outputLineStarts;
 		}
 
 		@Override
@@ -180,37 +183,48 @@ public class ma implements MenuItemCommand, KeyStrokeCommand {
 					return;
 				}
 				synchronized (editorModel) {
-					String outputText = this.formatterOutputText;
-
-					int startLine = 1;
-					int startColumn = 1;
-
-					int endLine = editorModel.getLineCount();
-
-					int endColumn = editorModel.getColumnCount(endLine);
-
-					// 替换 行列皆以 1开始
-					// editorModel.cb(startLine, startColumn, endLine + 1, endColumn + 1, outputText, false, true);
-
-					/*
+					EditorModel.h textBuffer = editorModel.pN(new char[0x8000]);
+					if (!this.inputText.equals(String.valueOf(textBuffer.j6, 0, textBuffer.DW))) {
+						// 格式化期间已被编辑
+						return;
+					}
 
-					 */
 					AIDEEditor.EditorView editorView = AIDEEditorExtend.getEditorView(this.currentEditor);
-					
+
 					this.currentEditor.getKeyStrokeDetector().U2();
-					
+
 					int caretLine = editorView.getCaretLine();
 					int caretColumn = editorView.getCaretColumn();
-					// 清空数据
-					editorModel.Bx(new SelectedRegion(0, 0, endLine, endColumn), editorModel);
-					// 写入格式化 文本
-					editorModel.a5(0, 0, new StringReader(outputText), editorModel);
-				
-					editorView.TI(caretColumn, caretLine);
+					int caretOffset = caretLine < this.inputLineStarts.length 
+						? Math.min(this.inputLineStarts[caretLine] + caretColumn, this.inputText.length())
+						: this.inputText.length();
+
+					// 从后向前修改，前面的偏移不变
+					// 行列皆以 0开始
+					for (int i = this.edits.size() - 1; i >= 0; i--) {
+						FormatEdit formatEdit = this.edits.get(i);
+
+						int startLine = JavaCodeFormatter.getLine(this.inputLineStarts, formatEdit.offset);
+						int startColumn = formatEdit.offset - this.inputLineStarts[startLine];
+
+						if (formatEdit.length > 0) {
+							int endOffset = formatEdit.offset + formatEdit.length;
+							int endLine = JavaCodeFormatter.getLine(this.inputLineStarts, endOffset);
+							int endColumn = endOffset - this.inputLineStarts[endLine];
+							editorModel.Bx(new SelectedRegion(startLine, startColumn, endLine, endColumn), editorModel);
+						}
+						if (!formatEdit.text.isEmpty()) {
+							// 与 ys 一致 列在前
+							editorModel.a5(startColumn, startLine, new StringReader(formatEdit.text), editorModel);
+						}
+					}
+
+					int newCaretOffset = JavaCodeFormatter.getOutputOffset(this.edits, caretOffset);
+					int newCaretLine = JavaCodeFormatter.getLine(this.outputLineStarts, newCaretOffset);
+					editorView.TI(newCaretOffset - this.outputLineStarts[newCaretLine], newCaretLine);
 				}
 			}
 		}
-
 	}
 
 	//									if( !true ){
@@ -16,6 +16,7 @@ import com.aide.codemodel.language.xml.XmlCodeModel;
 import com.aide.common.AppLog;
 import com.aide.ui.project.internal.GradleTools;
 import io.github.zeroaicy.aide.aaptcompiler.ResourceUtils;
+import io.github.zeroaicy.aide.completion.ModuleResourceTables;
 import io.github.zeroaicy.aide.completion.XmlCompletionUtils;
 import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
 import io.github.zeroaicy.util.reflect.ReflectPie;
@@ -112,28 +113,38 @@ public class v7 {
 
 	private static AtomicBoolean inited = new AtomicBoolean(false);
 	private void init() {
-		if (inited.get()) {
+		if (!inited.compareAndSet(false, true)) {
 			return;
 		}
-		inited.set(true);
-		
-		initAsync();
+		// assemblyMap由引擎线程修改，在调用线程复制
+		final HashMap<Integer, FileSpace.Assembly> assemblyMap = new HashMap<Integer, FileSpace.Assembly>(getAssemblyMap());
+		// 加载资源表与jar耗时，不阻塞首次补全
+		ThreadPoolService.getDefaultThreadPoolService().submit(new Runnable(){
+				@Override
+				public void run() {
+					try {
+						initAsync(assemblyMap);
+					}
+					catch (Throwable e) {
+						AppLog.e(TAG, "initAsync", e);
+						// 加载失败，下次补全时重试
+						inited.set(false);
+					}
+				}
+			});
 	}
 
 
-	public void initAsync() {
+	private void initAsync(HashMap<Integer, FileSpace.Assembly> assemblyMap) throws IOException {
 		AppLog.println_e("initAsync");
 		
-		HashMap<Integer, FileSpace.Assembly> assemblyMap = new HashMap<Integer, FileSpace.Assembly>(getAssemblyMap());
-		
 		// synchronized (assemblyMap) {
 
 		// 遍历创建项目
-		ResourceUtils resourceUtil = XmlCompletionUtils.getResourceUtil();
 		JavaViewUtils javaViewUtils = XmlCompletionUtils.getJavaViewUtils();
 
 		Set<String> loadJarPaths = new HashSet<>();
-		Set<File> resDirs = new HashSet<>();
+		final Set<File> resDirs = new HashSet<>();
 		
 		for (Map.Entry<Integer, FileSpace.Assembly> entry : assemblyMap.entrySet()) {
 
@@ -170,18 +181,18 @@ public class v7 {
 				loadJarPaths.add(classesJarFile.getAbsolutePath());
 			}
 		}
-		// 置空 appResourceTable
-		resourceUtil.removeTable("app");
-		
-		ResourceTable appResourceTable = resourceUtil.forPackage("app", resDirs.toArray(new File[resDirs.size()]));
-		
-		
-		try {
-			javaViewUtils.loadJar(loadJarPaths);
-		}
-		catch (IOException e) {
-			AppLog.e(e);
-		}
+		// 在当前线程建立新的app资源表，完成后替换
+		// 补全线程在此期间使用旧的app资源表
+		final ResourceUtils resourceUtil = XmlCompletionUtils.getResourceUtil();
+		XmlCompletionUtils.getModuleResourceTables().rebuildAppTable(new ModuleResourceTables.Builder<ResourceTable>(){
+				@Override
+				public ResourceTable build() {
+					resourceUtil.removeTable("app");
+					return resourceUtil.forPackage("app", resDirs.toArray(new File[resDirs.size()]));
+				}
+			});
+
+		javaViewUtils.loadJar(loadJarPaths);
 	}
 	/**
 	 * AssemblyId -> Assembly[assemblyName，assembly路径，]
@@ -0,0 +1,46 @@
+package com.aide.codemodel;
+
+import java.util.Arrays;
+
+/**
+ * 先序遍历语法树节点
+ * 显式栈遍历，避免生成代码嵌套过深时栈溢出
+ * 子节点倒序入栈，顺序与递归相同
+ * 节点栈复用，仅在调用线程中使用
+ */
+public class SyntaxTreeWalker {
+
+	/**
+	 * 节点的子节点 [SyntaxTree]
+	 */
+	public interface Nodes {
+		int getChildCount(int nodeIndex);
+
+		int getChildNode(int nodeIndex, int childIndex);
+	}
+
+	public interface Visitor {
+		void visit(int nodeIndex);
+	}
+
+	private int[] nodeStack = new int[256];
+
+	public void walk(Nodes nodes, int rootNode, Visitor visitor) {
+		int[] nodeStack = this.nodeStack;
+		int top = 0;
+		nodeStack[top++] = rootNode;
+		while (top > 0) {
+			int nodeIndex = nodeStack[--top];
+			visitor.visit(nodeIndex);
+
+			int childCount = nodes.getChildCount(nodeIndex);
+			if (top + childCount > nodeStack.length) {
+				nodeStack = Arrays.copyOf(nodeStack, Math.max(nodeStack.length * 2, top + childCount));
+				this.nodeStack = nodeStack;
+			}
+			for (int childIndex = childCount - 1; childIndex >= 0; childIndex--) {
+				nodeStack[top++] = nodes.getChildNode(nodeIndex, childIndex);
+			}
+		}
+	}
+}
@@ -18,6 +18,7 @@ import com.aide.codemodel.api.callback.TemplateEvaluatorCallback;
 import com.aide.codemodel.api.callback.UsageSearcherCallback;
 import com.aide.codemodel.api.abstraction.CodeModel;
 import com.aide.codemodel.language.java.JavaCodeModelPro;
+import com.aide.codemodel.language.smali.SmaliCodeModel;
 import com.aide.engine.EngineSolution;
 import com.aide.codemodel.api.FileEntry;
 import com.aide.codemodel.api.SyntaxTreeStyles;
@@ -132,14 +133,26 @@ public class ZeroAicyModel extends AIDEModel {
 	}
 
 
+	// 解决方案(项目、依赖、渠道)改变时递增
+	// 用于判断按解决方案计算的缓存[如类路径]是否过期
+	private volatile int solutionGeneration;
+
+	public int getSolutionGeneration( ) {
+		return this.solutionGeneration;
+	}
+
 	// configure
 	@Override
 	public void J0( ) {
+		this.solutionGeneration++;
 		for ( CodeModel codeModel : getCodeModels() ) {
 			if ( codeModel instanceof JavaCodeModelPro ) {
 				JavaCodeModelPro javaCodeModelPro = (JavaCodeModelPro)codeModel;
 				javaCodeModelPro.reset();
 			}
+			if ( codeModel instanceof SmaliCodeModel ) {
+				((SmaliCodeModel)codeModel).reset();
+			}
 		}
 		super.J0();
 	}
@@ -147,5 +160,6 @@ public class ZeroAicyModel extends AIDEModel {
 	@Override
 	public void setEngineSolution( EngineSolution engineSolution ) {
 		super.setEngineSolution(engineSolution);
+		this.solutionGeneration++;
 	}
 }
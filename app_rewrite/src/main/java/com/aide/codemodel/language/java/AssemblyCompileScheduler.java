@@ -0,0 +1,248 @@
+package com.aide.codemodel.language.java;
+
+import com.aide.common.AppLog;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按assembly依赖关系调度编译
+ * 被依赖的assembly先编译，互不依赖的assembly在有界线程池中并发编译
+ * 被依赖的assembly编译失败时，依赖它的assembly不编译
+ */
+public class AssemblyCompileScheduler {
+
+	private static final String TAG = "AssemblyCompileScheduler";
+
+	// 每个编译任务持有独立的 LookupEnvironment，并发数不宜过大
+	static final int MAX_THREADS = 4;
+
+	public interface CompileTask {
+		/**
+		 * 编译assembly 没有错误时返回true
+		 */
+		boolean compile(int assembly) throws Exception;
+	}
+
+	/**
+	 * assembly的编译结果
+	 */
+	public static final int SUCCESS = 0;
+	public static final int FAILED = 1;
+	// 被依赖的assembly失败，未编译
+	public static final int SKIPPED = 2;
+
+	private final int threadCount;
+
+	public AssemblyCompileScheduler(int threadCount) {
+		this.threadCount = Math.max(1, threadCount);
+	}
+
+	public static AssemblyCompileScheduler create() {
+		int cores = Runtime.getRuntime().availableProcessors();
+		return new AssemblyCompileScheduler(Math.min(cores, MAX_THREADS));
+	}
+
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * 拓扑顺序 被依赖的在前，同一层按assembly升序
+	 * references: assembly -> 它直接依赖的assembly，不在assemblys中的忽略
+	 * 循环依赖的assembly按升序放在最后
+	 */
+	public static List<Integer> topologicalOrder(Collection<Integer> assemblys, Map<Integer, Set<Integer>> references) {
+		Map<Integer, Integer> pendingCounts = new TreeMap<>();
+		Map<Integer, List<Integer>> dependents = new HashMap<>();
+		buildGraph(assemblys, references, pendingCounts, dependents);
+
+		List<Integer> order = new ArrayList<>(pendingCounts.size());
+		TreeSet<Integer> ready = new TreeSet<>();
+		for (Map.Entry<Integer, Integer> entry : pendingCounts.entrySet()) {
+			if (entry.getValue() == 0) {
+				ready.add(entry.getKey());
+			}
+		}
+		while (!ready.isEmpty()) {
+			int assembly = ready.pollFirst();
+			order.add(assembly);
+			for (int dependent : getDependents(dependents, assembly)) {
+				int count = pendingCounts.get(dependent) - 1;
+				pendingCounts.put(dependent, count);
+				if (count == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+		if (order.size() < pendingCounts.size()) {
+			for (Map.Entry<Integer, Integer> entry : pendingCounts.entrySet()) {
+				if (entry.getValue() > 0) {
+					AppLog.d(TAG, "循环依赖 assembly %d", entry.getKey());
+					order.add(entry.getKey());
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * 编译所有assembly，返回 assembly -> SUCCESS | FAILED | SKIPPED
+	 */
+	public Map<Integer, Integer> run(Collection<Integer> assemblys, Map<Integer, Set<Integer>> references, final CompileTask compileTask) throws InterruptedException {
+		Map<Integer, Integer> pendingCounts = new TreeMap<>();
+		Map<Integer, List<Integer>> dependents = new HashMap<>();
+		buildGraph(assemblys, references, pendingCounts, dependents);
+
+		Map<Integer, Integer> results = new TreeMap<>();
+		if (pendingCounts.isEmpty()) {
+			return results;
+		}
+
+		TreeSet<Integer> ready = new TreeSet<>();
+		for (Map.Entry<Integer, Integer> entry : pendingCounts.entrySet()) {
+			if (entry.getValue() == 0) {
+				ready.add(entry.getKey());
+			}
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(this.threadCount, pendingCounts.size()), new CompileThreadFactory());
+		ExecutorCompletionService<int[]> completionService = new ExecutorCompletionService<>(executorService);
+		try {
+			int running = 0;
+			while (results.size() < pendingCounts.size()) {
+				while (!ready.isEmpty()) {
+					final int assembly = ready.pollFirst();
+					completionService.submit(new Callable<int[]>() {
+							@Override
+							public int[] call() {
+								return new int[]{assembly, compile(compileTask, assembly)};
+							}
+						});
+					running++;
+				}
+				if (running == 0) {
+					// 剩余的都在循环依赖中，按升序逐个编译
+					for (Map.Entry<Integer, Integer> entry : pendingCounts.entrySet()) {
+						int assembly = entry.getKey();
+						if (!results.containsKey(assembly)) {
+							AppLog.d(TAG, "循环依赖 assembly %d", assembly);
+							results.put(assembly, compile(compileTask, assembly));
+						}
+					}
+					break;
+				}
+
+				int[] result;
+				try {
+					result = completionService.take().get();
+				}
+				catch (ExecutionException e) {
+					// compile已捕获异常
+					throw new IllegalStateException(e.getCause());
+				}
+				running--;
+
+				int assembly = result[0];
+				results.put(assembly, result[1]);
+				for (int dependent : getDependents(dependents, assembly)) {
+					if (result[1] != SUCCESS) {
+						skip(dependent, dependents, results);
+						continue;
+					}
+					if (results.containsKey(dependent)) {
+						continue;
+					}
+					int count = pendingCounts.get(dependent) - 1;
+					pendingCounts.put(dependent, count);
+					if (count == 0) {
+						ready.add(dependent);
+					}
+				}
+			}
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+		return results;
+	}
+
+	private static int compile(CompileTask compileTask, int assembly) {
+		try {
+			return compileTask.compile(assembly) ? SUCCESS : FAILED;
+		}
+		catch (Throwable e) {
+			AppLog.e(TAG, "编译assembly失败: " + assembly, e);
+			return FAILED;
+		}
+	}
+
+	/**
+	 * 跳过assembly以及所有依赖它的assembly
+	 */
+	private static void skip(int assembly, Map<Integer, List<Integer>> dependents, Map<Integer, Integer> results) {
+		if (results.containsKey(assembly)) {
+			return;
+		}
+		results.put(assembly, SKIPPED);
+		for (int dependent : getDependents(dependents, assembly)) {
+			skip(dependent, dependents, results);
+		}
+	}
+
+	private static void buildGraph(Collection<Integer> assemblys, Map<Integer, Set<Integer>> references, Map<Integer, Integer> pendingCounts, Map<Integer, List<Integer>> dependents) {
+		for (int assembly : assemblys) {
+			pendingCounts.put(assembly, 0);
+		}
+		for (int assembly : pendingCounts.keySet()) {
+			Set<Integer> referencedAssemblys = references.get(assembly);
+			if (referencedAssemblys == null) {
+				continue;
+			}
+			int count = 0;
+			for (int referencedAssembly : new TreeSet<>(referencedAssemblys)) {
+				if (referencedAssembly == assembly
+					|| !pendingCounts.containsKey(referencedAssembly)) {
+					continue;
+				}
+				count++;
+				List<Integer> list = dependents.get(referencedAssembly);
+				if (list == null) {
+					list = new ArrayList<>();
+					dependents.put(referencedAssembly, list);
+				}
+				list.add(assembly);
+			}
+			pendingCounts.put(assembly, count);
+		}
+	}
+
+	private static List<Integer> getDependents(Map<Integer, List<Integer>> dependents, int assembly) {
+		List<Integer> list = dependents.get(assembly);
+		return list == null ? Collections.<Integer>emptyList() : list;
+	}
+
+	private static class CompileThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "ecj-compile-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
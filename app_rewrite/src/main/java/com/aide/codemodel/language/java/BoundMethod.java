@@ -0,0 +1,54 @@
+package com.aide.codemodel.language.java;
+
+import com.aide.common.AppLog;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 绑定一次的私有无参方法
+ * 用于调用底包中混淆的私有方法，不再每次调用都按名称查找
+ */
+final class BoundMethod {
+
+	private static final String TAG = "BoundMethod";
+
+	private final Method method;
+
+	private BoundMethod(Method method) {
+		this.method = method;
+	}
+
+	/**
+	 * 从type向上查找无参方法
+	 * 找不到时返回null
+	 */
+	static BoundMethod find(Class<?> type, String name) {
+		NoSuchMethodException exception = null;
+		for (; type != null; type = type.getSuperclass()) {
+			try {
+				Method method = type.getDeclaredMethod(name);
+				method.setAccessible(true);
+				return new BoundMethod(method);
+			}
+			catch (NoSuchMethodException e) {
+				if (exception == null) {
+					exception = e;
+				}
+			}
+		}
+		AppLog.e(TAG, "没有找到 " + name + "()", exception);
+		return null;
+	}
+
+	/**
+	 * 原样抛出目标方法的异常
+	 */
+	void invoke(Object target) throws Throwable {
+		try {
+			this.method.invoke(target);
+		}
+		catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
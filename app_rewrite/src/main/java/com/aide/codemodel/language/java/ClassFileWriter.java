@@ -0,0 +1,67 @@
+package com.aide.codemodel.language.java;
+
+import io.github.zeroaicy.util.IOUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * IncrementalJavaCompiler的class写入
+ * 内容未变化时不写入，保留修改时间，否则增量dexing会认为class已更新
+ */
+final class ClassFileWriter {
+
+	private ClassFileWriter() {}
+
+	/**
+	 * 已有的class内容，不存在时返回null
+	 */
+	static byte[] readClassFile(File file) throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		return IOUtils.readAllBytes(new FileInputStream(file), true);
+	}
+
+	/**
+	 * 先比较长度，再比较内容
+	 */
+	static boolean isSameClassFile(File file, byte[] bytes) {
+		if (!file.isFile()
+			|| file.length() != bytes.length) {
+			return false;
+		}
+		try {
+			return Arrays.equals(readClassFile(file), bytes);
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 先写入临时文件再重命名，不留下不完整的class
+	 */
+	static void writeClassFile(File file, byte[] bytes) throws IOException {
+		File parentFile = file.getParentFile();
+		parentFile.mkdirs();
+		File tempFile = new File(parentFile, file.getName() + ".tmp");
+		FileOutputStream output = null;
+		try {
+			output = new FileOutputStream(tempFile);
+			output.write(bytes);
+			output.close();
+			output = null;
+			file.delete();
+			if (!tempFile.renameTo(file)) {
+				throw new IOException("Could not write " + file.getPath());
+			}
+		}
+		finally {
+			IOUtils.close(output);
+			tempFile.delete();
+		}
+	}
+}
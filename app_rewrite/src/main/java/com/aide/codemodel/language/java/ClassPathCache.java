@@ -0,0 +1,90 @@
+package com.aide.codemodel.language.java;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * assembly -> 可引用的jar
+ * 按解决方案版本缓存，版本改变时重新扫描
+ */
+class ClassPathCache {
+
+	/**
+	 * 扫描assembly可引用的jar
+	 */
+	interface Scanner {
+		void scan(int assembly, Builder builder);
+	}
+
+	/**
+	 * LinkedHashSet 保持顺序并去重
+	 */
+	static class Builder {
+		final Set<File> platformClassPaths = new LinkedHashSet<>();
+		final Set<File> classPaths = new LinkedHashSet<>();
+
+		/**
+		 * 非jar返回false
+		 */
+		boolean addJar(String fileName, String filePath) {
+			if (!fileName.endsWith(".jar")) {
+				return false;
+			}
+			if (isPlatformJar(fileName)) {
+				return this.platformClassPaths.add(new File(filePath));
+			}
+			return this.classPaths.add(new File(filePath));
+		}
+	}
+
+	/**
+	 * 某个assembly的类路径 以及计算时的解决方案版本
+	 */
+	static class ClassPaths {
+		final int generation;
+		final List<File> platformClassPaths;
+		final List<File> classPaths;
+
+		ClassPaths(int generation, Collection<File> platformClassPaths, Collection<File> classPaths) {
+			this.generation = generation;
+			this.platformClassPaths = new ArrayList<File>(platformClassPaths);
+			this.classPaths = new ArrayList<File>(classPaths);
+		}
+	}
+
+	// assembly -> 类路径
+	private final Map<Integer, ClassPaths> classPaths = new HashMap<>();
+
+	static boolean isPlatformJar(String fileName) {
+		return fileName.equals("android.jar")
+			|| fileName.equals("rt.jar")
+			|| fileName.equals("core-lambda-stubs.jar");
+	}
+
+	/**
+	 * assembly的类路径已缓存且未过期
+	 */
+	synchronized boolean isUnchanged(int assembly, int generation) {
+		ClassPaths cached = this.classPaths.get(assembly);
+		return cached != null 
+			&& cached.generation == generation;
+	}
+
+	synchronized ClassPaths get(int assembly, int generation, Scanner scanner) {
+		ClassPaths cached = this.classPaths.get(assembly);
+		if (cached == null 
+			|| cached.generation != generation) {
+			Builder builder = new Builder();
+			scanner.scan(assembly, builder);
+			cached = new ClassPaths(generation, builder.platformClassPaths, builder.classPaths);
+			this.classPaths.put(assembly, cached);
+		}
+		return cached;
+	}
+}
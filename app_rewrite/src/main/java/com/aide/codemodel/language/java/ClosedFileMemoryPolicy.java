@@ -0,0 +1,93 @@
+package com.aide.codemodel.language.java;
+
+import io.github.zeroaicy.aide.services.EngineMemoryGovernor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 已关闭文件在内存压力下的ecj缓存与分析
+ * 只记录状态，缓存由 EclipseJavaCodeAnalyzer2释放
+ * 只在分析线程中使用
+ */
+class ClosedFileMemoryPolicy {
+
+	// 上次采样的内存级别
+	private int memoryLevel = EngineMemoryGovernor.LEVEL_NORMAL;
+
+	// 因内存压力跳过ecj分析的文件 fileId -> 跳过时的级别
+	private final Map<Integer, Integer> skippedFileLevels = new HashMap<>();
+	// 级别下降后待重新分析的文件
+	private final Set<Integer> resubmitFileIds = new HashSet<>();
+
+	public int getMemoryLevel() {
+		return this.memoryLevel;
+	}
+
+	/**
+	 * 应用新采样的级别
+	 * 级别下降时将高于新级别时跳过的文件加入重新分析
+	 * 返回true时需要释放已关闭文件的ecj缓存[刚进入 LEVEL_TRIM_CLOSED_FILES]
+	 */
+	public boolean update(int memoryLevel) {
+		boolean releaseClosedFiles = memoryLevel >= EngineMemoryGovernor.LEVEL_TRIM_CLOSED_FILES
+			&& this.memoryLevel < EngineMemoryGovernor.LEVEL_TRIM_CLOSED_FILES;
+		if (memoryLevel < this.memoryLevel) {
+			for (Map.Entry<Integer, Integer> entry : this.skippedFileLevels.entrySet()) {
+				if (entry.getValue() > memoryLevel) {
+					this.resubmitFileIds.add(entry.getKey());
+				}
+			}
+		}
+		this.memoryLevel = memoryLevel;
+		return releaseClosedFiles;
+	}
+
+	/**
+	 * 是否跳过已关闭文件的ecj分析
+	 */
+	public boolean shouldSkip(boolean closedFile) {
+		return closedFile && this.memoryLevel >= EngineMemoryGovernor.LEVEL_SUSPEND_BACKGROUND;
+	}
+
+	/**
+	 * 分析后是否不保留ecj缓存
+	 */
+	public boolean shouldRelease(boolean closedFile) {
+		return closedFile && this.memoryLevel >= EngineMemoryGovernor.LEVEL_TRIM_CLOSED_FILES;
+	}
+
+	public void skipped(int fileId) {
+		this.skippedFileLevels.put(fileId, this.memoryLevel);
+	}
+
+	public void analyzed(int fileId) {
+		this.skippedFileLevels.remove(fileId);
+	}
+
+	public boolean isSkipped(int fileId) {
+		return this.skippedFileLevels.containsKey(fileId);
+	}
+
+	public boolean hasResubmitFiles() {
+		return !this.resubmitFileIds.isEmpty();
+	}
+
+	/**
+	 * 取出待重新分析并且仍处于跳过状态的文件
+	 * 取出的文件不再记录为跳过，级别再次升高时重新分析会再次跳过
+	 */
+	public List<Integer> takeResubmitFileIds() {
+		List<Integer> fileIds = new ArrayList<>();
+		for (int fileId : this.resubmitFileIds) {
+			if (this.skippedFileLevels.remove(fileId) != null) {
+				fileIds.add(fileId);
+			}
+		}
+		this.resubmitFileIds.clear();
+		return fileIds;
+	}
+}
@@ -6,23 +6,42 @@ import com.aide.codemodel.api.Model;
 import com.aide.codemodel.api.SyntaxTree;
 import com.aide.codemodel.api.abstraction.CodeModel;
 import com.aide.codemodel.api.abstraction.Language;
-import com.aide.codemodel.api.collections.FunctionOfIntLong;
-import com.aide.codemodel.api.collections.HashtableOfInt;
+import com.aide.codemodel.ZeroAicyModel;
+import com.aide.codemodel.api.collections.OrderedMapOfIntInt;
 import com.aide.codemodel.api.collections.SetOfFileEntry;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.TreeMap;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.tool.EclipseCompiler;
+import io.github.zeroaicy.aide.preference.ZeroAicySetting;
+import io.github.zeroaicy.aide.utils.BuildTrace;
+import io.github.zeroaicy.util.IOUtils;
+import io.github.zeroaicy.util.reflect.ReflectPie;
 
 import static javax.tools.StandardLocation.CLASS_OUTPUT;
 import static javax.tools.StandardLocation.CLASS_PATH;
@@ -45,19 +64,68 @@ public class ECJJavaCodeCompiler implements com.aide.codemodel.api.abstraction.C
 		// TODO: Implement this method
 	}
 
+	// 本轮待编译的assembly -> 其中一个源码文件
+	private final Map<Integer, FileEntry> myPendingAssemblys = new LinkedHashMap<>();
+
+	/**
+	 * 只记录文件所在的assembly，在completed()中统一编译
+	 * 每个assembly只编译一次
+	 */
 	@Override
 	public void compile(List<SyntaxTree> list, boolean p) {
 		for (SyntaxTree syntaxTree : list) {
 			if (syntaxTree.getLanguage() == this.language) {
-				try {
-					compileAssembly(syntaxTree.getFile());
-				}
-				catch (Exception e) {
-					return;
+				FileEntry fileEntry = syntaxTree.getFile();
+				synchronized (myPendingAssemblys) {
+					if (!myPendingAssemblys.containsKey(fileEntry.getAssembly())) {
+						myPendingAssemblys.put(fileEntry.getAssembly(), fileEntry);
+					}
 				}
 			}
 		}
+	}
+
+	@Override
+	public void completed() {
+		Map<Integer, FileEntry> assemblyFileEntrys;
+		synchronized (myPendingAssemblys) {
+			if (myPendingAssemblys.isEmpty()) {
+				return;
+			}
+			assemblyFileEntrys = new LinkedHashMap<>(myPendingAssemblys);
+			myPendingAssemblys.clear();
+		}
+
+		if (incremental) {
+			compileAssemblys(assemblyFileEntrys.keySet());
+			return;
+		}
+		for (FileEntry fileEntry : assemblyFileEntrys.values()) {
+			try {
+				compileAssembly(fileEntry);
+			}
+			catch (Exception e) {
+				Log.d(LOG_TAG, "compile: " + e.getMessage());
+				return;
+			}
+		}
+	}
+
+	// 增量编译，为false时每次使用javax tools完整编译
+	private boolean incremental = true;
 
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	// 按依赖关系并发编译assembly
+	private AssemblyCompileScheduler scheduler = AssemblyCompileScheduler.create();
+
+	/**
+	 * 同时编译的assembly数量 为1时顺序编译
+	 */
+	public void setCompileThreadCount(int threadCount) {
+		this.scheduler = new AssemblyCompileScheduler(threadCount);
 	}
 
 	@Override
@@ -66,87 +134,94 @@ public class ECJJavaCodeCompiler implements com.aide.codemodel.api.abstraction.C
 	}
 
     private static final String LOG_TAG = "ECJJavaCodeCompiler";
-    private final FunctionOfIntLong caches = new FunctionOfIntLong();
-    private final HashtableOfInt<List<File>> myPlatformClassPaths = new HashtableOfInt<>();
-    private final HashtableOfInt<List<File>> myClassPaths = new HashtableOfInt<>();
 
+	// assembly -> 类路径
+    private final ClassPathCache myClassPaths = new ClassPathCache();
 
+	private final ClassPathCache.Scanner myClassPathScanner = new ClassPathCache.Scanner(){
+		@Override
+		public void scan(int assembly, ClassPathCache.Builder builder) {
+			scanJarClassPaths(assembly, builder);
+		}
+	};
+
+	/**
+	 * 解决方案版本，改变时所有类路径缓存失效
+	 * 调用者可保存此值，之后比较以判断类路径是否改变
+	 */
+	public int getClassPathGeneration() {
+		if (model instanceof ZeroAicyModel) {
+			return ((ZeroAicyModel) model).getSolutionGeneration();
+		}
+		return 0;
+	}
 
-    private void getClassPaths(List<File> platformClassPaths, List<File> classPaths, List<File> sourcePaths, FileEntry fileEntry) {
-        boolean addedClassPaths = true;
+	/**
+	 * assembly的类路径已缓存且未过期
+	 */
+	public boolean isClassPathUnchanged(int assembly) {
+		return myClassPaths.isUnchanged(assembly, getClassPathGeneration());
+	}
 
-		// contains -> Hw
+    private synchronized void getClassPaths(List<File> platformClassPaths, List<File> classPaths, List<File> sourcePaths, FileEntry fileEntry) {
         int assembly = fileEntry.getAssembly();
-		if (caches.contains(assembly)) {
-			// get -> v5
-            platformClassPaths.addAll(myPlatformClassPaths.get(assembly));
-            classPaths.addAll(myClassPaths.get(assembly));
-            addedClassPaths = false;
-        }
+		ClassPathCache.ClassPaths cached = getJarClassPaths(assembly);
 
-        if (addedClassPaths) {
-			SetOfFileEntry files = model.fileSpace.getSolutionFiles();
-            files.default_Iterator.init();
-            while (files.default_Iterator.hasMoreElements()) {
-				FileEntry file = files.default_Iterator.nextKey();
-                if (file.isArchiveEntry()) {
-                    file = file.getParentArchive();
-                }
-
-				// getFullName -> getFullNameString
-				// getAssembly -> gn
-				String fileName = file.getFullNameString();
-
-                if (assembly == file.getAssembly() 
-					|| model.fileSpace.isReferableFrom(model.fileSpace.getFileEntry(assembly), file)) {
-
-                    if (fileName.equals("android.jar") ||
-						fileName.equals("rt.jar") ||
-						fileName.equals("core-lambda-stubs.jar")) {
-						File rawFile = new File(file.getPathString());
-                        if (!platformClassPaths.contains(rawFile)) {
-                            platformClassPaths.add(rawFile);
-                            Log.d(LOG_TAG, "Added Platform Jar " + rawFile.getPath());
-                        }
-                    } else {
-                        if (fileName.endsWith(".jar")) {
-							File rawFile = new File(file.getPathString());
-                            if (!classPaths.contains(rawFile)) {
-                                classPaths.add(rawFile);
-                                Log.d(LOG_TAG, "Added Jar " + rawFile.getPath());
-                            }
-                        }
-                    }
-                }
-            }
-
-        }
+		platformClassPaths.addAll(cached.platformClassPaths);
+		classPaths.addAll(cached.classPaths);
 
+		Set<File> sourcePathSet = new LinkedHashSet<>(sourcePaths);
+		FileEntry assemblyFileEntry = model.fileSpace.getFileEntry(assembly);
 		// getCheckedSolutionFiles -> KD
 		SetOfFileEntry files = model.fileSpace.KD();
         files.default_Iterator.init();
         while (files.default_Iterator.hasMoreElements()) {
 			FileEntry file = files.default_Iterator.nextKey();
             // getAssembly -> gn
-			if (assembly == file.getAssembly() || model.fileSpace.isReferableFrom(model.fileSpace.getFileEntry(assembly), file)) {
+			if (assembly == file.getAssembly() || model.fileSpace.isReferableFrom(assemblyFileEntry, file)) {
                 if (file.getFullNameString().endsWith(".java")) {
 					File rawFile = new File(file.getPathString());
-					if (!sourcePaths.contains(rawFile)) {
+					if (sourcePathSet.add(rawFile)) {
 						sourcePaths.add(rawFile);
                         Log.d(LOG_TAG, "Added Source " + rawFile.getPath());
                     }
                 }
             }
         }
+    }
 
-        if (addedClassPaths) {
-            caches.put(assembly, 0);
+	/**
+	 * assembly可引用的jar 按解决方案版本缓存
+	 */
+	private ClassPathCache.ClassPaths getJarClassPaths(int assembly) {
+		return myClassPaths.get(assembly, getClassPathGeneration(), myClassPathScanner);
+	}
 
-			// put -> VH
-            myPlatformClassPaths.put(assembly, platformClassPaths);
-            myClassPaths.put(assembly, classPaths);
-        }
-    }
+	private void scanJarClassPaths(int assembly, ClassPathCache.Builder builder) {
+		FileEntry assemblyFileEntry = model.fileSpace.getFileEntry(assembly);
+		SetOfFileEntry files = model.fileSpace.getSolutionFiles();
+		files.default_Iterator.init();
+		while (files.default_Iterator.hasMoreElements()) {
+			FileEntry file = files.default_Iterator.nextKey();
+			if (file.isArchiveEntry()) {
+				file = file.getParentArchive();
+			}
+
+			// getFullName -> getFullNameString
+			// getAssembly -> gn
+			String fileName = file.getFullNameString();
+			if (!fileName.endsWith(".jar")) {
+				continue;
+			}
+
+			if (assembly == file.getAssembly() 
+				|| model.fileSpace.isReferableFrom(assemblyFileEntry, file)) {
+				if (builder.addJar(fileName, file.getPathString())) {
+					Log.d(LOG_TAG, "Added Jar " + file.getPathString());
+				}
+			}
+		}
+	}
 
     public void compile() throws Exception {
 //        
@@ -167,6 +242,22 @@ public class ECJJavaCodeCompiler implements com.aide.codemodel.api.abstraction.C
         internalCompile(fileEntry, sourceLevel, targetLevel, destinationPath);
     }
 
+	/**
+	 * assembly的增量编译器 以及创建时的参数
+	 */
+	private static class IncrementalCompilerEntry {
+		final String key;
+		final IncrementalJavaCompiler compiler;
+
+		IncrementalCompilerEntry(String key, IncrementalJavaCompiler compiler) {
+			this.key = key;
+			this.compiler = compiler;
+		}
+	}
+
+	// assembly -> 增量编译器
+	private final Map<Integer, IncrementalCompilerEntry> myIncrementalCompilers = new HashMap<>();
+
     private void internalCompile(FileEntry fileEntry, String sourceLevel, String targetLevel, String destinationPath) throws Exception {
 		ByteArrayOutputStream output = new ByteArrayOutputStream();
         try {
@@ -200,9 +291,9 @@ public class ECJJavaCodeCompiler implements com.aide.codemodel.api.abstraction.C
             fileSystem.setLocation(PLATFORM_CLASS_PATH, platformClassPaths);
             fileSystem.setLocation(CLASS_PATH, classPaths);
 
-			File[] files = null;
-            List<File> asList = Arrays.<File>asList(files);
-			fileSystem.setLocation(CLASS_OUTPUT, asList);
+			File destinationDir = new File(destinationPath);
+			destinationDir.mkdirs();
+			fileSystem.setLocation(CLASS_OUTPUT, Arrays.asList(destinationDir));
 
 			JavaCompiler.CompilationTask task = compiler.getTask(
 				outputPrinter,
@@ -222,4 +313,354 @@ public class ECJJavaCodeCompiler implements com.aide.codemodel.api.abstraction.C
 			}
         }
     }
+
+	/**
+	 * 一个assembly自己的源码
+	 */
+	private static class ModuleSources {
+		// 用于查询输出目录与编译参数
+		final FileEntry fileEntry;
+		final List<FileEntrySource> sources = new ArrayList<>();
+
+		ModuleSources(FileEntry fileEntry) {
+			this.fileEntry = fileEntry;
+		}
+	}
+
+	/**
+	 * 从FileEntry读取源码，包含编辑器中未保存的内容
+	 * 版本在创建时读取，编译期间引擎线程等待编译完成，内容不会改变
+	 */
+	private static class FileEntrySource implements IncrementalJavaCompiler.Source {
+		private final FileEntry fileEntry;
+		private final String path;
+		private final long version;
+
+		FileEntrySource(FileEntry fileEntry) {
+			this.fileEntry = fileEntry;
+			this.path = fileEntry.getPathString();
+			this.version = fileEntry.getVersion();
+		}
+
+		@Override
+		public String getPath() {
+			return this.path;
+		}
+
+		@Override
+		public long getVersion() {
+			return this.version;
+		}
+
+		@Override
+		public char[] getContents() throws IOException {
+			return IOUtils.readAllChars(this.fileEntry.getReader(), true);
+		}
+	}
+
+	// 编译顺序与文件遍历顺序无关
+	private static final Comparator<FileEntrySource> SOURCE_PATH_COMPARATOR = new Comparator<FileEntrySource>(){
+		@Override
+		public int compare(FileEntrySource source, FileEntrySource other) {
+			return source.getPath().compareTo(other.getPath());
+		}
+	};
+
+	/**
+	 * 暂存一个assembly的诊断信息
+	 * 所有assembly编译完成后按拓扑顺序写入ErrorTable，结果与并发顺序无关
+	 */
+	private static class BufferedDiagnosticListener implements DiagnosticListener<JavaFileObject> {
+		private final List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<>();
+
+		@Override
+		public synchronized void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+			this.diagnostics.add(diagnostic);
+		}
+
+		synchronized void replay(DiagnosticListener<JavaFileObject> diagnosticListener) {
+			for (Diagnostic<? extends JavaFileObject> diagnostic : this.diagnostics) {
+				diagnosticListener.report(diagnostic);
+			}
+			this.diagnostics.clear();
+		}
+	}
+
+	// assembly -> 被依赖的assembly中尚未处理的结构改变[简单名]
+	private final Map<Integer, Set<String>> myReferencedChangedNames = new HashMap<>();
+
+	/**
+	 * 编译assemblys以及它们依赖的assembly
+	 * 每个assembly只编译自己的源码，被依赖的assembly的输出目录作为类路径
+	 */
+	private synchronized void compileAssemblys(Collection<Integer> requestedAssemblys) {
+		final Map<Integer, ModuleSources> modules = getModuleSources();
+		final Map<Integer, Set<Integer>> references = getAssemblyReferences(modules.keySet());
+
+		// 加入被依赖的assembly
+		Set<Integer> assemblys = new TreeSet<>();
+		for (int assembly : requestedAssemblys) {
+			if (modules.containsKey(assembly)) {
+				assemblys.add(assembly);
+				assemblys.addAll(getTransitiveReferences(assembly, references));
+			}
+		}
+		if (assemblys.isEmpty()) {
+			return;
+		}
+
+		BuildTrace.setEnabled(ZeroAicySetting.isEnableBuildTrace());
+		final BuildTrace.Span ecjSpan = BuildTrace.begin("ecj");
+		try {
+			compileAssemblys(assemblys, modules, references, ecjSpan);
+		}
+		finally {
+			ecjSpan.end();
+			// 与打包进程的 intermediates 目录相同 [输出目录的同级]
+			int assembly = assemblys.iterator().next();
+			File outputDir = new File(model.fileSpace.getReleaseOutputPath(modules.get(assembly).fileEntry));
+			BuildTrace.write(ecjSpan, new File(outputDir.getParentFile(), "intermediates").getPath(), "ecj");
+		}
+	}
+
+	private void compileAssemblys(Set<Integer> assemblys, final Map<Integer, ModuleSources> modules, Map<Integer, Set<Integer>> references, final BuildTrace.Span ecjSpan) {
+		// 在当前线程准备编译器，编译线程只访问各自的编译器
+		final Map<Integer, IncrementalJavaCompiler> compilers = new HashMap<>();
+		final Map<Integer, BufferedDiagnosticListener> diagnosticListeners = new HashMap<>();
+		BuildTrace.Span span = BuildTrace.begin("prepare compilers");
+		try {
+			for (int assembly : assemblys) {
+				compilers.put(assembly, getIncrementalCompiler(assembly, modules, references));
+				diagnosticListeners.put(assembly, new BufferedDiagnosticListener());
+			}
+		}
+		finally {
+			span.end();
+		}
+
+		// assembly -> 直接或间接依赖它的assembly
+		final Map<Integer, Set<Integer>> dependents = new HashMap<>();
+		for (int assembly : modules.keySet()) {
+			for (int referencedAssembly : getTransitiveReferences(assembly, references)) {
+				Set<Integer> set = dependents.get(referencedAssembly);
+				if (set == null) {
+					set = new HashSet<>();
+					dependents.put(referencedAssembly, set);
+				}
+				set.add(assembly);
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
+		Map<Integer, Integer> results;
+		try {
+			results = this.scheduler.run(assemblys, references, new AssemblyCompileScheduler.CompileTask(){
+					@Override
+					public boolean compile(int assembly) throws Exception {
+						IncrementalJavaCompiler compiler = compilers.get(assembly);
+						Set<String> referencedChangedNames = takeReferencedChangedNames(assembly);
+
+						List<FileEntrySource> sources = modules.get(assembly).sources;
+						// 编译线程中 父Span为ecj
+						BuildTrace.Span assemblySpan = BuildTrace.begin("ecj assembly " + assembly, ecjSpan).addFiles(sources.size());
+						boolean success;
+						try {
+							success = compiler.compileSources(sources, referencedChangedNames, diagnosticListeners.get(assembly));
+						}
+						finally {
+							assemblySpan.end();
+						}
+						if (!success) {
+							// 下次重新处理
+							addReferencedChangedNames(assembly, referencedChangedNames);
+						}
+						Set<String> changedNames = compiler.getLastChangedNames();
+						Set<Integer> dependentAssemblys = dependents.get(assembly);
+						if (!changedNames.isEmpty() && dependentAssemblys != null) {
+							for (int dependentAssembly : dependentAssemblys) {
+								addReferencedChangedNames(dependentAssembly, changedNames);
+							}
+						}
+						return success;
+					}
+				});
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		// 按拓扑顺序写入诊断信息
+		span = BuildTrace.begin("report diagnostics");
+		try {
+			for (int assembly : AssemblyCompileScheduler.topologicalOrder(assemblys, references)) {
+				ModuleSources module = modules.get(assembly);
+				diagnosticListeners.get(assembly).replay(new ErrorTableDiagnosticListener(model.errorTable, language, module.fileEntry));
+
+				Integer result = results.get(assembly);
+				if (result != null && result != AssemblyCompileScheduler.SUCCESS) {
+					Log.d(LOG_TAG, "compile: " + (result == AssemblyCompileScheduler.SKIPPED ? "skipped " : "error ") + module.fileEntry.getPathString());
+				}
+			}
+		}
+		finally {
+			span.end();
+		}
+		Log.d(LOG_TAG, "compiled " + assemblys.size() + " assemblys with " + this.scheduler.getThreadCount() + " threads in " + (System.currentTimeMillis() - startTime) + "ms");
+	}
+
+	private Set<String> takeReferencedChangedNames(int assembly) {
+		synchronized (myReferencedChangedNames) {
+			Set<String> changedNames = myReferencedChangedNames.remove(assembly);
+			return changedNames == null ? new HashSet<String>() : changedNames;
+		}
+	}
+
+	private void addReferencedChangedNames(int assembly, Set<String> changedNames) {
+		synchronized (myReferencedChangedNames) {
+			Set<String> set = myReferencedChangedNames.get(assembly);
+			if (set == null) {
+				set = new HashSet<>();
+				myReferencedChangedNames.put(assembly, set);
+			}
+			set.addAll(changedNames);
+		}
+	}
+
+	/**
+	 * 类路径或编译参数改变时重新创建[完整编译]
+	 */
+	private IncrementalJavaCompiler getIncrementalCompiler(int assembly, Map<Integer, ModuleSources> modules, Map<Integer, Set<Integer>> references) {
+		FileEntry fileEntry = modules.get(assembly).fileEntry;
+		String sourceLevel = model.fileSpace.getTargetVersion(fileEntry);
+		String targetLevel = model.fileSpace.getTargetVersion(fileEntry);
+		// getDestinationPath -> getReleaseOutputPath
+		String destinationPath = model.fileSpace.getReleaseOutputPath(fileEntry);
+		String encoding = model.fileSpace.getEncoding();
+
+		// 被依赖的assembly的输出目录
+		List<String> referencedOutputPaths = new ArrayList<>();
+		for (int referencedAssembly : new TreeSet<>(getTransitiveReferences(assembly, references))) {
+			String referencedOutputPath = model.fileSpace.getReleaseOutputPath(modules.get(referencedAssembly).fileEntry);
+			if (!referencedOutputPath.equals(destinationPath)) {
+				referencedOutputPaths.add(referencedOutputPath);
+			}
+		}
+
+		String key = getClassPathGeneration() + "|" + sourceLevel + "|" + targetLevel + "|" + encoding + "|" + destinationPath + "|" + referencedOutputPaths;
+
+		IncrementalCompilerEntry entry = myIncrementalCompilers.get(assembly);
+		if (entry == null 
+			|| !entry.key.equals(key)) {
+			if (entry != null) {
+				entry.compiler.cleanup();
+			}
+			ClassPathCache.ClassPaths jarClassPaths = getJarClassPaths(assembly);
+			List<String> classpaths = new ArrayList<>();
+			for (File file : jarClassPaths.platformClassPaths) {
+				classpaths.add(file.getPath());
+			}
+			for (File file : jarClassPaths.classPaths) {
+				classpaths.add(file.getPath());
+			}
+			entry = new IncrementalCompilerEntry(key, new IncrementalJavaCompiler(classpaths, referencedOutputPaths, destinationPath, createCompilerOptions(sourceLevel, targetLevel), encoding));
+			myIncrementalCompilers.put(assembly, entry);
+		}
+		return entry.compiler;
+	}
+
+	/**
+	 * assembly -> 源码 只包含有java源码的assembly
+	 */
+	private Map<Integer, ModuleSources> getModuleSources() {
+		Map<Integer, ModuleSources> modules = new TreeMap<>();
+		// getCheckedSolutionFiles -> KD
+		SetOfFileEntry files = model.fileSpace.KD();
+        files.default_Iterator.init();
+        while (files.default_Iterator.hasMoreElements()) {
+			FileEntry file = files.default_Iterator.nextKey();
+			if (!file.getFullNameString().endsWith(".java")) {
+				continue;
+			}
+			int assembly = file.getAssembly();
+			ModuleSources module = modules.get(assembly);
+			if (module == null) {
+				module = new ModuleSources(file);
+				modules.put(assembly, module);
+			}
+			module.sources.add(new FileEntrySource(file));
+		}
+		for (ModuleSources module : modules.values()) {
+			Collections.sort(module.sources, SOURCE_PATH_COMPARATOR);
+		}
+		return modules;
+	}
+
+	/**
+	 * assembly -> 直接依赖的assembly
+	 * 只保留有源码的assembly，jar由类路径处理
+	 */
+	private Map<Integer, Set<Integer>> getAssemblyReferences(Set<Integer> assemblys) {
+		Map<Integer, Set<Integer>> references = new HashMap<>();
+		OrderedMapOfIntInt assemblyReferences = ReflectPie.on(model.fileSpace).get("assemblyReferences");
+		if (assemblyReferences == null) {
+			return references;
+		}
+		OrderedMapOfIntInt.Iterator default_Iterator = assemblyReferences.default_Iterator;
+		default_Iterator.init();
+		while (default_Iterator.hasMoreElements()) {
+			int key = default_Iterator.nextKey();
+			int referenced = default_Iterator.nextValue();
+			// 自己会依赖自己，排除
+			if (key == referenced
+				|| !assemblys.contains(key)
+				|| !assemblys.contains(referenced)) {
+				continue;
+			}
+			Set<Integer> set = references.get(key);
+			if (set == null) {
+				set = new TreeSet<>();
+				references.put(key, set);
+			}
+			set.add(referenced);
+		}
+		return references;
+	}
+
+	private static Set<Integer> getTransitiveReferences(int assembly, Map<Integer, Set<Integer>> references) {
+		Set<Integer> result = new HashSet<>();
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(assembly);
+		while (!queue.isEmpty()) {
+			Set<Integer> set = references.get(queue.poll());
+			if (set == null) {
+				continue;
+			}
+			for (int referencedAssembly : set) {
+				if (referencedAssembly != assembly
+					&& result.add(referencedAssembly)) {
+					queue.add(referencedAssembly);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static CompilerOptions createCompilerOptions(String sourceLevel, String targetLevel) {
+		Map<String, String> optionsMap = new HashMap<>();
+		optionsMap.put(CompilerOptions.OPTION_Source, sourceLevel);
+		optionsMap.put(CompilerOptions.OPTION_Compliance, sourceLevel);
+		optionsMap.put(CompilerOptions.OPTION_TargetPlatform, targetLevel);
+
+		CompilerOptions compilerOptions = new CompilerOptions(optionsMap);
+		compilerOptions.parseLiteralExpressionsAsConstants = false;
+		// -g
+		compilerOptions.produceDebugAttributes = 
+			ClassFileConstants.ATTR_SOURCE
+			| ClassFileConstants.ATTR_LINES 
+			| ClassFileConstants.ATTR_VARS;
+		// -parameters
+		compilerOptions.produceMethodParameters = true;
+		return compilerOptions;
+	}
 }//*/
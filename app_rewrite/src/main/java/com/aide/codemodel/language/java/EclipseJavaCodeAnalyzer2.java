@@ -1,21 +1,27 @@
 package com.aide.codemodel.language.java;
 
 import android.util.SparseArray;
+import com.aide.codemodel.AIDEModel;
 import com.aide.codemodel.api.ErrorTable;
 import com.aide.codemodel.api.FileEntry;
 import com.aide.codemodel.api.FileSpace;
 import com.aide.codemodel.api.HighlighterType;
 import com.aide.codemodel.api.Model;
 import com.aide.codemodel.api.SyntaxTree;
+import com.aide.codemodel.api.SyntaxTreeSpace;
 import com.aide.codemodel.api.abstraction.Language;
 import com.aide.codemodel.api.callback.HighlighterCallback;
 import com.aide.codemodel.api.collections.HashtableOfInt;
 import com.aide.codemodel.api.collections.MapOfIntLong;
+import com.aide.common.AppLog;
+import io.github.zeroaicy.aide.services.EngineMemoryGovernor;
 import io.github.zeroaicy.util.reflect.ReflectPie;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.compiler.IProblem;
@@ -117,6 +123,9 @@ public class EclipseJavaCodeAnalyzer2 extends JavaCodeAnalyzer {
 		// 语义分析
 		semanticAnalysis(syntaxTree);
 		// AIDE的语义分析
+
+		// 内存级别下降后重新分析跳过的文件
+		resubmitSkippedFiles();
 	}
 
 	/**
@@ -145,9 +154,22 @@ public class EclipseJavaCodeAnalyzer2 extends JavaCodeAnalyzer {
 			// 强制模式 清除上次结果
 			clearErrors(syntaxTree);
 		}
-		// 必须调用 codemodel需要符号表信息
+
+		// 内存压力 非强制模式减少已关闭文件的分析
+		applyMemoryLevel(fileEntry);
+		boolean closedFile = !forceResolve && !fileEntry.isOpen();
+
+		// 任何级别都必须调用 codemodel需要符号表信息
 		List<ErrorInfo> aideSemanticAnalysis = aideSemanticAnalysis(syntaxTree);
 
+		if (this.memoryPolicy.shouldSkip(closedFile)) {
+			// 暂停ecj分析 版本不更新，级别下降后重新提交
+			this.memoryPolicy.skipped(fileId);
+			addErrorInfo(aideSemanticAnalysis, fileEntry, language);
+			return null;
+		}
+		this.memoryPolicy.analyzed(fileId);
+
 		if (!forceResolve && oldVersion == nowVersion) {
 			// 复用解析结果
 
@@ -161,7 +183,87 @@ public class EclipseJavaCodeAnalyzer2 extends JavaCodeAnalyzer {
 			return null;
 		} else {
 			// 更新版本 put
-			return forceSemanticAnalysis(fileId, nowVersion, fileEntry, language, filePath, aideSemanticAnalysis);
+			CompilationUnitDeclaration resolveUnit = forceSemanticAnalysis(fileId, nowVersion, fileEntry, language, filePath, aideSemanticAnalysis);
+			if (this.memoryPolicy.shouldRelease(closedFile)) {
+				// 不保留已关闭文件的ecj缓存
+				releaseEcjCache(fileId, filePath);
+			}
+			return resolveUnit;
+		}
+	}
+
+	// 内存压力下已关闭文件的跳过与重新分析
+	private final ClosedFileMemoryPolicy memoryPolicy = new ClosedFileMemoryPolicy();
+
+	/**
+	 * 采样内存级别，进入 LEVEL_TRIM_CLOSED_FILES 时释放已关闭文件的ecj缓存
+	 * 缓存只在分析线程中访问，所以在这里释放
+	 */
+	private void applyMemoryLevel(FileEntry fileEntry) {
+		if (this.memoryPolicy.update(EngineMemoryGovernor.getInstance().sample())) {
+			releaseClosedFiles(fileEntry);
+		}
+	}
+
+	/**
+	 * 重新分析跳过ecj分析的文件
+	 * 在当前文件分析完成后调用，级别再次升高时剩余的文件仍会跳过
+	 */
+	private void resubmitSkippedFiles() {
+		if (!this.memoryPolicy.hasResubmitFiles()
+			|| !(this.model instanceof AIDEModel)) {
+			return;
+		}
+		SyntaxTreeSpace syntaxTreeSpace = ((AIDEModel)this.model).syntaxTreeSpace;
+
+		int count = 0;
+		for (int fileId : this.memoryPolicy.takeResubmitFileIds()) {
+			FileEntry fileEntry = this.fileSpace.getFileEntry(fileId);
+			if (fileEntry == null) {
+				continue;
+			}
+			for (SyntaxTree syntaxTree : syntaxTreeSpace.VH(fileEntry)) {
+				try {
+					if (syntaxTree.getLanguage().getCodeAnalyzer() == this) {
+						// 替换跳过时添加的AIDE错误
+						clearErrors(syntaxTree);
+						semanticAnalysis(syntaxTree, false);
+						count++;
+					}
+				}
+				finally {
+					syntaxTreeSpace.releaseSyntaxTree(syntaxTree);
+				}
+			}
+		}
+		AppLog.d("EclipseJavaCodeAnalyzer2", "内存级别下降 重新分析 %d 个文件", count);
+	}
+
+	/**
+	 * 释放已关闭文件的ecj缓存
+	 */
+	private void releaseClosedFiles(FileEntry fileEntry) {
+		Set<String> filePaths = new HashSet<>(this.ecjSemanticAnalysisMap.keySet());
+		filePaths.addAll(this.ecjSemanticHighlighterMap.keySet());
+
+		int count = 0;
+		for (String filePath : filePaths) {
+			FileEntry entry = fileEntry.getEntry(filePath);
+			if (entry != null && entry.isOpen()) {
+				continue;
+			}
+			releaseEcjCache(entry == null ? -1 : entry.getId(), filePath);
+			count++;
+		}
+		AppLog.d("EclipseJavaCodeAnalyzer2", "释放已关闭文件的ecj缓存 %d", count);
+	}
+
+	private void releaseEcjCache(int fileId, String filePath) {
+		this.ecjSemanticAnalysisMap.remove(filePath);
+		this.ecjSemanticHighlighterMap.remove(filePath);
+		if (fileId >= 0) {
+			// 下次分析时重新计算
+			this.semanticParserVersionMap.VH(fileId, Long.MIN_VALUE);
 		}
 	}
 
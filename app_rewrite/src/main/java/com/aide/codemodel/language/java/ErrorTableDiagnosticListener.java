@@ -7,85 +7,70 @@ import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaFileObject;
 
+/**
+ * ecj诊断信息写入ErrorTable
+ * 代码分析已报告的相同位置、相同信息的错误不再重复写入
+ */
 public class ErrorTableDiagnosticListener implements DiagnosticListener<JavaFileObject>{
 	ErrorTable errorTable;
 
 
 	private FileEntry fileEntry;
-	EclipseJavaCodeCompiler eclipseJavaCodeCompiler;
 
 	private Language language;
 
-	public ErrorTableDiagnosticListener(EclipseJavaCodeCompiler eclipseJavaCodeCompiler){
-		this.eclipseJavaCodeCompiler = eclipseJavaCodeCompiler;
-		language = this.eclipseJavaCodeCompiler.language;
-
-		this.errorTable = eclipseJavaCodeCompiler.errorTable;
-		this.fileEntry = eclipseJavaCodeCompiler.fileEntry;
-
+	/**
+	 * fileEntry 用于按路径查找源码的FileEntry
+	 */
+	public ErrorTableDiagnosticListener(ErrorTable errorTable, Language language, FileEntry fileEntry){
+		this.errorTable = errorTable;
+		this.language = language;
+		this.fileEntry = fileEntry;
 	}
 
 	@Override
 	public void report(Diagnostic<? extends JavaFileObject> diagnostic){
-		switch ( diagnostic.getKind() ){
-			case ERROR:{
-
-					String name = diagnostic.getSource().getName();
-					FileEntry entry = fileEntry.getEntry(name);
-					int lineNumber = (int) diagnostic.getLineNumber();
-					int columnNumber = (int)diagnostic.getColumnNumber();
-
-					// int startPosition = (int) diagnostic.getStartPosition();
-					// diagnostic.getCode();
-					String message = diagnostic.getMessage(Locale.getDefault());
-					System.out.println(name + " -> " + message);
-					
-					this.errorTable.addSemanticError(
-						entry, 
-						language, 
-						lineNumber, 
-						columnNumber,
-						lineNumber, columnNumber, "ecj: -> addSemanticError -> " + message, 20);
-					
-					this.errorTable.Hw(
-						entry, 
-						language, 
-						lineNumber, 
-						columnNumber,
-						lineNumber, columnNumber, "ecj: -> Hw -> " + message, 20);
-					this.errorTable.lg(
-						entry, 
-						language, 
-						lineNumber, 
-						columnNumber,
-						lineNumber, columnNumber, "ecj: -> lg -> " + message, 20);
-					
-				}
-				break;
-			case WARNING:{
-					String name = diagnostic.getSource().getName();
-					FileEntry entry = fileEntry.getEntry(name);
-					int lineNumber = (int) diagnostic.getLineNumber();
-					int columnNumber = (int)diagnostic.getColumnNumber();
-					String message = diagnostic.getMessage(Locale.getDefault());
-					
-					System.out.println(name + " -> " + message);
-					
-					// int startPosition = (int) diagnostic.getStartPosition();
-					// diagnostic.getCode();
-
-
-					this.errorTable.addSemanticWarning(
-						entry, 
-						language, 
-						lineNumber, 
-						columnNumber,
-						lineNumber, columnNumber, "ecj: " + message, 26);
+		Diagnostic.Kind kind = diagnostic.getKind();
+		if (kind != Diagnostic.Kind.ERROR
+			&& kind != Diagnostic.Kind.WARNING) {
+			return;
+		}
+		JavaFileObject source = diagnostic.getSource();
+		if (source == null) {
+			return;
+		}
+		FileEntry entry = this.fileEntry.getEntry(source.getName());
+		if (entry == null) {
+			// 不在解决方案中
+			return;
+		}
 
+		int line = (int) diagnostic.getLineNumber();
+		int column = (int) diagnostic.getColumnNumber();
+		// 与EclipseJavaCodeAnalyzer相同
+		int endColumn = (int) (column + diagnostic.getEndPosition() - diagnostic.getStartPosition()) + 1;
+		String message = diagnostic.getMessage(Locale.getDefault());
 
-				}
-				break;
+		if (isReported(entry, line, column, message)) {
+			return;
+		}
+		if (kind == Diagnostic.Kind.ERROR) {
+			this.errorTable.Hw(entry, this.language, line, column, line, endColumn, message, 20);
+		} else {
+			this.errorTable.addSemanticWarning(entry, this.language, line, column, line, endColumn, message, 49);
 		}
 	}
 
+	private boolean isReported(FileEntry entry, int line, int column, String message){
+		// error count
+		int count = this.errorTable.SI(entry, this.language);
+		for (int index = 0; index < count; index++) {
+			if (this.errorTable.getErrorStartLine(entry, this.language, index) == line
+				&& this.errorTable.getErrorStartColumn(entry, this.language, index) == column
+				&& message.equals(this.errorTable.getErrorText(entry, this.language, index))) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,684 @@
+package com.aide.codemodel.language.java;
+
+import com.aide.common.AppLog;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.internal.compiler.ClassFile;
+import org.eclipse.jdt.internal.compiler.CompilationResult;
+import org.eclipse.jdt.internal.compiler.Compiler;
+import org.eclipse.jdt.internal.compiler.ICompilerRequestor;
+import org.eclipse.jdt.internal.compiler.IErrorHandlingPolicy;
+import org.eclipse.jdt.internal.compiler.batch.CompilationUnit;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblem;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+
+/**
+ * 进程内增量编译
+ * Compiler与jar的 INameEnvironment在多次编译间复用
+ * 只编译改变的源码，以及引用了结构改变的类型的源码
+ * 依赖关系取自 CompilationResult记录的 simpleNameReferences
+ * 未重新编译的源码的类型从输出目录的class文件读取
+ * 被依赖的assembly的输出目录作为类路径，其结构改变由调用者传入
+ * 源码内容由 Source提供，可以是编辑器中未保存的内容
+ */
+public class IncrementalJavaCompiler {
+
+	private static final String TAG = "IncrementalJavaCompiler";
+
+	/**
+	 * 待编译的源码
+	 */
+	public interface Source {
+		String getPath();
+
+		/**
+		 * 内容改变时改变
+		 */
+		long getVersion();
+
+		/**
+		 * 返回null时从 getPath()读取
+		 */
+		char[] getContents() throws IOException;
+	}
+
+	/**
+	 * 磁盘上的源码 版本为修改时间与大小
+	 */
+	public static Source fileSource(final String path) {
+		return new Source(){
+			@Override
+			public String getPath() {
+				return path;
+			}
+			@Override
+			public long getVersion() {
+				File file = new File(path);
+				return file.lastModified() * 31 + file.length();
+			}
+			@Override
+			public char[] getContents() {
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * 源码上次编译的状态
+	 */
+	private static class SourceState {
+		// 有错误时为-1，下次重新编译
+		final long version;
+		// 生成的class a/b/C$D
+		final Set<String> typeNames;
+		// 引用的简单名
+		final Set<String> simpleNameReferences;
+
+		SourceState(long version, Set<String> typeNames, Set<String> simpleNameReferences) {
+			this.version = version;
+			this.typeNames = typeNames;
+			this.simpleNameReferences = simpleNameReferences;
+		}
+	}
+
+	private final String outputPath;
+	private final String encoding;
+
+	// jar等类路径，只在cleanup时释放
+	private final IndexedNameEnvironment classpathEnvironment;
+	// 被依赖的assembly的输出目录，每次编译前清除目录缓存
+	private final FileSystem referencedEnvironment;
+	private final Compiler compiler;
+
+	// 源码路径 -> 状态
+	private final Map<String, SourceState> sourceStates = new HashMap<>();
+	// 本次编译的源码 路径 -> Source
+	private final Map<String, Source> sources = new HashMap<>();
+	// class -> 源码路径
+	private final Map<String, String> typeSources = new HashMap<>();
+
+	// 正在编译的源码上次生成的class，不能从输出目录读取
+	private final Set<String> compilingTypeNames = new HashSet<>();
+	// 本轮的编译结果
+	private final List<CompilationResult> results = new ArrayList<>();
+
+	private DiagnosticListener<? super JavaFileObject> diagnosticListener;
+
+	// 上次编译的源码数量
+	private int lastCompiledCount;
+	// 上次编译中结构改变的类型的简单名
+	private final Set<String> lastChangedNames = new HashSet<>();
+
+	public IncrementalJavaCompiler(Collection<String> classpaths, String outputPath, CompilerOptions compilerOptions, String encoding) {
+		this(classpaths, null, outputPath, compilerOptions, encoding);
+	}
+
+	public IncrementalJavaCompiler(Collection<String> classpaths, Collection<String> referencedOutputPaths, String outputPath, CompilerOptions compilerOptions, String encoding) {
+		this.outputPath = outputPath;
+		this.encoding = encoding;
+		this.classpathEnvironment = new IndexedNameEnvironment(classpaths, encoding);
+
+		List<String> referencedPaths = new ArrayList<>();
+		if (referencedOutputPaths != null) {
+			for (String referencedOutputPath : referencedOutputPaths) {
+				// FileSystem会忽略不存在的目录
+				new File(referencedOutputPath).mkdirs();
+				referencedPaths.add(referencedOutputPath);
+			}
+		}
+		this.referencedEnvironment = referencedPaths.isEmpty() ? null
+			: new FileSystem(referencedPaths.toArray(new String[referencedPaths.size()]), null, encoding);
+
+		// 依赖关系需要引用信息
+		compilerOptions.produceReferenceInfo = true;
+
+		this.compiler = new Compiler(
+			new OutputNameEnvironment(),
+			getHandlingPolicy(),
+			compilerOptions,
+			getRequestor(),
+			new DefaultProblemFactory());
+	}
+
+	public int getLastCompiledCount() {
+		return this.lastCompiledCount;
+	}
+
+	/**
+	 * 依赖此assembly的编译器需要重新编译引用了这些简单名的源码
+	 */
+	public synchronized Set<String> getLastChangedNames() {
+		return new HashSet<String>(this.lastChangedNames);
+	}
+
+	public boolean compile(Collection<String> sourcePaths, DiagnosticListener<? super JavaFileObject> diagnosticListener) {
+		return compile(sourcePaths, null, diagnosticListener);
+	}
+
+	/**
+	 * 编译磁盘上的源码
+	 */
+	public boolean compile(Collection<String> sourcePaths, Set<String> referencedChangedNames, DiagnosticListener<? super JavaFileObject> diagnosticListener) {
+		List<Source> sources = new ArrayList<>(sourcePaths.size());
+		for (String sourcePath : sourcePaths) {
+			sources.add(fileSource(sourcePath));
+		}
+		return compileSources(sources, referencedChangedNames, diagnosticListener);
+	}
+
+	/**
+	 * 编译 sources中改变的源码以及依赖它们的源码
+	 * referencedChangedNames 被依赖的assembly中结构改变的类型的简单名
+	 * 诊断信息逐个文件报告给 diagnosticListener
+	 * 没有错误时返回true
+	 */
+	public synchronized boolean compileSources(Collection<? extends Source> sources, Set<String> referencedChangedNames, DiagnosticListener<? super JavaFileObject> diagnosticListener) {
+		this.diagnosticListener = diagnosticListener;
+		this.lastCompiledCount = 0;
+		this.lastChangedNames.clear();
+		if (this.referencedEnvironment != null) {
+			// 被依赖的assembly可能已写入新的class
+			this.referencedEnvironment.cleanup();
+		}
+
+		this.sources.clear();
+		for (Source source : sources) {
+			this.sources.put(source.getPath(), source);
+		}
+		// 删除的源码的类型视为结构改变
+		Set<String> changedNames = new HashSet<>();
+		removeDeletedSources(this.sources.keySet(), changedNames);
+		this.lastChangedNames.addAll(changedNames);
+		if (referencedChangedNames != null) {
+			changedNames.addAll(referencedChangedNames);
+		}
+
+		Set<String> pendingPaths = new LinkedHashSet<>();
+		for (Source source : sources) {
+			if (isChanged(source)) {
+				pendingPaths.add(source.getPath());
+			}
+		}
+		Set<String> compiledPaths = new HashSet<>(pendingPaths);
+		pendingPaths.addAll(findDependents(changedNames, compiledPaths));
+
+		boolean success = true;
+		try {
+			while (!pendingPaths.isEmpty()) {
+				compiledPaths.addAll(pendingPaths);
+				this.lastCompiledCount += pendingPaths.size();
+
+				changedNames.clear();
+				if (!compileRound(pendingPaths, changedNames)) {
+					success = false;
+				}
+				this.lastChangedNames.addAll(changedNames);
+				// 下一轮编译引用了结构改变的类型的源码
+				pendingPaths = findDependents(changedNames, compiledPaths);
+			}
+		}
+		finally {
+			this.diagnosticListener = null;
+			this.sources.clear();
+		}
+		AppLog.d(TAG, "compiled %d of %d sources -> %s", this.lastCompiledCount, sources.size(), this.outputPath);
+		return success;
+	}
+
+	public synchronized void cleanup() {
+		this.classpathEnvironment.cleanup();
+		if (this.referencedEnvironment != null) {
+			this.referencedEnvironment.cleanup();
+		}
+		this.sourceStates.clear();
+		this.typeSources.clear();
+	}
+
+	private boolean isChanged(Source source) {
+		SourceState sourceState = this.sourceStates.get(source.getPath());
+		if (sourceState == null
+			|| sourceState.version == -1
+			|| sourceState.version != source.getVersion()) {
+			return true;
+		}
+		// 输出被删除
+		for (String typeName : sourceState.typeNames) {
+			if (!getClassFile(typeName).isFile()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void removeDeletedSources(Set<String> allSourcePaths, Set<String> changedNames) {
+		List<String> deletedPaths = new ArrayList<>();
+		for (String sourcePath : this.sourceStates.keySet()) {
+			if (!allSourcePaths.contains(sourcePath)) {
+				deletedPaths.add(sourcePath);
+			}
+		}
+		for (String sourcePath : deletedPaths) {
+			SourceState sourceState = this.sourceStates.remove(sourcePath);
+			for (String typeName : sourceState.typeNames) {
+				if (sourcePath.equals(this.typeSources.get(typeName))) {
+					this.typeSources.remove(typeName);
+					getClassFile(typeName).delete();
+				}
+				addSimpleNames(typeName, changedNames);
+			}
+		}
+	}
+
+	/**
+	 * 引用了 changedNames中任一简单名且不在 compiledPaths中的源码
+	 */
+	private Set<String> findDependents(Set<String> changedNames, Set<String> compiledPaths) {
+		Set<String> dependents = new LinkedHashSet<>();
+		if (changedNames.isEmpty()) {
+			return dependents;
+		}
+		for (Map.Entry<String, SourceState> entry : this.sourceStates.entrySet()) {
+			String sourcePath = entry.getKey();
+			if (compiledPaths.contains(sourcePath)) {
+				continue;
+			}
+			for (String simpleName : entry.getValue().simpleNameReferences) {
+				if (changedNames.contains(simpleName)) {
+					dependents.add(sourcePath);
+					break;
+				}
+			}
+		}
+		return dependents;
+	}
+
+	private boolean compileRound(Set<String> sourcePaths, Set<String> changedNames) {
+		ICompilationUnit[] sourceUnits = new ICompilationUnit[sourcePaths.size()];
+		// 编译前记录版本，编译期间被修改的源码下次会重新编译
+		Map<String, Long> sourceVersions = new HashMap<>();
+
+		int index = 0;
+		for (String sourcePath : sourcePaths) {
+			Source source = this.sources.get(sourcePath);
+			sourceVersions.put(sourcePath, source.getVersion());
+
+			SourceState sourceState = this.sourceStates.get(sourcePath);
+			if (sourceState != null) {
+				this.compilingTypeNames.addAll(sourceState.typeNames);
+			}
+			char[] contents;
+			try {
+				contents = source.getContents();
+			}
+			catch (IOException e) {
+				AppLog.e(TAG, "读取源码失败: " + sourcePath, e);
+				contents = null;
+			}
+			// 内容为null时由 CompilationUnit读取文件
+			sourceUnits[index++] = new CompilationUnit(contents, sourcePath, this.encoding);
+		}
+
+		this.results.clear();
+		try {
+			this.compiler.compile(sourceUnits);
+		}
+		catch (Throwable e) {
+			AppLog.e(TAG, "编译失败", e);
+			return false;
+		}
+		finally {
+			this.compilingTypeNames.clear();
+		}
+
+		boolean success = true;
+		// 没有结果的源码[编译中止]
+		Set<String> abortedPaths = new HashSet<>(sourcePaths);
+		for (CompilationResult result : this.results) {
+			String sourcePath = new String(result.getFileName());
+			Long sourceVersion = sourceVersions.get(sourcePath);
+			if (sourceVersion == null) {
+				continue;
+			}
+			abortedPaths.remove(sourcePath);
+
+			SourceState oldState = this.sourceStates.get(sourcePath);
+			Set<String> simpleNameReferences = toSimpleNames(result.simpleNameReferences);
+
+			if (result.hasErrors()) {
+				success = false;
+				// 保留上次的class，修复后重新编译
+				Set<String> typeNames = oldState == null ? new HashSet<String>() : oldState.typeNames;
+				this.sourceStates.put(sourcePath, new SourceState(-1, typeNames, simpleNameReferences));
+				continue;
+			}
+
+			Set<String> typeNames = new HashSet<>();
+			try {
+				for (ClassFile classFile : result.getClassFiles()) {
+					String typeName = new String(classFile.fileName());
+					typeNames.add(typeName);
+					this.typeSources.put(typeName, sourcePath);
+					if (writeClassFile(typeName, classFile)) {
+						addSimpleNames(typeName, changedNames);
+					}
+				}
+			}
+			catch (IOException e) {
+				AppLog.e(TAG, "写入class失败: " + sourcePath, e);
+				success = false;
+				this.sourceStates.put(sourcePath, new SourceState(-1, typeNames, simpleNameReferences));
+				continue;
+			}
+
+			// 删除不再生成的class
+			if (oldState != null) {
+				for (String typeName : oldState.typeNames) {
+					if (!typeNames.contains(typeName)
+						&& sourcePath.equals(this.typeSources.get(typeName))) {
+						this.typeSources.remove(typeName);
+						getClassFile(typeName).delete();
+						addSimpleNames(typeName, changedNames);
+					}
+				}
+			}
+			this.sourceStates.put(sourcePath, new SourceState(sourceVersion, typeNames, simpleNameReferences));
+		}
+
+		for (String sourcePath : abortedPaths) {
+			success = false;
+			SourceState oldState = this.sourceStates.get(sourcePath);
+			if (oldState != null) {
+				this.sourceStates.put(sourcePath, new SourceState(-1, oldState.typeNames, oldState.simpleNameReferences));
+			}
+		}
+		return success;
+	}
+
+	/**
+	 * 内容改变时写入，返回是否有结构改变
+	 * 内容未变化时保留修改时间，否则增量dexing会认为class已更新
+	 */
+	private boolean writeClassFile(String typeName, ClassFile classFile) throws IOException {
+		byte[] bytes = classFile.getBytes();
+		File file = getClassFile(typeName);
+
+		byte[] oldBytes = ClassFileWriter.readClassFile(file);
+		if (oldBytes != null && Arrays.equals(oldBytes, bytes)) {
+			return false;
+		}
+
+		boolean structuralChanges = true;
+		if (oldBytes != null) {
+			try {
+				ClassFileReader reader = new ClassFileReader(oldBytes, file.getPath().toCharArray());
+				structuralChanges = reader.hasStructuralChanges(bytes);
+			}
+			catch (Throwable e) {
+				// 旧class损坏
+			}
+		}
+		ClassFileWriter.writeClassFile(file, bytes);
+		return structuralChanges;
+	}
+
+	private File getClassFile(String typeName) {
+		return new File(this.outputPath, typeName + ".class");
+	}
+
+	/**
+	 * a/b/Outer$Inner -> Outer Inner
+	 */
+	private static void addSimpleNames(String typeName, Set<String> simpleNames) {
+		String name = typeName.substring(typeName.lastIndexOf('/') + 1);
+		for (String simpleName : name.split("\\$")) {
+			if (!simpleName.isEmpty()) {
+				simpleNames.add(simpleName);
+			}
+		}
+	}
+
+	private static Set<String> toSimpleNames(char[][] simpleNameReferences) {
+		Set<String> simpleNames = new HashSet<>();
+		if (simpleNameReferences != null) {
+			for (char[] simpleName : simpleNameReferences) {
+				simpleNames.add(new String(simpleName));
+			}
+		}
+		return simpleNames;
+	}
+
+	private ICompilerRequestor getRequestor() {
+		return new ICompilerRequestor() {
+			@Override
+			public void acceptResult(CompilationResult compilationResult) {
+				results.add(compilationResult);
+				reportProblems(compilationResult);
+			}
+		};
+	}
+
+	private void reportProblems(CompilationResult compilationResult) {
+		DiagnosticListener<? super JavaFileObject> diagnosticListener = this.diagnosticListener;
+		CategorizedProblem[] problems = compilationResult.getAllProblems();
+		if (diagnosticListener == null
+			|| problems == null) {
+			return;
+		}
+		JavaFileObject source = new SourceFileObject(new String(compilationResult.getFileName()));
+		for (CategorizedProblem problem : problems) {
+			try {
+				diagnosticListener.report(new ProblemDiagnostic(source, problem));
+			}
+			catch (Throwable e) {
+				AppLog.e(TAG, "报告诊断失败", e);
+			}
+		}
+	}
+
+	private static IErrorHandlingPolicy getHandlingPolicy() {
+		return new IErrorHandlingPolicy() {
+			@Override
+			public boolean proceedOnErrors() {
+				return false;
+			}
+			@Override
+			public boolean stopOnFirstError() {
+				return false;
+			}
+			@Override
+			public boolean ignoreAllErrors() {
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * 类路径 + 输出目录中由本编译器生成的class
+	 */
+	private class OutputNameEnvironment implements INameEnvironment {
+
+		@Override
+		public NameEnvironmentAnswer findType(char[][] compoundTypeName) {
+			if (compoundTypeName == null || compoundTypeName.length == 0) {
+				return null;
+			}
+			int packageLength = compoundTypeName.length - 1;
+			char[][] packageName = new char[packageLength][];
+			System.arraycopy(compoundTypeName, 0, packageName, 0, packageLength);
+			return findType(compoundTypeName[packageLength], packageName);
+		}
+
+		@Override
+		public NameEnvironmentAnswer findType(char[] typeName, char[][] packageName) {
+			NameEnvironmentAnswer answer = findOutputType(typeName, packageName);
+			if (answer != null) {
+				return answer;
+			}
+			if (referencedEnvironment != null) {
+				answer = referencedEnvironment.findType(typeName, packageName);
+				if (answer != null) {
+					return answer;
+				}
+			}
+			return classpathEnvironment.findType(typeName, packageName);
+		}
+
+		private NameEnvironmentAnswer findOutputType(char[] typeName, char[][] packageName) {
+			if (typeName == null) {
+				return null;
+			}
+			String name = toTypeName(packageName, typeName);
+			if (compilingTypeNames.contains(name)
+				|| !typeSources.containsKey(name)) {
+				return null;
+			}
+			File file = getClassFile(name);
+			if (!file.isFile()) {
+				return null;
+			}
+			try {
+				return new NameEnvironmentAnswer(ClassFileReader.read(file), null);
+			}
+			catch (Throwable e) {
+				return null;
+			}
+		}
+
+		@Override
+		public boolean isPackage(char[][] parentPackageName, char[] packageName) {
+			if (packageName == null) {
+				return false;
+			}
+			if (classpathEnvironment.isPackage(parentPackageName, packageName)) {
+				return true;
+			}
+			if (referencedEnvironment != null
+				&& referencedEnvironment.isPackage(parentPackageName, packageName)) {
+				return true;
+			}
+			return new File(outputPath, toTypeName(parentPackageName, packageName)).isDirectory();
+		}
+
+		@Override
+		public void cleanup() {
+			// 类路径在编译间复用
+		}
+
+		private String toTypeName(char[][] packageName, char[] name) {
+			StringBuilder builder = new StringBuilder();
+			if (packageName != null) {
+				for (char[] segment : packageName) {
+					builder.append(segment).append('/');
+				}
+			}
+			return builder.append(name).toString();
+		}
+	}
+
+	private static class SourceFileObject extends SimpleJavaFileObject {
+		private final String path;
+
+		SourceFileObject(String path) {
+			super(new File(path).toURI(), JavaFileObject.Kind.SOURCE);
+			this.path = path;
+		}
+
+		@Override
+		public String getName() {
+			return this.path;
+		}
+	}
+
+	/**
+	 * CategorizedProblem -> Diagnostic
+	 */
+	private static class ProblemDiagnostic implements Diagnostic<JavaFileObject> {
+		private final JavaFileObject source;
+		private final CategorizedProblem problem;
+
+		ProblemDiagnostic(JavaFileObject source, CategorizedProblem problem) {
+			this.source = source;
+			this.problem = problem;
+		}
+
+		@Override
+		public Diagnostic.Kind getKind() {
+			if (this.problem.isError()) {
+				return Diagnostic.Kind.ERROR;
+			}
+			if (this.problem.isWarning()) {
+				return Diagnostic.Kind.WARNING;
+			}
+			return Diagnostic.Kind.NOTE;
+		}
+
+		@Override
+		public JavaFileObject getSource() {
+			return this.source;
+		}
+
+		@Override
+		public long getPosition() {
+			return this.problem.getSourceStart();
+		}
+
+		@Override
+		public long getStartPosition() {
+			return this.problem.getSourceStart();
+		}
+
+		@Override
+		public long getEndPosition() {
+			return this.problem.getSourceEnd();
+		}
+
+		@Override
+		public long getLineNumber() {
+			return this.problem.getSourceLineNumber();
+		}
+
+		@Override
+		public long getColumnNumber() {
+			if (this.problem instanceof DefaultProblem) {
+				return ((DefaultProblem) this.problem).getSourceColumnNumber();
+			}
+			return Diagnostic.NOPOS;
+		}
+
+		@Override
+		public String getCode() {
+			return String.valueOf(this.problem.getID());
+		}
+
+		@Override
+		public String getMessage(Locale locale) {
+			return this.problem.getMessage();
+		}
+
+		@Override
+		public String toString() {
+			return this.source.getName() + ":" + getLineNumber() + ": " + getMessage(null);
+		}
+	}
+}
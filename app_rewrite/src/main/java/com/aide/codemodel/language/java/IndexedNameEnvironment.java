@@ -0,0 +1,381 @@
+package com.aide.codemodel.language.java;
+
+import com.aide.common.AppLog;
+import io.github.zeroaicy.util.ContextUtil;
+import io.github.zeroaicy.util.IOUtils;
+import io.github.zeroaicy.util.MD5Util;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+
+/**
+ * 带jar类型索引的 INameEnvironment
+ * 每个jar的 包 -> 类名 索引按 路径、大小、修改时间 缓存在磁盘
+ * jar中不存在的类与包直接由索引回答，不再打开jar扫描
+ * 源码目录以及无法索引的路径仍由 FileSystem处理
+ */
+public class IndexedNameEnvironment implements INameEnvironment {
+
+	private static final String TAG = "IndexedNameEnvironment";
+
+	// 已建立索引的jar
+	private final List<JarTypeIndex> jarTypeIndexs = new ArrayList<>();
+	// 仅包含已索引的jar
+	private final FileSystem jarEnvironment;
+	// 源码目录等其它路径
+	private final FileSystem otherEnvironment;
+
+	public IndexedNameEnvironment(Collection<String> classpaths, String encoding) {
+		List<String> jarClasspaths = new ArrayList<>();
+		List<String> otherClasspaths = new ArrayList<>();
+
+		for (String classpath : classpaths) {
+			JarTypeIndex jarTypeIndex = null;
+			if (new File(classpath).isFile()) {
+				jarTypeIndex = JarTypeIndex.get(classpath);
+			}
+			if (jarTypeIndex == null) {
+				otherClasspaths.add(classpath);
+				continue;
+			}
+			this.jarTypeIndexs.add(jarTypeIndex);
+			jarClasspaths.add(classpath);
+		}
+
+		this.jarEnvironment = jarClasspaths.isEmpty() ? null
+			: new FileSystem(jarClasspaths.toArray(new String[jarClasspaths.size()]), null, encoding);
+		this.otherEnvironment = otherClasspaths.isEmpty() ? null
+			: new FileSystem(otherClasspaths.toArray(new String[otherClasspaths.size()]), null, encoding);
+	}
+
+	@Override
+	public NameEnvironmentAnswer findType(char[][] compoundTypeName) {
+		if (compoundTypeName == null || compoundTypeName.length == 0) {
+			return null;
+		}
+		int packageLength = compoundTypeName.length - 1;
+		char[][] packageName = new char[packageLength][];
+		System.arraycopy(compoundTypeName, 0, packageName, 0, packageLength);
+		return findType(compoundTypeName[packageLength], packageName);
+	}
+
+	@Override
+	public NameEnvironmentAnswer findType(char[] typeName, char[][] packageName) {
+		if (typeName == null) {
+			return null;
+		}
+		if (this.otherEnvironment != null) {
+			NameEnvironmentAnswer answer = this.otherEnvironment.findType(typeName, packageName);
+			if (answer != null) {
+				return answer;
+			}
+		}
+		if (this.jarEnvironment == null) {
+			return null;
+		}
+
+		String packageKey = toPackageKey(packageName, null);
+		String typeKey = new String(typeName);
+		for (JarTypeIndex jarTypeIndex : this.jarTypeIndexs) {
+			if (jarTypeIndex.containsType(packageKey, typeKey)) {
+				return this.jarEnvironment.findType(typeName, packageName);
+			}
+		}
+		// 所有jar中都没有
+		return null;
+	}
+
+	@Override
+	public boolean isPackage(char[][] parentPackageName, char[] packageName) {
+		if (packageName == null) {
+			return false;
+		}
+		String packageKey = toPackageKey(parentPackageName, packageName);
+		for (JarTypeIndex jarTypeIndex : this.jarTypeIndexs) {
+			if (jarTypeIndex.containsPackage(packageKey)) {
+				return true;
+			}
+		}
+		return this.otherEnvironment != null
+			&& this.otherEnvironment.isPackage(parentPackageName, packageName);
+	}
+
+	@Override
+	public void cleanup() {
+		if (this.jarEnvironment != null) {
+			this.jarEnvironment.cleanup();
+		}
+		if (this.otherEnvironment != null) {
+			this.otherEnvironment.cleanup();
+		}
+	}
+
+	/**
+	 * a/b/c 格式，默认包为 ""
+	 */
+	private static String toPackageKey(char[][] packageName, char[] lastName) {
+		StringBuilder builder = new StringBuilder();
+		if (packageName != null) {
+			for (char[] name : packageName) {
+				if (builder.length() > 0) {
+					builder.append('/');
+				}
+				builder.append(name);
+			}
+		}
+		if (lastName != null) {
+			if (builder.length() > 0) {
+				builder.append('/');
+			}
+			builder.append(lastName);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * jar中 包 -> 类名 的索引
+	 */
+	static final class JarTypeIndex {
+
+		private static final int MAGIC = 0x4a544931;
+		private static final int VERSION = 1;
+
+		// jar路径 -> 索引 所有ProjectEnvironment共享
+		private static final Map<String, JarTypeIndex> indexCache = new HashMap<>();
+
+		private static File indexDir;
+
+		final String path;
+		final long length;
+		final long lastModified;
+
+		// 包 -> 类名(不含.class 内部类保留$)
+		private final Map<String, Set<String>> packageTypes;
+		// 所有包，包括父包
+		private final Set<String> packages;
+
+		private JarTypeIndex(String path, long length, long lastModified, Map<String, Set<String>> packageTypes) {
+			this.path = path;
+			this.length = length;
+			this.lastModified = lastModified;
+			this.packageTypes = packageTypes;
+
+			Set<String> packages = new HashSet<>();
+			for (String packageKey : packageTypes.keySet()) {
+				addPackages(packages, packageKey);
+			}
+			this.packages = packages;
+		}
+
+		boolean containsType(String packageKey, String typeName) {
+			Set<String> types = this.packageTypes.get(packageKey);
+			return types != null && types.contains(typeName);
+		}
+
+		boolean containsPackage(String packageKey) {
+			return this.packages.contains(packageKey);
+		}
+
+		private boolean isValid(File jarFile) {
+			return this.length == jarFile.length()
+				&& this.lastModified == jarFile.lastModified();
+		}
+
+		/**
+		 * 内存 -> 磁盘 -> 扫描jar
+		 * 无法读取jar时返回null
+		 */
+		static synchronized JarTypeIndex get(String jarPath) {
+			File jarFile = new File(jarPath);
+
+			JarTypeIndex jarTypeIndex = indexCache.get(jarPath);
+			if (jarTypeIndex != null && jarTypeIndex.isValid(jarFile)) {
+				return jarTypeIndex;
+			}
+
+			File indexFile = getIndexFile(jarPath);
+			if (indexFile != null && indexFile.isFile()) {
+				jarTypeIndex = read(indexFile);
+				if (jarTypeIndex != null
+					&& jarTypeIndex.path.equals(jarPath)
+					&& jarTypeIndex.isValid(jarFile)) {
+					indexCache.put(jarPath, jarTypeIndex);
+					return jarTypeIndex;
+				}
+			}
+
+			try {
+				jarTypeIndex = build(jarFile);
+			}
+			catch (IOException e) {
+				AppLog.e(TAG, "索引jar失败: " + jarPath, e);
+				indexCache.remove(jarPath);
+				return null;
+			}
+			indexCache.put(jarPath, jarTypeIndex);
+
+			if (indexFile != null) {
+				write(indexFile, jarTypeIndex);
+			}
+			return jarTypeIndex;
+		}
+
+		private static JarTypeIndex build(File jarFile) throws IOException {
+			// 先读取大小与修改时间，扫描期间jar被修改时下次会重建
+			long length = jarFile.length();
+			long lastModified = jarFile.lastModified();
+
+			Map<String, Set<String>> packageTypes = new HashMap<>();
+			ZipFile zipFile = null;
+			try {
+				zipFile = new ZipFile(jarFile);
+				Enumeration<? extends ZipEntry> entries = zipFile.entries();
+				while (entries.hasMoreElements()) {
+					String name = entries.nextElement().getName();
+					if (!name.endsWith(".class")
+						|| name.startsWith("META-INF/")
+						|| name.endsWith("module-info.class")) {
+						continue;
+					}
+					int lastSlash = name.lastIndexOf('/');
+					String packageKey = lastSlash < 0 ? "" : name.substring(0, lastSlash);
+					String typeName = name.substring(lastSlash + 1, name.length() - ".class".length());
+
+					Set<String> types = packageTypes.get(packageKey);
+					if (types == null) {
+						types = new HashSet<>();
+						packageTypes.put(packageKey, types);
+					}
+					types.add(typeName);
+				}
+			}
+			finally {
+				IOUtils.close(zipFile);
+			}
+			return new JarTypeIndex(jarFile.getPath(), length, lastModified, packageTypes);
+		}
+
+		private static void addPackages(Set<String> packages, String packageKey) {
+			// 与ClasspathJar一致 父包也是包
+			while (packageKey.length() > 0
+				   && packages.add(packageKey)) {
+				int lastSlash = packageKey.lastIndexOf('/');
+				if (lastSlash < 0) {
+					break;
+				}
+				packageKey = packageKey.substring(0, lastSlash);
+			}
+		}
+
+		private static JarTypeIndex read(File indexFile) {
+			DataInputStream input = null;
+			try {
+				input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+				if (input.readInt() != MAGIC
+					|| input.readInt() != VERSION) {
+					return null;
+				}
+				String path = input.readUTF();
+				long length = input.readLong();
+				long lastModified = input.readLong();
+
+				int packageCount = input.readInt();
+				Map<String, Set<String>> packageTypes = new HashMap<>(packageCount * 2);
+				for (int i = 0; i < packageCount; i++) {
+					String packageKey = input.readUTF();
+					int typeCount = input.readInt();
+					Set<String> types = new HashSet<>(typeCount * 2);
+					for (int j = 0; j < typeCount; j++) {
+						types.add(input.readUTF());
+					}
+					packageTypes.put(packageKey, types);
+				}
+				return new JarTypeIndex(path, length, lastModified, packageTypes);
+			}
+			catch (IOException e) {
+				// 损坏的索引 重建
+				return null;
+			}
+			finally {
+				IOUtils.close(input);
+			}
+		}
+
+		/**
+		 * 写入临时文件后重命名
+		 */
+		private static void write(File indexFile, JarTypeIndex jarTypeIndex) {
+			File tempFile = new File(indexFile.getPath() + ".tmp");
+			DataOutputStream output = null;
+			try {
+				output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeUTF(jarTypeIndex.path);
+				output.writeLong(jarTypeIndex.length);
+				output.writeLong(jarTypeIndex.lastModified);
+
+				output.writeInt(jarTypeIndex.packageTypes.size());
+				for (Map.Entry<String, Set<String>> entry : jarTypeIndex.packageTypes.entrySet()) {
+					output.writeUTF(entry.getKey());
+					output.writeInt(entry.getValue().size());
+					for (String typeName : entry.getValue()) {
+						output.writeUTF(typeName);
+					}
+				}
+				output.close();
+				output = null;
+
+				if (!tempFile.renameTo(indexFile)) {
+					tempFile.delete();
+				}
+			}
+			catch (IOException e) {
+				AppLog.e(TAG, "写入jar索引失败: " + indexFile.getPath(), e);
+				tempFile.delete();
+			}
+			finally {
+				IOUtils.close(output);
+			}
+		}
+
+		/**
+		 * 没有Context时只使用内存缓存
+		 */
+		private static File getIndexFile(String jarPath) {
+			if (indexDir == null) {
+				try {
+					File dir = new File(ContextUtil.getContext().getCacheDir(), "ecj-type-index");
+					if (dir.isDirectory() || dir.mkdirs()) {
+						indexDir = dir;
+					}
+				}
+				catch (Throwable e) {
+					return null;
+				}
+				if (indexDir == null) {
+					return null;
+				}
+			}
+			return new File(indexDir, MD5Util.stringMD5(jarPath) + ".idx");
+		}
+	}
+}
@@ -46,7 +46,8 @@ public class JavaCodeModelPro implements CodeModel {
 		}
 		// 仅在debug版本中替换
 		// this.javaCompiler = new JavaCompiler(model, this.javaLanguage);
-		this.javaCompiler = new EclipseJavaCodeCompiler(model, this);
+		// 按assembly依赖关系增量编译
+		this.javaCompiler = new ECJJavaCodeCompiler(model, this.javaLanguage);
 		
 		this.javaDebugger = new JavaDebugger(model, this.javaLanguage, this);
 		this.javaLexer = new JavaLexer(model.identifierSpace, model.errorTable, false, this.javaLanguage, this.jsharpCommentsLanguage);
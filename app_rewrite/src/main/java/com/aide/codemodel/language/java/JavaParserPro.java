@@ -8,18 +8,54 @@ import com.aide.codemodel.api.IdentifierSpace;
 import com.aide.codemodel.api.Parser;
 import com.aide.codemodel.api.SyntaxTree;
 import com.aide.codemodel.api.SyntaxTreeStyles;
-import io.github.zeroaicy.util.reflect.ReflectPie;
-import io.github.zeroaicy.util.reflect.ReflectPieException;
 
 public class JavaParserPro extends JavaParser{
 
-	ReflectPie that = ReflectPie.on(this);
-	public ReflectPie call(String name) throws ReflectPieException{
-        return call(name, new Object[0]);
-    }
-	public ReflectPie call(String name, Object... args) throws ReflectPieException{
-        return that.call(name, args);		
+	/*************************[JavaParser私有方法*****************************************/
+	// 类加载时解析一次，不再每次调用都按名称查找
+	// 找不到时为null，只影响lambda解析
+	// 错误恢复
+	private static final BoundMethod RECOVER_METHOD = BoundMethod.find(JavaParser.class, "g3");
+	// 解析块
+	private static final BoundMethod PARSE_BLOCK_METHOD = BoundMethod.find(JavaParser.class, "nw");
+	// 解析表达式
+	private static final BoundMethod PARSE_EXPRESSION_METHOD = BoundMethod.find(JavaParser.class, "Qq");
+	// 解析显式参数
+	private static final BoundMethod PARSE_EXPLICIT_PARAMETERS_METHOD = BoundMethod.find(JavaParser.class, "WB");
+
+	private void invokeParserMethod(BoundMethod method) throws Parser.a{
+		if ( method == null ){
+			throw new Parser.a();
+		}
+		try{
+			method.invoke(this);
+		}
+		catch (Parser.a e){
+			throw e;
+		}
+		catch (RuntimeException e){
+			throw e;
+		}
+		catch (Error e){
+			throw e;
+		}
+		catch (Throwable e){
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void recoverParser(){
+		if ( RECOVER_METHOD == null ){
+			return;
+		}
+		try{
+			invokeParserMethod(RECOVER_METHOD);
+		}
+		catch (Parser.a e){
+			throw new RuntimeException(e);
+		}
 	}
+	/*************************JavaParser私有方法]*****************************************/
 
 	public JavaParserPro(IdentifierSpace identifierSpace, ErrorTable errorTable, EntitySpace entitySpace, JavaSyntax javaSyntax, boolean p4){
 		super(identifierSpace, errorTable, entitySpace, javaSyntax, p4);
@@ -88,7 +124,7 @@ public class JavaParserPro extends JavaParser{
 
 			}
 			catch (Throwable e){
-				call("g3");
+				recoverParser();
 			}
 
 			// ARROW: -> 
@@ -96,14 +132,14 @@ public class JavaParserPro extends JavaParser{
 			if ( this.currentSyntaxTag == /* - */ 27 ){
 				declareNodeFormCurrentSyntaxTag(); // -
 			}else{
-				call("g3");
+				recoverParser();
 				accept(27); // -
 				throw new Parser.a();
 			}
 			if ( this.currentSyntaxTag == /* > */ 48 ){
 				declareNodeFormCurrentSyntaxTag(); // >
 			}else{
-				call("g3");
+				recoverParser();
 				accept(48); // >
 				throw new Parser.a();
 			}
@@ -112,11 +148,11 @@ public class JavaParserPro extends JavaParser{
 				//解析body
 				// LBRACE : {
 				// lambdaStatement
-				call("nw"); // 解析右侧块
+				invokeParserMethod(PARSE_BLOCK_METHOD); // 解析右侧块
 
 			}else{
 				// 解析 expression
-				call("Qq"); // 解析右侧表达式
+				invokeParserMethod(PARSE_EXPRESSION_METHOD); // 解析右侧表达式
 			}
 
 			declareParentNode(247, 4);
@@ -127,7 +163,7 @@ public class JavaParserPro extends JavaParser{
 			return true;
 		}
 		catch (Throwable e){
-			call("g3");
+			recoverParser();
 			e.printStackTrace();
 			// currentNodeOffset
 			this.currentNodeOffset = lastNodeOffset;
@@ -156,7 +192,7 @@ public class JavaParserPro extends JavaParser{
 			System.out.println();
 
 		}else if ( analyzeParens == EXPLICIT_LAMBDA ){
-			that.call("WB");
+			invokeParserMethod(PARSE_EXPLICIT_PARAMETERS_METHOD);
 
 		}else if ( analyzeParens == ONLY_IMPLICIT_LAMBDA ){
 			declareNodeFormCurrentSyntaxTag(); // IDENTIFIER
@@ -19,17 +19,13 @@ import com.aide.engine.EngineSolutionProject;
 import com.aide.ui.services.AssetInstallationService;
 import io.github.zeroaicy.util.IOUtils;
 import io.github.zeroaicy.util.reflect.ReflectPie;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.compiler.IProblem;
-import org.eclipse.jdt.internal.compiler.ClassFile;
 import org.eclipse.jdt.internal.compiler.CompilationResult;
 import org.eclipse.jdt.internal.compiler.ICompilerRequestor;
 import org.eclipse.jdt.internal.compiler.IErrorHandlingPolicy;
@@ -41,11 +37,9 @@ import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
-import org.eclipse.jdt.internal.compiler.problem.DefaultProblem;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 import com.aide.codemodel.api.FileSpace.Assembly;
 import io.github.zeroaicy.aide.utils.ZeroAicyBuildGradle;
-import com.aide.codemodel.api.abstraction.Language;
 
 /**
  * 使用 Eclipse JDT Compiler 进行增量语义分析
@@ -330,7 +324,7 @@ public class ProjectEnvironment {
 	final ErrorTable errorTable;
 	final HighlighterCallback highlighterCallback;
 	
-	FileSystem environment;
+	INameEnvironment environment;
 	// 增量语义分析器实现以及增量编译器实现
 	public final CompilationUnitDeclarationResolver2 resolver;
 	
@@ -394,7 +388,8 @@ public class ProjectEnvironment {
 		}
 
 		// 环境 
-		environment = new FileSystem(classpaths.toArray(new String[classpaths.size()]) , null, "UTF-8");
+		// jar通过类型索引查询，避免每次reset后重新扫描jar
+		environment = new IndexedNameEnvironment(classpaths, "UTF-8");
 		// 设置源码
 		// environment.setSourceFiles(getSourceRootPaths(this, this.assemblyId));
 		
@@ -437,174 +432,6 @@ public class ProjectEnvironment {
 		return result;
 	}
 	
-	public void compile(SyntaxTree syntaxTree) throws Throwable {
-		
-		FileEntry fileEntry = syntaxTree.getFile();
-		if( this.fileSpace.isRJavaFileEntry(fileEntry) && !this.solutionProject.isMainModule){
-			// 非MainModule的R不可编译
-			return;
-		}
-		
-		Language language = syntaxTree.getLanguage();
-		
-		if( !(language instanceof JavaLanguagePro)){
-			return;
-		}
-		String pathString = fileEntry.getPathString();
-		
-		// 强制语义分析
-		EclipseJavaCodeAnalyzer2 codeAnalyzer = ((JavaLanguagePro)language).getCodeAnalyzer();
-		CompilationUnitDeclaration result = codeAnalyzer.semanticAnalysis(syntaxTree, true);
-		
-		// 生成代码
-		result.generateCode();
-
-		// 检查错误
-		CompilationResult compilationResult = result.compilationResult;
-		
-		if (result == null 
-			|| compilationResult == null) {
-			AppLog.println_d("没有解析 %s ", pathString);
-			AppLog.println_d("写入失败()");
-			return;
-		}
-		
-		boolean hasError = result.hasErrors();
-
-		if (!hasError) {
-			ClassFile[] classFiles = result.compilationResult.getClassFiles();
-			writeClassFilesToDisk(fileEntry, classFiles, this.getReleaseOutputPath());
-		}
-
-	}
-	
-	public void compile3(SyntaxTree syntaxTree) throws Throwable {
-		
-		FileEntry fileEntry = syntaxTree.getFile();
-		if( this.fileSpace.isRJavaFileEntry(fileEntry) && !this.solutionProject.isMainModule){
-			// 非MainModule的R不可编译
-			return;
-		}
-		
-		this.resolver.lookupEnvironment.reset();
-
-		String pathString = fileEntry.getPathString();
-
-		char[] data;
-		try {
-			data = IOUtils.readAllChars(fileEntry.getReader(), true);
-		}
-		catch ( Throwable e) {
-			if (e instanceof Error) {
-				throw (Error)e;
-			}
-			throw new Error(e);
-		}
-		CompilationUnitDeclaration result = this.resolver.resolve3(new CompilationUnit(data, pathString, "utf-8"));
-
-		// 生成代码
-		result.generateCode();
-
-		// 检查错误
-		CompilationResult compilationResult = result.compilationResult;
-		if (result == null 
-			|| compilationResult == null) {
-			AppLog.println_d("没有解析 %s ", pathString);
-			AppLog.println_d("写入失败()");
-			return;
-		}
-		boolean hasError = false;
-		
-		
-		// clear
-		// this.highlighterCallback.releaseSyntaxTree();
-		
-		CategorizedProblem[] problems = compilationResult.getAllProblems();
-		int problemsLength = problems == null ? 0 : problems.length;
-
-		for (int index = 0; index < problemsLength; index++) {
-			CategorizedProblem rawProblem = problems[index];
-			DefaultProblem problem = (DefaultProblem) rawProblem;
-			if (problem.isError()) {
-				// AppLog.d("JavaCodeAnalyzer:: ECJ 错误文件(" + syntaxTree.getFile().getPathString() + ")");
-				hasError = true;
-			}
-		}
-		// 完成
-		// this.highlighterCallback.fileFinished(fileEntry);
-		
-		if (!hasError) {
-			ClassFile[] classFiles = result.compilationResult.getClassFiles();
-			writeClassFilesToDisk(fileEntry, classFiles, this.getReleaseOutputPath());
-		}
-
-	}
-
-	private void writeClassFilesToDisk(FileEntry fileEntry, ClassFile[] classFiles, String currentDestinationPath) throws Throwable {
-
-		for (ClassFile classFile : classFiles) {
-
-			char[] filename = classFile.fileName();
-
-			String packageName;
-			String className = new String(filename);
-			int indexOfPackageEnd = className.lastIndexOf('/');
-			if (indexOfPackageEnd >= 0) {
-				// 包含 /
-				packageName = className.substring(0, indexOfPackageEnd + 1);
-				className = className.substring(indexOfPackageEnd + 1);
-			} else {
-				packageName = "";
-			}
-
-			
-			String releaseOutputPath = this.model.fileSpace.getReleaseOutputPath(fileEntry);
-			
-			// 强制更新
-			File classCacheFile = new File(releaseOutputPath, packageName + className + ".class");
-			classCacheFile.delete();
-			
-			OutputStream classFileOutput = null;
-			BufferedOutputStream output = null;
-			try {
-				classFileOutput = this.model.j3.nw(fileEntry, packageName, className, true, false);
-				
-				output = new BufferedOutputStream(classFileOutput, 1024);
-				// if no IOException occured, output cannot be null
-				output.write(classFile.header, 0, classFile.headerOffset);
-				output.write(classFile.contents, 0, classFile.contentsOffset);
-				output.flush();
-			}
-			catch (Throwable e) {
-				throw e;
-			}
-			finally {
-				IOUtils.close(output);
-				IOUtils.close(classFileOutput);
-				
-			}
-
-			/*
-			 char[] filename = classFile.fileName();
-			 int length = filename.length;
-
-			 char[] relativeName = new char[length + 6];
-			 System.arraycopy(filename, 0, relativeName, 0, length);
-			 System.arraycopy(SuffixConstants.SUFFIX_class, 0, relativeName, length, 6);
-			 CharOperation.replace(relativeName, '/', File.separatorChar);
-
-			 String relativeStringName = new String(relativeName);
-
-
-			 org.eclipse.jdt.internal.compiler.util.Util.writeToDisk(
-			 generateClasspathStructure,
-			 currentDestinationPath,
-			 relativeStringName,
-			 classFile);
-			 */
-		}
-	}
-
 	public String getReleaseOutputPath() {
 		return releaseOutputPath;
 	}
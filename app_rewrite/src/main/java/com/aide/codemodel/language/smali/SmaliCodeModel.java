@@ -5,14 +5,20 @@ import com.aide.codemodel.api.FileEntry;
 import com.aide.codemodel.api.Model;
 import com.aide.codemodel.api.SyntaxTree;
 import com.aide.codemodel.api.SyntaxTreeStyles;
+import com.aide.codemodel.api.collections.SetOfFileEntry;
 import com.aide.codemodel.api.abstraction.CodeModel;
 import com.aide.codemodel.api.abstraction.Debugger;
 import com.aide.codemodel.api.abstraction.Language;
 import com.aide.codemodel.api.abstraction.Preprocessor;
+import com.aide.common.AppLog;
+import io.github.zeroaicy.util.IOUtils;
+import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class SmaliCodeModel implements CodeModel {
 	
@@ -27,6 +33,9 @@ public class SmaliCodeModel implements CodeModel {
     private final SmaliLexer myLexer=new SmaliLexer();
     private final Highlighter myHighlighter;
     private final SmaliLanguage language;
+	// 项目内smali符号索引
+	private final SmaliIndex smaliIndex = new SmaliIndex();
+	
     public SmaliCodeModel(Model model) {
         this.model = model;
         language = new SmaliLanguage(this);
@@ -42,8 +51,25 @@ public class SmaliCodeModel implements CodeModel {
 	// DW -> update
     @Override
     public void update() {
-
-    }
+		// 移除已不在解决方案中的文件
+		if (this.model == null) {
+			return;
+		}
+		Set<String> solutionFilePaths = new HashSet<>();
+		SetOfFileEntry.Iterator solutionFilesIterator = this.model.fileSpace.getSolutionFiles().default_Iterator;
+		solutionFilesIterator.init();
+		while (solutionFilesIterator.hasMoreElements()) {
+			solutionFilePaths.add(solutionFilesIterator.nextKey().getPathString());
+		}
+		this.smaliIndex.retainFiles(solutionFilePaths);
+    }
+
+	/**
+	 * 解决方案改变时清空索引
+	 */
+	public void reset() {
+		this.smaliIndex.clear();
+	}
 	
 	// EQ() -> u7
 	@Override
@@ -114,7 +140,25 @@ public class SmaliCodeModel implements CodeModel {
 				syntaxTree.declareContent(syntaxTree.declareNode(0, true, new int[0], 0, 0, 1, 1));
 			//syntaxTree.DW(syntaxTree.j6(0, true, new int[0], 0, 0, 1, 1));
         }
-    }
+		// 增量更新此文件的索引
+		// 文件未修改时不再读取与解析
+		String filePath = fileEntry.getPathString();
+		long version = fileEntry.getVersion();
+		if (smaliIndex.isIndexed(filePath, version)) {
+			return;
+		}
+		try {
+			char[] text = IOUtils.readAllChars(reader, false);
+			smaliIndex.updateFile(filePath, version, SmaliStructureParser.parse(text, text.length));
+		}
+		catch (IOException e) {
+			AppLog.e("SmaliCodeModel", "索引失败: " + filePath, e);
+		}
+    }
+
+	public SmaliIndex getSmaliIndex() {
+		return smaliIndex;
+	}
 
 	// j6 -> getArchiveEntries
     @Override
@@ -0,0 +1,21 @@
+package com.aide.codemodel.language.smali;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个smali文件的结构
+ * .class .super .implements .field .method 以及 invoke/字段/类型 引用
+ */
+public class SmaliFileStructure {
+
+	// 类型描述符 没有.class时为null
+	public String className;
+	public String superName;
+	public final List<String> interfaceNames = new ArrayList<>();
+
+	// 类、字段、方法的定义 按出现顺序
+	public final List<SmaliSymbol> definitions = new ArrayList<>();
+	// invoke 字段读写 类型引用 按出现顺序
+	public final List<SmaliSymbol> references = new ArrayList<>();
+}
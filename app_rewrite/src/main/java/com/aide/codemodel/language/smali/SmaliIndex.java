@@ -0,0 +1,206 @@
+package com.aide.codemodel.language.smali;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 项目内所有smali文件的符号索引
+ * 类型描述符 | 成员签名 -> 文件 -> 位置
+ * 按文件增量更新，更新文件时只移除该文件的旧记录
+ */
+public class SmaliIndex {
+
+	/**
+	 * 符号所在文件
+	 */
+	public static class Location {
+		public final String filePath;
+		public final SmaliSymbol symbol;
+
+		public Location(String filePath, SmaliSymbol symbol) {
+			this.filePath = filePath;
+			this.symbol = symbol;
+		}
+
+		@Override
+		public String toString() {
+			return this.filePath + ":" + this.symbol.line + ":" + this.symbol.column;
+		}
+	}
+
+	// 文件路径 -> 结构
+	private final Map<String, SmaliFileStructure> files = new HashMap<>();
+	// 文件路径 -> 建立索引时FileEntry的版本
+	private final Map<String, Long> fileVersions = new HashMap<>();
+
+	// 签名 -> 文件路径 -> 定义
+	// 有序，按前缀查找
+	private final TreeMap<String, Map<String, List<SmaliSymbol>>> definitions = new TreeMap<>();
+	// 签名 -> 文件路径 -> 引用
+	private final Map<String, Map<String, List<SmaliSymbol>>> references = new HashMap<>();
+
+	/**
+	 * 文件的索引是否为此版本
+	 */
+	public synchronized boolean isIndexed(String filePath, long version) {
+		Long indexedVersion = this.fileVersions.get(filePath);
+		return indexedVersion != null
+			&& indexedVersion == version;
+	}
+
+	/**
+	 * 替换文件的索引
+	 */
+	public synchronized void updateFile(String filePath, long version, SmaliFileStructure structure) {
+		removeFileInternal(filePath);
+		this.files.put(filePath, structure);
+		this.fileVersions.put(filePath, version);
+		addSymbols(this.definitions, filePath, structure.definitions);
+		addSymbols(this.references, filePath, structure.references);
+	}
+
+	public synchronized void removeFile(String filePath) {
+		removeFileInternal(filePath);
+	}
+
+	/**
+	 * 移除不在filePaths中的文件
+	 */
+	public synchronized void retainFiles(Collection<String> filePaths) {
+		Iterator<String> iterator = new ArrayList<>(this.files.keySet()).iterator();
+		while (iterator.hasNext()) {
+			String filePath = iterator.next();
+			if (!filePaths.contains(filePath)) {
+				removeFileInternal(filePath);
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		this.files.clear();
+		this.fileVersions.clear();
+		this.definitions.clear();
+		this.references.clear();
+	}
+
+	/**
+	 * 文件的类、字段、方法与引用，用于大纲
+	 */
+	public synchronized SmaliFileStructure getFileStructure(String filePath) {
+		return this.files.get(filePath);
+	}
+
+	public synchronized int getFileCount() {
+		return this.files.size();
+	}
+
+	/**
+	 * 类型、字段、方法的定义位置
+	 */
+	public synchronized List<Location> getDefinitions(String signature) {
+		return getLocations(this.definitions, signature);
+	}
+
+	/**
+	 * invoke 字段读写 类型引用的位置
+	 */
+	public synchronized List<Location> getReferences(String signature) {
+		return getLocations(this.references, signature);
+	}
+
+	public synchronized int getReferenceCount(String signature) {
+		Map<String, List<SmaliSymbol>> fileSymbols = this.references.get(signature);
+		if (fileSymbols == null) {
+			return 0;
+		}
+		int count = 0;
+		for (List<SmaliSymbol> symbols : fileSymbols.values()) {
+			count += symbols.size();
+		}
+		return count;
+	}
+
+	/**
+	 * 签名以prefix开头的类型或成员定义，最多limit个
+	 */
+	public synchronized List<Location> findDefinitions(String prefix, boolean members, int limit) {
+		List<Location> locations = new ArrayList<>();
+		for (Map<String, List<SmaliSymbol>> fileSymbols : this.definitions.tailMap(prefix, true).values()) {
+			for (Map.Entry<String, List<SmaliSymbol>> entry : fileSymbols.entrySet()) {
+				SmaliSymbol symbol = entry.getValue().get(0);
+				if (!symbol.signature.startsWith(prefix)) {
+					return locations;
+				}
+				if (members == (symbol.kind == SmaliSymbol.KIND_TYPE)) {
+					continue;
+				}
+				locations.add(new Location(entry.getKey(), symbol));
+				if (locations.size() >= limit) {
+					return locations;
+				}
+			}
+		}
+		return locations;
+	}
+
+	private void removeFileInternal(String filePath) {
+		this.fileVersions.remove(filePath);
+		SmaliFileStructure oldStructure = this.files.remove(filePath);
+		if (oldStructure == null) {
+			return;
+		}
+		removeSymbols(this.definitions, filePath, oldStructure.definitions);
+		removeSymbols(this.references, filePath, oldStructure.references);
+	}
+
+	private static void addSymbols(Map<String, Map<String, List<SmaliSymbol>>> index, String filePath, List<SmaliSymbol> symbols) {
+		for (SmaliSymbol symbol : symbols) {
+			Map<String, List<SmaliSymbol>> fileSymbols = index.get(symbol.signature);
+			if (fileSymbols == null) {
+				fileSymbols = new LinkedHashMap<>(2);
+				index.put(symbol.signature, fileSymbols);
+			}
+			List<SmaliSymbol> list = fileSymbols.get(filePath);
+			if (list == null) {
+				list = new ArrayList<>(1);
+				fileSymbols.put(filePath, list);
+			}
+			list.add(symbol);
+		}
+	}
+
+	private static void removeSymbols(Map<String, Map<String, List<SmaliSymbol>>> index, String filePath, List<SmaliSymbol> symbols) {
+		for (SmaliSymbol symbol : symbols) {
+			Map<String, List<SmaliSymbol>> fileSymbols = index.get(symbol.signature);
+			if (fileSymbols == null) {
+				// 同一签名已移除
+				continue;
+			}
+			fileSymbols.remove(filePath);
+			if (fileSymbols.isEmpty()) {
+				index.remove(symbol.signature);
+			}
+		}
+	}
+
+	private static List<Location> getLocations(Map<String, Map<String, List<SmaliSymbol>>> index, String signature) {
+		Map<String, List<SmaliSymbol>> fileSymbols = index.get(signature);
+		if (fileSymbols == null) {
+			return Collections.emptyList();
+		}
+		List<Location> locations = new ArrayList<>();
+		for (Map.Entry<String, List<SmaliSymbol>> entry : fileSymbols.entrySet()) {
+			for (SmaliSymbol symbol : entry.getValue()) {
+				locations.add(new Location(entry.getKey(), symbol));
+			}
+		}
+		return locations;
+	}
+}
@@ -21,8 +21,13 @@ public class SmaliLanguage implements Language {
 	// private final SmaliCodeModel myCodeModel;
 	HighlighterSyntax highlighterSyntax = new HighlighterSyntax();
 	
+	private SmaliTools smaliTools;
+	
 	public SmaliLanguage(SmaliCodeModel codeModel) {
 		// myCodeModel = codeModel;
+		if (codeModel.model != null) {
+			this.smaliTools = new SmaliTools(codeModel.model, codeModel.getSmaliIndex());
+		}
 	}
 
 	@Override
@@ -82,7 +87,7 @@ public class SmaliLanguage implements Language {
 	// qa -> Tools
 	@Override
 	public Tools getTools() {
-		return null;
+		return smaliTools;
 	}
 	
 	// pa -> Syntax
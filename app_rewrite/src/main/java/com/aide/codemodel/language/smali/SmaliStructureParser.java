@@ -0,0 +1,226 @@
+package com.aide.codemodel.language.smali;
+
+/**
+ * 按行解析smali结构，只识别建立索引所需的指令
+ * 不做语法检查
+ */
+public class SmaliStructureParser {
+
+	private final char[] text;
+	private final int length;
+
+	private final SmaliFileStructure structure = new SmaliFileStructure();
+
+	// 当前方法签名
+	private String currentMethod;
+
+	private int lineNumber;
+	private int lineStart;
+
+	private SmaliStructureParser(char[] text, int length) {
+		this.text = text;
+		this.length = length;
+	}
+
+	public static SmaliFileStructure parse(char[] text, int length) {
+		SmaliStructureParser parser = new SmaliStructureParser(text, length);
+		parser.parse();
+		return parser.structure;
+	}
+
+	private void parse() {
+		int offset = 0;
+		while (offset < this.length) {
+			int lineEnd = offset;
+			while (lineEnd < this.length
+				   && this.text[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			this.lineNumber++;
+			this.lineStart = offset;
+			parseLine(offset, lineEnd);
+			offset = lineEnd + 1;
+		}
+	}
+
+	private void parseLine(int start, int end) {
+		// 去掉首尾空白
+		while (start < end
+			   && Character.isWhitespace(this.text[start])) {
+			start++;
+		}
+		while (end > start
+			   && Character.isWhitespace(this.text[end - 1])) {
+			end--;
+		}
+		if (start >= end
+			|| this.text[start] == '#') {
+			return;
+		}
+
+		int opcodeEnd = start;
+		while (opcodeEnd < end
+			   && !Character.isWhitespace(this.text[opcodeEnd])) {
+			opcodeEnd++;
+		}
+		String opcode = new String(this.text, start, opcodeEnd - start);
+
+		if (opcode.charAt(0) == '.') {
+			parseDirective(opcode, opcodeEnd, end);
+			return;
+		}
+		if (opcode.startsWith("invoke-")) {
+			addMemberReference(SmaliSymbol.KIND_METHOD, opcodeEnd, end);
+			return;
+		}
+		if (isFieldOpcode(opcode)) {
+			addMemberReference(SmaliSymbol.KIND_FIELD, opcodeEnd, end);
+			return;
+		}
+		if (isTypeOpcode(opcode)) {
+			int tokenStart = lastTokenStart(opcodeEnd, end);
+			addTypeReference(tokenStart, end);
+		}
+	}
+
+	private void parseDirective(String directive, int start, int end) {
+		switch (directive) {
+			case ".class" : {
+					int tokenStart = lastTokenStart(start, end);
+					String className = new String(this.text, tokenStart, end - tokenStart);
+					this.structure.className = className;
+					addDefinition(SmaliSymbol.KIND_TYPE, className, tokenStart);
+					break;
+				}
+			case ".super" : {
+					int tokenStart = lastTokenStart(start, end);
+					this.structure.superName = new String(this.text, tokenStart, end - tokenStart);
+					addTypeReference(tokenStart, end);
+					break;
+				}
+			case ".implements" : {
+					int tokenStart = lastTokenStart(start, end);
+					this.structure.interfaceNames.add(new String(this.text, tokenStart, end - tokenStart));
+					addTypeReference(tokenStart, end);
+					break;
+				}
+			case ".field" : {
+					// .field flags name:type [= value]
+					int fieldEnd = indexOf(" = ", start, end);
+					if (fieldEnd < 0) {
+						fieldEnd = end;
+					}
+					int tokenStart = lastTokenStart(start, fieldEnd);
+					if (this.structure.className != null
+						&& indexOf(":", tokenStart, fieldEnd) > tokenStart) {
+						String signature = this.structure.className + "->" + new String(this.text, tokenStart, fieldEnd - tokenStart);
+						addDefinition(SmaliSymbol.KIND_FIELD, signature, tokenStart);
+					}
+					break;
+				}
+			case ".method" : {
+					// .method flags name(params)ret
+					int tokenStart = lastTokenStart(start, end);
+					if (this.structure.className != null
+						&& indexOf("(", tokenStart, end) > tokenStart) {
+						String signature = this.structure.className + "->" + new String(this.text, tokenStart, end - tokenStart);
+						addDefinition(SmaliSymbol.KIND_METHOD, signature, tokenStart);
+						this.currentMethod = signature;
+					}
+					break;
+				}
+			case ".end" : {
+					if (indexOf("method", start, end) >= 0) {
+						this.currentMethod = null;
+					}
+					break;
+				}
+		}
+	}
+
+	/**
+	 * 最后一个参数 Lcom/a/B;->member
+	 */
+	private void addMemberReference(int kind, int start, int end) {
+		int tokenStart = lastTokenStart(start, end);
+		int arrow = indexOf("->", tokenStart, end);
+		if (arrow <= tokenStart) {
+			return;
+		}
+		String signature = new String(this.text, tokenStart, end - tokenStart);
+		this.structure.references.add(makeSymbol(kind, signature, tokenStart, this.currentMethod));
+	}
+
+	/**
+	 * 数组类型引用其元素类型，基本类型不记录
+	 */
+	private void addTypeReference(int start, int end) {
+		while (start < end
+			   && this.text[start] == '[') {
+			start++;
+		}
+		if (start >= end
+			|| this.text[start] != 'L'
+			|| this.text[end - 1] != ';') {
+			return;
+		}
+		String signature = new String(this.text, start, end - start);
+		this.structure.references.add(makeSymbol(SmaliSymbol.KIND_TYPE, signature, start, this.currentMethod));
+	}
+
+	private void addDefinition(int kind, String signature, int offset) {
+		this.structure.definitions.add(makeSymbol(kind, signature, offset, null));
+	}
+
+	private SmaliSymbol makeSymbol(int kind, String signature, int offset, String container) {
+		return new SmaliSymbol(kind, signature, offset, this.lineNumber, offset - this.lineStart + 1, container);
+	}
+
+	/**
+	 * 最后一个参数的起始位置 参数以空白或逗号分隔
+	 */
+	private int lastTokenStart(int start, int end) {
+		int tokenStart = end;
+		while (tokenStart > start
+			   && !Character.isWhitespace(this.text[tokenStart - 1])
+			   && this.text[tokenStart - 1] != ',') {
+			tokenStart--;
+		}
+		return tokenStart;
+	}
+
+	private int indexOf(String str, int start, int end) {
+		int last = end - str.length();
+		outer:
+		for (int i = start; i <= last; i++) {
+			for (int j = 0; j < str.length(); j++) {
+				if (this.text[i + j] != str.charAt(j)) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private static boolean isFieldOpcode(String opcode) {
+		return opcode.startsWith("iget")
+			|| opcode.startsWith("iput")
+			|| opcode.startsWith("sget")
+			|| opcode.startsWith("sput");
+	}
+
+	private static boolean isTypeOpcode(String opcode) {
+		switch (opcode) {
+			case "new-instance" :
+			case "check-cast" :
+			case "const-class" :
+			case "instance-of" :
+			case "new-array" :
+			case "filled-new-array" :
+			case "filled-new-array/range" :
+				return true;
+		}
+		return false;
+	}
+}
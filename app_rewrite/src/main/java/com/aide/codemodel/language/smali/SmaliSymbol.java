@@ -0,0 +1,39 @@
+package com.aide.codemodel.language.smali;
+
+/**
+ * smali中的定义或引用
+ * 类型: Lcom/a/B;
+ * 字段: Lcom/a/B;->name:Ljava/lang/String;
+ * 方法: Lcom/a/B;->name(I)V
+ */
+public class SmaliSymbol {
+
+	public static final int KIND_TYPE = 0;
+	public static final int KIND_FIELD = 1;
+	public static final int KIND_METHOD = 2;
+
+	public final int kind;
+	// 类型描述符或成员签名
+	public final String signature;
+	// 字符偏移
+	public final int offset;
+	// 行列 从1开始
+	public final int line;
+	public final int column;
+	// 引用所在的方法签名，定义与方法外的引用为null
+	public final String container;
+
+	public SmaliSymbol(int kind, String signature, int offset, int line, int column, String container) {
+		this.kind = kind;
+		this.signature = signature;
+		this.offset = offset;
+		this.line = line;
+		this.column = column;
+		this.container = container;
+	}
+
+	@Override
+	public String toString() {
+		return this.signature + " [" + this.line + ":" + this.column + "]";
+	}
+}
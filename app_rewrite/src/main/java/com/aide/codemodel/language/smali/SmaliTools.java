@@ -0,0 +1,87 @@
+package com.aide.codemodel.language.smali;
+
+import com.aide.codemodel.DefaultTools;
+import com.aide.codemodel.api.FileEntry;
+import com.aide.codemodel.api.Model;
+import com.aide.codemodel.api.SyntaxTree;
+import com.aide.codemodel.api.abstraction.Language;
+import com.aide.codemodel.api.callback.CodeCompleterCallback;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 由SmaliIndex补全项目内的类型描述符与成员签名
+ * Lcom/a/B -> Lcom/a/B;
+ * Lcom/a/B;->na -> Lcom/a/B;->name:I
+ */
+public class SmaliTools extends DefaultTools {
+
+	// 补全列表上限
+	private static final int MAX_COMPLETIONS = 200;
+
+	private final SmaliIndex smaliIndex;
+
+	public SmaliTools(Model model, SmaliIndex smaliIndex) {
+		super(model);
+		this.smaliIndex = smaliIndex;
+	}
+
+	@Override
+	public void er(SyntaxTree syntaxTree, FileEntry fileEntry, Language language, int line, int column) {
+		CodeCompleterCallback codeCompleterCallback = model.codeCompleterCallback;
+
+		int startColumn = tp(fileEntry, line, column);
+		String linePrefix = fileEntry.Mr(line, column);
+		String prefix = linePrefix.substring(startColumn - 1);
+		if (!prefix.startsWith("L")) {
+			codeCompleterCallback.a8(fileEntry, line, column);
+			return;
+		}
+		boolean isMember = prefix.contains("->");
+
+		codeCompleterCallback.listStarted();
+
+		// 已删除的文件在 SmaliCodeModel.update 时移除
+		Set<String> signatures = new HashSet<>();
+		List<SmaliIndex.Location> locations = this.smaliIndex.findDefinitions(prefix, isMember, MAX_COMPLETIONS);
+		for (SmaliIndex.Location location : locations) {
+			if (signatures.add(location.symbol.signature)) {
+				codeCompleterCallback.listElementKeywordFound(location.symbol.signature);
+			}
+		}
+		// j6 -> J8
+		codeCompleterCallback.J8(fileEntry, language, line, column, startColumn, false, false);
+	}
+
+	/**
+	 * 类型描述符与成员签名的起始列
+	 */
+	@Override
+	protected int tp(FileEntry fileEntry, int line, int column) {
+		String Mr = fileEntry.Mr(line, column);
+		int length = Mr.length() - 1;
+		while (length >= 0) {
+			if (!isSignatureChar(Mr.charAt(length))) {
+				break;
+			}
+			length--;
+		}
+		return length + 2;
+	}
+
+	private static boolean isSignatureChar(char c) {
+		switch (c) {
+			case '/':
+			case '$':
+			case '_':
+			case ';':
+			case '-':
+			case '>':
+			case '<':
+				return true;
+			default:
+				return Character.isLetterOrDigit(c);
+		}
+	}
+}
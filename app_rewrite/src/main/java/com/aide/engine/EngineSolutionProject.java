@@ -180,64 +180,66 @@ public class EngineSolutionProject implements Parcelable {
 	}
 
     public void writeToParcelOriginal(Parcel parcel, int flags) {
-		parcel.writeString(this.projectName);
-		parcel.writeString(this.mb);
-		parcel.writeString(this.jw);
-		parcel.writeInt(this.k2 ? 1 : 0);
-		parcel.writeString(this.zh);
-		parcel.writeString(this.AL);
-		parcel.writeString(this.w9);
-		parcel.writeString(this.hK);
-
-		parcel.writeInt(this.cT ? 1 : 0);
-		parcel.writeInt(this.q7 ? 1 : 0);
-		parcel.writeInt(this.Z1 ? 1 : 0);
-
-		parcel.writeInt(this.n5 ? 1 : 0);
-		parcel.writeString(this.Q6);
-		parcel.writeList(this.qp);
-		parcel.writeList(this.kf);
-		parcel.writeList(this.Jl);
-		parcel.writeList(this.iW);
-		parcel.writeList(this.fY);
+		// 紧凑格式 字符串表与路径前缀
+		EngineSolutionProjectCodec.Writer writer = EngineSolutionProjectCodec.newWriter();
+		writer.writeString(this.projectName);
+		writer.writeString(this.mb);
+		writer.writeString(this.jw);
+		writer.writeBoolean(this.k2);
+		writer.writeString(this.zh);
+		writer.writeString(this.AL);
+		writer.writeString(this.w9);
+		writer.writeString(this.hK);
+
+		writer.writeBoolean(this.cT);
+		writer.writeBoolean(this.q7);
+		writer.writeBoolean(this.Z1);
+
+		writer.writeBoolean(this.n5);
+		writer.writeString(this.Q6);
+		writer.writeStringList(this.qp);
+		writer.writeStringList(this.kf);
+		writer.writeStringList(this.Jl);
+		writer.writeStringList(this.iW);
+
+		if (writer.canWriteFiles()) {
+			writer.writeFiles(this.fY);
+			parcel.writeByteArray(writer.toByteArray());
+		} else {
+			parcel.writeByteArray(writer.toByteArray());
+			parcel.writeList(this.fY);
+		}
     }
 
 
     public EngineSolutionProject(Parcel dest) {
-		this.projectName = dest.readString();
-		this.mb = dest.readString();
-		this.jw = dest.readString();
-		this.k2 = dest.readInt() != 0;
-		this.zh = dest.readString();
-		this.AL = dest.readString();
-		this.w9 = dest.readString();
-		this.hK = dest.readString();
-		this.cT = dest.readInt() != 0;
-		this.q7 = dest.readInt() != 0;
-		this.Z1 = dest.readInt() != 0;
-
-		this.n5 = dest.readInt() != 0;
-		this.Q6 = dest.readString();
-
-		ArrayList<String> arrayList = new ArrayList<>();
-		this.qp = arrayList;
-		dest.readList(arrayList, getClass().getClassLoader());
-
-		ArrayList<String> arrayList2 = new ArrayList<>();
-		this.kf = arrayList2;
-		dest.readList(arrayList2, getClass().getClassLoader());
-
-		ArrayList<String> arrayList3 = new ArrayList<>();
-		this.Jl = arrayList3;
-		dest.readList(arrayList3, getClass().getClassLoader());
-
-		ArrayList<String> arrayList4 = new ArrayList<>();
-		this.iW = arrayList4;
-		dest.readList(arrayList4, getClass().getClassLoader());
-
-		ArrayList<EngineSolution.File> arrayList5 = new ArrayList<EngineSolution.File>();
-		this.fY = arrayList5;
-		dest.readList(arrayList5, getClass().getClassLoader());
+		EngineSolutionProjectCodec.Reader reader = EngineSolutionProjectCodec.newReader(dest.createByteArray());
+		this.projectName = reader.readString();
+		this.mb = reader.readString();
+		this.jw = reader.readString();
+		this.k2 = reader.readBoolean();
+		this.zh = reader.readString();
+		this.AL = reader.readString();
+		this.w9 = reader.readString();
+		this.hK = reader.readString();
+		this.cT = reader.readBoolean();
+		this.q7 = reader.readBoolean();
+		this.Z1 = reader.readBoolean();
+
+		this.n5 = reader.readBoolean();
+		this.Q6 = reader.readString();
+
+		this.qp = reader.readStringList();
+		this.kf = reader.readStringList();
+		this.Jl = reader.readStringList();
+		this.iW = reader.readStringList();
+
+		if (reader.hasFiles()) {
+			this.fY = reader.readFiles();
+		} else {
+			ArrayList<EngineSolution.File> arrayList5 = new ArrayList<EngineSolution.File>();
+			this.fY = arrayList5;
+			dest.readList(arrayList5, getClass().getClassLoader());
+		}
     }	
 }
-
@@ -0,0 +1,454 @@
+package com.aide.engine;
+
+import com.aide.common.AppLog;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * EngineSolutionProject 的紧凑序列化格式
+ * 以byte[]写入Parcel
+ *
+ * 字符串表: 每个字符串只写一次，之后写序号
+ * 路径前缀: 新字符串以已出现的父目录序号 + 剩余部分写入
+ * 父目录同时加入字符串表，读取时按相同顺序重建
+ */
+public class EngineSolutionProjectCodec {
+
+	private static final String TAG = "EngineSolutionProjectCodec";
+
+	// 格式版本 格式变化时增加
+	static final int FORMAT_VERSION = 1;
+
+	// 字符串标记
+	private static final int STRING_NULL = 0;
+	private static final int STRING_NEW = 1;
+	// 字符串表序号 + STRING_REF
+	private static final int STRING_REF = 2;
+
+	private static final int STRING_ARG_COUNT = 3;
+	private static final int BOOLEAN_ARG_COUNT = 2;
+
+	// EngineSolution.File 字段与构造参数的对应关系
+	// null表示无法按字段序列化
+	private static FileLayout fileLayout;
+	private static boolean fileLayoutResolved;
+
+	public static Writer newWriter() {
+		return new Writer(getFileLayout());
+	}
+
+	public static Reader newReader(byte[] data) {
+		return new Reader(data, getFileLayout());
+	}
+
+	private static synchronized FileLayout getFileLayout() {
+		if (!fileLayoutResolved) {
+			fileLayoutResolved = true;
+			try {
+				fileLayout = FileLayout.resolve();
+			}
+			catch (Throwable e) {
+				AppLog.e(TAG, "解析EngineSolution.File字段", e);
+			}
+			if (fileLayout == null) {
+				AppLog.d(TAG, "EngineSolution.File 使用Parcelable序列化");
+			}
+		}
+		return fileLayout;
+	}
+
+	public static class Writer {
+
+		private final ByteArrayOutputStream byteArrayOutput = new ByteArrayOutputStream(4096);
+		private final DataOutputStream output = new DataOutputStream(this.byteArrayOutput);
+
+		// 字符串 -> 序号
+		private final HashMap<String, Integer> stringTable = new HashMap<>();
+
+		private final FileLayout fileLayout;
+
+		private Writer(FileLayout fileLayout) {
+			this.fileLayout = fileLayout;
+			try {
+				writeVarInt(FORMAT_VERSION);
+				this.output.writeBoolean(fileLayout != null);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * 为false时 EngineSolution.File 需要以Parcelable写入
+		 */
+		public boolean canWriteFiles() {
+			return this.fileLayout != null;
+		}
+
+		public void writeBoolean(boolean value) {
+			try {
+				this.output.writeBoolean(value);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public void writeString(String value) {
+			try {
+				if (value == null) {
+					writeVarInt(STRING_NULL);
+					return;
+				}
+				Integer index = this.stringTable.get(value);
+				if (index != null) {
+					writeVarInt(index + STRING_REF);
+					return;
+				}
+				writeVarInt(STRING_NEW);
+
+				// 已出现的最长父目录
+				int prefixIndex = -1;
+				int prefixEnd = -1;
+				int slash = value.lastIndexOf('/');
+				while (slash > 0) {
+					Integer parentIndex = this.stringTable.get(value.substring(0, slash));
+					if (parentIndex != null) {
+						prefixIndex = parentIndex;
+						prefixEnd = slash;
+						break;
+					}
+					slash = value.lastIndexOf('/', slash - 1);
+				}
+				writeVarInt(prefixIndex + 1);
+				this.output.writeUTF(prefixIndex < 0 ? value : value.substring(prefixEnd + 1));
+
+				register(this.stringTable, null, value, prefixEnd);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public void writeStringList(List<String> values) {
+			if (values == null) {
+				writeVarIntUnchecked(0);
+				return;
+			}
+			writeVarIntUnchecked(values.size() + 1);
+			for (String value : values) {
+				writeString(value);
+			}
+		}
+
+		public void writeFiles(List<EngineSolution.File> files) {
+			FileLayout fileLayout = this.fileLayout;
+			if (fileLayout == null) {
+				throw new IllegalStateException("EngineSolution.File 不支持按字段写入");
+			}
+			if (files == null) {
+				writeVarIntUnchecked(0);
+				return;
+			}
+			writeVarIntUnchecked(files.size() + 1);
+			try {
+				for (EngineSolution.File file : files) {
+					for (Field field : fileLayout.stringFields) {
+						writeString((String) field.get(file));
+					}
+					int flags = 0;
+					for (int i = 0; i < BOOLEAN_ARG_COUNT; i++) {
+						if (fileLayout.booleanFields[i].getBoolean(file)) {
+							flags |= 1 << i;
+						}
+					}
+					this.output.writeByte(flags);
+				}
+			}
+			catch (IllegalAccessException | IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public byte[] toByteArray() {
+			try {
+				this.output.flush();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return this.byteArrayOutput.toByteArray();
+		}
+
+		private void writeVarIntUnchecked(int value) {
+			try {
+				writeVarInt(value);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				this.output.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.output.writeByte(value);
+		}
+	}
+
+	public static class Reader {
+
+		private final DataInputStream input;
+
+		private final ArrayList<String> stringTable = new ArrayList<>();
+		// 仅用于重建字符串表
+		private final HashMap<String, Integer> stringIndexs = new HashMap<>();
+
+		private final FileLayout fileLayout;
+
+		private final boolean hasFiles;
+
+		private Reader(byte[] data, FileLayout fileLayout) {
+			this.input = new DataInputStream(new ByteArrayInputStream(data));
+			this.fileLayout = fileLayout;
+			try {
+				int formatVersion = readVarInt();
+				if (formatVersion != FORMAT_VERSION) {
+					throw new IllegalStateException("不支持的格式版本: " + formatVersion);
+				}
+				this.hasFiles = this.input.readBoolean();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			if (this.hasFiles && fileLayout == null) {
+				throw new IllegalStateException("EngineSolution.File 不支持按字段读取");
+			}
+		}
+
+		/**
+		 * 为false时 EngineSolution.File 以Parcelable写入
+		 */
+		public boolean hasFiles() {
+			return this.hasFiles;
+		}
+
+		public boolean readBoolean() {
+			try {
+				return this.input.readBoolean();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public String readString() {
+			try {
+				int tag = readVarInt();
+				if (tag == STRING_NULL) {
+					return null;
+				}
+				if (tag != STRING_NEW) {
+					return this.stringTable.get(tag - STRING_REF);
+				}
+				int prefixIndex = readVarInt() - 1;
+				String suffix = this.input.readUTF();
+				String value;
+				int prefixEnd;
+				if (prefixIndex < 0) {
+					value = suffix;
+					prefixEnd = -1;
+				} else {
+					String prefix = this.stringTable.get(prefixIndex);
+					value = prefix + '/' + suffix;
+					prefixEnd = prefix.length();
+				}
+				register(this.stringIndexs, this.stringTable, value, prefixEnd);
+				return value;
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public ArrayList<String> readStringList() {
+			int size = readVarIntUnchecked() - 1;
+			// 与readList相同 null读取为空列表
+			ArrayList<String> values = new ArrayList<>(Math.max(size, 0));
+			for (int i = 0; i < size; i++) {
+				values.add(readString());
+			}
+			return values;
+		}
+
+		public ArrayList<EngineSolution.File> readFiles() {
+			int size = readVarIntUnchecked() - 1;
+			ArrayList<EngineSolution.File> files = new ArrayList<>(Math.max(size, 0));
+			try {
+				for (int i = 0; i < size; i++) {
+					String[] strings = new String[STRING_ARG_COUNT];
+					for (int j = 0; j < STRING_ARG_COUNT; j++) {
+						strings[j] = readString();
+					}
+					int flags = this.input.readByte();
+					files.add(new EngineSolution.File(strings[0], strings[1], strings[2], (flags & 1) != 0, (flags & 2) != 0));
+				}
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return files;
+		}
+
+		private int readVarIntUnchecked() {
+			try {
+				return readVarInt();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private int readVarInt() throws IOException {
+			int value = 0;
+			int shift = 0;
+			while (true) {
+				int b = this.input.readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+				shift += 7;
+			}
+		}
+	}
+
+	/**
+	 * 将value以及尚未出现的父目录加入字符串表
+	 * prefixEnd为已出现父目录的结束位置，没有时为-1
+	 * 读写两端对相同的value执行相同的操作，序号一致
+	 * strings 为按序号排列的字符串表，写入时不需要
+	 */
+	private static void register(HashMap<String, Integer> stringIndexs, List<String> strings, String value, int prefixEnd) {
+		stringIndexs.put(value, stringIndexs.size());
+		if (strings != null) {
+			strings.add(value);
+		}
+		int slash = value.lastIndexOf('/');
+		while (slash > prefixEnd && slash > 0) {
+			String parent = value.substring(0, slash);
+			if (!stringIndexs.containsKey(parent)) {
+				stringIndexs.put(parent, stringIndexs.size());
+				if (strings != null) {
+					strings.add(parent);
+				}
+			}
+			slash = value.lastIndexOf('/', slash - 1);
+		}
+	}
+
+	/**
+	 * EngineSolution.File 在基础jar中被混淆，只能访问类型与路径
+	 * 用特征参数构造多个File，由字段值确定字段对应的构造参数
+	 * 字段与构造参数不能一一对应时返回null
+	 */
+	private static class FileLayout {
+
+		// 构造File的boolean参数组
+		private static final boolean[][] BOOLEAN_PROBES = {
+			{true, false},
+			{false, true},
+			{true, true},
+			{false, false}
+		};
+
+		// 按构造参数顺序
+		final Field[] stringFields = new Field[STRING_ARG_COUNT];
+		final Field[] booleanFields = new Field[BOOLEAN_ARG_COUNT];
+
+		static FileLayout resolve() throws IllegalAccessException {
+			String[] strings = new String[STRING_ARG_COUNT];
+			for (int i = 0; i < STRING_ARG_COUNT; i++) {
+				strings[i] = "\u0000" + TAG + i;
+			}
+			// 每个boolean参数在各组中的取值
+			// 只有与唯一一个参数在所有组中都相同的字段才被接受
+			// 排除 a && b, a || b, !a 等派生字段
+			EngineSolution.File[] probes = new EngineSolution.File[BOOLEAN_PROBES.length];
+			for (int i = 0; i < BOOLEAN_PROBES.length; i++) {
+				probes[i] = new EngineSolution.File(strings[0], strings[1], strings[2], BOOLEAN_PROBES[i][0], BOOLEAN_PROBES[i][1]);
+			}
+
+			FileLayout layout = new FileLayout();
+			for (Field field : EngineSolution.File.class.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				field.setAccessible(true);
+				Class<?> type = field.getType();
+				if (type == String.class) {
+					Object value = field.get(probes[0]);
+					int index = -1;
+					for (int i = 0; i < STRING_ARG_COUNT; i++) {
+						if (strings[i].equals(value)) {
+							index = i;
+						}
+					}
+					if (index < 0 || layout.stringFields[index] != null) {
+						return null;
+					}
+					layout.stringFields[index] = field;
+				} else if (type == boolean.class) {
+					int index = -1;
+					for (int arg = 0; arg < BOOLEAN_ARG_COUNT; arg++) {
+						if (followsBooleanArg(field, probes, arg)) {
+							if (index >= 0) {
+								return null;
+							}
+							index = arg;
+						}
+					}
+					if (index < 0 || layout.booleanFields[index] != null) {
+						return null;
+					}
+					layout.booleanFields[index] = field;
+				} else {
+					return null;
+				}
+			}
+			for (Field field : layout.stringFields) {
+				if (field == null) {
+					return null;
+				}
+			}
+			for (Field field : layout.booleanFields) {
+				if (field == null) {
+					return null;
+				}
+			}
+			return layout;
+		}
+
+		/**
+		 * 字段值在所有参数组中都等于第arg个boolean参数
+		 */
+		private static boolean followsBooleanArg(Field field, EngineSolution.File[] probes, int arg) throws IllegalAccessException {
+			for (int i = 0; i < probes.length; i++) {
+				if (field.getBoolean(probes[i]) != BOOLEAN_PROBES[i][arg]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
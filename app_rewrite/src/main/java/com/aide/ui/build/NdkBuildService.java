@@ -9,13 +9,10 @@
 package com.aide.ui.build;
 
 import abcd.hy;
-import abcd.wf;
-import abcd.xf;
 import android.content.Context;
 import android.os.Build;
 import androidx.annotation.Keep;
 import com.aide.common.AppLog;
-import com.aide.common.StreamUtilities;
 import com.aide.engine.SyntaxError;
 import com.aide.ui.AppPreferences;
 import com.aide.ui.ServiceContainer;
@@ -25,19 +22,20 @@ import com.aide.ui.project.internal.GradleTools;
 import com.aide.ui.services.ProjectService;
 import com.aide.ui.util.FileSystem;
 import io.github.zeroaicy.aide.cmake.CmakeBuild;
+import io.github.zeroaicy.aide.cmake.NativeDiagnosticsParser;
 import io.github.zeroaicy.aide.cmake.ProcessExitInfo;
 import io.github.zeroaicy.aide.cmake.ProcessUtil;
 import io.github.zeroaicy.aide.extend.ZeroAicyExtensionInterface;
+import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
 import io.github.zeroaicy.aide.utils.ZeroAicyBuildGradle;
 import io.github.zeroaicy.util.ContextUtil;
 import io.github.zeroaicy.util.FileUtil;
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +43,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import io.github.zeroaicy.aide.utils.ZeroAicyTermuxShellEnvironment;
 import android.app.PendingIntent;
 import android.content.Intent;
@@ -52,6 +51,9 @@ import android.content.Intent;
 public class NdkBuildService {
 	public static final String TAG = "NdkBuildService";
 
+	// 构建过程中实时显示的诊断信息，构建结束后清除
+	private static final String LIVE_ERROR_CATEGORY = "NDK Build";
+
 	static ZeroAicyTermuxShellEnvironment termuxShellEnvironment = ZeroAicyTermuxShellEnvironment.getInstance();
 
 	private RunNdkBuildFutureTask runNdkBuildFutureTask;
@@ -95,70 +97,111 @@ public class NdkBuildService {
 		return syntaxError;
 	}
 
-	static Map<String, List<SyntaxError>> Zo(NdkBuildService ndkBuildService, String str, String str2) {
-		return ndkBuildService.gn(str, str2);
+	/**
+	 * 构建失败时的错误信息
+	 * 所有模块解析到的诊断信息(含警告与列号) + 失败模块的原始输出尾部
+	 * 没有输出时[如进程启动失败]使用 ProcessExitInfo中的信息
+	 */
+	static Map<String, List<SyntaxError>> makeSyntaxErrors(NdkBuildService ndkBuildService, String projectPath, LiveDiagnostics liveDiagnostics, ProcessExitInfo processExitInfo) {
+		NativeDiagnosticsParser parser = liveDiagnostics.getParser(projectPath);
+		Map<String, List<SyntaxError>> syntaxErrors = liveDiagnostics.getSyntaxErrors();
+
+		List<SyntaxError> outputErrors = syntaxErrors.get(projectPath);
+		if (outputErrors == null) {
+			outputErrors = new ArrayList<>();
+			syntaxErrors.put(projectPath, outputErrors);
+		}
+
+		String output = new String(parser.getTail(), StandardCharsets.UTF_8).trim();
+		if (output.length() == 0) {
+			outputErrors.add(ndkBuildService.VH("NDK", 1, 1, "ndk-build exited with code " + processExitInfo.exit()));
+
+			byte[] message = processExitInfo.getMessagen();
+			if (message == null) {
+				return syntaxErrors;
+			}
+			output = new String(message, StandardCharsets.UTF_8).trim();
+		}
+		for (String line : output.split("\n")) {
+			line = line.trim();
+			if (line.length() > 0) {
+				outputErrors.add(ndkBuildService.VH("NDK", 1, 1, line));
+			}
+		}
+		return syntaxErrors;
+	}
+
+	/**
+	 * 更新实时诊断信息
+	 */
+	static void publishLiveErrors(final Map<String, List<SyntaxError>> syntaxErrors) {
+		ThreadPoolService.postOfUi(new Runnable(){
+				@Override
+				public void run() {
+					ServiceContainer.getErrorService().EQ(LIVE_ERROR_CATEGORY, syntaxErrors);
+				}
+			});
 	}
 
-	private Map<String, List<SyntaxError>> gn(String str, String str2) {
-		HashMap<String, List<SyntaxError>> hashMap = new HashMap<>();
+	/**
+	 * 边构建边显示诊断信息
+	 * 每个模块一个解析器，多条诊断合并为一次ui更新
+	 */
+	static class LiveDiagnostics implements NativeDiagnosticsParser.Listener, Runnable {
+
+		private final AtomicBoolean pending = new AtomicBoolean();
 
-		for (String errorLine : str2.split("\n")) {
-			errorLine = errorLine.trim();
+		// 模块路径 -> 解析器
+		private final Map<String, NativeDiagnosticsParser> parsers = new LinkedHashMap<>();
 
-			if (errorLine.length() <= 0) {
-				continue;
+		/**
+		 * 同一模块[如cmake的多个ABI]共用一个解析器
+		 */
+		public synchronized NativeDiagnosticsParser newParser(String projectPath) {
+			NativeDiagnosticsParser parser = this.parsers.get(projectPath);
+			if (parser == null) {
+				parser = new NativeDiagnosticsParser(projectPath, this);
+				this.parsers.put(projectPath, parser);
+			} else {
+				parser.resetTail();
 			}
-			try {
-				int indexOf = errorLine.indexOf(':');
+			return parser;
+		}
 
-				if (indexOf > 0) {
-					String path = new File(str, errorLine.substring(0, indexOf)).getPath();
+		public synchronized NativeDiagnosticsParser getParser(String projectPath) {
+			return this.parsers.get(projectPath);
+		}
 
-					if (FileSystem.KD(path)) {
-						int i2 = indexOf + 1;
-						int indexOf2 = errorLine.indexOf(58, i2);
-						if (indexOf2 < 0) {
-							indexOf2 = errorLine.indexOf(32, i2);
-						}
-						if (indexOf2 > 0) {
-							int i;
-
-							try {
-								i = Integer.parseInt(errorLine.substring(i2, indexOf2));
-							} catch (NumberFormatException unused) {
-								i = 1;
-							}
-							int i3 = indexOf2 + 1;
-							int indexOf3 = errorLine.indexOf(58, i3);
-							if (indexOf3 > 0) {
-								try {
-									Integer.parseInt(errorLine.substring(i3, indexOf3));
-								} catch (NumberFormatException unused2) {
-								}
-							}
-							String trim2 = errorLine.substring(indexOf3 + 1, errorLine.length()).trim();
-							if (trim2.startsWith("error:")) {
-								SyntaxError VH = VH("NDK", i, 1, trim2.substring(6, trim2.length()).trim());
-								if (!hashMap.containsKey(path)) {
-									hashMap.put(path, new ArrayList<SyntaxError>());
-								}
-								hashMap.get(path).add(VH);
-							}
-						}
+		/**
+		 * 合并所有模块的诊断信息
+		 */
+		public synchronized Map<String, List<SyntaxError>> getSyntaxErrors() {
+			Map<String, List<SyntaxError>> syntaxErrors = new LinkedHashMap<>();
+			for (NativeDiagnosticsParser parser : this.parsers.values()) {
+				for (Map.Entry<String, List<SyntaxError>> entry : parser.getSyntaxErrors().entrySet()) {
+					List<SyntaxError> list = syntaxErrors.get(entry.getKey());
+					if (list == null) {
+						syntaxErrors.put(entry.getKey(), entry.getValue());
+					} else {
+						list.addAll(entry.getValue());
 					}
 				}
-			} catch (Exception e) {
-				AppLog.e(e);
 			}
+			return syntaxErrors;
+		}
 
-			if (!hashMap.containsKey(str)) {
-				hashMap.put(str, new ArrayList<>());
+		@Override
+		public void onDiagnostic(String filePath, SyntaxError syntaxError, boolean isError) {
+			if (this.pending.compareAndSet(false, true)) {
+				ThreadPoolService.postOfUi(this);
 			}
-			hashMap.get(str).add(VH("NDK", 1, 1, errorLine));
-
 		}
-		return hashMap;
 
+		@Override
+		public void run() {
+			this.pending.set(false);
+			ServiceContainer.getErrorService().EQ(LIVE_ERROR_CATEGORY, getSyntaxErrors());
+		}
 	}
 
 	static void j6(NdkBuildService ndkBuildService, boolean z) {
@@ -224,6 +267,7 @@ public class NdkBuildService {
 		@Override
 		protected void done() {
 			if (isCancelled()) {
+				NdkBuildService.publishLiveErrors(new HashMap<String, List<SyntaxError>>());
 				return;
 			}
 			boolean z = false;
@@ -236,13 +280,19 @@ public class NdkBuildService {
 				}
 				Map<String, List<SyntaxError>> errors = get();
 				if (errors == null) {
+					// 构建成功 保留警告
+					NdkBuildService.publishLiveErrors(this.runNdkBuildCallableWB.liveDiagnostics.getSyntaxErrors());
 					NdkBuildService.j6(this.ndkBuildService, z);
 				} else {
+					// 由最终结果替代(已包含警告)
+					NdkBuildService.publishLiveErrors(new HashMap<String, List<SyntaxError>>());
 					NdkBuildService.DW(this.ndkBuildService, errors);
 				}
 			} catch (InterruptedException unused) {
+				NdkBuildService.publishLiveErrors(new HashMap<String, List<SyntaxError>>());
 				NdkBuildService.FH(this.ndkBuildService);
 			} catch (ExecutionException e) {
+				NdkBuildService.publishLiveErrors(new HashMap<String, List<SyntaxError>>());
 				NdkBuildService.Hw(this.ndkBuildService, e.getCause());
 			}
 		}
@@ -268,20 +318,7 @@ public class NdkBuildService {
 			this.modules = modules;
 		}
 
-		private String DW(byte[] data, int i) {
-			String str = "";
-			try {
-				str = StreamUtilities.readTextReader(new InputStreamReader(new ByteArrayInputStream(data)));
-			} catch (Exception unused) {
-			}
-
-			String trim = str.trim();
-			if (trim.length() != 0) {
-				return trim;
-			}
-			return "ndk-build exited with code " + i;
-
-		}
+		final LiveDiagnostics liveDiagnostics = new LiveDiagnostics();
 
 		// has Android Mk Module
 		private boolean hasAndroidMkModule() {
@@ -337,11 +374,13 @@ public class NdkBuildService {
 
 					Hw(ndkBuildArgs, module);
 
-					// 运行ndk-build
-					wf j6 = xf.j6(ndkBuildArgs, module, env, true, (OutputStream) null, (byte[]) null);
+					// 运行ndk-build 边输出边解析
+					NativeDiagnosticsParser parser = this.liveDiagnostics.newParser(module);
+					ProcessExitInfo processInfo = ProcessUtil.j6(ndkBuildArgs, module, env, true, parser, null);
+					parser.close();
 
-					if (j6.DW() != 0) {
-						return NdkBuildService.Zo(this.ndkBuildService, module, DW(j6.j6(), j6.DW()));
+					if (processInfo.exit() != 0) {
+						return NdkBuildService.makeSyntaxErrors(this.ndkBuildService, module, this.liveDiagnostics, processInfo);
 					}
 				}
 
@@ -514,7 +553,8 @@ public class NdkBuildService {
 								.setSystemVersion(minSdkVersion);
 
 						CmakeBuild build = builder.build();
-						ProcessExitInfo runCmakeBuildInfo = runCmakeBuild(build, projectPath);
+						NativeDiagnosticsParser parser = this.liveDiagnostics.newParser(projectPath);
+						ProcessExitInfo runCmakeBuildInfo = runCmakeBuild(build, projectPath, parser);
 						if (runCmakeBuildInfo == null) {
 							continue;
 						}
@@ -522,10 +562,7 @@ public class NdkBuildService {
 							continue;
 						}
 						// make
-						return NdkBuildService.Zo(
-								// 
-								this.ndkBuildService, projectPath,
-								DW(runCmakeBuildInfo.getMessagen(), runCmakeBuildInfo.exit()));
+						return NdkBuildService.makeSyntaxErrors(this.ndkBuildService, projectPath, this.liveDiagnostics, runCmakeBuildInfo);
 					}
 				} else {
 
@@ -560,7 +597,8 @@ public class NdkBuildService {
 
 					CmakeBuild build = builder.build();
 
-					ProcessExitInfo runCmakeBuildInfo = runCmakeBuild(build, projectPath);
+					NativeDiagnosticsParser parser = this.liveDiagnostics.newParser(projectPath);
+					ProcessExitInfo runCmakeBuildInfo = runCmakeBuild(build, projectPath, parser);
 
 					if (runCmakeBuildInfo == null) {
 						continue;
@@ -569,10 +607,7 @@ public class NdkBuildService {
 						continue;
 					}
 					// make
-					return NdkBuildService.Zo(
-							// 
-							this.ndkBuildService, projectPath,
-							DW(runCmakeBuildInfo.getMessagen(), runCmakeBuildInfo.exit()));
+					return NdkBuildService.makeSyntaxErrors(this.ndkBuildService, projectPath, this.liveDiagnostics, runCmakeBuildInfo);
 
 				}
 			}
@@ -580,9 +615,12 @@ public class NdkBuildService {
 			return null;
 		}
 
-		private static ProcessExitInfo runCmakeBuild(final CmakeBuild build, String projectPath) {
+		private static ProcessExitInfo runCmakeBuild(final CmakeBuild build, String projectPath, NativeDiagnosticsParser parser) {
 
 			if (build.error()) {
+				final byte[] buildInfo = build.getBuildInfo().getBytes(StandardCharsets.UTF_8);
+				parser.write(buildInfo, 0, buildInfo.length);
+				parser.close();
 				return new ProcessExitInfo() {
 					@Override
 					public int exit() {
@@ -590,7 +628,7 @@ public class NdkBuildService {
 					}
 					@Override
 					public byte[] getMessagen() {
-						return build.getBuildInfo().getBytes();
+						return buildInfo;
 					}
 				};
 			}
@@ -605,9 +643,10 @@ public class NdkBuildService {
 			
 			// AppLog.d(TAG, cmakeCommandList);
 			
-			ProcessExitInfo processInfo = ProcessUtil.j6(cmakeCommandList, projectPath, env, true, null, null);
+			ProcessExitInfo processInfo = ProcessUtil.j6(cmakeCommandList, projectPath, env, true, parser, null);
 
 			if (processInfo.exit() != 0) {
+				parser.close();
 				return processInfo;
 			}
 
@@ -617,7 +656,8 @@ public class NdkBuildService {
 			
 			// AppLog.d(TAG, ninjaCommandList);
 			
-			processInfo = ProcessUtil.j6(ninjaCommandList, projectPath, env, true, null, null);
+			processInfo = ProcessUtil.j6(ninjaCommandList, projectPath, env, true, parser, null);
+			parser.close();
 
 			if (processInfo.exit() != 0) {
 				return processInfo;
@@ -28,6 +28,7 @@ import com.aide.ui.util.BuildGradleExt;
 import com.aide.ui.util.ClassPath;
 import com.aide.ui.util.FileSystem;
 import io.github.zeroaicy.aide.extend.ZeroAicyExtensionInterface;
+import io.github.zeroaicy.aide.utils.ZeroAicyBuildGradle;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -368,7 +369,9 @@ public class JavaGradleProjectSupport implements ProjectSupport {
 				}
 			}
 
-			// 解析库项目
+			// 计算库项目目录
+			List<String> projectDependencyPaths = new ArrayList<>();
+			List<String> projectDependencyBuildGradlePaths = new ArrayList<>();
 			for (BuildGradle.Dependency dependency : projectDependencies) {
 				if (dependency instanceof BuildGradle.ProjectDependency) {
 					BuildGradle.ProjectDependency projectDependency = (BuildGradle.ProjectDependency) dependency;
@@ -377,15 +380,24 @@ public class JavaGradleProjectSupport implements ProjectSupport {
 
 					BuildGradleExt settingsGradleBuildGradleExt = buildGradleExt.getConfiguration(settingsGradlePath);
 
-					// 计算库项目目录
 					String projectDependencyPath = projectDependency.getProjectDependencyPath(projectPath,
 							settingsGradleBuildGradleExt);
 
 					if (FileSystem.isDirectory(projectDependencyPath)) {
-						resolvingChildProject(projectDependencyPath, resolvedProjects);
+						projectDependencyPaths.add(projectDependencyPath);
+						if (!resolvedProjects.contains(projectDependencyPath)) {
+							projectDependencyBuildGradlePaths.add(GradleTools.getBuildGradlePath(projectDependencyPath));
+						}
 					}
 				}
 			}
+			// 并行解析库项目的build.gradle
+			ZeroAicyBuildGradle.getSingleton().preloadConfigurations(projectDependencyBuildGradlePaths);
+
+			// 解析库项目
+			for (String projectDependencyPath : projectDependencyPaths) {
+				resolvingChildProject(projectDependencyPath, resolvedProjects);
+			}
 		}
 	}
 
@@ -13,6 +13,7 @@ import com.aide.common.StreamUtilities;
 import com.aide.ui.ServiceContainer;
 import com.aide.ui.util.FileSystem;
 import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
+import io.github.zeroaicy.aide.utils.AssetManifest;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -21,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.GregorianCalendar;
+import java.util.Map;
 import androidx.annotation.Keep;
 import java.util.concurrent.ExecutorService;
 
@@ -34,17 +36,32 @@ public class AssetInstallationService {
 		}
 	}
 	private static AssetFileDescriptor getResourceAssetFileDescriptor(String resourceName) {
+		return tryGetAssetFileDescriptorFromAssetManager(getResourceNames(resourceName));
+    }
+
+	/**
+	 * asset的候选路径，按顺序查找
+	 */
+	private static String[] getResourceNames(String resourceName) {
 		if (ServiceContainer.isX86() && Build.VERSION.SDK_INT >= 20) {
-			return tryGetAssetFileDescriptorFromAssetManager(resourceName, resourceName + ".jet", "x86-pie/" + resourceName, "x86/" + resourceName + ".jet");
+			return new String[]{resourceName, resourceName + ".jet", "x86-pie/" + resourceName, "x86/" + resourceName + ".jet"};
 		}
 		if (ServiceContainer.isX86()) {
-			return tryGetAssetFileDescriptorFromAssetManager(resourceName, resourceName + ".jet", "x86/" + resourceName, "x86/" + resourceName + ".jet");
+			return new String[]{resourceName, resourceName + ".jet", "x86/" + resourceName, "x86/" + resourceName + ".jet"};
 		}
 		if (Build.VERSION.SDK_INT >= 20) {
-			return tryGetAssetFileDescriptorFromAssetManager(resourceName, resourceName + ".jet", "armeabi-pie/" + resourceName, "armeabi/" + resourceName + ".jet");
+			return new String[]{resourceName, resourceName + ".jet", "armeabi-pie/" + resourceName, "armeabi/" + resourceName + ".jet"};
 		}
-		return tryGetAssetFileDescriptorFromAssetManager(resourceName, resourceName + ".jet", "armeabi/" + resourceName, "armeabi/" + resourceName + ".jet");
-    }
+		return new String[]{resourceName, resourceName + ".jet", "armeabi/" + resourceName, "armeabi/" + resourceName + ".jet"};
+	}
+
+	/**
+	 * apk中asset的大小与crc，不读取内容
+	 */
+	private static AssetManifest.Stamp getResourceStamp(String resourceName) {
+		String apkPath = ServiceContainer.getContext().getApplicationInfo().sourceDir;
+		return AssetManifest.getApkAssetStamp(apkPath, getResourceNames(resourceName));
+	}
 
     private static AssetFileDescriptor tryGetAssetFileDescriptorFromAssetManager(String... resourceNames) {
 		try {
@@ -94,16 +111,7 @@ public class AssetInstallationService {
     }
 
     private static InputStream getResourceInputStream(String resourceName) {
-		if (ServiceContainer.isX86() && Build.VERSION.SDK_INT >= 20) {
-			return tryGetInputStreamFromAssetManager(resourceName, resourceName + ".jet", "x86-pie/" + resourceName, "x86/" + resourceName + ".jet");
-		}
-		if (ServiceContainer.isX86()) {
-			return tryGetInputStreamFromAssetManager(resourceName, resourceName + ".jet", "x86/" + resourceName, "x86/" + resourceName + ".jet");
-		}
-		if (Build.VERSION.SDK_INT >= 20) {
-			return tryGetInputStreamFromAssetManager(resourceName, resourceName + ".jet", "armeabi-pie/" + resourceName, "armeabi/" + resourceName + ".jet");
-		}
-		return tryGetInputStreamFromAssetManager(resourceName, resourceName + ".jet", "armeabi/" + resourceName, "armeabi/" + resourceName + ".jet");
+		return tryGetInputStreamFromAssetManager(getResourceNames(resourceName));
     }
 
 
@@ -146,7 +154,7 @@ public class AssetInstallationService {
 	 * true可以理解为未消耗事件
 	 * 
 	 */
-    private static boolean needUpdateResource(String resourceName, boolean z) {
+    private static boolean needUpdateResource(String resourceName, boolean z, boolean unZip) {
 		String outputPath = getOutputPath(resourceName, z);
 
 		SharedPreferences sharedPreferences = ServiceContainer.getContext().getSharedPreferences("AssetInstallationService", 0);
@@ -185,8 +193,17 @@ public class AssetInstallationService {
 					return false;
 				}
 				*/
+				// 比较清单 不读取内容
+				AssetManifest.Stamp resourceStamp = getResourceStamp(resourceName);
+				if (resourceStamp != null) {
+					AssetManifest installedManifest = AssetManifest.read(outputPath);
+					return installedManifest == null
+						|| !resourceStamp.isSame(installedManifest.getAssetStamp())
+						|| (!unZip && outputFile.length() != resourceStamp.size);
+				}
 				// 更新并写入文件
-				if (StreamUtilities.equals(getResourceInputStream(resourceName), new FileInputStream(outputFile))) {
+				if (!unZip
+					&& StreamUtilities.equals(getResourceInputStream(resourceName), new FileInputStream(outputFile))) {
 					return false;
 				}
 			}
@@ -209,14 +226,21 @@ public class AssetInstallationService {
 
 
     private static boolean extractResource(String resourceName, boolean z, boolean unZip) {
-        if (needUpdateResource(resourceName, z)) {
+        if (needUpdateResource(resourceName, z, unZip)) {
 			// 此时文件不存在
 			try {
 				String outputPath = getOutputPath(resourceName, z);
+				AssetManifest.Stamp resourceStamp = getResourceStamp(resourceName);
+				AssetManifest installedManifest = AssetManifest.read(outputPath);
+				// 先删除清单，写入中断时下次重新解压
+				AssetManifest.getManifestFile(outputPath).delete();
+
 				InputStream resourceInputStream = getResourceInputStream(resourceName);
+				Map<String, AssetManifest.Stamp> members = null;
 				if (unZip) {
-					// 解压
-					FileSystem.unZip(resourceInputStream, outputPath, false);
+					// 解压 只写入变化的成员
+					members = AssetManifest.unZipChanged(resourceInputStream, outputPath, 
+														 installedManifest == null ? null : installedManifest.getMembers());
 				} else {
 					File outputFile = new File(outputPath);
 					outputFile.setWritable(true);
@@ -224,6 +248,9 @@ public class AssetInstallationService {
 					// transferTo
 					StreamUtilities.transferStream(resourceInputStream, new FileOutputStream(outputFile));
 				}
+				if (resourceStamp != null) {
+					new AssetManifest(resourceStamp, members).write(outputPath);
+				}
 				AppLog.d("Extracted asset " + resourceName);
 				return true;
 			}
@@ -19,11 +19,14 @@ import com.aide.ui.util.ClassPath;
 import com.aide.ui.util.FileSystem;
 import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
 import io.github.zeroaicy.aide.utils.Utils;
+import io.github.zeroaicy.aide.utils.ZeroAicyBuildGradle;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -194,17 +197,22 @@ public class ZeroAicyProjectService extends ProjectService {
 		// 对其进行特殊处理
 		if (this.pojectSupport instanceof AndroidProjectSupport) {
 
+			LibrarySnapshot librarySnapshot = this.librarySnapshot;
+			if (librarySnapshot == null
+				|| !librarySnapshot.containsModule(this.currentAppHome)) {
+				// 索引尚未建立
+				return super.containJarLib(filePath);
+			}
+
 			if (GradleTools.isAndroidGradleProject(filePath) 
 				&& !currentAppHome.equals(filePath) 
-				&& !this.getLibraryMapping().get(this.currentAppHome).contains(filePath)) {
+				&& !librarySnapshot.containsModuleLibrary(this.currentAppHome, filePath)) {
 				return true;
 			}
 
-			List<ClassPath.Entry> classPathEntrys = getClassPathEntrys();
 			String name = FileSystem.getName(filePath);
 			if (name.toLowerCase().endsWith(".jar") 
-				&& classPathEntrys != null 
-				&& !containsLib(this.currentAppHome, filePath, classPathEntrys)) {
+				&& !librarySnapshot.containsLib(filePath)) {
 				return true;
 			}
 		}
@@ -223,34 +231,104 @@ public class ZeroAicyProjectService extends ProjectService {
 		// 对AndroidProjectSupport进行特殊处理
 		if (this.pojectSupport instanceof AndroidProjectSupport) {
 
-			List<ClassPath.Entry> classPathEntrys = this.classPathEntrys;
-
-			List<String> librarys = this.getLibraryMapping().get(this.currentAppHome);
+			LibrarySnapshot librarySnapshot = this.librarySnapshot;
 			// 异步bug修复
-			if (librarys == null 
-				|| librarys.contains(filePath)) {
+			if (librarySnapshot == null 
+				|| !librarySnapshot.containsModule(this.currentAppHome)
+				|| librarySnapshot.containsModuleLibrary(this.currentAppHome, filePath)) {
 				return true;
 			}
 
-			if (classPathEntrys != null 
-				&& containsLib(this.currentAppHome, filePath, classPathEntrys)) {
-				return true;
-			}
-			return false;
+			return librarySnapshot.containsLib(filePath);
 		}
 
 		return super.we(filePath);
 	}
 
 	private List<ClassPath.Entry> classPathEntrys;
-	private static boolean containsLib(String currentAppHome, String filePath, List<ClassPath.Entry> classPathEntrys) {
-		for (ClassPath.Entry entry : classPathEntrys) {
-			if (entry.isLibKind() 
-				&& entry.resolveFilePath(currentAppHome).equals(filePath)) {
-				return true;
+
+	/**
+	 * libraryMapping与classPathEntrys的只读索引
+	 * 在executorsService中重建，整体替换
+	 */
+	static class LibrarySnapshot {
+
+		static final LibrarySnapshot EMPTY = new LibrarySnapshot(Collections.<String, List<String>>emptyMap(), null, null);
+
+		// classPathEntrys中已解析的库路径
+		private final Set<String> libPaths;
+		// 项目路径 -> 依赖
+		private final Map<String, Set<String>> moduleLibrarys;
+		// 依赖 -> 所属项目路径
+		private final Map<String, String> libraryOwners;
+
+		LibrarySnapshot(Map<String, List<String>> libraryMapping, String currentAppHome, List<ClassPath.Entry> classPathEntrys) {
+			Set<String> libPaths = new HashSet<>();
+			if (classPathEntrys != null) {
+				for (ClassPath.Entry entry : classPathEntrys) {
+					if (entry.isLibKind()) {
+						libPaths.add(entry.resolveFilePath(currentAppHome));
+					}
+				}
 			}
+
+			Map<String, Set<String>> moduleLibrarys = new HashMap<>();
+			Map<String, String> libraryOwners = new HashMap<>();
+			for (Map.Entry<String, List<String>> entry : libraryMapping.entrySet()) {
+				String module = entry.getKey();
+				List<String> librarys = entry.getValue();
+				if (librarys == null) {
+					librarys = Collections.emptyList();
+				}
+				moduleLibrarys.put(module, Collections.unmodifiableSet(new HashSet<String>(librarys)));
+				for (String library : librarys) {
+					// 保留第一个声明的项目
+					if (!libraryOwners.containsKey(library)) {
+						libraryOwners.put(library, module);
+					}
+				}
+			}
+			this.libPaths = Collections.unmodifiableSet(libPaths);
+			this.moduleLibrarys = Collections.unmodifiableMap(moduleLibrarys);
+			this.libraryOwners = Collections.unmodifiableMap(libraryOwners);
 		}
-		return false;
+
+		public boolean containsLib(String filePath) {
+			return this.libPaths.contains(filePath);
+		}
+
+		public boolean containsModule(String module) {
+			return this.moduleLibrarys.containsKey(module);
+		}
+
+		public boolean containsModuleLibrary(String module, String library) {
+			Set<String> librarys = this.moduleLibrarys.get(module);
+			return librarys != null && librarys.contains(library);
+		}
+
+		public String getLibraryOwner(String library) {
+			return this.libraryOwners.get(library);
+		}
+	}
+
+	private volatile LibrarySnapshot librarySnapshot;
+
+	/**
+	 * librarySnapshot字段的 noNull 封装
+	 */
+	LibrarySnapshot getLibrarySnapshot() {
+		LibrarySnapshot librarySnapshot = this.librarySnapshot;
+		if (librarySnapshot == null) {
+			return LibrarySnapshot.EMPTY;
+		}
+		return librarySnapshot;
+	}
+
+	/**
+	 * 依赖所属的项目路径，没有时返回null
+	 */
+	public String getLibraryOwner(String library) {
+		return getLibrarySnapshot().getLibraryOwner(library);
 	}
 
 
@@ -394,6 +472,8 @@ public class ZeroAicyProjectService extends ProjectService {
 
 		// 关闭项目
 		this.resetProjectAttributeCache();
+		// 已解析的build.gradle
+		ZeroAicyBuildGradle.clearConfigurationCache();
 
 		// 同步代码分析进程
 		// 置空代码分析进程信息
@@ -541,6 +621,7 @@ public class ZeroAicyProjectService extends ProjectService {
 
 		this.pojectSupport = getProjectSupport(projectDir);
 		this.classPathEntrys = null;
+		this.librarySnapshot = null;
 		this.projectProperties = null;
 
 		// ye();
@@ -966,6 +1047,8 @@ public class ZeroAicyProjectService extends ProjectService {
 			// 可以做一些额外处理
 			ZeroAicyProjectService.this.classPathEntrys = AndroidProjectSupport.getProjectClassPathEntrys(ZeroAicyProjectService.this.getCurrentAppHome(), null);
 		}
+		// 发布只读索引
+		this.librarySnapshot = new LibrarySnapshot(this.libraryMappingCopy, this.currentAppHome, this.classPathEntrys);
 		this.projectProperties = this.getProjectAttributeAsync();
 
 		// AppLog.d(TAG, "projectProperties %s", projectProperties);
@@ -976,6 +1059,7 @@ public class ZeroAicyProjectService extends ProjectService {
 
 	private void resetProjectAttributeCache() {
 		this.classPathEntrys = null;
+		this.librarySnapshot = null;
 		this.projectProperties = null;
 	}
 
@@ -7,6 +7,7 @@ import dalvik.system.DexClassLoader;
 import io.github.zeroaicy.readclass.classInfo.ClassInfoTest3;
 import io.github.zeroaicy.readclass.classInfo.DefaultMethodAllowedList;
 import io.github.zeroaicy.util.ContextUtil;
+import io.github.zeroaicy.util.IOUtils;
 import io.github.zeroaicy.util.Log;
 import io.github.zeroaicy.util.reflect.ReflectPie;
 import java.io.File;
@@ -43,6 +44,9 @@ public class ClassReader {
 	private static boolean useReaderClassFromZeroAicy = true;
 	private static boolean disableDefaultMethod = false;
 	private static boolean disableMethodCode = true;
+
+	// 已设置到解析库的开关，反编译结果以此为准
+	private static volatile String appliedDecompilerVersion = "none";
 	
 
 	private static final String useReaderClassKey = "useReaderClass";
@@ -99,6 +103,7 @@ public class ClassReader {
 						break;
 					}
 					if( hasChanged ){
+						applyDecompilerSwitches();
 						AppLog.d(TAG, "useReaderClassFromZeroAicy改变为: " +  ClassReader.useReaderClassFromZeroAicy);
 						AppLog.d(TAG, "disableDefaultMethod改变为: " +  ClassReader.disableDefaultMethod);
 						AppLog.d(TAG, "disableMethodCode改变为: " +  ClassReader.disableMethodCode);
@@ -115,21 +120,39 @@ public class ClassReader {
 			// disableMethodCode
 			ClassReader.disableMethodCode = defaultSharedPreferences.getBoolean(disableMethodCodeKey, true);
 			
+			applyDecompilerSwitches();
+
+		}
+		catch (Throwable e) {
+			AppLog.e(TAG, "开关错误", e);
+		}
+	}
+
+	/**
+	 * 将开关设置到解析库
+	 */
+	private static synchronized void applyDecompilerSwitches() {
+		boolean disableDefaultMethod = ClassReader.disableDefaultMethod;
+		boolean disableMethodCode = ClassReader.disableMethodCode;
+		try {
+			ReflectPie onClass;
 			if (isDynamic && dynamicDexClassLoader != null) {
-				ReflectPie onClass = ReflectPie.onClass(DefaultMethodAllowedListClass, dynamicDexClassLoader);
-				onClass.call("setDisableDefaultMethod", disableDefaultMethod);
-				onClass.call("setDisableMethodCode", disableMethodCode);
-				
+				onClass = ReflectPie.onClass(DefaultMethodAllowedListClass, dynamicDexClassLoader);
 			} else if (isDirect) {
-				ReflectPie onClass = ReflectPie.onClass(DefaultMethodAllowedListClass);
-				onClass.call("setDisableDefaultMethod", disableDefaultMethod);
-				onClass.call("setDisableMethodCode", disableMethodCode);
+				onClass = ReflectPie.onClass(DefaultMethodAllowedListClass);
+			} else {
+				return;
 			}
-
+			onClass.call("setDisableDefaultMethod", disableDefaultMethod);
+			onClass.call("setDisableMethodCode", disableMethodCode);
 		}
 		catch (Throwable e) {
 			AppLog.e(TAG, "开关错误", e);
+			return;
 		}
+		appliedDecompilerVersion = (isDynamic ? "dynamic" : "direct") 
+			+ ":" + disableDefaultMethod 
+			+ ":" + disableMethodCode;
 	}
 
 	private static boolean isDirect() {
@@ -166,15 +189,59 @@ public class ClassReader {
 			e.printStackTrace();
 		}
 		catch (Throwable e) {
-			notReadClassFileLib();
-			StringWriter stringWriter = new StringWriter();
-			PrintWriter printWriter = new PrintWriter(stringWriter);
-			e.printStackTrace(printWriter);
-			return new StringReader(stringWriter.getBuffer().toString());
+			return new StringReader(getErrorText(e));
 		}
 		return null;
 	}
 
+	/**
+	 * 解析失败时代替类存根的错误信息
+	 */
+	public static String getErrorText(Throwable e) {
+		notReadClassFileLib();
+		StringWriter stringWriter = new StringWriter();
+		PrintWriter printWriter = new PrintWriter(stringWriter);
+		e.printStackTrace(printWriter);
+		return stringWriter.getBuffer().toString();
+	}
+
+	/**
+	 * 是否使用解析库
+	 */
+	public static boolean isEnabled() {
+		return useReaderClassFromZeroAicy;
+	}
+
+	/**
+	 * 与Dc_ReadClassFile相同，但解析异常直接抛出
+	 * 解析库未启用时返回null
+	 */
+	public static char[] readClassFileChars(String zipFilePath, String className) throws Throwable {
+		if (!useReaderClassFromZeroAicy) {
+			return null;
+		}
+		Reader reader;
+		if (isDynamic) {
+			reader = (Reader)TestReadClassMethod.invoke(null, zipFilePath, className);
+		} else if (isDirect) {
+			reader = ClassInfoTest3.TestReadClass(zipFilePath, className);
+		} else {
+			return null;
+		}
+		if (reader == null) {
+			return null;
+		}
+		return IOUtils.readAllChars(reader, true);
+	}
+
+	/**
+	 * 影响反编译结果的 解析库与开关
+	 * 取已设置到解析库的状态，而不是偏好设置中的值
+	 */
+	public static String getDecompilerVersion() {
+		return appliedDecompilerVersion;
+	}
+
 	private static boolean isPrintlned = true;
 	private static void notReadClassFileLib() {
 		if (isPrintlned) {
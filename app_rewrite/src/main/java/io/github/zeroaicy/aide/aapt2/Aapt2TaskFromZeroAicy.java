@@ -13,6 +13,7 @@ import com.sdklite.aapt.SymbolParser;
 import com.sdklite.aapt.Symbols;
 import io.github.zeroaicy.aide.preference.ZeroAicySetting;
 import io.github.zeroaicy.aide.utils.AndroidManifestParser;
+import io.github.zeroaicy.aide.utils.BuildTrace;
 import io.github.zeroaicy.aide.utils.Utils;
 import io.github.zeroaicy.util.FileUtil;
 import io.github.zeroaicy.util.Log;
@@ -56,6 +57,9 @@ public class Aapt2TaskFromZeroAicy {
 
 		AaptService$ErrorResult proxyAapt = null;
 		AaptServiceArgs aaptServiceArgs = null;
+
+		BuildTrace.setEnabled(ZeroAicySetting.isEnableBuildTrace());
+		BuildTrace.Span aapt2Span = BuildTrace.begin("aapt2");
 		try {
 			aaptServiceArgs = new AaptServiceArgs(task);
 
@@ -68,6 +72,14 @@ public class Aapt2TaskFromZeroAicy {
 			e.printStackTrace(aaptServiceArgs.aaptLog);
 			proxyAapt = new AaptService$ErrorResult(Log.getStackTraceString(e));
 		}
+		finally {
+			aapt2Span.end();
+			if (aaptServiceArgs != null) {
+				BuildTrace.write(aapt2Span, aaptServiceArgs.getIntermediates(), "aapt2");
+			} else {
+				BuildTrace.discard(aapt2Span);
+			}
+		}
 
 		float diffTime = System.currentTimeMillis() - oldTime;
 		aaptServiceArgs.aaptLog.println("aapt2 总耗时: " + diffTime / 1000.0f + "s");
@@ -87,7 +99,14 @@ public class Aapt2TaskFromZeroAicy {
 		}
 		
 		// 合并清单
-		AaptService$ErrorResult mergedError = aaptServiceArgs.mergedAndroidManifestxml();
+		AaptService$ErrorResult mergedError;
+		BuildTrace.Span span = BuildTrace.begin("mergedAndroidManifest");
+		try {
+			mergedError = aaptServiceArgs.mergedAndroidManifestxml();
+		}
+		finally {
+			span.end();
+		}
 		if (mergedError != null && mergedError.errorInfo != null) {
 			return mergedError;
 		}
@@ -95,23 +114,43 @@ public class Aapt2TaskFromZeroAicy {
 		Map<String, String> allResourceMap = aaptServiceArgs.allResourceMap;
 
 		// 无序编译
-		for (String resDir : allResourceMap.keySet()) {
-			AaptService$ErrorResult aaptError = compile(aaptServiceArgs, resDir);
-			if (aaptError != null) {
-				return aaptError;
+		span = BuildTrace.begin("compile").addFiles(allResourceMap.size());
+		try {
+			for (String resDir : allResourceMap.keySet()) {
+				AaptService$ErrorResult aaptError = compile(aaptServiceArgs, resDir);
+				if (aaptError != null) {
+					return aaptError;
+				}
 			}
 		}
+		finally {
+			span.end();
+		}
 		long currentTimeMillis = System.currentTimeMillis();
 
 		// 增量 -link
-		AaptService$ErrorResult linkError = incrementalLink(aaptServiceArgs);
+		AaptService$ErrorResult linkError;
+		span = BuildTrace.begin("link");
+		try {
+			linkError = incrementalLink(aaptServiceArgs);
+		}
+		finally {
+			span.end();
+		}
 		aaptServiceArgs.aaptLog.println("aapt2 call link " + (System.currentTimeMillis() - currentTimeMillis) + "ms");
 		if (linkError != null) {
 			return linkError;
 		}
 
 		currentTimeMillis = System.currentTimeMillis();
-		AaptService$ErrorResult optimizeError = incrementalOptimize(aaptServiceArgs);
+		AaptService$ErrorResult optimizeError;
+		span = BuildTrace.begin("optimize");
+		try {
+			optimizeError = incrementalOptimize(aaptServiceArgs);
+		}
+		finally {
+			span.end();
+		}
 		aaptServiceArgs.aaptLog.println("aapt2 call optimize " + (System.currentTimeMillis() - currentTimeMillis) + "ms");
 		if (optimizeError != null) {
 			return optimizeError;
@@ -124,7 +163,14 @@ public class Aapt2TaskFromZeroAicy {
 		long genRjavaTimeMillis = System.currentTimeMillis();
 
 		//资源文件
-		AaptService$ErrorResult generateRjavaError = generateRjava(aaptServiceArgs);
+		AaptService$ErrorResult generateRjavaError;
+		span = BuildTrace.begin("generateRjava");
+		try {
+			generateRjavaError = generateRjava(aaptServiceArgs);
+		}
+		finally {
+			span.end();
+		}
 		if (generateRjavaError != null) {
 			return generateRjavaError;
 		}
@@ -133,15 +179,19 @@ public class Aapt2TaskFromZeroAicy {
 
 		// ViewBinding
 		if (aaptServiceArgs.isEnableViewBinding()) {
+			span = BuildTrace.begin("viewBinding");
 			try {
 				// viewbinding
-				GenerateViewBindingTask.run(aaptServiceArgs.mainProjectResPath, aaptServiceArgs.mainProjectGenDir, aaptServiceArgs.mainPackageName, ZeroAicySetting.isViewBindingAndroidX());
+				GenerateViewBindingTask.run(aaptServiceArgs.mainProjectResPath, aaptServiceArgs.mainProjectGenDir, aaptServiceArgs.mainPackageName, ZeroAicySetting.isViewBindingAndroidX(), aaptServiceArgs.getIntermediates());
 			}
 			catch (Throwable e) {
 				aaptLog.println("ViewBindingTask：");
 				e.printStackTrace(aaptLog);
 				aaptLog.println();
 			}
+			finally {
+				span.end();
+			}
 		}
 
 		//生成主项目DataBinderMapperImpl
@@ -149,7 +199,13 @@ public class Aapt2TaskFromZeroAicy {
 		aaptServiceArgs.getDataBindingBuilder().generateJava();
 
 		// 生成BuildConfig.java
-		aaptServiceArgs.generateBuildConfigJava();
+		span = BuildTrace.begin("generateBuildConfig");
+		try {
+			aaptServiceArgs.generateBuildConfigJava();
+		}
+		finally {
+			span.end();
+		}
 
 		EngineService engineService = ServiceContainer.getEngineService();
 		engineService.ef();
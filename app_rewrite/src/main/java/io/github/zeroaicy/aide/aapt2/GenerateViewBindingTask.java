@@ -4,35 +4,256 @@ import android.app.Application;
 import com.aide.common.AppLog;
 import com.aide.ui.services.AssetInstallationService;
 import dalvik.system.DexClassLoader;
+import io.github.zeroaicy.util.FileUtil;
+import io.github.zeroaicy.util.IOUtils;
+import io.github.zeroaicy.util.MD5Util;
 import io.github.zeroaicy.util.reflect.ReflectPie;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
+/**
+ * 生成ViewBinding
+ * 布局文件、生成器版本与参数都没有变化时跳过生成
+ * 有变化时生成到临时目录，只写入内容变化的Binding，删除已移除布局的Binding
+ * 内容未变化的文件不重写，修改时间不变，避免ecj与dex缓存失效
+ */
 public class GenerateViewBindingTask{
-	
-	
+
+	private static final String TAG = "GenerateViewBindingTask";
+
+	private static final String STATE_VERSION = "1";
+
 	private static ClassLoader viewbindingClassLoader;
-	
-	public static void run(String mainProjectResPath, String mainProjectGenDir, String mainProjectPackageName, boolean isAndroidx) throws Exception{
-		if( viewbindingClassLoader == null ){
-			String viewbindingZipPath = getViewbindingZipPath();
-			viewbindingClassLoader = new DexClassLoader(viewbindingZipPath, null, null, Application.class.getClassLoader());
+
+	/**
+	 * 生成所有布局的Binding到 outputDir
+	 */
+	interface Generator {
+		void generate(String resPath, String outputDir, String packageName, boolean isAndroidx) throws Exception;
+	}
+
+	public static void run(String mainProjectResPath, String mainProjectGenDir, String mainProjectPackageName, boolean isAndroidx, String intermediatesDir) throws Exception{
+		final String viewbindingZipPath = getViewbindingZipPath();
+		File viewbindingZipFile = new File(viewbindingZipPath);
+		String generatorVersion = viewbindingZipFile.length() + " " + viewbindingZipFile.lastModified();
+
+		run(mainProjectResPath, mainProjectGenDir, mainProjectPackageName, isAndroidx, intermediatesDir, generatorVersion, new Generator(){
+				@Override
+				public void generate(String resPath, String outputDir, String packageName, boolean isAndroidx) throws Exception {
+					if( viewbindingClassLoader == null ){
+						viewbindingClassLoader = new DexClassLoader(viewbindingZipPath, null, null, Application.class.getClassLoader());
+					}
+					if( viewbindingClassLoader == null  ){
+						throw new NullPointerException("viewbindingClassLoader为null");
+					}
+					ReflectPie.onClass("ZY.ViewBinding.Utils", viewbindingClassLoader).call("BindingTask", new Object[]{resPath, outputDir, packageName, isAndroidx});
+				}
+			});
+	}
+
+	/**
+	 * generatorVersion 生成器变化时重新生成
+	 */
+	static void run(String mainProjectResPath, String mainProjectGenDir, String mainProjectPackageName, boolean isAndroidx, String intermediatesDir, String generatorVersion, Generator generator) throws Exception{
+		File stateDir = new File(intermediatesDir, "viewbinding");
+		File stateFile = new File(stateDir, "state.txt");
+
+		// 生成器版本与参数
+		List<String> inputLines = new ArrayList<>();
+		inputLines.add("version " + STATE_VERSION);
+		inputLines.add("generator " + generatorVersion);
+		inputLines.add("package " + mainProjectPackageName + " " + isAndroidx);
+		inputLines.add("gen " + mainProjectGenDir);
+
+		// 布局 -> 摘要
+		Map<String, String> layoutDigests = getLayoutDigests(new File(mainProjectResPath));
+		for (Map.Entry<String, String> entry : layoutDigests.entrySet()) {
+			inputLines.add("layout " + entry.getValue() + " " + entry.getKey());
 		}
-		if( viewbindingClassLoader == null  ){
-			throw new NullPointerException("viewbindingClassLoader为null");
+
+		List<String> oldStateLines = stateFile.isFile() ? AaptServiceArgs.listLine(stateFile) : null;
+		List<String> oldOutputs = getOutputs(oldStateLines);
+		if (oldStateLines != null
+			&& oldStateLines.subList(0, oldStateLines.size() - oldOutputs.size()).equals(inputLines)
+			&& existsAll(mainProjectGenDir, oldOutputs)) {
+			AppLog.d(TAG, "布局没有变化，跳过ViewBinding生成");
+			return;
 		}
-		
-		ReflectPie.onClass("ZY.ViewBinding.Utils", viewbindingClassLoader).call("BindingTask", new Object[]{mainProjectResPath, mainProjectGenDir, mainProjectPackageName, isAndroidx});
+
+		// 生成到临时目录
+		File stagingDir = new File(stateDir, "gen");
+		FileUtil.deleteFolder(stagingDir);
+		stagingDir.mkdirs();
+
+		generator.generate(mainProjectResPath, stagingDir.getPath(), mainProjectPackageName, isAndroidx);
 //		if( false ){
 //			AppLog.d("主项目res目录", mainProjectResPath);
 //			AppLog.d("主项目gen目录", mainProjectGenDir);
 //			AppLog.d("主项目包名", mainProjectPackageName);
 //			AppLog.d("isAndroidx", isAndroidx);
 //		}
+
+		// 同步到gen目录
+		TreeSet<String> outputs = new TreeSet<>();
+		listFiles(stagingDir, "", outputs);
+
+		int writeCount = 0;
+		for (String output : outputs) {
+			File generatedFile = new File(stagingDir, output);
+			File genFile = new File(mainProjectGenDir, output);
+			if (syncFile(generatedFile, genFile)) {
+				writeCount++;
+			}
+		}
+		int deleteCount = 0;
+		for (String oldOutput : oldOutputs) {
+			if (!outputs.contains(oldOutput)
+				&& new File(mainProjectGenDir, oldOutput).delete()) {
+				deleteCount++;
+			}
+		}
+		FileUtil.deleteFolder(stagingDir);
+
+		AppLog.d(TAG, "ViewBinding 写入 %d 删除 %d 未变化 %d", writeCount, deleteCount, outputs.size() - writeCount);
+
+		List<String> stateLines = new ArrayList<>(inputLines);
+		for (String output : outputs) {
+			stateLines.add("output " + output);
+		}
+		AaptServiceArgs.writeLines(stateFile, stateLines);
     }
 
+	/**
+	 * res/layout* 下的布局文件 相对res的路径 -> md5
+	 */
+	private static Map<String, String> getLayoutDigests(File resDir) throws IOException {
+		Map<String, String> layoutDigests = new TreeMap<>();
+		File[] resTypeDirs = resDir.listFiles();
+		if (resTypeDirs == null) {
+			return layoutDigests;
+		}
+		for (File resTypeDir : resTypeDirs) {
+			String resTypeName = resTypeDir.getName();
+			if (!resTypeDir.isDirectory()
+				|| !(resTypeName.equals("layout") || resTypeName.startsWith("layout-"))) {
+				continue;
+			}
+			File[] layoutFiles = resTypeDir.listFiles();
+			if (layoutFiles == null) {
+				continue;
+			}
+			for (File layoutFile : layoutFiles) {
+				if (layoutFile.isFile() && layoutFile.getName().endsWith(".xml")) {
+					layoutDigests.put(resTypeName + "/" + layoutFile.getName(), fileMD5(layoutFile));
+				}
+			}
+		}
+		return layoutDigests;
+	}
+
+	private static String fileMD5(File file) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		messageDigest.update(readAllBytes(file));
+		return MD5Util.byteArrayToHex(messageDigest.digest());
+	}
+
+	/**
+	 * 上次生成的文件 相对gen的路径
+	 */
+	private static List<String> getOutputs(List<String> stateLines) {
+		List<String> outputs = new ArrayList<>();
+		if (stateLines == null) {
+			return outputs;
+		}
+		for (String line : stateLines) {
+			if (line.startsWith("output ")) {
+				outputs.add(line.substring("output ".length()));
+			}
+		}
+		return outputs;
+	}
+
+	private static boolean existsAll(String genDir, List<String> outputs) {
+		for (String output : outputs) {
+			if (!new File(genDir, output).isFile()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void listFiles(File dir, String relativePath, TreeSet<String> files) {
+		File[] childFiles = dir.listFiles();
+		if (childFiles == null) {
+			return;
+		}
+		for (File childFile : childFiles) {
+			String childPath = relativePath + childFile.getName();
+			if (childFile.isDirectory()) {
+				listFiles(childFile, childPath + "/", files);
+			} else {
+				files.add(childPath);
+			}
+		}
+	}
+
+	/**
+	 * 内容不同时写入genFile 返回是否写入
+	 */
+	private static boolean syncFile(File generatedFile, File genFile) throws IOException {
+		byte[] data = readAllBytes(generatedFile);
+		if (genFile.isFile()
+			&& genFile.length() == data.length
+			&& Arrays.equals(readAllBytes(genFile), data)) {
+			return false;
+		}
+		File parentFile = genFile.getParentFile();
+		if (!parentFile.exists()) {
+			parentFile.mkdirs();
+		}
+		// 先写入临时文件，避免中断时留下不完整的Binding
+		File tempFile = new File(parentFile, genFile.getName() + ".tmp");
+		FileOutputStream output = null;
+		try {
+			output = new FileOutputStream(tempFile);
+			output.write(data);
+		}
+		finally {
+			IOUtils.close(output);
+		}
+		if (!tempFile.renameTo(genFile)) {
+			genFile.delete();
+			if (!tempFile.renameTo(genFile)) {
+				tempFile.delete();
+				throw new IOException("写入失败: " + genFile.getPath());
+			}
+		}
+		return true;
+	}
+
+	private static byte[] readAllBytes(File file) throws IOException {
+		return IOUtils.readAllBytes(new FileInputStream(file), true);
+	}
+
 	private static String getViewbindingZipPath(){
 		String viewbindingZipPath = AssetInstallationService.DW("viewbinding.zip", false);
-		
+
 		File viewbindingZipFile = new File(viewbindingZipPath);
 		if(!viewbindingZipFile.canExecute()){
 			viewbindingZipFile.setReadable(true, false);
@@ -0,0 +1,238 @@
+/**
+ * @Author ZeroAicy
+ * @AIDE AIDE+
+ */
+package io.github.zeroaicy.aide.cmake;
+
+import com.aide.engine.SyntaxError;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 边接收 ndk-build | cmake | ninja 输出边解析 clang/ld诊断信息
+ * file:line[:col]: error|warning: message
+ *
+ * 只保留有限的原始输出尾部，防止大量日志占用内存
+ * 同一模块的多个ABI共用一个解析器，重复的诊断只记录一次
+ */
+public class NativeDiagnosticsParser extends OutputStream {
+
+	public interface Listener {
+		/**
+		 * 解析到一条诊断信息，在写入线程回调
+		 */
+		void onDiagnostic(String filePath, SyntaxError syntaxError, boolean isError);
+	}
+
+	// 保留的原始输出尾部
+	private static final int MAX_TAIL_BYTES = 64 * 1024;
+	// 单行上限，超出部分丢弃
+	private static final int MAX_LINE_BYTES = 16 * 1024;
+
+	private static final Pattern DIAGNOSTIC_PATTERN = Pattern.compile("^(.+?):(\\d+):(?:(\\d+):)?\\s*(fatal error|error|warning):\\s*(.*)$");
+
+	private final String projectPath;
+	private final Listener listener;
+
+	private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
+
+	// 环形缓冲区
+	private final byte[] tail = new byte[MAX_TAIL_BYTES];
+	private int tailStart;
+	private int tailLength;
+
+	private final Map<String, List<SyntaxError>> syntaxErrors = new LinkedHashMap<>();
+	private int errorCount;
+	private int warningCount;
+
+	public NativeDiagnosticsParser(String projectPath, Listener listener) {
+		this.projectPath = projectPath;
+		this.listener = listener;
+	}
+
+	@Override
+	public void write(int b) {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] data, int offset, int length) {
+		appendTail(data, offset, length);
+
+		int lineStart = offset;
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			if (data[i] != '\n') {
+				continue;
+			}
+			appendLine(data, lineStart, i - lineStart);
+			parseLine();
+			lineStart = i + 1;
+		}
+		if (lineStart < end) {
+			appendLine(data, lineStart, end - lineStart);
+		}
+	}
+
+	/**
+	 * 解析最后一行(没有换行符)
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.lineBuffer.size() > 0) {
+			parseLine();
+		}
+	}
+
+	private void appendLine(byte[] data, int offset, int length) {
+		int remaining = MAX_LINE_BYTES - this.lineBuffer.size();
+		if (remaining > 0) {
+			this.lineBuffer.write(data, offset, Math.min(remaining, length));
+		}
+	}
+
+	private void appendTail(byte[] data, int offset, int length) {
+		if (length >= MAX_TAIL_BYTES) {
+			System.arraycopy(data, offset + length - MAX_TAIL_BYTES, this.tail, 0, MAX_TAIL_BYTES);
+			this.tailStart = 0;
+			this.tailLength = MAX_TAIL_BYTES;
+			return;
+		}
+		int writeIndex = (this.tailStart + this.tailLength) % MAX_TAIL_BYTES;
+		int firstLength = Math.min(length, MAX_TAIL_BYTES - writeIndex);
+		System.arraycopy(data, offset, this.tail, writeIndex, firstLength);
+		System.arraycopy(data, offset + firstLength, this.tail, 0, length - firstLength);
+
+		int tailLength = this.tailLength + length;
+		if (tailLength > MAX_TAIL_BYTES) {
+			// 覆盖了最早的数据
+			this.tailStart = (this.tailStart + tailLength - MAX_TAIL_BYTES) % MAX_TAIL_BYTES;
+			this.tailLength = MAX_TAIL_BYTES;
+		} else {
+			this.tailLength = tailLength;
+		}
+	}
+
+	private void parseLine() {
+		String line = new String(this.lineBuffer.toByteArray(), StandardCharsets.UTF_8).trim();
+		this.lineBuffer.reset();
+		if (line.isEmpty()) {
+			return;
+		}
+		Matcher matcher = DIAGNOSTIC_PATTERN.matcher(line);
+		if (!matcher.matches()) {
+			return;
+		}
+		String path = matcher.group(1);
+		File file = path.startsWith("/") ? new File(path) : new File(this.projectPath, path);
+		if (!file.isFile()) {
+			return;
+		}
+		int lineNumber = parseInt(matcher.group(2), 1);
+		int column = parseInt(matcher.group(3), 1);
+		boolean isError = !"warning".equals(matcher.group(4));
+
+		String message = matcher.group(5).trim();
+		SyntaxError syntaxError = makeSyntaxError(isError ? "NDK" : "NDK warning", lineNumber, column, message);
+
+		String filePath = file.getPath();
+		List<SyntaxError> list = this.syntaxErrors.get(filePath);
+		if (list == null) {
+			list = new ArrayList<>();
+			this.syntaxErrors.put(filePath, list);
+		} else if (contains(list, syntaxError)) {
+			// 其它ABI已报告
+			return;
+		}
+		list.add(syntaxError);
+
+		if (isError) {
+			this.errorCount++;
+		} else {
+			this.warningCount++;
+		}
+		if (this.listener != null) {
+			this.listener.onDiagnostic(filePath, syntaxError, isError);
+		}
+	}
+
+	private static boolean contains(List<SyntaxError> list, SyntaxError syntaxError) {
+		for (SyntaxError other : list) {
+			if (other.jw == syntaxError.jw
+				&& other.fY == syntaxError.fY
+				&& other.zh.equals(syntaxError.zh)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int parseInt(String value, int defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		}
+		catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	public static SyntaxError makeSyntaxError(String type, int line, int column, String message) {
+		SyntaxError syntaxError = new SyntaxError();
+		syntaxError.jw = line;
+		syntaxError.fY = column;
+		syntaxError.qp = line;
+		syntaxError.k2 = 1000;
+		syntaxError.zh = type + ": " + message;
+		return syntaxError;
+	}
+
+	public synchronized int getErrorCount() {
+		return this.errorCount;
+	}
+
+	public synchronized int getWarningCount() {
+		return this.warningCount;
+	}
+
+	/**
+	 * 已解析的诊断信息 文件路径 -> 错误与警告
+	 */
+	public synchronized Map<String, List<SyntaxError>> getSyntaxErrors() {
+		Map<String, List<SyntaxError>> copy = new LinkedHashMap<>();
+		for (Map.Entry<String, List<SyntaxError>> entry : this.syntaxErrors.entrySet()) {
+			copy.put(entry.getKey(), new ArrayList<SyntaxError>(entry.getValue()));
+		}
+		return copy;
+	}
+
+	/**
+	 * 开始下一次运行[如下一个ABI]，尾部只保留本次运行的输出
+	 * 已解析的诊断信息保留
+	 */
+	public synchronized void resetTail() {
+		this.tailStart = 0;
+		this.tailLength = 0;
+	}
+
+	/**
+	 * 原始输出的尾部
+	 */
+	public synchronized byte[] getTail() {
+		byte[] data = new byte[this.tailLength];
+		int firstLength = Math.min(this.tailLength, MAX_TAIL_BYTES - this.tailStart);
+		System.arraycopy(this.tail, this.tailStart, data, 0, firstLength);
+		System.arraycopy(this.tail, 0, data, firstLength, this.tailLength - firstLength);
+		return data;
+	}
+}
@@ -22,7 +22,7 @@ public class ProcessUtil {
         try {
 
             ProcessUtil processUtil = new ProcessUtil(commandList, workDir, env, z);
-            return processUtil.start();
+            return processUtil.start(outputStream);
         }  catch (final Throwable e) {
             return new ProcessExitInfo(){
                 @Override
@@ -55,6 +55,13 @@ public class ProcessUtil {
 
     }
     public ProcessExitInfo start() throws Exception {
+		return start(null);
+	}
+
+	/**
+	 * outputStream不为空时，输出边读边写入outputStream，不再缓存
+	 */
+    public ProcessExitInfo start(OutputStream outputStream) throws Exception {
         ProcessBuilder processBuilder = new ProcessBuilder();
 
         processBuilder .command(commandList);
@@ -74,7 +81,8 @@ public class ProcessUtil {
 
         //new Thread(new ReadRunnable(process.getInputStream(), new ByteArrayOutputStream())).start();
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        ProcessUtil.ReadRunnable readRunnable = new ReadRunnable(process.getInputStream(), byteArrayOutputStream);
+        ProcessUtil.ReadRunnable readRunnable = new ReadRunnable(process.getInputStream(), 
+																 outputStream != null ? outputStream : byteArrayOutputStream);
         // 读取输出流
         readRunnable.run();
         
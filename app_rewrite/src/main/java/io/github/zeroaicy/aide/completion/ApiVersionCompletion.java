@@ -3,8 +3,6 @@ package io.github.zeroaicy.aide.completion;
 
 import android.content.Context;
 import com.aide.common.AppLog;
-import com.aide.ui.util.FileSystem;
-import io.github.zeroaicy.aide.aaptcompiler.ApiVersionsUtils;
 import io.github.zeroaicy.aide.aaptcompiler.impl.versions.DefaultClassInfo;
 import io.github.zeroaicy.aide.aaptcompiler.interfaces.versions.ApiVersions;
 import io.github.zeroaicy.aide.aaptcompiler.interfaces.versions.ClassInfo;
@@ -12,8 +10,6 @@ import io.github.zeroaicy.aide.aaptcompiler.interfaces.versions.FieldInfo;
 import io.github.zeroaicy.aide.aaptcompiler.interfaces.versions.MethodInfo;
 import io.github.zeroaicy.aide.aaptcompiler.utils.jdt.core.Signature;
 import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
-import java.io.File;
-import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -44,21 +40,9 @@ public class ApiVersionCompletion {
 
 
 	private static void initAsync(Context context) {
-		// data,zip 根目录是 data
-		final File platformDir = XmlCompletionUtils.getPlatformDir();
-		File androidSdkDataDir = new File(platformDir, "data");
-		if (!androidSdkDataDir.exists() 
-			|| !androidSdkDataDir.isDirectory()
-			|| androidSdkDataDir.list() == null) {
-			// data,zip 根目录是 data
-			// 解压
-			try {
-				FileSystem.unZip(context.getAssets().open("data.zip"), platformDir.getAbsolutePath(), true);
-			}
-			catch (IOException e) {}
-		}
-
-		apiVersions = ApiVersionsUtils.getInstance(platformDir).getApiVersion();			
+		// 与xml补全共用 data.zip的解压与ApiVersionsUtils
+		XmlCompletionUtils.ensureAndroidSdkData(context);
+		apiVersions = XmlCompletionUtils.getApiVersionsUtil().getApiVersion();			
 
 	}
 
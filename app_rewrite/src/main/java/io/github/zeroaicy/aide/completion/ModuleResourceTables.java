@@ -0,0 +1,90 @@
+package io.github.zeroaicy.aide.completion;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 补全使用的项目资源表
+ * ResourceUtils.forPackage会修改 COMPLETION_MODULE_RES[LinkedHashSet]，
+ * 并且 removeTable 与 forPackage 之间没有app资源表
+ * 所以资源表在后台建立，完成后以一次volatile写入发布快照
+ * 补全线程只读取快照，建立期间使用旧快照
+ * T为ResourceTable
+ */
+public class ModuleResourceTables<T> {
+
+	public interface Builder<T> {
+		/**
+		 * 在锁内调用，可以修改 moduleTables
+		 */
+		T build();
+	}
+
+	private static class Snapshot<T> {
+		final T appTable;
+		final Set<T> tables;
+
+		Snapshot(T appTable, Set<T> tables) {
+			this.appTable = appTable;
+			this.tables = tables;
+		}
+	}
+
+	private final Object lock = new Object();
+
+	// ResourceUtils.COMPLETION_MODULE_RES 只在锁内访问
+	private final Set<T> moduleTables;
+
+	private volatile Snapshot<T> snapshot = new Snapshot<T>(null, Collections.<T>emptySet());
+
+	public ModuleResourceTables(Set<T> moduleTables) {
+		this.moduleTables = moduleTables;
+	}
+
+	/**
+	 * 尚未建立时返回null
+	 */
+	public T getAppTable() {
+		return this.snapshot.appTable;
+	}
+
+	/**
+	 * 不可修改的快照
+	 */
+	public Set<T> getTables() {
+		return this.snapshot.tables;
+	}
+
+	/**
+	 * 在调用线程建立app资源表，完成后替换
+	 * 旧的app资源表从 moduleTables中移除
+	 */
+	public T rebuildAppTable(Builder<T> builder) {
+		synchronized (this.lock) {
+			T oldAppTable = this.snapshot.appTable;
+			T appTable = builder.build();
+			if (oldAppTable != null
+				&& oldAppTable != appTable) {
+				this.moduleTables.remove(oldAppTable);
+			}
+			this.snapshot = new Snapshot<T>(appTable, copyModuleTables());
+			return appTable;
+		}
+	}
+
+	/**
+	 * 其它可能修改 moduleTables的调用[如forPackage]
+	 */
+	public T update(Builder<T> builder) {
+		synchronized (this.lock) {
+			T table = builder.build();
+			this.snapshot = new Snapshot<T>(this.snapshot.appTable, copyModuleTables());
+			return table;
+		}
+	}
+
+	private Set<T> copyModuleTables() {
+		return Collections.unmodifiableSet(new LinkedHashSet<T>(this.moduleTables));
+	}
+}
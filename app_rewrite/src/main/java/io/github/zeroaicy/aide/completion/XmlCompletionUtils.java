@@ -256,55 +256,68 @@ public class XmlCompletionUtils {
 		SdkConstants.UNIT_MM,
 		SdkConstants.UNIT_PT
     };
-    private static ResourceUtils resourceUtil;
-    private static ApiVersionsUtils apiVersionsUtil;
-    private static WidgetTableUtils widgetTableUtil;
+    // 以下数据表在首次使用时加载
+    private static volatile ResourceUtils resourceUtil;
+    private static volatile ApiVersionsUtils apiVersionsUtil;
+    private static volatile WidgetTableUtils widgetTableUtil;
     private static ListOf<Member> mEntitySpace;
-    private static JavaViewUtils javaViewUtils;
+    private static volatile JavaViewUtils javaViewUtils;
+	// 项目资源表快照，补全线程只读
+	private static final ModuleResourceTables<ResourceTable> moduleResourceTables = new ModuleResourceTables<ResourceTable>(ResourceUtils.getCOMPLETION_MODULE_RES());
+
+	// 每个数据表单独加锁，加载一个表时不阻塞其它表
+	private static final Object resourceUtilLock = new Object();
+	private static final Object apiVersionsUtilLock = new Object();
+	private static final Object widgetTableUtilLock = new Object();
+	private static final Object javaViewUtilsLock = new Object();
+
+	// data.zip已解压
+	private static volatile boolean androidSdkDataReady;
 	
 	// emmm😳
     public static File getPlatformDir() {
         return new File(FileSystem.getNoBackupFilesDirPath(), ".aide");
     }
 
-    public static synchronized void initAndroidSDK(Context context) {
-        try {
-			if( getResourceUtil() != null ){
-				// 已initAndroidSDK
+	/**
+	 * 只确保data.zip已解压，数据表在首次补全时才加载
+	 */
+    public static void initAndroidSDK(Context context) {
+		ensureAndroidSdkData(context);
+    }
+
+	/**
+	 * data.zip 根目录是 data
+	 * 不存在时解压
+	 */
+	public static void ensureAndroidSdkData(Context context) {
+		if (androidSdkDataReady) {
+			return;
+		}
+		synchronized (XmlCompletionUtils.class) {
+			if (androidSdkDataReady) {
 				return;
 			}
-			long now = System.currentTimeMillis();
+			try {
+				long now = System.currentTimeMillis();
 
-            File platformDir = getPlatformDir();
-			
-			// data,zip 根目录是 data
-			File androidSdkDataDir = new File(platformDir, "data");
-            
-			if (androidSdkDataDir.exists() && androidSdkDataDir.isDirectory()) {
-                initAndroidSdkData();
-                Log.i(TAG, "platformDir exists");
-            } else {
-				// data,zip 根目录是 data
-                FileSystem.unZip(context.getAssets().open("data.zip"), platformDir.getAbsolutePath(), true);
-                initAndroidSdkData();
-            }
-			
-            AppLog.d("解压耗时", (System.currentTimeMillis() - now) + "ms");
-        }
-		catch (IOException e) {
-            e.printStackTrace();
-            AppLog.e("initAndroidSDK", e.getMessage(), e);
-        }
-    }
-	
-	
-    private static void initAndroidSdkData() {
-		
-        resourceUtil = ResourceUtils.getInstance(getPlatformDir());
-        apiVersionsUtil = ApiVersionsUtils.getInstance(getPlatformDir());
-        widgetTableUtil = WidgetTableUtils.getInstance(getPlatformDir());
-        javaViewUtils = JavaViewUtils.getInstance();
-    }
+				File platformDir = getPlatformDir();
+				File androidSdkDataDir = new File(platformDir, "data");
+
+				String[] list = androidSdkDataDir.list();
+				if (list != null && list.length > 0) {
+					Log.i(TAG, "platformDir exists");
+				} else {
+					FileSystem.unZip(context.getAssets().open("data.zip"), platformDir.getAbsolutePath(), true);
+					AppLog.d("解压耗时", (System.currentTimeMillis() - now) + "ms");
+				}
+				androidSdkDataReady = true;
+			}
+			catch (IOException e) {
+				AppLog.e("initAndroidSDK", e.getMessage(), e);
+			}
+		}
+	}
 
 	public static final String TAG = "XmlCompletionUtils";
 
@@ -509,7 +522,7 @@ public class XmlCompletionUtils {
             if (parent.equals("action")) {
                 completeActions(model, syntaxTree, property);
             } else if (parent.equals("category")) {
-                for (String category : resourceUtil.getCategories()) {
+                for (String category : getResourceUtil().getCategories()) {
                     model.codeCompleterCallback.listElementKeywordFound(category);
                 }
             } else if (parent.equals("uses-permission")) {
@@ -517,7 +530,7 @@ public class XmlCompletionUtils {
                     model.codeCompleterCallback.listElementKeywordFound(permission.getConstant());
                 }
             } else if (parent.equals("uses-feature")) {
-                for (String feature : resourceUtil.getFeatures()) {
+                for (String feature : getResourceUtil().getFeatures()) {
                     model.codeCompleterCallback.listElementKeywordFound(feature);
                 }
             } else if ("activity".equals(parent)) {
@@ -926,7 +939,7 @@ public class XmlCompletionUtils {
     public static void completionManifestTag(final Model model) {
 		ResourceTable completionManifestAttrRes = ResourceUtils.getCOMPLETION_MANIFEST_ATTR_RES();
         if (completionManifestAttrRes == null)
-            completionManifestAttrRes = resourceUtil.getManifestAttrTable();
+            completionManifestAttrRes = getResourceUtil().getManifestAttrTable();
 		ResourceGroup styleables = completionManifestAttrRes.findPackage(PCK_ANDROID)
 			.findGroup(STYLEABLE, null);
 
@@ -1015,11 +1028,11 @@ public class XmlCompletionUtils {
         List<String> actionsList = List.of();
         String parentParent = syntaxTree.getIdentifierString(syntaxTree.getChildNode(syntaxTree.getChildNode(syntaxTree.getChildNode(syntaxTree.getParentNode(property), 1), 2), 3));
         if (parentParent.equals(SdkConstants.TAG_INTENT_FILTER)) {
-            actionsList = resourceUtil.getActivityActions();
+            actionsList = getResourceUtil().getActivityActions();
         } else if (parentParent.equals(SdkConstants.TAG_RECEIVER)) {
-            actionsList = resourceUtil.getBroadcastActions();
+            actionsList = getResourceUtil().getBroadcastActions();
         } else if (parentParent.equals(SdkConstants.TAG_SERVICE)) {
-            actionsList = resourceUtil.getServiceActions();
+            actionsList = getResourceUtil().getServiceActions();
         }
         String text = model.identifierSpace.getString(property);
         String ns = syntaxTree.getIdentifierString(syntaxTree.getChildNode(syntaxTree.getChildNode(property, 0), 0));
@@ -1031,10 +1044,13 @@ public class XmlCompletionUtils {
     }
 
     public static Set<ResourceTable> findAllModuleResourceTables() {
-        Set<ResourceTable> sourceResTables = ResourceUtils.getCOMPLETION_MODULE_RES();
-        return new HashSet<ResourceTable>(sourceResTables);
+        return new HashSet<ResourceTable>(moduleResourceTables.getTables());
     }
 
+	public static ModuleResourceTables<ResourceTable> getModuleResourceTables() {
+		return moduleResourceTables;
+	}
+
     public static Set<ResourceTable> findResourceTables(String nsUri) {
         if (nsUri == null || nsUri.trim().isEmpty()) {
             return Collections.emptySet();
@@ -1049,13 +1065,25 @@ public class XmlCompletionUtils {
         if (SdkConstants.ANDROID_NS_NAME.equals(pck)) {
 			ResourceTable completionFrameworkRes = ResourceUtils.getCOMPLETION_FRAMEWORK_RES();
             if (completionFrameworkRes == null)
-                completionFrameworkRes = resourceUtil.getFrameworkResourceTable();
+                completionFrameworkRes = getResourceUtil().getFrameworkResourceTable();
             if (completionFrameworkRes == null) {
                 return Collections.emptySet();
             }
             return Collections.singleton(completionFrameworkRes);
         }
-        ResourceTable table = resourceUtil.forPackage(pck);
+        ResourceTable table;
+		if ("app".equals(pck)) {
+			// app资源表由v7在后台建立
+			table = moduleResourceTables.getAppTable();
+		} else {
+			final String packageName = pck;
+			table = moduleResourceTables.update(new ModuleResourceTables.Builder<ResourceTable>(){
+					@Override
+					public ResourceTable build() {
+						return getResourceUtil().forPackage(packageName);
+					}
+				});
+		}
         if (table == null) {
             return Collections.emptySet();
         }
@@ -1270,7 +1298,7 @@ public class XmlCompletionUtils {
 		String parentName,
 		ResourceGroup styleables
     ) {
-        WidgetTable widgets = widgetTableUtil.getWidgetTable();
+        WidgetTable widgets = getWidgetTableUtil().getWidgetTable();
         if (widgets == null) {
             return Collections.emptySet();
         }
@@ -1484,19 +1512,62 @@ public class XmlCompletionUtils {
     }
 
     public static ResourceUtils getResourceUtil() {
-        return resourceUtil;
+		ResourceUtils resourceUtil = XmlCompletionUtils.resourceUtil;
+		if (resourceUtil != null) {
+			return resourceUtil;
+		}
+		synchronized (resourceUtilLock) {
+			if (XmlCompletionUtils.resourceUtil == null) {
+				ensureAndroidSdkData(ContextUtil.getContext());
+				long now = System.currentTimeMillis();
+				XmlCompletionUtils.resourceUtil = ResourceUtils.getInstance(getPlatformDir());
+				AppLog.d(TAG, "加载ResourceUtils耗时 %sms", System.currentTimeMillis() - now);
+			}
+			return XmlCompletionUtils.resourceUtil;
+		}
     }
 
     public static ApiVersionsUtils getApiVersionsUtil() {
-        return apiVersionsUtil;
+		ApiVersionsUtils apiVersionsUtil = XmlCompletionUtils.apiVersionsUtil;
+		if (apiVersionsUtil != null) {
+			return apiVersionsUtil;
+		}
+		synchronized (apiVersionsUtilLock) {
+			if (XmlCompletionUtils.apiVersionsUtil == null) {
+				ensureAndroidSdkData(ContextUtil.getContext());
+				XmlCompletionUtils.apiVersionsUtil = ApiVersionsUtils.getInstance(getPlatformDir());
+			}
+			return XmlCompletionUtils.apiVersionsUtil;
+		}
     }
 
     public static WidgetTableUtils getWidgetTableUtil() {
-        return widgetTableUtil;
+		WidgetTableUtils widgetTableUtil = XmlCompletionUtils.widgetTableUtil;
+		if (widgetTableUtil != null) {
+			return widgetTableUtil;
+		}
+		synchronized (widgetTableUtilLock) {
+			if (XmlCompletionUtils.widgetTableUtil == null) {
+				ensureAndroidSdkData(ContextUtil.getContext());
+				long now = System.currentTimeMillis();
+				XmlCompletionUtils.widgetTableUtil = WidgetTableUtils.getInstance(getPlatformDir());
+				AppLog.d(TAG, "加载WidgetTableUtils耗时 %sms", System.currentTimeMillis() - now);
+			}
+			return XmlCompletionUtils.widgetTableUtil;
+		}
     }
 
     public static JavaViewUtils getJavaViewUtils() {
-        return javaViewUtils;
+		JavaViewUtils javaViewUtils = XmlCompletionUtils.javaViewUtils;
+		if (javaViewUtils != null) {
+			return javaViewUtils;
+		}
+		synchronized (javaViewUtilsLock) {
+			if (XmlCompletionUtils.javaViewUtils == null) {
+				XmlCompletionUtils.javaViewUtils = JavaViewUtils.getInstance();
+			}
+			return XmlCompletionUtils.javaViewUtils;
+		}
     }
 
 
@@ -0,0 +1,380 @@
+package io.github.zeroaicy.aide.extend;
+
+import com.aide.common.AppLog;
+import io.github.zeroaicy.aide.ClassReader;
+import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
+import io.github.zeroaicy.util.ContextUtil;
+import io.github.zeroaicy.util.FileUtil;
+import io.github.zeroaicy.util.IOUtils;
+import io.github.zeroaicy.util.MD5Util;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * class反编译结果(类存根)缓存
+ * 内存LRU + 磁盘
+ * 磁盘按jar路径分目录，目录中记录 jar摘要与反编译版本，不一致时清空
+ * jar已不存在或长期未使用的目录在首次使用磁盘时清除
+ */
+public class ClassStubCache {
+
+	private static final String TAG = "ClassStubCache";
+
+	// 内存缓存字符上限 约16MB
+	private static final int MAX_MEMORY_CHARS = 8 * 1024 * 1024;
+
+	private static final String STAMP_FILE_NAME = "stamp";
+
+	// 超过此时间未使用的目录被清除
+	private static final long MAX_UNUSED_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+	private static ClassStubCache singleton;
+
+	public static synchronized ClassStubCache getSingleton() {
+		if (singleton == null) {
+			singleton = new ClassStubCache();
+		}
+		return singleton;
+	}
+
+	/**
+	 * jar状态 大小与修改时间不变时复用摘要
+	 */
+	private static class JarStamp {
+		final long length;
+		final long lastModified;
+		final String digest;
+		final String decompilerVersion;
+		// 磁盘缓存目录 为null时不使用磁盘
+		final File cacheDir;
+
+		JarStamp(long length, long lastModified, String digest, String decompilerVersion, File cacheDir) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.digest = digest;
+			this.decompilerVersion = decompilerVersion;
+			this.cacheDir = cacheDir;
+		}
+
+		boolean isSameJar(long length, long lastModified) {
+			return this.length == length 
+				&& this.lastModified == lastModified;
+		}
+	}
+
+	// jar路径 -> 状态
+	private final Map<String, JarStamp> jarStamps = new HashMap<>();
+
+	// jar摘要/反编译版本/类名 -> 类存根
+	private final LinkedHashMap<String, char[]> memoryCache = new LinkedHashMap<>(64, 0.75f, true);
+	private int memoryChars;
+
+	private File rootCacheDir;
+
+	private ClassStubCache() {}
+
+	/**
+	 * 返回类存根，解析失败时返回错误信息
+	 * 解析库未启用或没有结果时返回null
+	 */
+	public char[] readClassFile(String zipFilePath, String className) {
+		if (!ClassReader.isEnabled()) {
+			// 不计算jar摘要
+			return null;
+		}
+		File zipFile = new File(zipFilePath);
+		if (!zipFile.isFile()) {
+			return null;
+		}
+		String decompilerVersion = ClassReader.getDecompilerVersion();
+
+		JarStamp jarStamp;
+		try {
+			jarStamp = getJarStamp(zipFile, decompilerVersion);
+		}
+		catch (IOException e) {
+			AppLog.e(TAG, "读取jar失败: " + zipFilePath, e);
+			return null;
+		}
+
+		String key = jarStamp.digest + '/' + decompilerVersion + '/' + className;
+		char[] stub = getMemoryCache(key);
+		if (stub != null) {
+			return stub;
+		}
+
+		File stubFile = jarStamp.cacheDir == null ? null
+			: new File(jarStamp.cacheDir, MD5Util.stringMD5(className) + ".stub");
+
+		stub = readStubFile(stubFile);
+		if (stub != null) {
+			putMemoryCache(key, stub);
+			return stub;
+		}
+
+		try {
+			stub = ClassReader.readClassFileChars(zipFilePath, className);
+		}
+		catch (Throwable e) {
+			// 错误信息不缓存
+			return ClassReader.getErrorText(e).toCharArray();
+		}
+		if (stub == null) {
+			return null;
+		}
+		if (!decompilerVersion.equals(ClassReader.getDecompilerVersion())) {
+			// 反编译期间开关已改变，结果不确定属于哪个版本，不缓存
+			return stub;
+		}
+
+		putMemoryCache(key, stub);
+		writeStubFile(stubFile, stub);
+		return stub;
+	}
+
+	private synchronized char[] getMemoryCache(String key) {
+		return this.memoryCache.get(key);
+	}
+
+	private synchronized void putMemoryCache(String key, char[] stub) {
+		if (stub.length > MAX_MEMORY_CHARS / 4) {
+			// 过大的不放入内存
+			return;
+		}
+		char[] old = this.memoryCache.put(key, stub);
+		if (old != null) {
+			this.memoryChars -= old.length;
+		}
+		this.memoryChars += stub.length;
+
+		Iterator<Map.Entry<String, char[]>> iterator = this.memoryCache.entrySet().iterator();
+		while (this.memoryChars > MAX_MEMORY_CHARS
+			   && iterator.hasNext()) {
+			this.memoryChars -= iterator.next().getValue().length;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * jar摘要在锁外计算，大jar不会阻塞其它jar的读取
+	 */
+	private JarStamp getJarStamp(File zipFile, String decompilerVersion) throws IOException {
+		String zipFilePath = zipFile.getPath();
+		long length = zipFile.length();
+		long lastModified = zipFile.lastModified();
+
+		String digest = null;
+		synchronized (this) {
+			JarStamp jarStamp = this.jarStamps.get(zipFilePath);
+			if (jarStamp != null
+				&& jarStamp.isSameJar(length, lastModified)) {
+				if (jarStamp.decompilerVersion.equals(decompilerVersion)) {
+					return jarStamp;
+				}
+				// 仅反编译版本变化时不需要重新计算摘要
+				digest = jarStamp.digest;
+			}
+		}
+
+		if (digest == null) {
+			digest = digest(zipFile);
+		}
+
+		synchronized (this) {
+			JarStamp jarStamp = this.jarStamps.get(zipFilePath);
+			if (jarStamp != null
+				&& jarStamp.isSameJar(length, lastModified)
+				&& jarStamp.decompilerVersion.equals(decompilerVersion)) {
+				// 其它线程已完成
+				return jarStamp;
+			}
+
+			File cacheDir = getCacheDir(zipFilePath);
+			if (cacheDir != null) {
+				if (isValidCacheDir(cacheDir, zipFilePath, digest, decompilerVersion)) {
+					// 记录使用时间
+					new File(cacheDir, STAMP_FILE_NAME).setLastModified(System.currentTimeMillis());
+				} else {
+					// jar已改变或反编译版本不同
+					FileUtil.deleteFolder(cacheDir);
+					if (!cacheDir.mkdirs()
+						|| !writeStamp(cacheDir, zipFilePath, digest, decompilerVersion)) {
+						cacheDir = null;
+					}
+				}
+			}
+
+			jarStamp = new JarStamp(length, lastModified, digest, decompilerVersion, cacheDir);
+			this.jarStamps.put(zipFilePath, jarStamp);
+			return jarStamp;
+		}
+	}
+
+	private File getCacheDir(String zipFilePath) {
+		if (this.rootCacheDir == null) {
+			try {
+				this.rootCacheDir = new File(ContextUtil.getContext().getCacheDir(), "class-stub-cache");
+			}
+			catch (Throwable e) {
+				return null;
+			}
+			final File rootCacheDir = this.rootCacheDir;
+			ThreadPoolService.getDefaultThreadPoolService().execute(new Runnable(){
+					@Override
+					public void run() {
+						gcCacheDirs(rootCacheDir, System.currentTimeMillis());
+					}
+				});
+		}
+		return new File(this.rootCacheDir, MD5Util.stringMD5(zipFilePath));
+	}
+
+	/**
+	 * 删除 jar已不存在 或 长期未使用 的目录
+	 * 本次运行中使用的目录不删除
+	 */
+	void gcCacheDirs(File rootCacheDir, long now) {
+		File[] cacheDirs = rootCacheDir.listFiles();
+		if (cacheDirs == null) {
+			return;
+		}
+		for (File cacheDir : cacheDirs) {
+			if (!cacheDir.isDirectory()) {
+				continue;
+			}
+			File stampFile = new File(cacheDir, STAMP_FILE_NAME);
+			String[] stamp = readStamp(stampFile);
+			if (stamp != null
+				&& new File(stamp[2]).isFile()
+				&& now - stampFile.lastModified() <= MAX_UNUSED_MILLIS) {
+				continue;
+			}
+			synchronized (this) {
+				if (isCacheDirInUse(cacheDir)) {
+					continue;
+				}
+				FileUtil.deleteFolder(cacheDir);
+			}
+		}
+	}
+
+	private boolean isCacheDirInUse(File cacheDir) {
+		for (JarStamp jarStamp : this.jarStamps.values()) {
+			if (cacheDir.equals(jarStamp.cacheDir)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isValidCacheDir(File cacheDir, String zipFilePath, String digest, String decompilerVersion) {
+		String[] stamp = readStamp(new File(cacheDir, STAMP_FILE_NAME));
+		return stamp != null
+			&& stamp[0].equals(digest)
+			&& stamp[1].equals(decompilerVersion)
+			&& stamp[2].equals(zipFilePath);
+	}
+
+	/**
+	 * jar摘要 反编译版本 jar路径，旧格式或无法读取时返回null
+	 */
+	private static String[] readStamp(File stampFile) {
+		if (!stampFile.isFile()) {
+			return null;
+		}
+		try {
+			String[] stamp = new String(readAllBytes(stampFile), StandardCharsets.UTF_8).split("\n", -1);
+			return stamp.length == 3 ? stamp : null;
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	static boolean writeStamp(File cacheDir, String zipFilePath, String digest, String decompilerVersion) {
+		return writeAtomically(new File(cacheDir, STAMP_FILE_NAME),
+							   (digest + '\n' + decompilerVersion + '\n' + zipFilePath).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static char[] readStubFile(File stubFile) {
+		if (stubFile == null || !stubFile.isFile()) {
+			return null;
+		}
+		try {
+			String stub = new String(readAllBytes(stubFile), StandardCharsets.UTF_8);
+			return stub.toCharArray();
+		}
+		catch (IOException e) {
+			stubFile.delete();
+			return null;
+		}
+	}
+
+	private static void writeStubFile(File stubFile, char[] stub) {
+		if (stubFile == null) {
+			return;
+		}
+		writeAtomically(stubFile, new String(stub).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 写入临时文件后重命名，不会读到写了一半的文件
+	 */
+	private static boolean writeAtomically(File file, byte[] data) {
+		File tempFile = new File(file.getPath() + ".tmp");
+		FileOutputStream output = null;
+		try {
+			output = new FileOutputStream(tempFile);
+			output.write(data);
+			output.close();
+			output = null;
+			if (tempFile.renameTo(file)) {
+				return true;
+			}
+		}
+		catch (IOException e) {
+			AppLog.e(TAG, "写入缓存失败: " + file.getPath(), e);
+		}
+		finally {
+			IOUtils.close(output);
+		}
+		tempFile.delete();
+		return false;
+	}
+
+	private static byte[] readAllBytes(File file) throws IOException {
+		return IOUtils.readAllBytes(new FileInputStream(file), true);
+	}
+
+	/**
+	 * jar内容摘要，每个jar状态只计算一次
+	 */
+	private static String digest(File zipFile) throws IOException {
+		InputStream input = null;
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+			input = new FileInputStream(zipFile);
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				messageDigest.update(buffer, 0, read);
+			}
+			return MD5Util.byteArrayToHex(messageDigest.digest());
+		}
+		catch (java.security.NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		finally {
+			IOUtils.close(input);
+		}
+	}
+}
@@ -3,7 +3,7 @@ package io.github.zeroaicy.aide.extend;
 import androidx.annotation.Keep;
 import com.aide.codemodel.language.classfile.ClassFilePreProcessor;
 import com.aide.common.AppLog;
-import io.github.zeroaicy.aide.ClassReader;
+import java.io.CharArrayReader;
 import java.io.File;
 import java.io.Reader;
 import java.io.StringReader;
@@ -44,9 +44,10 @@ public class ZeroAicyClassFilePreProcessor extends ClassFilePreProcessor {
 	@Override
 	public Reader readZipEntry(String zipFilePath, String className, String str3) {
 		if (className.endsWith(".class")) {
-			Reader readClassFile = ClassReader.Dc_ReadClassFile(zipFilePath, className);
-			if (readClassFile != null) {
-				return readClassFile;
+			// 缓存的反编译结果，解析失败时为错误信息
+			char[] classStub = ClassStubCache.getSingleton().readClassFile(zipFilePath, className);
+			if (classStub != null) {
+				return new CharArrayReader(classStub);
 			}
 			return new StringReader(String.format( "//类解析器错误 -> %s/%s\n", zipFilePath, className));
 		}
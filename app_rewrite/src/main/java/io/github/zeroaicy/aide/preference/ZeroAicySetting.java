@@ -11,6 +11,7 @@ import androidx.preference.PreferenceManager;
 import com.aide.codemodel.language.java.JavaFormatOption;
 import com.aide.ui.rewrite.R;
 import io.github.zeroaicy.aide.utils.Utils;
+import io.github.zeroaicy.util.ContextUtil;
 import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -111,6 +112,18 @@ public class ZeroAicySetting implements SharedPreferences.OnSharedPreferenceChan
 		if (ZeroAicySetting.defaultSp == null) return false;
 		return getDefaultSpBoolean("zero_aicy_enable_detailed_log", false);
 	}
+	/**
+	 * 构建耗时追踪 写入 intermediates/trace
+	 * 也在打包、代码分析进程中调用
+	 */
+	public static boolean isEnableBuildTrace() {
+		if (ZeroAicySetting.defaultSp == null) {
+			Context context = ContextUtil.getContext();
+			if (context == null) return false;
+			init(context);
+		}
+		return getDefaultSpBoolean("zero_aicy_enable_build_trace", false);
+	}
 	public static boolean isEnableShowWarning() {
 		return getDefaultSpBoolean("zero_aicy_enable_error_browser_show_warning", true); 
 	}
@@ -254,6 +267,14 @@ public class ZeroAicySetting implements SharedPreferences.OnSharedPreferenceChan
 		return ZeroAicySetting.defaultSp.edit().putBoolean("test_zero_aicy_enable_ensure_capacity", false).commit();
 	}
 
+	/**
+	 * d8 | r8 子进程常驻复用
+	 */
+	public static boolean isEnableD8Worker() {
+		if (ZeroAicySetting.defaultSp == null) return true;
+		return getDefaultSpBoolean("test_zero_aicy_enable_d8_worker", true);
+	}
+
 
 
 	private Context context;
@@ -5,22 +5,32 @@ import com.android.apksig.ApkSigner;
 import io.github.zeroaicy.aide.preference.ZeroAicySetting;
 import io.github.zeroaicy.aide.utils.jks.JksKeyStore;
 import io.github.zeroaicy.util.FileUtil;
+import io.github.zeroaicy.util.MD5Util;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.KeyStore;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
+import java.security.SecureRandom;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
 public class ApkSignerService {
 	// 流将自动关闭
@@ -67,8 +77,86 @@ public class ApkSignerService {
 
 
 	public static void signerApk(int minSdkVersion, String keystorePath,String alias, String aliasPassword, String password, File unsignedApk, File signedApk) throws Throwable {
-		PrivateKey privateKey;
-		X509Certificate certificate;
+		ApkSigner.SignerConfig signerConfig = getSignerConfig(keystorePath, alias, aliasPassword, password);
+
+		if (signedApk.exists()) {
+			signedApk.delete();
+		}
+		SharedPreferences defaultSp = ZeroAicySetting.getDefaultSp();
+		boolean isApksignv1 = defaultSp.getBoolean("apksign_v1", true);
+		boolean isApksignv2 = defaultSp.getBoolean("apksign_v2", true);
+		boolean isApksignv3 = defaultSp.getBoolean("apksign_v3", true);
+
+		//签名
+		ApkSignerService.signerApk(minSdkVersion, signerConfig, isApksignv1, isApksignv2, isApksignv3, unsignedApk, signedApk);
+
+		//删除输入文件
+		unsignedApk.delete();
+	}
+
+	/**
+	 * 已解锁的签名密钥
+	 * 解密jks需要数百毫秒，签名文件未变化时复用
+	 */
+	private static class SigningKey {
+		// 签名文件，内置签名时为空
+		final File[] keyFiles;
+		final long[] lengths;
+		final long[] lastModifieds;
+		// 签名文件内容摘要
+		final String digest;
+		// alias与密码的HMAC 使用进程内随机密钥，不保留密码本身
+		final byte[] credentialDigest;
+
+		final ApkSigner.SignerConfig signerConfig;
+
+		SigningKey(File[] keyFiles, String digest, byte[] credentialDigest, ApkSigner.SignerConfig signerConfig) {
+			this.keyFiles = keyFiles;
+			this.lengths = new long[keyFiles.length];
+			this.lastModifieds = new long[keyFiles.length];
+			for (int i = 0; i < keyFiles.length; i++) {
+				this.lengths[i] = keyFiles[i].length();
+				this.lastModifieds[i] = keyFiles[i].lastModified();
+			}
+			this.digest = digest;
+			this.credentialDigest = credentialDigest;
+			this.signerConfig = signerConfig;
+		}
+
+		boolean isUnchanged() {
+			for (int i = 0; i < this.keyFiles.length; i++) {
+				File keyFile = this.keyFiles[i];
+				if (keyFile.length() != this.lengths[i]
+					|| keyFile.lastModified() != this.lastModifieds[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	// 签名文件路径 -> 已解锁的密钥
+	private static final Map<String, SigningKey> signingKeyCache = new HashMap<>();
+
+	/**
+	 * 清除已解锁的签名密钥
+	 */
+	public static void invalidateSigningKeys() {
+		synchronized (signingKeyCache) {
+			signingKeyCache.clear();
+		}
+	}
+
+	/**
+	 * 签名文件与密码未变化时返回同一个已解锁的SignerConfig
+	 */
+	static ApkSigner.SignerConfig getSignerConfig(String keystorePath, String alias, String aliasPassword, String password) throws Throwable {
+		return getSigningKey(keystorePath, alias, aliasPassword, password).signerConfig;
+	}
+
+	private static SigningKey getSigningKey(String keystorePath, String alias, String aliasPassword, String password) throws Throwable {
+		final String cacheKey;
+		final File[] keyFiles;
 		//自定义签名文件是存在
 		if (keystorePath != null && new File(keystorePath).exists()) {
 			//支持 .pk8 与 .x509.pem签名文件
@@ -80,23 +168,69 @@ public class ApkSignerService {
 				} else {
 					keyNamePrefix = keystorePath.substring(0, keystorePath.length() - 4);
 				}
+				cacheKey = keyNamePrefix;
+				keyFiles = new File[]{new File(keyNamePrefix + ".x509.pem"), new File(keyNamePrefix + ".pk8")};
+			} else {
+				cacheKey = keystorePath;
+				keyFiles = new File[]{new File(keystorePath)};
+			}
+		} else {
+			//为设置签名文件使用内置签名文件
+			cacheKey = "";
+			keyFiles = new File[0];
+		}
 
-				InputStream cert = new FileInputStream(new File(keyNamePrefix + ".x509.pem"));
-				certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(cert);
-				cert.close();
+		byte[] credentialDigest = getCredentialDigest(alias, aliasPassword, password);
 
-				privateKey = readPrivateKeyFromFile(new FileInputStream(keyNamePrefix + ".pk8"));
-				cert.close();
-			} else {
+		synchronized (signingKeyCache) {
+			SigningKey signingKey = signingKeyCache.get(cacheKey);
+			boolean sameCredential = signingKey != null
+				&& MessageDigest.isEqual(signingKey.credentialDigest, credentialDigest);
+			if (sameCredential && signingKey.isUnchanged()) {
+				return signingKey;
+			}
+
+			String digest = getKeyFilesDigest(keyFiles);
+			if (sameCredential && signingKey.digest.equals(digest)) {
+				// 时间戳变化但内容未变
+				signingKey = new SigningKey(keyFiles, digest, credentialDigest, signingKey.signerConfig);
+				signingKeyCache.put(cacheKey, signingKey);
+				return signingKey;
+			}
+
+			signingKey = new SigningKey(keyFiles, digest, credentialDigest, loadSignerConfig(keyFiles, alias, aliasPassword, password));
+			signingKeyCache.put(cacheKey, signingKey);
+			return signingKey;
+		}
+	}
 
-				FileInputStream keystoreIs = new FileInputStream(keystorePath);
+	private static ApkSigner.SignerConfig loadSignerConfig(File[] keyFiles, String alias, String aliasPassword, String password) throws Throwable {
+		PrivateKey privateKey;
+		X509Certificate certificate;
+		if (keyFiles.length == 2) {
+			// .x509.pem .pk8
+			InputStream cert = new FileInputStream(keyFiles[0]);
+			certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(cert);
+			cert.close();
+
+			privateKey = readPrivateKeyFromFile(new FileInputStream(keyFiles[1]));
+		} else if (keyFiles.length == 1) {
+
+			FileInputStream keystoreIs = new FileInputStream(keyFiles[0]);
+			char[] passwordChars = password.toCharArray();
+			char[] aliasPasswordChars = aliasPassword.toCharArray();
+			try {
 				// 支持jks，bks
 				KeyStore jks = new JksKeyStore();
-				jks.load(keystoreIs, password.toCharArray());
+				jks.load(keystoreIs, passwordChars);
 
-				privateKey = (PrivateKey) jks.getKey(alias, aliasPassword.toCharArray());
+				privateKey = (PrivateKey) jks.getKey(alias, aliasPasswordChars);
 				certificate = (X509Certificate) jks.getCertificateChain(alias)[0];
-
+			}
+			finally {
+				// 解锁后清除密码
+				Arrays.fill(passwordChars, '\0');
+				Arrays.fill(aliasPasswordChars, '\0');
 				keystoreIs.close();
 			}
 		} else {
@@ -109,28 +243,56 @@ public class ApkSignerService {
 			certInputStream.close();
 
 			privateKey = readPrivateKeyFromFile(clazz.getResourceAsStream("/keys/" + keyName + ".pk8"));
-
 		}
+		return new ApkSigner.SignerConfig.Builder("ANDROID",  privateKey, Collections.singletonList(certificate))
+			.build();
+	}
 
-		if (signedApk.exists()) {
-			signedApk.delete();
+	private static String getKeyFilesDigest(File[] keyFiles) throws IOException, NoSuchAlgorithmException {
+		MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+		byte[] buffer = new byte[8192];
+		for (File keyFile : keyFiles) {
+			InputStream inputStream = new FileInputStream(keyFile);
+			try {
+				int read;
+				while ((read = inputStream.read(buffer)) > 0) {
+					messageDigest.update(buffer, 0, read);
+				}
+			}
+			finally {
+				inputStream.close();
+			}
 		}
-		//签名
-		ApkSignerService.signerApk(minSdkVersion, privateKey, certificate, unsignedApk, signedApk);
+		return MD5Util.byteArrayToHex(messageDigest.digest());
+	}
 
-		//删除输入文件
-		unsignedApk.delete();
+	// 进程内随机生成 不落盘，摘要无法离线比对
+	private static byte[] credentialKey;
+
+	/**
+	 * alias与密码的 HmacSHA256
+	 */
+	private static byte[] getCredentialDigest(String alias, String aliasPassword, String password) throws NoSuchAlgorithmException, InvalidKeyException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(getCredentialKey(), "HmacSHA256"));
+		for (String value : new String[]{alias, aliasPassword, password}) {
+			if (value != null) {
+				mac.update(value.getBytes(StandardCharsets.UTF_8));
+			}
+			mac.update((byte) 0);
+		}
+		return mac.doFinal();
 	}
 
-	private static void signerApk(int minSdkVersion, PrivateKey privateKey, X509Certificate certificate, File unsignedApk, File signedApk) throws Throwable {
-		
-		SharedPreferences defaultSp = ZeroAicySetting.getDefaultSp();
-		boolean isApksignv1 = defaultSp.getBoolean("apksign_v1", true);
-		boolean isApksignv2 = defaultSp.getBoolean("apksign_v2", true);
-		boolean isApksignv3 = defaultSp.getBoolean("apksign_v3", true);
+	private static synchronized byte[] getCredentialKey() {
+		if (credentialKey == null) {
+			credentialKey = new byte[32];
+			new SecureRandom().nextBytes(credentialKey);
+		}
+		return credentialKey;
+	}
 
-		ApkSigner.SignerConfig signerConfig = new ApkSigner.SignerConfig.Builder("ANDROID",  privateKey, Collections.singletonList(certificate))
-			.build();
+	static void signerApk(int minSdkVersion, ApkSigner.SignerConfig signerConfig, boolean isApksignv1, boolean isApksignv2, boolean isApksignv3, File unsignedApk, File signedApk) throws Throwable {
 		ApkSigner.Builder builder = new ApkSigner.Builder(Collections.singletonList(signerConfig));
 		builder.setCreatedBy("Android Gradle 8.4")
 			.setMinSdkVersion(minSdkVersion)
@@ -10,6 +10,7 @@ import io.github.zeroaicy.util.reflect.ReflectPie;
 import io.github.zeroaicy.util.reflect.ReflectPieException;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
@@ -25,7 +26,10 @@ public class D8TaskWrapper {
 	public static final String D8BatchTask = "io.github.zeroaicy.r8.D8BatchTask";
 
 	public static final String TAG = "D8TaskWrapper";
-	
+
+	// 默认的 d8 --thread-count，dexing库时由DexingPlanner决定
+	public static final int DEFAULT_THREAD_COUNT = 16;
+
 	public static void runD8Task(List<String> argList) throws Throwable {
 
 		// 使用 app_process运行 d8 || r8
@@ -41,7 +45,11 @@ public class D8TaskWrapper {
 	}
 	
 	public static void runD8Task(List<String> argList, Map<String, String> environment, boolean processMode) throws Throwable {
-		run(D8Task, argList, environment, processMode);
+		run(D8Task, argList, environment, processMode, DEFAULT_THREAD_COUNT);
+	}
+
+	public static void runD8Task(List<String> argList, Map<String, String> environment, boolean processMode, int threadCount) throws Throwable {
+		run(D8Task, argList, environment, processMode, threadCount);
 	}
 	
 	/**
@@ -50,12 +58,16 @@ public class D8TaskWrapper {
 	 * 不可有 --output及输入文件
 	 */
 	public static void runD8BatchTask(List<String> inputFiles, List<String> outputFiles, List<String> argList, Map<String, String> environment) throws Throwable {
+		runD8BatchTask(inputFiles, outputFiles, argList, environment, DEFAULT_THREAD_COUNT);
+	}
+
+	public static void runD8BatchTask(List<String> inputFiles, List<String> outputFiles, List<String> argList, Map<String, String> environment, int threadCount) throws Throwable {
 		// 输出
 		argList.add(String.join("|", outputFiles));
 		// 输入
 		argList.add(String.join("|", inputFiles));
 
-		run(D8BatchTask, argList, environment);
+		run(D8BatchTask, argList, environment, false, threadCount);
 
 	}
 
@@ -80,9 +92,10 @@ public class D8TaskWrapper {
 	private static DexClassLoader r8DexClassLoader;
 	
 	private static void run(String className, List<String> argList, Map<String, String> environment) throws Throwable {
-		run(className, argList, environment, false);
+		run(className, argList, environment, false, DEFAULT_THREAD_COUNT);
 	}
-	private static void run(String className, List<String> argList, Map<String, String> environment, boolean processMode) throws Throwable {
+	private static void run(String className, List<String> argList, Map<String, String> environment, boolean processMode, int threadCount) throws Throwable {
+		threadCount = Math.max(1, threadCount);
 		AppLog.println_d("d8 classname: %s ", className);
 		AppLog.println_d("d8 argList: %s ", argList);
 		
@@ -103,7 +116,7 @@ public class D8TaskWrapper {
 			// 方便改变线程数
 			// 都启用多线程dexing ❛˓◞˂̵✧
 			cmdList.add("--thread-count");
-			cmdList.add("16");
+			cmdList.add(String.valueOf(threadCount));
 			// 参数
 			cmdList.addAll(argList);
 			String[] args = cmdList.toArray(new String[cmdList.size()]);
@@ -128,6 +141,23 @@ public class D8TaskWrapper {
 			return;
 		}
 
+		if (ZeroAicySetting.isEnableD8Worker()) {
+			List<String> workerArgList = new ArrayList<String>();
+			// 方便改变线程数
+			workerArgList.add("--thread-count");
+			workerArgList.add(String.valueOf(threadCount));
+			workerArgList.addAll(argList);
+			try {
+				// 复用常驻子进程
+				D8WorkerProcess.run(className, workerArgList, environment, r8Path);
+				return;
+			}
+			catch (IOException e) {
+				// worker无法启动，回退到单次子进程
+				AppLog.e(TAG, "D8Worker启动失败", e);
+			}
+		}
+
 		// /system/bin/app_process -Djava.class.path="r8Path" /system/bin --nice-name=R8Task io.github.zeroaicy.r8.R8Task "$@"
 		ArrayList<String> cmdList = new ArrayList<String>();
 		cmdList.add("app_process");
@@ -142,7 +172,7 @@ public class D8TaskWrapper {
 		// 方便改变线程数
 		// 都启用多线程dexing ❛˓◞˂̵✧
 		cmdList.add("--thread-count");
-		cmdList.add("16");
+		cmdList.add(String.valueOf(threadCount));
 
 		// 参数
 		cmdList.addAll(argList);
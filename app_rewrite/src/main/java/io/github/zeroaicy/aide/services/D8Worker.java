@@ -0,0 +1,146 @@
+package io.github.zeroaicy.aide.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 常驻 d8 | r8 子进程
+ * 由 app_process启动，classpath为 com.android.tools.r8.zip 与 本apk
+ * 进程内只能使用java标准库
+ *
+ * 协议(stdin/stdout, 大端):
+ * 请求: int 参数个数, [int 字节数, utf8]... 第一个参数为任务类名
+ * 响应: int 状态, long 耗时ms, [int 字节数, utf8] 诊断信息, [int 字节数, utf8] 异常
+ *
+ * 任务内调用 System.exit时 worker随之退出，由D8WorkerProcess根据退出码处理
+ * 任务抛出Error[OOM等]时 响应STATUS_FATAL后退出，JVM状态不可信不再复用
+ */
+public final class D8Worker {
+
+	public static final int STATUS_OK = 0;
+	public static final int STATUS_FAILED = 1;
+	// worker 响应后退出
+	public static final int STATUS_FATAL = 2;
+	// STATUS_FATAL时的退出码
+	public static final int EXIT_FATAL = 3;
+
+	// 单个字符串上限 防止协议错乱时分配超大数组
+	private static final int MAX_STRING_LENGTH = 64 * 1024 * 1024;
+
+	private D8Worker() {}
+
+	public static void main(String[] args) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(System.in));
+		// stdout由协议独占
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+
+		// 任务的输出都重定向到诊断缓存
+		ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+		PrintStream diagnosticsStream = new PrintStream(diagnostics, true);
+		System.setOut(diagnosticsStream);
+		System.setErr(diagnosticsStream);
+
+		// 类加载一次，之后复用已预热的类
+		Map<String, Method> mainMethods = new HashMap<>();
+
+		while (true) {
+			String[] request;
+			try {
+				request = readRequest(input);
+			}
+			catch (EOFException e) {
+				// 宿主关闭了stdin
+				return;
+			}
+
+			String className = request[0];
+			String[] taskArgs = new String[request.length - 1];
+			System.arraycopy(request, 1, taskArgs, 0, taskArgs.length);
+
+			diagnostics.reset();
+			int status = STATUS_OK;
+			String error = "";
+
+			long now = System.currentTimeMillis();
+			try {
+				Method mainMethod = mainMethods.get(className);
+				if (mainMethod == null) {
+					mainMethod = Class.forName(className).getMethod("main", String[].class);
+					mainMethods.put(className, mainMethod);
+				}
+				mainMethod.invoke(null, new Object[]{taskArgs});
+			}
+			catch (Throwable e) {
+				if (e instanceof InvocationTargetException && e.getCause() != null) {
+					e = e.getCause();
+				}
+				status = e instanceof Error ? STATUS_FATAL : STATUS_FAILED;
+				error = getStackTraceString(e);
+			}
+			long elapsed = System.currentTimeMillis() - now;
+
+			diagnosticsStream.flush();
+
+			output.writeInt(status);
+			output.writeLong(elapsed);
+			writeString(output, new String(diagnostics.toByteArray(), StandardCharsets.UTF_8));
+			writeString(output, error);
+			output.flush();
+
+			if (status == STATUS_FATAL) {
+				System.exit(EXIT_FATAL);
+			}
+		}
+	}
+
+	private static String[] readRequest(DataInputStream input) throws IOException {
+		int count = input.readInt();
+		if (count <= 0) {
+			throw new IOException("Invalid request argument count: " + count);
+		}
+		String[] request = new String[count];
+		for (int i = 0; i < count; i++) {
+			request[i] = readString(input);
+		}
+		return request;
+	}
+
+	static void writeString(DataOutputStream output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	static String readString(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		if (length < 0 || length > MAX_STRING_LENGTH) {
+			throw new IOException("Invalid string length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String getStackTraceString(Throwable th) {
+		StringWriter stringWriter = new StringWriter();
+		PrintWriter printWriter = new PrintWriter(stringWriter);
+		th.printStackTrace(printWriter);
+		printWriter.flush();
+		return stringWriter.toString();
+	}
+}
@@ -0,0 +1,334 @@
+package io.github.zeroaicy.aide.services;
+
+import com.aide.common.AppLog;
+import io.github.zeroaicy.aide.preference.ZeroAicySetting;
+import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
+import io.github.zeroaicy.util.ContextUtil;
+import io.github.zeroaicy.util.IOUtils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * D8Worker的宿主端
+ * 复用已预热的 d8 | r8 子进程，避免每次任务都重新加载类及JIT预热
+ */
+public class D8WorkerProcess {
+
+	private static final String TAG = "D8WorkerProcess";
+
+	// 最多保留的空闲worker，与 DexingPlanner的并发dexing任务上限一致
+	private static final int maxIdleWorkers = DexingPlanner.MAX_TASKS;
+
+	// 读取响应失败后等待worker自行退出的时间，超时则结束worker
+	private static final long EXIT_TIMEOUT_MILLIS = 5 * 1000L;
+
+	// 空闲超过此时间的worker会被结束，不在两次构建之间常驻内存
+	private static final long IDLE_TIMEOUT_MILLIS = 60 * 1000L;
+
+	private static final ArrayDeque<D8WorkerProcess> idleWorkers = new ArrayDeque<>();
+
+	private static final Runnable trimIdleWorkersRunnable = new Runnable(){
+		@Override
+		public void run() {
+			trimIdleWorkers();
+		}
+	};
+
+	/**
+	 * 一次任务的结果
+	 */
+	public static class Result {
+		public final int status;
+		public final long elapsed;
+		// 任务输出(stdout & stderr)
+		public final String diagnostics;
+		// 异常堆栈
+		public final String error;
+
+		Result(int status, long elapsed, String diagnostics, String error) {
+			this.status = status;
+			this.elapsed = elapsed;
+			this.diagnostics = diagnostics;
+			this.error = error;
+		}
+
+		public boolean isSuccessful() {
+			return this.status == D8Worker.STATUS_OK;
+		}
+
+		/**
+		 * worker抛出了Error 已退出
+		 */
+		public boolean isFatal() {
+			return this.status == D8Worker.STATUS_FATAL;
+		}
+	}
+
+	/**
+	 * 在常驻worker中运行className的main
+	 * worker崩溃时按退出码处理，与 D8TaskWrapper子进程模式一致
+	 */
+	public static void run(String className, List<String> args, Map<String, String> environment, String r8Path) throws Throwable {
+		run(className, args, environment, r8Path, false);
+	}
+
+	private static void run(String className, List<String> args, Map<String, String> environment, String r8Path, boolean isExceptionHandling) throws Throwable {
+
+		D8WorkerProcess worker = acquire(environment, r8Path);
+
+		boolean reusable = false;
+		try {
+			Result result = worker.execute(className, args);
+			// 能收到响应说明worker依然可用，Error后worker会退出
+			reusable = !result.isFatal();
+
+			if (ZeroAicySetting.isEnableDetailedLog() && !result.diagnostics.isEmpty()) {
+				AppLog.println_d(result.diagnostics);
+			}
+			AppLog.d(TAG, "%s 用时: %sms", className, result.elapsed);
+
+			if (result.isSuccessful()) {
+				return;
+			}
+			if (result.isFatal() && result.error.contains(OutOfMemoryError.class.getName())) {
+				// 与子进程模式的137一致，dexing会二分重试
+				throw new OutOfMemoryError(String.format(
+											   "\nTask: %s -> r8 worker OOM\nError:\n%s%s\n",
+											   className, result.diagnostics, result.error));
+			}
+			throw new Error(String.format(
+								"\nTask: %s -> failed\nError:\n%s%s\n",
+								className, result.diagnostics, result.error));
+		}
+		catch (IOException e) {
+			// worker崩溃退出 或 响应错乱[worker可能仍在运行]
+			// 超时未退出时结束worker，不能无限等待
+			int exitValue = worker.waitForExit(EXIT_TIMEOUT_MILLIS);
+			String error = worker.getErrorOutput();
+
+			if (!isExceptionHandling
+				&& (exitValue == 134 || exitValue == 139)) {
+				// 扩容库储存
+				// 禁用扩容
+				ZeroAicySetting.disableEnableEnsureCapacity();
+				environment.remove("EnsureCapacity");
+				// 再次运行 以处理异常的方式
+				run(className, args, environment, r8Path, true);
+				return;
+			}
+
+			String format = String.format(
+				"\nTask: %s -> worker exited with code %s\nError:\n%s\n",
+				className, exitValue, error);
+
+			if (exitValue == 137) {
+				throw new OutOfMemoryError("r8 worker exited code 137可能是OOM\n" + format);
+			}
+			throw new Error(format, e);
+		}
+		finally {
+			if (reusable) {
+				release(worker);
+			} else {
+				worker.destroy();
+			}
+		}
+	}
+
+	/**
+	 * 结束所有空闲worker
+	 */
+	public static void shutdown() {
+		ThreadPoolService.removeCallbacksOfUi(trimIdleWorkersRunnable);
+		synchronized (idleWorkers) {
+			for (D8WorkerProcess worker : idleWorkers) {
+				worker.destroy();
+			}
+			idleWorkers.clear();
+		}
+	}
+
+	private static D8WorkerProcess acquire(Map<String, String> environment, String r8Path) throws IOException {
+		synchronized (idleWorkers) {
+			Iterator<D8WorkerProcess> iterator = idleWorkers.iterator();
+			while (iterator.hasNext()) {
+				D8WorkerProcess worker = iterator.next();
+				if (!worker.isAlive()) {
+					iterator.remove();
+					worker.destroy();
+					continue;
+				}
+				if (worker.r8Path.equals(r8Path)
+					&& worker.environment.equals(environment)) {
+					iterator.remove();
+					return worker;
+				}
+			}
+		}
+		return new D8WorkerProcess(environment, r8Path);
+	}
+
+	private static void release(D8WorkerProcess worker) {
+		synchronized (idleWorkers) {
+			if (idleWorkers.size() < maxIdleWorkers) {
+				worker.idleSince = System.currentTimeMillis();
+				idleWorkers.addLast(worker);
+				scheduleTrimIdleWorkers();
+				return;
+			}
+		}
+		worker.destroy();
+	}
+
+	private static void scheduleTrimIdleWorkers() {
+		ThreadPoolService.removeCallbacksOfUi(trimIdleWorkersRunnable);
+		ThreadPoolService.postDelayedOfUi(trimIdleWorkersRunnable, IDLE_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * 结束空闲超时的worker
+	 */
+	private static void trimIdleWorkers() {
+		long now = System.currentTimeMillis();
+		List<D8WorkerProcess> timeoutWorkers = new ArrayList<>();
+		synchronized (idleWorkers) {
+			Iterator<D8WorkerProcess> iterator = idleWorkers.iterator();
+			while (iterator.hasNext()) {
+				D8WorkerProcess worker = iterator.next();
+				if (now - worker.idleSince >= IDLE_TIMEOUT_MILLIS) {
+					iterator.remove();
+					timeoutWorkers.add(worker);
+				}
+			}
+			if (!idleWorkers.isEmpty()) {
+				scheduleTrimIdleWorkers();
+			}
+		}
+		for (D8WorkerProcess worker : timeoutWorkers) {
+			worker.destroy();
+		}
+		if (!timeoutWorkers.isEmpty()) {
+			AppLog.d(TAG, "结束 %d 个空闲D8Worker", timeoutWorkers.size());
+		}
+	}
+
+	private final Map<String, String> environment;
+	private final String r8Path;
+
+	private final Process process;
+	private final DataOutputStream output;
+	private final DataInputStream input;
+
+	// 放入空闲队列的时间
+	private long idleSince;
+
+	private final D8TaskWrapper.ProcessStreamReader errorStreamReader;
+	private final Thread errorStreamReaderThread;
+
+	private D8WorkerProcess(Map<String, String> environment, String r8Path) throws IOException {
+		this(getWorkerCommand(r8Path), environment, r8Path, ZeroAicySetting.isEnableDetailedLog());
+	}
+
+	/**
+	 * command为启动D8Worker的命令，测试时可用java代替app_process
+	 */
+	D8WorkerProcess(List<String> command, Map<String, String> environment, String r8Path, boolean printErrorStream) throws IOException {
+		this.environment = environment == null
+			? new HashMap<String, String>()
+			: new HashMap<String, String>(environment);
+		this.r8Path = r8Path;
+
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.environment().putAll(this.environment);
+
+		this.process = processBuilder.start();
+		this.output = new DataOutputStream(new BufferedOutputStream(this.process.getOutputStream()));
+		this.input = new DataInputStream(new BufferedInputStream(this.process.getInputStream()));
+
+		// 只会有崩溃信息，任务输出走协议
+		this.errorStreamReader = new D8TaskWrapper.ProcessStreamReader(this.process.getErrorStream(), printErrorStream);
+		this.errorStreamReaderThread = new Thread(this.errorStreamReader, "D8Worker-stderr");
+		this.errorStreamReaderThread.setDaemon(true);
+		this.errorStreamReaderThread.start();
+
+		AppLog.d(TAG, "启动 D8Worker");
+	}
+
+	private static List<String> getWorkerCommand(String r8Path) {
+		String apkPath = ContextUtil.getContext().getApplicationInfo().sourceDir;
+
+		// /system/bin/app_process -Djava.class.path="r8Path:apkPath" /system/bin --nice-name=D8Worker io.github.zeroaicy.aide.services.D8Worker
+		List<String> cmdList = new ArrayList<String>();
+		cmdList.add("app_process");
+		// r8优先
+		cmdList.add("-Djava.class.path=" + r8Path + ":" + apkPath);
+		cmdList.add("/system/bin");
+		cmdList.add("--nice-name=D8Worker");
+		cmdList.add(D8Worker.class.getName());
+		return cmdList;
+	}
+
+	Result execute(String className, List<String> args) throws IOException {
+		this.output.writeInt(args.size() + 1);
+		D8Worker.writeString(this.output, className);
+		for (String arg : args) {
+			D8Worker.writeString(this.output, arg);
+		}
+		this.output.flush();
+
+		int status = this.input.readInt();
+		long elapsed = this.input.readLong();
+		String diagnostics = D8Worker.readString(this.input);
+		String error = D8Worker.readString(this.input);
+		return new Result(status, elapsed, diagnostics, error);
+	}
+
+	boolean isAlive() {
+		try {
+			this.process.exitValue();
+			return false;
+		}
+		catch (IllegalThreadStateException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * 等待worker退出并返回退出码
+	 * 超过timeoutMillis仍未退出时结束worker
+	 */
+	int waitForExit(long timeoutMillis) throws InterruptedException {
+		// Process.waitFor(long, TimeUnit)需要api 26
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (isAlive() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		if (isAlive()) {
+			AppLog.w(TAG, "D8Worker响应错乱且未退出，结束D8Worker");
+			destroy();
+			this.process.waitFor();
+		}
+		// 等待读取完错误流
+		this.errorStreamReaderThread.join(timeoutMillis);
+		return this.process.exitValue();
+	}
+
+	String getErrorOutput() {
+		return this.errorStreamReader.getError();
+	}
+
+	void destroy() {
+		IOUtils.close(this.output);
+		IOUtils.close(this.input);
+		this.process.destroy();
+	}
+}
@@ -7,6 +7,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class DexingJarTask implements Callable<DexingJarTask>{
@@ -24,6 +30,19 @@ public class DexingJarTask implements Callable<DexingJarTask>{
 		public List<String> dependencyLibs;
 		// 进度
 		public AtomicInteger dexingingCount;
+		// 并发任务数 由DexingPlanner决定
+		public Semaphore concurrency;
+		// d8 --thread-count 由DexingPlanner决定
+		public int threadCount = D8TaskWrapper.DEFAULT_THREAD_COUNT;
+	}
+
+	/**
+	 * 执行dexing 测试时可替换为模拟的d8
+	 */
+	interface Dexer {
+		void dexingBatch(List<String> inputJarFiles, List<String> outputDexZipFiles) throws Throwable;
+		// 独立子进程
+		void dexing(String inputJarFile, String outputDexZipFile) throws Throwable;
 	}
 
 	public static interface TaskDoneLister{
@@ -31,6 +50,25 @@ public class DexingJarTask implements Callable<DexingJarTask>{
 	}
 
 	public static final String ThreadPoolServiceName = DexingJarTask.class.getName();
+
+	// DexingJarTask专用线程池 线程数为最大并发数，实际并发数由Configuration.concurrency限制
+	private static ExecutorService executorService;
+
+	public static synchronized ExecutorService getExecutorService() {
+		if (executorService == null) {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(DexingPlanner.MAX_TASKS, DexingPlanner.MAX_TASKS, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory(){
+					@Override
+					public Thread newThread(Runnable r) {
+						return new Thread(r, ThreadPoolServiceName + "-" + threadNumber.incrementAndGet());
+					}
+				});
+			// 空闲时结束线程
+			threadPoolExecutor.allowCoreThreadTimeOut(true);
+			executorService = threadPoolExecutor;
+		}
+		return executorService;
+	}
 	private static Map<String, String> environment;
 	public static void init(Map<String, String> environment){
 		DexingJarTask.environment = environment;
@@ -80,9 +118,13 @@ public class DexingJarTask implements Callable<DexingJarTask>{
 
 	@Override
 	public DexingJarTask call() throws Exception{
+		Semaphore concurrency = this.configuration.concurrency;
+		if ( concurrency != null ){
+			concurrency.acquire();
+		}
 		try{
 			if( isBatchMode){
-				dexingJarLibFileBatch(this.inputJarFiles, this.outputDexZipFiles, configuration);
+				dexingJarLibFileBisect(this.inputJarFiles, this.outputDexZipFiles, configuration);
 				// 更改进度
 				configuration.dexingingCount.addAndGet(inputJarFiles.size());
 				
@@ -102,6 +144,11 @@ public class DexingJarTask implements Callable<DexingJarTask>{
 			if ( th instanceof Exception ) throw (Exception)th; 
 			else throw new Error(th);
 		}
+		finally{
+			if ( concurrency != null ){
+				concurrency.release();
+			}
+		}
 		return this;
 	}
 
@@ -111,6 +158,11 @@ public class DexingJarTask implements Callable<DexingJarTask>{
 	 */
 
 	public static void dexingJarLibFile(String jarLibPath, String dexCachePath, Configuration configuration) throws Throwable{
+		// 大于10MB的将采用 子进程方式，防止oom
+		dexingJarLibFile(jarLibPath, dexCachePath, configuration, new File(jarLibPath).length() > 10 * 1024 * 1024);
+	}
+
+	public static void dexingJarLibFile(String jarLibPath, String dexCachePath, Configuration configuration, boolean processMode) throws Throwable{
 		// dex版本
 		int minSdkVersion;
 		// android sdk jar路径
@@ -141,8 +193,7 @@ public class DexingJarTask implements Callable<DexingJarTask>{
 		try{
 			logDebug("dexing -> " + jarLibPath);
 			//dexing jar
-			// 大于10MB的将采用 子进程方式，防止oom
-			D8TaskWrapper.runD8Task(argsList, DexingJarTask.environment, new File(jarLibPath).length() > 10 * 1024 * 1024);
+			D8TaskWrapper.runD8Task(argsList, DexingJarTask.environment, processMode, configuration.threadCount);
 
 			//临时文件移动到实际输出文件
 			dexZipTempFile.renameTo(dexCacheFile);
@@ -163,6 +214,48 @@ public class DexingJarTask implements Callable<DexingJarTask>{
 	}
 
 
+	/**
+	 * 批量dexing，OOM时二分重试
+	 */
+	public static void dexingJarLibFileBisect(List<String> inputJarFiles, List<String> outputDexZipFiles, final Configuration configuration) throws Throwable{
+		dexingBisect(inputJarFiles, outputDexZipFiles, new Dexer(){
+				@Override
+				public void dexingBatch(List<String> inputJarFiles, List<String> outputDexZipFiles) throws Throwable{
+					dexingJarLibFileBatch(inputJarFiles, outputDexZipFiles, configuration);
+				}
+				@Override
+				public void dexing(String inputJarFile, String outputDexZipFile) throws Throwable{
+					dexingJarLibFile(inputJarFile, outputDexZipFile, configuration, true);
+				}
+			});
+	}
+
+	static void dexingBisect(List<String> inputJarFiles, List<String> outputDexZipFiles, Dexer dexer) throws Throwable{
+		try{
+			dexer.dexingBatch(inputJarFiles, outputDexZipFiles);
+			return;
+		}
+		catch (OutOfMemoryError e){
+			int size = inputJarFiles.size();
+			if ( size <= 1 ){
+				throw e;
+			}
+			logDebug("dexing batch OOM, bisect -> " + size);
+		}
+		int middle = inputJarFiles.size() / 2;
+		dexingBisectPart(inputJarFiles.subList(0, middle), outputDexZipFiles.subList(0, middle), dexer);
+		dexingBisectPart(inputJarFiles.subList(middle, inputJarFiles.size()), outputDexZipFiles.subList(middle, outputDexZipFiles.size()), dexer);
+	}
+
+	private static void dexingBisectPart(List<String> inputJarFiles, List<String> outputDexZipFiles, Dexer dexer) throws Throwable{
+		if ( inputJarFiles.size() == 1 ){
+			// 单个jar 独立子进程
+			dexer.dexing(inputJarFiles.get(0), outputDexZipFiles.get(0));
+			return;
+		}
+		dexingBisect(inputJarFiles, outputDexZipFiles, dexer);
+	}
+
 	public static void dexingJarLibFileBatch(List<String> inputJarFiles, List<String> outputDexZipFiles, Configuration configuration) throws Throwable{
 		// dex版本
 		int minSdkVersion;
@@ -196,7 +289,7 @@ public class DexingJarTask implements Callable<DexingJarTask>{
 		}
 		
 		// 批量处理
-		D8TaskWrapper.runD8BatchTask(inputJarFiles, outputDexZipFiles, argsList, DexingJarTask.environment);
+		D8TaskWrapper.runD8BatchTask(inputJarFiles, outputDexZipFiles, argsList, DexingJarTask.environment, configuration.threadCount);
 		
 	}
 
@@ -0,0 +1,182 @@
+package io.github.zeroaicy.aide.services;
+
+import com.aide.common.AppLog;
+import io.github.zeroaicy.util.IOUtils;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 根据可用内存与核心数规划 dexing jar
+ * 决定 批量分组、d8线程数、并发任务数
+ *
+ * 批量dexing通过DexClassLoader在本进程内运行
+ * 可用内存为本进程堆的剩余空间，而不是系统可用内存
+ */
+public class DexingPlanner {
+
+	private static final String TAG = "DexingPlanner";
+
+	// 单个d8任务的基础开销
+	static final long BASE_TASK_MEMORY = 96L * 1024 * 1024;
+	// 每个类的估算开销
+	static final long CLASS_MEMORY = 32L * 1024;
+	// 无法读取类数量时，按jar大小估算
+	static final long BYTES_PER_CLASS = 4L * 1024;
+	// 剩余堆中可用于dexing的比例，其余留给打包流程
+	static final int USABLE_MEMORY_PERCENT = 75;
+
+	static final int MIN_BATCH_CLASSES = 512;
+	static final int MAX_TASKS = 3;
+	static final int MAX_THREADS = 16;
+
+	private final long availMemory;
+	private final int cores;
+
+	private final int taskCount;
+	private final int threadCount;
+	private final long batchClassLimit;
+
+	// jar -> 类数量
+	private final Map<String, Integer> classCountMap = new HashMap<>();
+
+	public DexingPlanner(long availMemory, int cores) {
+		this.availMemory = availMemory;
+		this.cores = Math.max(1, cores);
+
+		long usableMemory = availMemory / 100 * USABLE_MEMORY_PERCENT;
+		long minTaskMemory = BASE_TASK_MEMORY + MIN_BATCH_CLASSES * CLASS_MEMORY;
+
+		// 并发任务数
+		long taskCount = usableMemory / minTaskMemory;
+		this.taskCount = (int) Math.max(1, Math.min(taskCount, Math.min(MAX_TASKS, this.cores)));
+
+		// 单个任务可用内存
+		long taskMemory = usableMemory / this.taskCount;
+		this.batchClassLimit = Math.max(MIN_BATCH_CLASSES, (taskMemory - BASE_TASK_MEMORY) / CLASS_MEMORY);
+
+		// d8线程数 每个线程也需要工作内存
+		int threadCount = Math.max(1, this.cores / this.taskCount);
+		if (taskMemory < 2 * minTaskMemory) {
+			threadCount = Math.min(threadCount, 2);
+		}
+		this.threadCount = Math.min(threadCount, MAX_THREADS);
+	}
+
+	/**
+	 * 读取本进程剩余堆内存
+	 */
+	public static DexingPlanner create() {
+		Runtime runtime = Runtime.getRuntime();
+		long availMemory = getAvailHeapMemory(runtime.maxMemory(), runtime.totalMemory(), runtime.freeMemory());
+		DexingPlanner planner = new DexingPlanner(availMemory, Runtime.getRuntime().availableProcessors());
+		AppLog.d(TAG, "availMemory: %sMB cores: %s -> tasks: %s threads: %s batchClasses: %s",
+				 availMemory / 1024 / 1024, planner.cores, planner.taskCount, planner.threadCount, planner.batchClassLimit);
+		return planner;
+	}
+
+	/**
+	 * maxMemory - 已使用
+	 */
+	static long getAvailHeapMemory(long maxMemory, long totalMemory, long freeMemory) {
+		if (maxMemory <= 0 || maxMemory == Long.MAX_VALUE) {
+			// 没有限制时的保守值
+			maxMemory = 512L * 1024 * 1024;
+		}
+		return Math.max(0, maxMemory - (totalMemory - freeMemory));
+	}
+
+	public long getAvailMemory() {
+		return this.availMemory;
+	}
+
+	/**
+	 * 并发dexing任务数
+	 */
+	public int getTaskCount() {
+		return this.taskCount;
+	}
+
+	/**
+	 * 单个d8任务的 --thread-count
+	 */
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * 单个批量任务的类数量上限
+	 */
+	public long getBatchClassLimit() {
+		return this.batchClassLimit;
+	}
+
+	/**
+	 * 按类数量对jar分组，保持输入顺序
+	 * 超过上限的jar单独成组
+	 */
+	public List<List<String>> planBatches(List<String> inputJarFiles) {
+		List<List<String>> batches = new ArrayList<>();
+
+		List<String> currentBatch = new ArrayList<>();
+		long currentBatchClasses = 0;
+
+		for (String inputJarFile : inputJarFiles) {
+			int classCount = getClassCount(inputJarFile);
+
+			if (classCount >= this.batchClassLimit) {
+				List<String> single = new ArrayList<>(1);
+				single.add(inputJarFile);
+				batches.add(single);
+				continue;
+			}
+			if (currentBatchClasses + classCount > this.batchClassLimit
+				&& !currentBatch.isEmpty()) {
+				batches.add(currentBatch);
+				currentBatch = new ArrayList<>();
+				currentBatchClasses = 0;
+			}
+			currentBatch.add(inputJarFile);
+			currentBatchClasses += classCount;
+		}
+		if (!currentBatch.isEmpty()) {
+			batches.add(currentBatch);
+		}
+		return batches;
+	}
+
+	/**
+	 * 只读取zip中央目录，不解压
+	 */
+	public int getClassCount(String inputJarFile) {
+		Integer classCount = this.classCountMap.get(inputJarFile);
+		if (classCount != null) {
+			return classCount;
+		}
+		int count = 0;
+		ZipFile zipFile = null;
+		try {
+			zipFile = new ZipFile(inputJarFile);
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				if (entries.nextElement().getName().endsWith(".class")) {
+					count++;
+				}
+			}
+		}
+		catch (IOException e) {
+			count = (int) Math.min(Integer.MAX_VALUE, new File(inputJarFile).length() / BYTES_PER_CLASS);
+		}
+		finally {
+			IOUtils.close(zipFile);
+		}
+		this.classCountMap.put(inputJarFile, count);
+		return count;
+	}
+}
@@ -0,0 +1,149 @@
+package io.github.zeroaicy.aide.services;
+
+import com.aide.common.AppLog;
+
+/**
+ * 代码分析进程的内存压力级别
+ * 按堆占用比例分级，由分析线程采样，分析器按级别逐级释放缓存与减少分析
+ * 占用回落到进入比例以下 RESTORE_GAP 后才退出该级别，避免在阈值附近反复切换
+ */
+public class EngineMemoryGovernor {
+
+	private static final String TAG = "EngineMemoryGovernor";
+
+	/**
+	 * 正常分析
+	 */
+	public static final int LEVEL_NORMAL = 0;
+	/**
+	 * 释放已关闭文件的ecj语义缓存
+	 */
+	public static final int LEVEL_TRIM_CLOSED_FILES = 1;
+	/**
+	 * 暂停已关闭文件的ecj语义分析，ecj只分析打开的文件
+	 * AIDE语义分析在任何级别都执行[codemodel需要符号表]，所以没有更高的级别
+	 */
+	public static final int LEVEL_SUSPEND_BACKGROUND = 2;
+
+	// 进入各级别的堆占用百分比
+	private static final int[] ENTER_PERCENTS = {0, 75, 85};
+
+	// 低于进入百分比 RESTORE_GAP 后退出该级别
+	private static final int RESTORE_GAP = 10;
+
+	// 采样间隔
+	private static final long SAMPLE_INTERVAL_NANOS = 1000L * 1000L * 1000L;
+
+	public interface HeapMonitor {
+		long getUsedMemory();
+		long getMaxMemory();
+	}
+
+	public static class RuntimeHeapMonitor implements HeapMonitor {
+		@Override
+		public long getUsedMemory() {
+			Runtime runtime = Runtime.getRuntime();
+			return runtime.totalMemory() - runtime.freeMemory();
+		}
+
+		@Override
+		public long getMaxMemory() {
+			return Runtime.getRuntime().maxMemory();
+		}
+	}
+
+	private static volatile EngineMemoryGovernor instance;
+
+	public static EngineMemoryGovernor getInstance() {
+		EngineMemoryGovernor governor = instance;
+		if (governor == null) {
+			synchronized (EngineMemoryGovernor.class) {
+				governor = instance;
+				if (governor == null) {
+					governor = new EngineMemoryGovernor(new RuntimeHeapMonitor());
+					instance = governor;
+				}
+			}
+		}
+		return governor;
+	}
+
+	public static void setInstance(EngineMemoryGovernor governor) {
+		instance = governor;
+	}
+
+	private final HeapMonitor heapMonitor;
+
+	private volatile int level = LEVEL_NORMAL;
+
+	private long lastSampleTime;
+	private boolean sampled;
+
+	public EngineMemoryGovernor(HeapMonitor heapMonitor) {
+		this.heapMonitor = heapMonitor;
+	}
+
+	public int getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * 距上次采样超过 SAMPLE_INTERVAL_NANOS 时采样
+	 * 返回当前级别
+	 */
+	public int sample() {
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (this.sampled && now - this.lastSampleTime < SAMPLE_INTERVAL_NANOS) {
+				return this.level;
+			}
+		}
+		return forceSample();
+	}
+
+	/**
+	 * 立即采样 onTrimMemory等时调用
+	 */
+	public synchronized int forceSample() {
+		this.sampled = true;
+		this.lastSampleTime = System.nanoTime();
+
+		long maxMemory = this.heapMonitor.getMaxMemory();
+		if (maxMemory <= 0 || maxMemory == Long.MAX_VALUE) {
+			return this.level;
+		}
+		int usedPercent = (int) (this.heapMonitor.getUsedMemory() * 100 / maxMemory);
+
+		int oldLevel = this.level;
+		int newLevel = computeLevel(oldLevel, usedPercent);
+		if (newLevel != oldLevel) {
+			this.level = newLevel;
+			AppLog.d(TAG, "内存级别 %d -> %d 堆占用 %d%%", oldLevel, newLevel, usedPercent);
+		}
+		return newLevel;
+	}
+
+	/**
+	 * 升级直接到占用对应的级别
+	 * 降级时逐级检查，占用低于该级别进入百分比 RESTORE_GAP 时退出该级别
+	 * 所以一次采样可以降低多个级别，但不会低于占用对应的级别
+	 */
+	static int computeLevel(int currentLevel, int usedPercent) {
+		int targetLevel = LEVEL_NORMAL;
+		for (int level = ENTER_PERCENTS.length - 1; level > LEVEL_NORMAL; level--) {
+			if (usedPercent >= ENTER_PERCENTS[level]) {
+				targetLevel = level;
+				break;
+			}
+		}
+		if (targetLevel >= currentLevel) {
+			return targetLevel;
+		}
+		int level = currentLevel;
+		while (level > targetLevel
+			   && usedPercent < ENTER_PERCENTS[level] - RESTORE_GAP) {
+			level--;
+		}
+		return level;
+	}
+}
@@ -1,24 +1,110 @@
 package io.github.zeroaicy.aide.services;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
 
+/**
+ * 打包输出流
+ * 条目数据先缓冲在内存中，closeEntry时在线程池中计算crc并压缩，
+ * 再按putNextEntry的顺序写入，本地文件头中直接写入crc与大小
+ *
+ * 超过 MAX_BUFFERED_ENTRY_SIZE 的条目，等待之前的条目写入后
+ * 在调用线程流式压缩并写入数据描述符，与ZipOutputStream相同
+ * 待写入条目超过 MAX_PENDING_SIZE 时等待写入，内存占用有上限
+ *
+ * 不支持zip64
+ */
 public class PackagingStream extends ZipOutputStream {
 
+	// 超过此大小的条目不缓冲
+	private static final int MAX_BUFFERED_ENTRY_SIZE = 4 * 1024 * 1024;
+	// 已缓冲未写入的条目数据上限
+	private static final long MAX_PENDING_SIZE = 32 * 1024 * 1024;
+
+	private static final int LOCSIG = 0x04034b50;
+	private static final int EXTSIG = 0x08074b50;
+	private static final int CENSIG = 0x02014b50;
+	private static final int ENDSIG = 0x06054b50;
+
+	// 数据描述符
+	private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+	// 文件名为UTF-8
+	private static final int FLAG_UTF8 = 0x800;
+
+	private static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+	private static final int ZIP64_MAGICCOUNT = 0xFFFF;
+
 	private Set<String> zipEntryNameSet = new HashSet<>();
 
+	private final CountingOutputStream output;
+	private final Charset charset;
+	// 为null时在调用线程压缩
+	private final ExecutorService executorService;
+
+	private int method = DEFLATED;
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private byte[] comment;
+
+	// 按顺序等待写入的条目
+	private final ArrayDeque<PendingEntry> pendingEntries = new ArrayDeque<>();
+	private long pendingSize;
+
+	// 已写入的条目 用于写入中央目录
+	private final List<WrittenEntry> writtenEntries = new ArrayList<>();
+
+	// 当前条目
+	private ZipEntry currentEntry;
+	private int currentMethod;
+	// 缓冲模式
+	private EntryBuffer currentBuffer;
+	// 流式模式
+	private WrittenEntry streamingEntry;
+	private final CRC32 streamingCrc = new CRC32();
+	private Deflater streamingDeflater;
+	private byte[] deflateBuffer;
+
+	private final Calendar calendar = Calendar.getInstance();
+
+	private boolean finished;
+	private boolean closed;
+
 	public PackagingStream(OutputStream out) {
-		this(out, StandardCharsets.UTF_8);
+		this(out, StandardCharsets.UTF_8, null);
 	}
 	public PackagingStream(OutputStream out, Charset charset) {
+		this(out, charset, null);
+	}
+	public PackagingStream(OutputStream out, ExecutorService executorService) {
+		this(out, StandardCharsets.UTF_8, executorService);
+	}
+
+	public PackagingStream(OutputStream out, Charset charset, ExecutorService executorService) {
 		super(out, charset);
+		this.output = new CountingOutputStream(new BufferedOutputStream(out, 64 * 1024));
+		this.charset = charset;
+		this.executorService = executorService;
 	}
 
 	//查询是否已添加
@@ -29,12 +115,552 @@ public class PackagingStream extends ZipOutputStream {
 		return this.zipEntryNameSet.size();
 	}
 
+	@Override
+	public void setComment(String comment) {
+		this.comment = comment == null ? null : comment.getBytes(this.charset);
+		if (this.comment != null && this.comment.length > 0xFFFF) {
+			throw new IllegalArgumentException("ZIP file comment too long.");
+		}
+	}
+
+	@Override
+	public void setMethod(int method) {
+		if (method != DEFLATED && method != STORED) {
+			throw new IllegalArgumentException("invalid compression method");
+		}
+		this.method = method;
+	}
+
+	@Override
+	public void setLevel(int level) {
+		if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+			throw new IllegalArgumentException("invalid compression level");
+		}
+		this.level = level;
+	}
+
 	@Override
 	public void putNextEntry ( ZipEntry zipEntry ) throws IOException {
+		ensureOpen();
+		if (this.currentEntry != null) {
+			closeEntry();
+		}
 		if (contains(zipEntry.getName())) {
 			throw new ZipException("Entry already exists: " + zipEntry.getName());
 		}
+		int method = zipEntry.getMethod() == -1 ? this.method : zipEntry.getMethod();
+		if (method != DEFLATED && method != STORED) {
+			throw new ZipException("unsupported compression method");
+		}
 		this.zipEntryNameSet.add(zipEntry.getName());
-		super.putNextEntry(zipEntry);
+
+		this.currentEntry = zipEntry;
+		this.currentMethod = method;
+
+		if (zipEntry.getSize() > MAX_BUFFERED_ENTRY_SIZE) {
+			startStreaming(null, 0);
+		} else {
+			this.currentBuffer = new EntryBuffer(zipEntry.getSize() > 0 ? (int) zipEntry.getSize() : 512);
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || off > b.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (this.currentEntry == null) {
+			throw new ZipException("no current ZIP entry");
+		}
+		if (len == 0) {
+			return;
+		}
+		if (this.currentBuffer != null) {
+			if (this.currentBuffer.size() + (long) len <= MAX_BUFFERED_ENTRY_SIZE) {
+				this.currentBuffer.write(b, off, len);
+				return;
+			}
+			// 条目过大 改为流式写入
+			EntryBuffer buffer = this.currentBuffer;
+			this.currentBuffer = null;
+			startStreaming(buffer.getBuffer(), buffer.size());
+		}
+		writeStreaming(b, off, len);
+	}
+
+	@Override
+	public void closeEntry() throws IOException {
+		ensureOpen();
+		if (this.currentEntry == null) {
+			return;
+		}
+		if (this.currentBuffer != null) {
+			final PendingEntry pendingEntry = new PendingEntry(this.currentEntry, this.currentMethod, this.level, this.currentBuffer);
+			this.currentEntry = null;
+			this.currentBuffer = null;
+
+			pendingEntry.future = submit(pendingEntry);
+			this.pendingEntries.add(pendingEntry);
+			this.pendingSize += pendingEntry.size;
+
+			// 写入已完成的条目
+			while (!this.pendingEntries.isEmpty()
+				   && (this.pendingEntries.peek().future.isDone() || this.pendingSize > MAX_PENDING_SIZE)) {
+				writePendingEntry(this.pendingEntries.poll());
+			}
+		} else {
+			closeStreaming();
+		}
+	}
+
+	@Override
+	public void finish() throws IOException {
+		ensureOpen();
+		if (this.finished) {
+			return;
+		}
+		if (this.currentEntry != null) {
+			closeEntry();
+		}
+		writePendingEntries();
+
+		long centralDirectoryOffset = this.output.getWritten();
+		for (WrittenEntry writtenEntry : this.writtenEntries) {
+			writeCentralDirectoryHeader(writtenEntry);
+		}
+		long centralDirectorySize = this.output.getWritten() - centralDirectoryOffset;
+		int count = this.writtenEntries.size();
+		if (count >= ZIP64_MAGICCOUNT || centralDirectoryOffset >= ZIP64_MAGICVAL) {
+			throw new ZipException("不支持zip64: " + count + " 个条目");
+		}
+		writeInt(ENDSIG);
+		writeShort(0);
+		writeShort(0);
+		writeShort(count);
+		writeShort(count);
+		writeInt(centralDirectorySize);
+		writeInt(centralDirectoryOffset);
+		if (this.comment == null) {
+			writeShort(0);
+		} else {
+			writeShort(this.comment.length);
+			this.output.write(this.comment);
+		}
+		this.output.flush();
+		this.finished = true;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		this.output.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		try {
+			finish();
+		}
+		finally {
+			this.closed = true;
+			for (PendingEntry pendingEntry : this.pendingEntries) {
+				pendingEntry.future.cancel(false);
+			}
+			this.pendingEntries.clear();
+			if (this.streamingDeflater != null) {
+				this.streamingDeflater.end();
+			}
+			// ZipOutputStream创建的Deflater未使用
+			this.def.end();
+			this.output.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private Future<PendingEntry> submit(PendingEntry pendingEntry) {
+		if (this.executorService != null) {
+			try {
+				return this.executorService.submit(pendingEntry);
+			}
+			catch (RejectedExecutionException e) {
+				// 线程池已关闭 在调用线程压缩
+			}
+		}
+		FutureTask<PendingEntry> futureTask = new FutureTask<>(pendingEntry);
+		futureTask.run();
+		return futureTask;
+	}
+
+	private void writePendingEntries() throws IOException {
+		while (!this.pendingEntries.isEmpty()) {
+			writePendingEntry(this.pendingEntries.poll());
+		}
+	}
+
+	/**
+	 * 等待压缩完成并写入
+	 */
+	private void writePendingEntry(PendingEntry pendingEntry) throws IOException {
+		try {
+			pendingEntry.future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+		this.pendingSize -= pendingEntry.size;
+
+		ZipEntry zipEntry = pendingEntry.zipEntry;
+		if (zipEntry.getSize() != -1 && zipEntry.getSize() != pendingEntry.size) {
+			throw new ZipException("invalid entry size (expected " + zipEntry.getSize() + " but got " + pendingEntry.size + " bytes)");
+		}
+		if (zipEntry.getCrc() != -1 && zipEntry.getCrc() != pendingEntry.crc) {
+			throw new ZipException("invalid entry crc-32 (expected 0x" + Long.toHexString(zipEntry.getCrc()) + " but got 0x" + Long.toHexString(pendingEntry.crc) + ")");
+		}
+
+		WrittenEntry writtenEntry = createWrittenEntry(zipEntry, pendingEntry.method, 0);
+		writtenEntry.crc = pendingEntry.crc;
+		writtenEntry.size = pendingEntry.size;
+		writtenEntry.compressedSize = pendingEntry.compressedSize;
+		writeLocalHeader(writtenEntry);
+		this.output.write(pendingEntry.compressedData, 0, pendingEntry.compressedSize);
+		this.writtenEntries.add(writtenEntry);
+	}
+
+	/**
+	 * 写入之前的条目后 开始流式写入当前条目
+	 */
+	private void startStreaming(byte[] bufferedData, int bufferedSize) throws IOException {
+		writePendingEntries();
+
+		ZipEntry zipEntry = this.currentEntry;
+		WrittenEntry writtenEntry;
+		if (this.currentMethod == STORED) {
+			if (zipEntry.getSize() == -1 || zipEntry.getCrc() == -1) {
+				throw new ZipException("STORED entry missing size, compressed size, or crc-32");
+			}
+			writtenEntry = createWrittenEntry(zipEntry, STORED, 0);
+			writtenEntry.crc = zipEntry.getCrc();
+			writtenEntry.size = zipEntry.getSize();
+			writtenEntry.compressedSize = zipEntry.getSize();
+		} else {
+			writtenEntry = createWrittenEntry(zipEntry, DEFLATED, FLAG_DATA_DESCRIPTOR);
+			if (this.streamingDeflater == null) {
+				this.streamingDeflater = new Deflater(this.level, true);
+				this.deflateBuffer = new byte[64 * 1024];
+			} else {
+				this.streamingDeflater.reset();
+				this.streamingDeflater.setLevel(this.level);
+			}
+		}
+		writeLocalHeader(writtenEntry);
+
+		this.streamingEntry = writtenEntry;
+		this.streamingCrc.reset();
+		// 同时作为已写入的未压缩大小
+		writtenEntry.size = 0;
+		if (bufferedSize > 0) {
+			writeStreaming(bufferedData, 0, bufferedSize);
+		}
+	}
+
+	private void writeStreaming(byte[] b, int off, int len) throws IOException {
+		WrittenEntry writtenEntry = this.streamingEntry;
+		this.streamingCrc.update(b, off, len);
+		writtenEntry.size += len;
+		if (writtenEntry.method == STORED) {
+			this.output.write(b, off, len);
+			return;
+		}
+		Deflater deflater = this.streamingDeflater;
+		deflater.setInput(b, off, len);
+		while (!deflater.needsInput()) {
+			int count = deflater.deflate(this.deflateBuffer, 0, this.deflateBuffer.length);
+			this.output.write(this.deflateBuffer, 0, count);
+		}
+	}
+
+	private void closeStreaming() throws IOException {
+		WrittenEntry writtenEntry = this.streamingEntry;
+		ZipEntry zipEntry = this.currentEntry;
+		this.streamingEntry = null;
+		this.currentEntry = null;
+
+		long crc = this.streamingCrc.getValue();
+		if (writtenEntry.method == STORED) {
+			if (zipEntry.getSize() != writtenEntry.size) {
+				throw new ZipException("invalid entry size (expected " + zipEntry.getSize() + " but got " + writtenEntry.size + " bytes)");
+			}
+			if (zipEntry.getCrc() != crc) {
+				throw new ZipException("invalid entry crc-32 (expected 0x" + Long.toHexString(zipEntry.getCrc()) + " but got 0x" + Long.toHexString(crc) + ")");
+			}
+		} else {
+			Deflater deflater = this.streamingDeflater;
+			deflater.finish();
+			while (!deflater.finished()) {
+				int count = deflater.deflate(this.deflateBuffer, 0, this.deflateBuffer.length);
+				this.output.write(this.deflateBuffer, 0, count);
+			}
+			writtenEntry.crc = crc;
+			writtenEntry.compressedSize = deflater.getBytesWritten();
+			if (writtenEntry.size >= ZIP64_MAGICVAL || writtenEntry.compressedSize >= ZIP64_MAGICVAL) {
+				throw new ZipException("不支持zip64: " + zipEntry.getName());
+			}
+			writeInt(EXTSIG);
+			writeInt(writtenEntry.crc);
+			writeInt(writtenEntry.compressedSize);
+			writeInt(writtenEntry.size);
+		}
+		this.writtenEntries.add(writtenEntry);
+	}
+
+	private WrittenEntry createWrittenEntry(ZipEntry zipEntry, int method, int flag) throws IOException {
+		WrittenEntry writtenEntry = new WrittenEntry();
+		writtenEntry.method = method;
+		writtenEntry.flag = StandardCharsets.UTF_8.equals(this.charset) ? flag | FLAG_UTF8 : flag;
+		long time = zipEntry.getTime();
+		writtenEntry.dosTime = javaToDosTime(time == -1 ? System.currentTimeMillis() : time);
+		writtenEntry.name = zipEntry.getName().getBytes(this.charset);
+		writtenEntry.extra = zipEntry.getExtra();
+		String comment = zipEntry.getComment();
+		writtenEntry.comment = comment == null ? null : comment.getBytes(this.charset);
+		writtenEntry.offset = this.output.getWritten();
+		if (writtenEntry.offset >= ZIP64_MAGICVAL) {
+			throw new ZipException("不支持zip64: " + zipEntry.getName());
+		}
+		return writtenEntry;
+	}
+
+	private void writeLocalHeader(WrittenEntry writtenEntry) throws IOException {
+		writeInt(LOCSIG);
+		writeShort(writtenEntry.getVersion());
+		writeShort(writtenEntry.flag);
+		writeShort(writtenEntry.method);
+		writeInt(writtenEntry.dosTime);
+		if ((writtenEntry.flag & FLAG_DATA_DESCRIPTOR) != 0) {
+			writeInt(0);
+			writeInt(0);
+			writeInt(0);
+		} else {
+			writeInt(writtenEntry.crc);
+			writeInt(writtenEntry.compressedSize);
+			writeInt(writtenEntry.size);
+		}
+		writeShort(writtenEntry.name.length);
+		writeShort(writtenEntry.extra == null ? 0 : writtenEntry.extra.length);
+		this.output.write(writtenEntry.name);
+		if (writtenEntry.extra != null) {
+			this.output.write(writtenEntry.extra);
+		}
+	}
+
+	private void writeCentralDirectoryHeader(WrittenEntry writtenEntry) throws IOException {
+		writeInt(CENSIG);
+		// version made by
+		writeShort(20);
+		writeShort(writtenEntry.getVersion());
+		writeShort(writtenEntry.flag);
+		writeShort(writtenEntry.method);
+		writeInt(writtenEntry.dosTime);
+		writeInt(writtenEntry.crc);
+		writeInt(writtenEntry.compressedSize);
+		writeInt(writtenEntry.size);
+		writeShort(writtenEntry.name.length);
+		writeShort(writtenEntry.extra == null ? 0 : writtenEntry.extra.length);
+		writeShort(writtenEntry.comment == null ? 0 : writtenEntry.comment.length);
+		// disk number start
+		writeShort(0);
+		// internal file attributes
+		writeShort(0);
+		// external file attributes
+		writeInt(0);
+		writeInt(writtenEntry.offset);
+		this.output.write(writtenEntry.name);
+		if (writtenEntry.extra != null) {
+			this.output.write(writtenEntry.extra);
+		}
+		if (writtenEntry.comment != null) {
+			this.output.write(writtenEntry.comment);
+		}
+	}
+
+	private void writeShort(int v) throws IOException {
+		OutputStream output = this.output;
+		output.write(v & 0xff);
+		output.write((v >>> 8) & 0xff);
+	}
+
+	private void writeInt(long v) throws IOException {
+		OutputStream output = this.output;
+		output.write((int) (v & 0xff));
+		output.write((int) ((v >>> 8) & 0xff));
+		output.write((int) ((v >>> 16) & 0xff));
+		output.write((int) ((v >>> 24) & 0xff));
+	}
+
+	/**
+	 * 与ZipEntry相同 使用本地时区
+	 */
+	private long javaToDosTime(long time) {
+		Calendar calendar = this.calendar;
+		calendar.setTimeInMillis(time);
+		int year = calendar.get(Calendar.YEAR);
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return (long) (year - 1980) << 25
+			| (calendar.get(Calendar.MONTH) + 1) << 21
+			| calendar.get(Calendar.DAY_OF_MONTH) << 16
+			| calendar.get(Calendar.HOUR_OF_DAY) << 11
+			| calendar.get(Calendar.MINUTE) << 5
+			| calendar.get(Calendar.SECOND) >> 1;
+	}
+
+	/**
+	 * 已缓冲的条目 在线程池中计算crc并压缩
+	 */
+	private static class PendingEntry implements Callable<PendingEntry> {
+		final ZipEntry zipEntry;
+		final int method;
+		final int level;
+		final int size;
+
+		byte[] data;
+
+		long crc;
+		byte[] compressedData;
+		int compressedSize;
+
+		Future<PendingEntry> future;
+
+		PendingEntry(ZipEntry zipEntry, int method, int level, EntryBuffer buffer) {
+			this.zipEntry = zipEntry;
+			this.method = method;
+			this.level = level;
+			this.data = buffer.getBuffer();
+			this.size = buffer.size();
+		}
+
+		@Override
+		public PendingEntry call() {
+			CRC32 crc32 = new CRC32();
+			crc32.update(this.data, 0, this.size);
+			this.crc = crc32.getValue();
+
+			if (this.method == STORED) {
+				this.compressedData = this.data;
+				this.compressedSize = this.size;
+				return this;
+			}
+
+			Deflater deflater = new Deflater(this.level, true);
+			try {
+				deflater.setInput(this.data, 0, this.size);
+				deflater.finish();
+				EntryBuffer compressedBuffer = new EntryBuffer(this.size / 2 + 64);
+				byte[] buffer = new byte[Math.min(64 * 1024, this.size + 64)];
+				while (!deflater.finished()) {
+					int count = deflater.deflate(buffer, 0, buffer.length);
+					compressedBuffer.write(buffer, 0, count);
+				}
+				this.compressedData = compressedBuffer.getBuffer();
+				this.compressedSize = compressedBuffer.size();
+			}
+			finally {
+				deflater.end();
+			}
+			// 释放未压缩数据
+			this.data = null;
+			return this;
+		}
+	}
+
+	/**
+	 * 已写入本地文件头的条目
+	 */
+	private static class WrittenEntry {
+		int method;
+		int flag;
+		long dosTime;
+		long crc;
+		long compressedSize;
+		long size;
+		long offset;
+		byte[] name;
+		byte[] extra;
+		byte[] comment;
+
+		int getVersion() {
+			return this.method == STORED ? 10 : 20;
+		}
+	}
+
+	/**
+	 * 可以直接访问缓冲区的ByteArrayOutputStream
+	 */
+	private static class EntryBuffer extends ByteArrayOutputStream {
+		EntryBuffer(int size) {
+			super(size);
+		}
+
+		byte[] getBuffer() {
+			return this.buf;
+		}
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		private final OutputStream out;
+		private long written;
+
+		CountingOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		long getWritten() {
+			return this.written;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.written++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.written += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			this.out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.out.close();
+		}
 	}
 }
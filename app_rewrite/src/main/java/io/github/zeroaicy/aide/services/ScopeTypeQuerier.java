@@ -14,6 +14,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,12 +44,54 @@ public class ScopeTypeQuerier{
 		dexing;
 	}
 	public static class ScopeTypeMap{
+		// 目录匹配缓存上限
+		private static final int MAX_MATCHED_DIR_CACHE = 4096;
+		// 没有匹配的目录
+		private static final String NO_MATCHED_DIR = "";
+
 		private final Map<String, ScopeType> fileScopeTypeMap = new HashMap<>();
 		private final Map<String, Integer> runtimeOnlySerialMap = new HashMap<>();
 		private int runtimeOnlySerial = 0;
-		private final Set<String> dirScopeTypeSet = new HashSet<>();
+
+		// 按路径分段的目录树，查询最长匹配目录
+		private final DirNode dirTrie = new DirNode();
+		// 文件路径 -> 匹配的目录
+		private final Map<String, String> matchedDirCache = new LinkedHashMap<String, String>(16, 0.75f, true){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest){
+				return size() > MAX_MATCHED_DIR_CACHE;
+			}
+		};
+
+		private static class DirNode{
+			private final Map<String, DirNode> children = new HashMap<>();
+			// 不为null时此节点是已声明的目录
+			private String dir;
+		}
+
 		public void putDir(String key, ScopeType value){
-			this.dirScopeTypeSet.add(key);
+			if ( key == null || value == null ) return;
+			DirNode node = this.dirTrie;
+			int start = 0;
+			while ( start <= key.length() ){
+				int end = key.indexOf('/', start);
+				if ( end < 0 ){
+					end = key.length();
+				}
+				if ( end > start ){
+					String name = key.substring(start, end);
+					DirNode child = node.children.get(name);
+					if ( child == null ){
+						child = new DirNode();
+						node.children.put(name, child);
+					}
+					node = child;
+				}
+				start = end + 1;
+			}
+			node.dir = key;
+			// 已缓存的匹配可能变化
+			this.matchedDirCache.clear();
 			this.put(key, value);
 		}
 		public void put(String key, ScopeType value){
@@ -63,15 +106,59 @@ public class ScopeTypeQuerier{
 			if ( value != null ){
 				return value;
 			}
-			for ( String dir : this.dirScopeTypeSet ){
-				if ( key.startsWith(dir) ){
-					// 使用 目录的序号
-					this.runtimeOnlySerialMap.put(key, this.runtimeOnlySerialMap.get(dir));
-					// 返回这个目录的 ScopeType
-					return this.fileScopeTypeMap.get(dir);
+			String dir = findDir(key);
+			if ( dir == null ){
+				return null;
+			}
+			// 返回这个目录的 ScopeType
+			return this.fileScopeTypeMap.get(dir);
+		}
+
+		/**
+		 * 文件的序号，没有时使用所在目录的序号
+		 */
+		private Integer getRuntimeOnlySerial(String key){
+			Integer serial = this.runtimeOnlySerialMap.get(key);
+			if ( serial != null ){
+				return serial;
+			}
+			String dir = findDir(key);
+			if ( dir == null ){
+				return null;
+			}
+			return this.runtimeOnlySerialMap.get(dir);
+		}
+
+		/**
+		 * 包含key的最长目录，按路径分段匹配
+		 */
+		private String findDir(String key){
+			String matchedDir = this.matchedDirCache.get(key);
+			if ( matchedDir != null ){
+				return matchedDir == NO_MATCHED_DIR ? null : matchedDir;
+			}
+
+			DirNode node = this.dirTrie;
+			int start = 0;
+			while ( start < key.length() ){
+				int end = key.indexOf('/', start);
+				if ( end < 0 ){
+					end = key.length();
 				}
+				if ( end > start ){
+					node = node.children.get(key.substring(start, end));
+					if ( node == null ){
+						break;
+					}
+					if ( node.dir != null ){
+						matchedDir = node.dir;
+					}
+				}
+				start = end + 1;
 			}
-			return null;
+
+			this.matchedDirCache.put(key, matchedDir == null ? NO_MATCHED_DIR : matchedDir);
+			return matchedDir;
 		}
 
 		public void sortRuntimeOnly(List<String> runtimeOnlyLibs){
@@ -89,8 +176,8 @@ public class ScopeTypeQuerier{
 						if ( o1Name.endsWith("_resource.jar") && !o2Name.endsWith("_resource.jar") ){
 							return 1;
 						}
-						Integer o1Serial = ScopeTypeMap.this.runtimeOnlySerialMap.get(o1);
-						Integer o2Serial = ScopeTypeMap.this.runtimeOnlySerialMap.get(o2);
+						Integer o1Serial = ScopeTypeMap.this.getRuntimeOnlySerial(o1);
+						Integer o2Serial = ScopeTypeMap.this.getRuntimeOnlySerial(o2);
 						if ( o1Serial == null ){
 							//最后打包
 							o1Serial = Integer.MAX_VALUE;
@@ -30,9 +30,26 @@ public class ZeroAicyCodeAnalysisEngineService extends CodeAnalysisEngineService
 		
 		// setNotificationAndForeground();
 
+		// 内存压力时逐级减少分析，而不是OOM后结束进程
+		EngineMemoryGovernor.setInstance(new EngineMemoryGovernor(new EngineMemoryGovernor.RuntimeHeapMonitor()));
+
 		AppLog.d(TAG, "onCreate");
 	}
 
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		// 立即采样，下次分析时生效
+		int memoryLevel = EngineMemoryGovernor.getInstance().forceSample();
+		AppLog.d(TAG, "onTrimMemory %d 内存级别 %d", level, memoryLevel);
+	}
+
+	@Override
+	public void onLowMemory() {
+		super.onLowMemory();
+		EngineMemoryGovernor.getInstance().forceSample();
+	}
+
 
 	@Override
 	public IBinder onBind(Intent intent) {
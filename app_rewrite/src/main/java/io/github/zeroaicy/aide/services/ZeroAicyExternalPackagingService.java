@@ -8,6 +8,7 @@ import com.aide.ui.build.packagingservice.ExternalPackagingService;
 import io.github.zeroaicy.aide.preference.ZeroAicySetting;
 import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
 import io.github.zeroaicy.aide.utils.AndroidManifestParser;
+import io.github.zeroaicy.aide.utils.BuildTrace;
 import io.github.zeroaicy.aide.utils.Utils;
 import io.github.zeroaicy.aide.utils.ZeroAicyBuildGradle;
 import io.github.zeroaicy.util.FileUtil;
@@ -31,6 +32,7 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.LinkedHashSet;
 import com.aide.ui.util.FileSystem;
@@ -66,6 +68,8 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 	@Override
 	public void onDestroy() {
 		AppLog.d(TAG, "onDestroy");
+		// 结束常驻的d8子进程
+		D8WorkerProcess.shutdown();
 		super.onDestroy();
 	}
 
@@ -127,10 +131,28 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 
 			@Override
 			public void packaging() throws Throwable {
+				BuildTrace.setEnabled(ZeroAicySetting.isEnableBuildTrace());
+				BuildTrace.Span packagingSpan = BuildTrace.begin("packaging");
+				try {
+					packagingInternal();
+				}
+				finally {
+					packagingSpan.end();
+					BuildTrace.write(packagingSpan, getDefaultIntermediatesDirPath(), "packaging");
+				}
+			}
+
+			private void packagingInternal() throws Throwable {
 				long packagingStart = Utils.nowTime();
 
 				long now = packagingStart;
-				this.initBuildEnvironment();
+				BuildTrace.Span span = BuildTrace.begin("initBuildEnvironment");
+				try {
+					this.initBuildEnvironment();
+				}
+				finally {
+					span.end();
+				}
 				AppLog.d(TAG, "initBuildEnvironment: %s ms", Utils.nowTime() - now);
 
 				if (isNotDebugFormAIDE) {
@@ -143,29 +165,54 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 				// 混淆
 				if (isMinifyAndroidProject()) {
 					now = Utils.nowTime();
-					packagingAndroidMinify();
+					span = BuildTrace.begin("minify android");
+					try {
+						packagingAndroidMinify();
+					}
+					finally {
+						span.end();
+					}
 					AppLog.d(TAG, "packaging Minify Android : %s ms", Utils.nowTime() - now);
 					return;
 				}
 
 				if (isMinifyJavaGradleProject()) {
 					now = Utils.nowTime();
-					packagingJavaGradleMinify();
+					span = BuildTrace.begin("minify java");
+					try {
+						packagingJavaGradleMinify();
+					}
+					finally {
+						span.end();
+					}
 					AppLog.d(TAG, "packaging Minify Java Gradle: %s ms", Utils.nowTime() - now);
 					return;
 				}
 
 				now = Utils.nowTime();
-				List<String> classesDexZipList = getClassesDexZipList();
+				List<String> classesDexZipList;
+				span = BuildTrace.begin("dexing");
+				try {
+					classesDexZipList = getClassesDexZipList();
+				}
+				finally {
+					span.end();
+				}
 				AppLog.d(TAG, "Dexing: %s ms", (Utils.nowTime() - now));
 
 				now = Utils.nowTime();
-				//Java工程
-				if (getOutFilePath().endsWith(".zip")) {
-					packagingJavaProject(classesDexZipList);
-				} else {
-					//打包安卓项目
-					packagingAndroidProject(classesDexZipList);
+				span = BuildTrace.begin("output");
+				try {
+					//Java工程
+					if (getOutFilePath().endsWith(".zip")) {
+						packagingJavaProject(classesDexZipList);
+					} else {
+						//打包安卓项目
+						packagingAndroidProject(classesDexZipList);
+					}
+				}
+				finally {
+					span.end();
 				}
 				AppLog.d(TAG, "output file build: %s ms", (Utils.nowTime() - now));
 
@@ -206,11 +253,24 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 
 				String dexingMergingJarDexFiles = null;
 				if (!getDexingLibs().isEmpty()) {
-					dexingMergingJarDexFiles = dexingMergingJarDexFiles();
+					BuildTrace.Span span = BuildTrace.begin("dexing libraries").addFiles(getDexingLibs().size());
+					try {
+						dexingMergingJarDexFiles = dexingMergingJarDexFiles();
+					}
+					finally {
+						span.end();
+					}
 				}
 
 				//dexing merging class文件
-				String dexingMergingClassFiles = dexingMergingClassFiles();
+				String dexingMergingClassFiles;
+				BuildTrace.Span span = BuildTrace.begin("dexing classes");
+				try {
+					dexingMergingClassFiles = dexingMergingClassFiles();
+				}
+				finally {
+					span.end();
+				}
 				//保证主dex优先添加
 				classesDexZipList.add(0, dexingMergingClassFiles);
 
@@ -285,16 +345,18 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 					// 先显示一下
 					taskDoneLister.done();
 
+					// 根据可用内存规划
+					DexingPlanner dexingPlanner = DexingPlanner.create();
+					configuration.threadCount = dexingPlanner.getThreadCount();
+					configuration.concurrency = new Semaphore(dexingPlanner.getTaskCount());
+
 					// 填充任务列表
-					fillDexingJarTasks(needDexingLibs, configuration, taskDoneLister, tasks);
+					fillDexingJarTasks(needDexingLibs, configuration, taskDoneLister, tasks, dexingPlanner);
 
 					long now = Utils.nowTime();
 
 					// DexingJarTask专用线程
-					ExecutorService threadPoolService = ThreadPoolService
-							.getThreadPoolService(DexingJarTask.ThreadPoolServiceName, 3);
-
-					List<Future<DexingJarTask>> futures = threadPoolService.invokeAll(tasks);
+					List<Future<DexingJarTask>> futures = DexingJarTask.getExecutorService().invokeAll(tasks);
 
 					for (Future<DexingJarTask> future : futures) {
 						// // 这会阻塞直到任务完成或抛出异常
@@ -331,73 +393,26 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 			}
 			/**
 			 * 对需要dexing的Jar进行分组
+			 * 分组大小由DexingPlanner根据可用内存与类数量决定
 			 */
 			private void fillDexingJarTasks(List<String> needDexingLibs, DexingJarTask.Configuration configuration,
-					DexingJarTask.TaskDoneLister taskDoneLister, List<DexingJarTask> tasks) {
-
-				final int needDexingLibsSize = needDexingLibs.size();
-
-				long filterThreshold = 8 * 1024 * 1024;
-				long filterThreshold2 = 8 * 1024 * 1024;
-
-				for (int index = 0; index < needDexingLibsSize; index++) {
-
-					String inputJarFile = needDexingLibs.get(index);
-					String outputDexZipFile = getJarDexCachePath(inputJarFile);
-					long bigInputJarFileSize = new File(inputJarFile).length();
+					DexingJarTask.TaskDoneLister taskDoneLister, List<DexingJarTask> tasks, DexingPlanner dexingPlanner) {
 
-					// 单个Jar文件大于6MB，则不用批量处理模式
-					// 防止OOM
-					if (bigInputJarFileSize > filterThreshold) {
-						DexingJarTask dexingJarTask = new DexingJarTask(inputJarFile, outputDexZipFile, configuration);
-						dexingJarTask.setTaskDoneLister(taskDoneLister);
-						tasks.add(dexingJarTask);
-						continue;
-					}
-
-					// 处理小文件
-					// 小文件集合
-					List<String> smallInputJarFiles = new ArrayList<String>();
-					List<String> smallOutputDexZipFiles = new ArrayList<String>();
-					// 添加当前输入小文件
-					smallInputJarFiles.add(inputJarFile);
-					smallOutputDexZipFiles.add(outputDexZipFile);
-					// 添加完了就应该更新索引
-					index++;
-
-					long smallInputJarFilesSize = bigInputJarFileSize;
-					// 在阈值内
-					while (smallInputJarFilesSize < filterThreshold2 && index < needDexingLibsSize) {
-
-						String inputJarFile2 = needDexingLibs.get(index);
-						String outputDexZipFile2 = getJarDexCachePath(inputJarFile2);
-
-						long fileSize2 = new File(inputJarFile2).length();
-
-						// 当前文件自己就是大文件，仍然是大文件模式
-						if (fileSize2 > filterThreshold) {
-							DexingJarTask dexingJarTask = new DexingJarTask(inputJarFile2, outputDexZipFile2,
-									configuration);
-							dexingJarTask.setTaskDoneLister(taskDoneLister);
-							tasks.add(dexingJarTask);
-						} else {
-							// 小文件
-							// 更新小文件整体大小
-							smallInputJarFilesSize += fileSize2;
-							// 添加当前输入小文件
-							smallInputJarFiles.add(inputJarFile2);
-							smallOutputDexZipFiles.add(outputDexZipFile2);
+				for (List<String> batch : dexingPlanner.planBatches(needDexingLibs)) {
+					DexingJarTask dexingJarTask;
+					if (batch.size() == 1) {
+						String inputJarFile = batch.get(0);
+						dexingJarTask = new DexingJarTask(inputJarFile, getJarDexCachePath(inputJarFile), configuration);
+					} else {
+						List<String> outputDexZipFiles = new ArrayList<String>(batch.size());
+						for (String inputJarFile : batch) {
+							outputDexZipFiles.add(getJarDexCachePath(inputJarFile));
 						}
-						// 下一个文件
-						index++;
+						dexingJarTask = new DexingJarTask(batch, outputDexZipFiles, configuration);
+						AppLog.d(TAG, "DexingJarTask内文件 %d", batch.size());
 					}
-					// 此时说明小文件集合大于阈值
-					// 启用批量模式
-					DexingJarTask dexingJarTask = new DexingJarTask(smallInputJarFiles, smallOutputDexZipFiles,
-							configuration);
 					dexingJarTask.setTaskDoneLister(taskDoneLister);
 					tasks.add(dexingJarTask);
-					AppLog.d(TAG, "DexingJarTask内文件 %d", smallInputJarFiles.size());
 				}
 			}
 
@@ -562,7 +577,13 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 
 				showProgress("Dexing - Classes", 67);
 				//dexing classFile[增量]
-				dexingClassFilesFromD8(getDefaultClassDexCacheDirPath(), incrementalClassFiles);
+				BuildTrace.Span span = BuildTrace.begin("d8 classes").addFiles(incrementalClassFiles.size());
+				try {
+					dexingClassFilesFromD8(getDefaultClassDexCacheDirPath(), incrementalClassFiles);
+				}
+				finally {
+					span.end();
+				}
 
 				showProgress("Merging - Classes", 69);
 
@@ -570,7 +591,13 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 				List<String> classeDexFiles = FileUtil
 						.Files2Strings(FileUtil.findFile(new File(getDefaultClassDexCacheDirPath()), ".dex"));
 				// 合并dex
-				mergingClassDexs(mainClassesDexZipFilePath, classeDexFiles);
+				span = BuildTrace.begin("merging classes").addFiles(classeDexFiles.size());
+				try {
+					mergingClassDexs(mainClassesDexZipFilePath, classeDexFiles);
+				}
+				finally {
+					span.end();
+				}
 
 				return mainClassesDexZipFilePath;
 			}
@@ -906,8 +933,7 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 				showProgress("构建APK", 80);
 				//未zip优化，未签名
 				File unZipAlignedSignedApkFile = getUnZipAlignSignerApkFile(true);
-				PackagingStream packagingZipOutput = new PackagingStream(
-						new FileOutputStream(unZipAlignedSignedApkFile));
+				PackagingStream packagingZipOutput = newPackagingStream(unZipAlignedSignedApkFile);
 
 				AppLog.d(TAG, "从aapt2生成文件添加资源");
 				//resources_ap_file
@@ -972,7 +998,7 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 
 				try {
 					//构建输出文件
-					PackagingStream packagingZipOutput = new PackagingStream(new FileOutputStream(outTempFile));
+					PackagingStream packagingZipOutput = newPackagingStream(outTempFile);
 					//打包dex
 					packagingDexs(dexZipPathList, packagingZipOutput);
 					
@@ -997,6 +1023,16 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 				}
 			}
 
+			/**
+			 * 条目在线程池中压缩，按添加顺序写入
+			 */
+			private PackagingStream newPackagingStream(File outFile) throws FileNotFoundException {
+				int threadCount = Runtime.getRuntime().availableProcessors();
+				ExecutorService threadPoolService = ThreadPoolService
+						.getThreadPoolService(PackagingStream.class.getSimpleName() + threadCount, threadCount);
+				return new PackagingStream(new FileOutputStream(outFile), threadPoolService);
+			}
+
 			private void packagingDexs(List<String> dexZipPathList, PackagingStream packagingZipOutput)
 					throws IOException {
 				AppLog.d(TAG, "添加classes.dex");
@@ -1015,8 +1051,7 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 				//未zip优化，未签名
 				File unZipAlignedUnSignedApkFile = getUnZipAlignSignerApkFile(true);
 
-				PackagingStream packagingZipOutput = new PackagingStream(
-						new FileOutputStream(unZipAlignedUnSignedApkFile));
+				PackagingStream packagingZipOutput = newPackagingStream(unZipAlignedUnSignedApkFile);
 				//resources_ap_file
 				String aAptResourceFilePath = getAAptResourceFilePath();
 				AppLog.d(TAG, "Adding aapt generated resources from " + aAptResourceFilePath);
@@ -1058,18 +1093,34 @@ public class ZeroAicyExternalPackagingService extends ExternalPackagingService {
 
 				//优化apk
 				showProgress("ZeroAicy Zipalign APK ", 85);
-				// zipalign命令路径 优化前，未签名 优化后，未签名
-				File unSignedApkFile = ApkSignerService.zipalignApk(getZipalignLibPath(),
-						getUnZipAlignSignerApkFile(false), getUnSignedApkFile(true));
+				File unSignedApkFile;
+				BuildTrace.Span span = BuildTrace.begin("zipalign");
+				try {
+					// zipalign命令路径 优化前，未签名 优化后，未签名
+					unSignedApkFile = ApkSignerService.zipalignApk(getZipalignLibPath(),
+							getUnZipAlignSignerApkFile(false), getUnSignedApkFile(true));
+					span.addFiles(1).addBytes(unSignedApkFile.length());
+				}
+				finally {
+					span.end();
+				}
 
 				//签名
 				AppLog.d(TAG, "开始Signing APK: ");
 				long now = Utils.nowTime();
 				//-zipaligned-unsigned 
 				showProgress("ZeroAicy Signing APK ", 90);
-				ApkSignerService.signerApk(getMinSdk(), getSignaturePath(), getSignatureAlias(),
-						getSignatureAliasPassword(), getSignaturePassword(), unSignedApkFile,
-						new File(getOutFilePath()));
+				span = BuildTrace.begin("sign");
+				try {
+					File outFile = new File(getOutFilePath());
+					ApkSignerService.signerApk(getMinSdk(), getSignaturePath(), getSignatureAlias(),
+							getSignatureAliasPassword(), getSignaturePassword(), unSignedApkFile,
+							outFile);
+					span.addFiles(1).addBytes(outFile.length());
+				}
+				finally {
+					span.end();
+				}
 
 				AppLog.d(TAG, "Signing APK共用时: %sms", Utils.nowTime() - now);
 			}
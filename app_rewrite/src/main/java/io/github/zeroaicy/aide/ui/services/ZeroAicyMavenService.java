@@ -16,9 +16,9 @@ import com.aide.ui.util.MavenDependencyVersion;
 import com.aide.ui.util.MavenMetadataXml;
 import com.aide.ui.util.PomXml;
 import io.github.zeroaicy.aide.extend.ZeroAicyExtensionInterface;
+import io.github.zeroaicy.aide.utils.AarExtractor;
 import io.github.zeroaicy.util.IOUtils;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -688,15 +688,18 @@ public class ZeroAicyMavenService {
 		00, 00};
     private void extractedAar(String aarPath, String outDir) {
         try {
-            if (P8(aarPath, outDir)) {
+            if (!AarExtractor.isExtracted(outDir)
+				&& P8(aarPath, outDir)) {
+				// 旧版本完整解压的目录
                 return;
             }
             try {
+				// 解压除lint.jar外的所有成员，aar未改变时跳过
 				// GradleTools isAarEexplodedPath判断的条件是
 				// 必须有 AndroidManifest.xml 和 classes.jar
 				// 但 androidx.graphics:graphics-shapes:1.0.1没有
 				// 所以解压完成后检查一下
-                FileSystem.unZip(new FileInputStream(aarPath), outDir, true);
+                AarExtractor.extract(aarPath, outDir);
 				if (!GradleTools.isAarEexplodedPath(outDir)) {
 					// 写入一个空classes.jar，共22b
 					FileOutputStream classesJarOutputStream = null;
@@ -709,7 +712,6 @@ public class ZeroAicyMavenService {
 						IOUtils.close(classesJarOutputStream);
 					}
 				}
-                AppLog.d("Extracted AAR " + aarPath);
             }
 			catch (IOException e) {
                 e.printStackTrace();
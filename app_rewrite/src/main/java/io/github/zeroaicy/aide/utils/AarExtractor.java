@@ -0,0 +1,262 @@
+package io.github.zeroaicy.aide.utils;
+
+import com.aide.common.AppLog;
+import io.github.zeroaicy.util.FileUtil;
+import io.github.zeroaicy.util.IOUtils;
+import io.github.zeroaicy.util.MD5Util;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 解压aar，aar未改变时跳过
+ * 除lint.jar外全部解压，不按需解压成员
+ * res assets jni 由代码补全与底包的项目支持直接按目录读取，不能延迟
+ *
+ * 解压目录中的标记文件记录 aar路径、大小、修改时间、摘要
+ * aar未改变时不再解压，改变时先清空解压目录
+ * 格式:
+ * 版本
+ * aar路径
+ * 大小 修改时间 摘要
+ */
+public class AarExtractor {
+
+	private static final String TAG = "AarExtractor";
+
+	public static final String MARKER_FILE_NAME = ".aar-extracted";
+
+	// 旧版本标记对应的目录可能缺少res等，版本不同时重新解压
+	private static final String MARKER_VERSION = "2";
+
+	public static final String LINT_JAR = "lint.jar";
+
+	/**
+	 * 不解压的成员 目录以/结尾
+	 * lint.jar 只用于lint检查
+	 */
+	private static final String[] SKIPPED_MEMBERS = {LINT_JAR};
+
+	private static class Marker {
+		final String aarPath;
+		final long size;
+		final long lastModified;
+		final String digest;
+
+		Marker(String aarPath, long size, long lastModified, String digest) {
+			this.aarPath = aarPath;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.digest = digest;
+		}
+
+		boolean isSameAar(File aarFile) {
+			return this.size == aarFile.length()
+				&& this.lastModified == aarFile.lastModified();
+		}
+	}
+
+	/**
+	 * 是否由AarExtractor解压
+	 */
+	public static boolean isExtracted(String outDir) {
+		return new File(outDir, MARKER_FILE_NAME).isFile();
+	}
+
+	/**
+	 * 解压除lint.jar外的所有成员
+	 * aar未改变时什么也不做
+	 */
+	public static synchronized void extract(String aarPath, String outDir) throws IOException {
+		File aarFile = new File(aarPath);
+		Marker marker = readMarker(outDir);
+		if (marker != null
+			&& marker.aarPath.equals(aarPath)) {
+			if (marker.isSameAar(aarFile)) {
+				return;
+			}
+			// 只有修改时间变化[重新下载]时比较摘要
+			String digest = digest(aarFile);
+			if (digest.equals(marker.digest)) {
+				writeMarker(outDir, new Marker(aarPath, aarFile.length(), aarFile.lastModified(), digest));
+				return;
+			}
+			extract(aarFile, outDir, digest);
+			return;
+		}
+		extract(aarFile, outDir, digest(aarFile));
+	}
+
+	private static void extract(File aarFile, String outDir, String digest) throws IOException {
+		// 先读取大小与修改时间，解压期间aar被修改时下次会重新解压
+		long size = aarFile.length();
+		long lastModified = aarFile.lastModified();
+
+		// 清空解压目录，不保留旧aar中已删除的文件
+		File outDirFile = new File(outDir);
+		FileUtil.deleteFolder(outDirFile);
+
+		unZip(aarFile, outDirFile);
+
+		writeMarker(outDir, new Marker(aarFile.getPath(), size, lastModified, digest));
+		AppLog.d(TAG, "Extracted AAR %s", aarFile.getPath());
+	}
+
+	/**
+	 * 解压所有未跳过的成员
+	 */
+	private static void unZip(File aarFile, File outDirFile) throws IOException {
+		outDirFile.mkdirs();
+		String outDirCanonicalPath = outDirFile.getCanonicalPath() + File.separator;
+		byte[] buffer = new byte[64 * 1024];
+
+		ZipFile zipFile = null;
+		try {
+			zipFile = new ZipFile(aarFile);
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry zipEntry = entries.nextElement();
+				String name = zipEntry.getName();
+
+				if (isMember(SKIPPED_MEMBERS, name)) {
+					continue;
+				}
+
+				File outputFile = new File(outDirFile, name);
+				if (!outputFile.getCanonicalPath().startsWith(outDirCanonicalPath)) {
+					// zip路径穿越
+					continue;
+				}
+				if (zipEntry.isDirectory()) {
+					outputFile.mkdirs();
+					continue;
+				}
+				outputFile.getParentFile().mkdirs();
+
+				InputStream input = null;
+				OutputStream output = null;
+				try {
+					input = zipFile.getInputStream(zipEntry);
+					output = new FileOutputStream(outputFile);
+					int read;
+					while ((read = input.read(buffer)) > 0) {
+						output.write(buffer, 0, read);
+					}
+				}
+				finally {
+					IOUtils.close(input);
+					IOUtils.close(output);
+				}
+			}
+		}
+		finally {
+			IOUtils.close(zipFile);
+		}
+	}
+
+	private static boolean isMember(String[] members, String name) {
+		for (String member : members) {
+			if (isMember(member, name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isMember(String member, String name) {
+		if (member.endsWith("/")) {
+			return name.startsWith(member);
+		}
+		return name.equals(member);
+	}
+
+	private static Marker readMarker(String outDir) {
+		File markerFile = new File(outDir, MARKER_FILE_NAME);
+		if (!markerFile.isFile()) {
+			return null;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(markerFile), StandardCharsets.UTF_8));
+			if (!MARKER_VERSION.equals(reader.readLine())) {
+				return null;
+			}
+			String aarPath = reader.readLine();
+			String stampLine = reader.readLine();
+			if (aarPath == null || stampLine == null) {
+				return null;
+			}
+			String[] stamp = stampLine.split(" ");
+			if (stamp.length != 3) {
+				return null;
+			}
+			return new Marker(aarPath, Long.parseLong(stamp[0]), Long.parseLong(stamp[1]), stamp[2]);
+		}
+		catch (IOException | RuntimeException e) {
+			return null;
+		}
+		finally {
+			IOUtils.close(reader);
+		}
+	}
+
+	/**
+	 * 写入临时文件后重命名
+	 */
+	private static void writeMarker(String outDir, Marker marker) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		builder.append(MARKER_VERSION).append('\n')
+			.append(marker.aarPath).append('\n')
+			.append(marker.size).append(' ')
+			.append(marker.lastModified).append(' ')
+			.append(marker.digest).append('\n');
+
+		File markerFile = new File(outDir, MARKER_FILE_NAME);
+		File tempFile = new File(markerFile.getPath() + ".tmp");
+		FileOutputStream output = null;
+		try {
+			output = new FileOutputStream(tempFile);
+			output.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+			output.close();
+			output = null;
+			if (!tempFile.renameTo(markerFile)) {
+				throw new IOException("Could not write " + markerFile.getPath());
+			}
+		}
+		finally {
+			IOUtils.close(output);
+			tempFile.delete();
+		}
+	}
+
+	private static String digest(File aarFile) throws IOException {
+		InputStream input = null;
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+			input = new FileInputStream(aarFile);
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				messageDigest.update(buffer, 0, read);
+			}
+			return MD5Util.byteArrayToHex(messageDigest.digest());
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		finally {
+			IOUtils.close(input);
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package io.github.zeroaicy.aide.utils;
+
+import com.aide.common.AppLog;
+import io.github.zeroaicy.util.IOUtils;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 已安装asset的清单
+ * asset的 大小与crc 直接取自apk的zip中央目录[打包时生成]，无需读取内容
+ * 清单保存在解压文件旁 [outputPath].manifest
+ *
+ * 格式:
+ * asset 大小 crc
+ * 大小 crc 成员路径 [仅解压的asset]
+ */
+public class AssetManifest {
+
+	private static final String TAG = "AssetManifest";
+
+	private static final String MANIFEST_SUFFIX = ".manifest";
+	private static final String ASSET_LINE_PREFIX = "asset ";
+
+	/**
+	 * 大小与crc
+	 */
+	public static class Stamp {
+		public final long size;
+		public final long crc;
+
+		public Stamp(long size, long crc) {
+			this.size = size;
+			this.crc = crc;
+		}
+
+		public boolean isSame(Stamp other) {
+			return other != null
+				&& this.size == other.size
+				&& this.crc == other.crc;
+		}
+	}
+
+	// asset本身
+	private final Stamp assetStamp;
+	// 解压的asset 成员路径 -> 大小与crc
+	private final Map<String, Stamp> members;
+
+	public AssetManifest(Stamp assetStamp, Map<String, Stamp> members) {
+		this.assetStamp = assetStamp;
+		this.members = members;
+	}
+
+	public Stamp getAssetStamp() {
+		return this.assetStamp;
+	}
+
+	public Map<String, Stamp> getMembers() {
+		return this.members;
+	}
+
+	/*****************************************************************/
+
+	/**
+	 * 从apk中央目录读取asset的大小与crc
+	 * 按顺序尝试 assetNames，都不存在时返回null
+	 * 读取后关闭apk，不长期占用文件句柄
+	 */
+	public static Stamp getApkAssetStamp(String apkPath, String... assetNames) {
+		ZipFile apkZipFile = null;
+		try {
+			apkZipFile = new ZipFile(apkPath);
+			for (String assetName : assetNames) {
+				ZipEntry zipEntry = apkZipFile.getEntry("assets/" + assetName);
+				if (zipEntry != null
+					&& zipEntry.getSize() >= 0
+					&& zipEntry.getCrc() != -1) {
+					return new Stamp(zipEntry.getSize(), zipEntry.getCrc());
+				}
+			}
+		}
+		catch (IOException e) {
+			AppLog.e(TAG, "读取apk失败: " + apkPath, e);
+		}
+		finally {
+			IOUtils.close(apkZipFile);
+		}
+		return null;
+	}
+
+	public static File getManifestFile(String outputPath) {
+		return new File(outputPath + MANIFEST_SUFFIX);
+	}
+
+	/**
+	 * 不存在或损坏时返回null
+	 */
+	public static AssetManifest read(String outputPath) {
+		File manifestFile = getManifestFile(outputPath);
+		if (!manifestFile.isFile()) {
+			return null;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8));
+			String line = reader.readLine();
+			if (line == null || !line.startsWith(ASSET_LINE_PREFIX)) {
+				return null;
+			}
+			String[] assetLine = line.substring(ASSET_LINE_PREFIX.length()).split(" ");
+			Stamp assetStamp = new Stamp(Long.parseLong(assetLine[0]), Long.parseLong(assetLine[1]));
+
+			Map<String, Stamp> members = new LinkedHashMap<>();
+			while ((line = reader.readLine()) != null) {
+				// 路径可能包含空格
+				int sizeEnd = line.indexOf(' ');
+				int crcEnd = line.indexOf(' ', sizeEnd + 1);
+				if (sizeEnd < 0 || crcEnd < 0) {
+					return null;
+				}
+				members.put(line.substring(crcEnd + 1),
+							new Stamp(Long.parseLong(line.substring(0, sizeEnd)), Long.parseLong(line.substring(sizeEnd + 1, crcEnd))));
+			}
+			return new AssetManifest(assetStamp, members);
+		}
+		catch (IOException | RuntimeException e) {
+			return null;
+		}
+		finally {
+			IOUtils.close(reader);
+		}
+	}
+
+	/**
+	 * 写入临时文件后重命名
+	 */
+	public void write(String outputPath) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(ASSET_LINE_PREFIX)
+			.append(this.assetStamp.size).append(' ')
+			.append(this.assetStamp.crc).append('\n');
+		if (this.members != null) {
+			for (Map.Entry<String, Stamp> entry : this.members.entrySet()) {
+				Stamp stamp = entry.getValue();
+				builder.append(stamp.size).append(' ')
+					.append(stamp.crc).append(' ')
+					.append(entry.getKey()).append('\n');
+			}
+		}
+
+		File manifestFile = getManifestFile(outputPath);
+		File tempFile = new File(manifestFile.getPath() + ".tmp");
+		FileOutputStream output = null;
+		try {
+			output = new FileOutputStream(tempFile);
+			output.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+			output.close();
+			output = null;
+			if (tempFile.renameTo(manifestFile)) {
+				return;
+			}
+		}
+		catch (IOException e) {
+			AppLog.e(TAG, "写入清单失败: " + manifestFile.getPath(), e);
+		}
+		finally {
+			IOUtils.close(output);
+		}
+		tempFile.delete();
+	}
+
+	/**
+	 * 解压zip，只写入与旧清单不同的成员
+	 * 删除旧清单中已不存在的成员
+	 * 返回新的成员清单
+	 */
+	public static Map<String, Stamp> unZipChanged(InputStream inputStream, String outputPath, Map<String, Stamp> oldMembers) throws IOException {
+		File outputDir = new File(outputPath);
+		outputDir.mkdirs();
+		String outputDirCanonicalPath = outputDir.getCanonicalPath() + File.separator;
+
+		Map<String, Stamp> members = new LinkedHashMap<>();
+		byte[] buffer = new byte[64 * 1024];
+
+		ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+		try {
+			ZipEntry zipEntry;
+			while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+				String name = zipEntry.getName();
+				File outputFile = new File(outputDir, name);
+				if (!outputFile.getCanonicalPath().startsWith(outputDirCanonicalPath)) {
+					// zip路径穿越
+					continue;
+				}
+				if (zipEntry.isDirectory()) {
+					outputFile.mkdirs();
+					continue;
+				}
+
+				Stamp oldStamp = oldMembers == null ? null : oldMembers.get(name);
+				boolean existsSameLength = oldStamp != null
+					&& outputFile.isFile()
+					&& outputFile.length() == oldStamp.size;
+
+				// 本地头中有大小与crc时无需解压即可比较
+				if (zipEntry.getSize() >= 0 && zipEntry.getCrc() != -1) {
+					Stamp stamp = new Stamp(zipEntry.getSize(), zipEntry.getCrc());
+					members.put(name, stamp);
+					if (existsSameLength && stamp.isSame(oldStamp)) {
+						continue;
+					}
+				}
+
+				// 先写入临时文件，内容未变时保留原文件
+				File parentFile = outputFile.getParentFile();
+				parentFile.mkdirs();
+				File tempFile = new File(parentFile, outputFile.getName() + ".tmp");
+
+				CRC32 crc32 = new CRC32();
+				long size = 0;
+				OutputStream output = new FileOutputStream(tempFile);
+				try {
+					int read;
+					while ((read = zipInputStream.read(buffer)) > 0) {
+						output.write(buffer, 0, read);
+						crc32.update(buffer, 0, read);
+						size += read;
+					}
+				}
+				finally {
+					IOUtils.close(output);
+				}
+
+				Stamp stamp = new Stamp(size, crc32.getValue());
+				members.put(name, stamp);
+
+				if (existsSameLength && stamp.isSame(oldStamp)) {
+					tempFile.delete();
+					continue;
+				}
+				outputFile.delete();
+				if (!tempFile.renameTo(outputFile)) {
+					tempFile.delete();
+					throw new IOException("Could not write " + outputFile.getPath());
+				}
+			}
+		}
+		finally {
+			IOUtils.close(zipInputStream);
+		}
+
+		if (oldMembers != null) {
+			for (String name : oldMembers.keySet()) {
+				if (!members.containsKey(name)) {
+					new File(outputDir, name).delete();
+				}
+			}
+		}
+		return members;
+	}
+}
@@ -0,0 +1,321 @@
+package io.github.zeroaicy.aide.utils;
+
+import com.aide.common.AppLog;
+import io.github.zeroaicy.util.IOUtils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 构建耗时追踪
+ * 记录各阶段的 开始结束时间、线程、父阶段以及处理的文件数与字节数
+ * 写入 Chrome trace-event 格式的json，可以用 chrome://tracing 或 Perfetto 打开
+ * 已结束的Span按根Span分组，aapt2、ecj与打包同时进行时各自只写入自己的Span
+ *
+ * 未启用时 begin返回共享的空Span，只有一次volatile读取
+ */
+public final class BuildTrace {
+
+	private static final String TAG = "BuildTrace";
+
+	// trace文件所在的 intermediates 子目录
+	public static final String TRACE_DIR_NAME = "trace";
+
+	private static volatile boolean enabled;
+
+	private static final AtomicInteger nextSpanId = new AtomicInteger(1);
+
+	// 当前线程未结束的最内层Span
+	private static final ThreadLocal<Span> currentSpan = new ThreadLocal<>();
+
+	// 根Span -> 已结束的Span
+	private static final Map<Span, List<Span>> finishedSpans = new HashMap<>();
+
+	private BuildTrace() {}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		BuildTrace.enabled = enabled;
+	}
+
+	/**
+	 * 开始一个Span，父Span为当前线程未结束的最内层Span
+	 */
+	public static Span begin(String name) {
+		if (!enabled) {
+			return Span.NONE;
+		}
+		return start(name, currentSpan.get());
+	}
+
+	/**
+	 * 开始一个Span，用于父Span在其它线程的情况
+	 */
+	public static Span begin(String name, Span parent) {
+		if (!enabled) {
+			return Span.NONE;
+		}
+		return start(name, parent == Span.NONE ? null : parent);
+	}
+
+	private static Span start(String name, Span parent) {
+		Thread thread = Thread.currentThread();
+		Span span = new Span(nextSpanId.getAndIncrement(), parent, name, thread.getId(), thread.getName(), currentSpan.get());
+		currentSpan.set(span);
+		return span;
+	}
+
+	/**
+	 * 将根Span下已结束的Span写入 intermediatesDir/trace/name.json 并移除
+	 * 没有Span时不写入，未启用时也移除
+	 */
+	public static void write(Span root, String intermediatesDir, String name) {
+		if (root == Span.NONE) {
+			return;
+		}
+		List<Span> spans;
+		synchronized (finishedSpans) {
+			spans = finishedSpans.remove(root);
+		}
+		if (spans == null
+			|| spans.isEmpty()
+			|| !enabled) {
+			return;
+		}
+		File traceFile = new File(new File(intermediatesDir, TRACE_DIR_NAME), name + ".json");
+		try {
+			writeTraceEvents(traceFile, spans, android.os.Process.myPid());
+			AppLog.d(TAG, "写入 %s", traceFile.getPath());
+		}
+		catch (Throwable e) {
+			AppLog.e(TAG, "写入trace失败", e);
+		}
+	}
+
+	/**
+	 * 移除根Span下已结束的Span 不写入
+	 */
+	public static void discard(Span root) {
+		synchronized (finishedSpans) {
+			finishedSpans.remove(root);
+		}
+	}
+
+	/**
+	 * 根Span下已结束的Span 按结束顺序
+	 */
+	public static List<Span> getFinishedSpans(Span root) {
+		synchronized (finishedSpans) {
+			List<Span> spans = finishedSpans.get(root);
+			return spans == null ? new ArrayList<Span>() : new ArrayList<>(spans);
+		}
+	}
+
+	static void writeTraceEvents(File traceFile, List<Span> spans, int pid) throws IOException {
+		File parentFile = traceFile.getParentFile();
+		if (!parentFile.exists()) {
+			parentFile.mkdirs();
+		}
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(traceFile), "UTF-8"));
+			writeTraceEvents(writer, spans, pid);
+		}
+		finally {
+			IOUtils.close(writer);
+		}
+	}
+
+	static void writeTraceEvents(Writer writer, List<Span> spans, int pid) throws IOException {
+		writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+		boolean first = true;
+
+		// 线程名
+		Map<Long, String> threadNames = new HashMap<>();
+		for (Span span : spans) {
+			threadNames.put(span.threadId, span.threadName);
+		}
+		for (Map.Entry<Long, String> entry : threadNames.entrySet()) {
+			if (!first) {
+				writer.write(',');
+			}
+			first = false;
+			writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":");
+			writer.write(Integer.toString(pid));
+			writer.write(",\"tid\":");
+			writer.write(Long.toString(entry.getKey()));
+			writer.write(",\"args\":{\"name\":");
+			writeString(writer, entry.getValue());
+			writer.write("}}");
+		}
+
+		// 完整事件 ts dur 单位为微秒
+		for (Span span : spans) {
+			if (!first) {
+				writer.write(',');
+			}
+			first = false;
+			writer.write("{\"name\":");
+			writeString(writer, span.name);
+			writer.write(",\"cat\":\"build\",\"ph\":\"X\",\"ts\":");
+			writer.write(Long.toString(span.startNanos / 1000));
+			writer.write(",\"dur\":");
+			writer.write(Long.toString((span.endNanos - span.startNanos) / 1000));
+			writer.write(",\"pid\":");
+			writer.write(Integer.toString(pid));
+			writer.write(",\"tid\":");
+			writer.write(Long.toString(span.threadId));
+			writer.write(",\"args\":{\"id\":");
+			writer.write(Integer.toString(span.id));
+			writer.write(",\"parent\":");
+			writer.write(Integer.toString(span.parentId));
+			writer.write(",\"files\":");
+			writer.write(Long.toString(span.files.get()));
+			writer.write(",\"bytes\":");
+			writer.write(Long.toString(span.bytes.get()));
+			writer.write("}}");
+		}
+		writer.write("]}");
+	}
+
+	private static void writeString(Writer writer, String value) throws IOException {
+		writer.write('"');
+		for (int i = 0, length = value.length(); i < length; i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"' :
+					writer.write("\\\"");
+					break;
+				case '\\' :
+					writer.write("\\\\");
+					break;
+				case '\n' :
+					writer.write("\\n");
+					break;
+				case '\r' :
+					writer.write("\\r");
+					break;
+				case '\t' :
+					writer.write("\\t");
+					break;
+				default :
+					if (c < 0x20) {
+						writer.write(String.format("\\u%04x", (int) c));
+					} else {
+						writer.write(c);
+					}
+			}
+		}
+		writer.write('"');
+	}
+
+	public static class Span {
+
+		// 未启用时使用
+		static final Span NONE = new Span(0, null, "", 0, "", null);
+
+		final int id;
+		final int parentId;
+		// 所属的trace
+		final Span root;
+		final String name;
+		final long threadId;
+		final String threadName;
+		// 开始时当前线程的Span，结束时恢复
+		private final Span previous;
+
+		final long startNanos;
+		long endNanos;
+
+		final AtomicLong files = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+
+		private Span(int id, Span parent, String name, long threadId, String threadName, Span previous) {
+			this.id = id;
+			this.parentId = parent == null ? 0 : parent.id;
+			this.root = parent == null ? this : parent.root;
+			this.name = name;
+			this.threadId = threadId;
+			this.threadName = threadName;
+			this.previous = previous;
+			this.startNanos = System.nanoTime();
+		}
+
+		public int getId() {
+			return this.id;
+		}
+
+		public int getParentId() {
+			return this.parentId;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Span getRoot() {
+			return this.root;
+		}
+
+		public long getDurationNanos() {
+			return this.endNanos - this.startNanos;
+		}
+
+		public Span addFiles(long count) {
+			if (this != NONE) {
+				this.files.addAndGet(count);
+			}
+			return this;
+		}
+
+		public Span addBytes(long count) {
+			if (this != NONE) {
+				this.bytes.addAndGet(count);
+			}
+			return this;
+		}
+
+		/**
+		 * 结束Span 必须在开始的线程调用
+		 * 因异常未结束的子Span不会记录，当前Span恢复为此Span开始前的Span
+		 */
+		public void end() {
+			if (this == NONE || this.endNanos != 0) {
+				return;
+			}
+			this.endNanos = System.nanoTime();
+
+			Span span = currentSpan.get();
+			while (span != null && span != this) {
+				span = span.previous;
+			}
+			if (span == this) {
+				if (this.previous == null) {
+					currentSpan.remove();
+				} else {
+					currentSpan.set(this.previous);
+				}
+			}
+			synchronized (finishedSpans) {
+				List<Span> spans = finishedSpans.get(this.root);
+				if (spans == null) {
+					spans = new ArrayList<>();
+					finishedSpans.put(this.root, spans);
+				}
+				spans.add(this);
+			}
+		}
+	}
+}
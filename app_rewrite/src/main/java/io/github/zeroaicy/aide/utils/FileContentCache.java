@@ -0,0 +1,109 @@
+package io.github.zeroaicy.aide.utils;
+
+import io.github.zeroaicy.util.IOUtils;
+import io.github.zeroaicy.util.MD5Util;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按文件内容缓存解析结果
+ * 大小与修改时间不变时直接复用，变化时比较内容摘要，内容不变也不再重新解析
+ */
+public class FileContentCache<V> {
+
+	public interface Loader<V> {
+		V load(String path);
+	}
+
+	private static class Entry<V> {
+		final long length;
+		final long lastModified;
+		final String contentDigest;
+		final V value;
+
+		Entry(long length, long lastModified, String contentDigest, V value) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.contentDigest = contentDigest;
+			this.value = value;
+		}
+	}
+
+	private final Map<String, Entry<V>> entries = new HashMap<>();
+	private final Loader<V> loader;
+
+	public FileContentCache(Loader<V> loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * 文件不存在或无法读取时返回null
+	 * 解析在锁外进行，不同文件可以并行解析
+	 */
+	public V get(String path) {
+		File file = new File(path);
+		long length = file.length();
+		long lastModified = file.lastModified();
+		if (lastModified == 0) {
+			return null;
+		}
+
+		Entry<V> entry;
+		synchronized (this.entries) {
+			entry = this.entries.get(path);
+		}
+		if (entry != null
+			&& entry.length == length
+			&& entry.lastModified == lastModified) {
+			return entry.value;
+		}
+
+		String contentDigest = getContentDigest(path);
+		if (contentDigest == null) {
+			return null;
+		}
+		V value;
+		if (entry != null
+			&& entry.contentDigest.equals(contentDigest)) {
+			// 只有修改时间变化
+			value = entry.value;
+		} else {
+			value = this.loader.load(path);
+		}
+		synchronized (this.entries) {
+			this.entries.put(path, new Entry<V>(length, lastModified, contentDigest, value));
+		}
+		return value;
+	}
+
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	private static String getContentDigest(String path) {
+		FileInputStream inputStream = null;
+		try {
+			inputStream = new FileInputStream(path);
+			MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) > 0) {
+				messageDigest.update(buffer, 0, read);
+			}
+			return MD5Util.byteArrayToHex(messageDigest.digest());
+		}
+		catch (IOException | NoSuchAlgorithmException e) {
+			return null;
+		}
+		finally {
+			IOUtils.close(inputStream);
+		}
+	}
+}
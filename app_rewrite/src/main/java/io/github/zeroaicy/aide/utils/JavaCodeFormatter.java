@@ -0,0 +1,208 @@
+package io.github.zeroaicy.aide.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jdt.internal.formatter.DefaultCodeFormatter;
+import org.eclipse.jdt.internal.formatter.DefaultCodeFormatterOptions;
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+
+/**
+ * ECJ格式化java代码，结果为基于格式化前文本的最小修改
+ * 不依赖编辑器，由 abcd.ma 应用到EditorModel
+ */
+public class JavaCodeFormatter {
+
+	// 防止污染 defaultSettingsMap
+	private static final Map<String, String> defaultSettingsMap = DefaultCodeFormatterOptions.getDefaultSettings()
+	.getMap();
+
+	// DefaultCodeFormatter不是线程安全的
+	private static final Object codeFormatterLock = new Object();
+	// 设置不变时复用
+	private static Map<String, String> codeFormatterSettings;
+	private static DefaultCodeFormatter codeFormatter;
+
+	private static DefaultCodeFormatter getCodeFormatter(Map<String, String> settings) {
+		if (codeFormatter == null 
+			|| !settings.equals(codeFormatterSettings)) {
+			// 防止污染 settings
+			codeFormatterSettings = new HashMap<String, String>(settings);
+			codeFormatter = new DefaultCodeFormatter(new HashMap<String, String>(settings));
+		}
+		return codeFormatter;
+	}
+
+	/**
+	 * 格式化的行 从1开始 startLine为0时格式化整个文件
+	 * 格式化区域时ECJ按区域之前代码的缩进对齐
+	 * 返回按偏移排序的修改，没有修改时返回空列表
+	 */
+	public static List<FormatEdit> format(String inputText, int startLine, int endLine) {
+		int[] lineStarts = getLineStarts(inputText);
+
+		// 格式化区域
+		int offset = 0;
+		int length = inputText.length();
+		if (startLine > 0 
+			&& startLine <= lineStarts.length) {
+			offset = lineStarts[startLine - 1];
+			// 不包含最后一行的换行符，否则会修改下一行的缩进
+			int end = endLine < lineStarts.length ? lineStarts[endLine] - 1 : inputText.length();
+			length = Math.max(0, end - offset);
+		}
+
+		int kind = CodeFormatter.K_COMPILATION_UNIT;
+		int indentationLevel = 0;
+		String lineSeparator = "\n";
+
+		// 修改增量 基于 charArray offset
+		TextEdit edit;
+		synchronized (codeFormatterLock) {
+			edit = getCodeFormatter(defaultSettingsMap).format(kind, inputText, offset, length, indentationLevel,
+															   lineSeparator);
+		}
+		if (edit == null) {
+			return Collections.emptyList();
+		}
+
+		List<FormatEdit> edits = new ArrayList<>();
+		collectEdits(edit, inputText, edits);
+		Collections.sort(edits);
+		return edits;
+	}
+
+	/**
+	 * 展开TextEdit树，去掉没有改变内容的修改
+	 * 并去掉修改前后相同的首尾字符
+	 */
+	static void collectEdits(TextEdit edit, String inputText, List<FormatEdit> edits) {
+		if (edit.hasChildren()) {
+			for (TextEdit child : edit.getChildren()) {
+				collectEdits(child, inputText, edits);
+			}
+			return;
+		}
+		String text;
+		if (edit instanceof ReplaceEdit) {
+			text = ((ReplaceEdit) edit).getText();
+		} else if (edit instanceof InsertEdit) {
+			text = ((InsertEdit) edit).getText();
+		} else if (edit instanceof DeleteEdit) {
+			text = "";
+		} else {
+			return;
+		}
+
+		int offset = edit.getOffset();
+		int length = edit.getLength();
+
+		// 相同的前缀
+		int prefix = 0;
+		int maxPrefix = Math.min(length, text.length());
+		while (prefix < maxPrefix
+			   && inputText.charAt(offset + prefix) == text.charAt(prefix)) {
+			prefix++;
+		}
+		// 相同的后缀
+		int suffix = 0;
+		int maxSuffix = maxPrefix - prefix;
+		while (suffix < maxSuffix
+			   && inputText.charAt(offset + length - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+			suffix++;
+		}
+		if (prefix + suffix == length 
+			&& prefix + suffix == text.length()) {
+			// 没有改变
+			return;
+		}
+		edits.add(new FormatEdit(offset + prefix, length - prefix - suffix, text.substring(prefix, text.length() - suffix)));
+	}
+
+	/**
+	 * 应用修改后的文本
+	 */
+	public static String apply(String inputText, List<FormatEdit> edits) {
+		StringBuilder outputText = new StringBuilder(inputText);
+		for (int i = edits.size() - 1; i >= 0; i--) {
+			FormatEdit formatEdit = edits.get(i);
+			outputText.replace(formatEdit.offset, formatEdit.offset + formatEdit.length, formatEdit.text);
+		}
+		return outputText.toString();
+	}
+
+	/**
+	 * 格式化前的偏移 -> 格式化后的偏移
+	 * 位于修改中时移到修改之后
+	 */
+	public static int getOutputOffset(List<FormatEdit> edits, int offset) {
+		int delta = 0;
+		for (FormatEdit formatEdit : edits) {
+			if (formatEdit.offset + formatEdit.length <= offset) {
+				delta += formatEdit.text.length() - formatEdit.length;
+			} else if (formatEdit.offset < offset) {
+				return formatEdit.offset + delta + formatEdit.text.length();
+			} else {
+				break;
+			}
+		}
+		return offset + delta;
+	}
+
+	/**
+	 * 每行起始偏移
+	 */
+	public static int[] getLineStarts(CharSequence text) {
+		int lineCount = 1;
+		for (int i = 0, length = text.length(); i < length; i++) {
+			if (text.charAt(i) == '\n') {
+				lineCount++;
+			}
+		}
+		int[] lineStarts = new int[lineCount];
+		for (int i = 0, line = 1, length = text.length(); i < length; i++) {
+			if (text.charAt(i) == '\n') {
+				lineStarts[line++] = i + 1;
+			}
+		}
+		return lineStarts;
+	}
+
+	/**
+	 * 偏移所在的行 从0开始
+	 */
+	public static int getLine(int[] lineStarts, int offset) {
+		int index = Arrays.binarySearch(lineStarts, offset);
+		if (index >= 0) {
+			return index;
+		}
+		return Math.max(0, -index - 2);
+	}
+
+	/**
+	 * 基于格式化前文本的修改
+	 */
+	public static class FormatEdit implements Comparable<FormatEdit> {
+		public final int offset;
+		public final int length;
+		public final String text;
+
+		public FormatEdit(int offset, int length, String text) {
+			this.offset = offset;
+			this.length = length;
+			this.text = text;
+		}
+
+		@Override
+		public int compareTo(FormatEdit other) {
+			return Integer.compare(this.offset, other.offset);
+		}
+	}
+}
@@ -8,6 +8,7 @@ import android.text.TextUtils;
 import com.aide.common.AppLog;
 import com.aide.engine.SyntaxError;
 import com.aide.ui.ServiceContainer;
+import com.aide.ui.services.ProjectService;
 import com.aide.ui.services.AssetInstallationService;
 import com.aide.ui.util.ArtifactNode;
 import com.aide.ui.util.BuildGradle;
@@ -15,6 +16,7 @@ import com.aide.ui.util.FileSystem;
 import groovyjarjarantlr.TokenStreamRecognitionException;
 import groovyjarjarantlr.collections.AST;
 import io.github.zeroaicy.util.ContextUtil;
+import io.github.zeroaicy.aide.ui.services.ThreadPoolService;
 import io.github.zeroaicy.util.IOUtils;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
@@ -24,6 +26,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,6 +36,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import org.codehaus.groovy.antlr.SourceBuffer;
 import org.codehaus.groovy.antlr.UnicodeEscapingReader;
 import org.codehaus.groovy.antlr.parser.GroovyLexer;
@@ -141,10 +145,83 @@ public class ZeroAicyBuildGradle extends BuildGradle {
 	public boolean isSingleton() {
 		return this.isSingleton;
 	}
+	/**
+	 * 当前项目的 build.gradle路径 -> 解析结果
+	 * 内容不变则不再重新词法、语法分析
+	 * 切换项目时清空
+	 */
+	private static final FileContentCache<ZeroAicyBuildGradle> configurationCache = new FileContentCache<>(new FileContentCache.Loader<ZeroAicyBuildGradle>(){
+			@Override
+			public ZeroAicyBuildGradle load(String path) {
+				return new ZeroAicyBuildGradle(path);
+			}
+		});
+	// configurationCache所属的项目
+	private static String configurationCacheProjectHome;
+
+	/**
+	 * 关闭项目时调用
+	 */
+	public static void clearConfigurationCache() {
+		synchronized (configurationCache) {
+			configurationCache.clear();
+			configurationCacheProjectHome = null;
+		}
+	}
+
 	@Override
 	public ZeroAicyBuildGradle getConfiguration(String path) {
-		return (ZeroAicyBuildGradle) super.getConfiguration(path);
+		synchronized (configurationCache) {
+			// 切换项目
+			String projectHome = getCurrentProjectHome();
+			if (!TextUtils.equals(projectHome, configurationCacheProjectHome)) {
+				configurationCache.clear();
+				configurationCacheProjectHome = projectHome;
+			}
+		}
+		ZeroAicyBuildGradle configuration = configurationCache.get(path);
+		if (configuration == null) {
+			// 文件不存在或无法读取
+			return (ZeroAicyBuildGradle) super.getConfiguration(path);
+		}
+		return configuration;
+	}
+
+	/**
+	 * 打包等进程中没有ProjectService
+	 */
+	private static String getCurrentProjectHome() {
+		if (!ContextUtil.isMainProcess()) {
+			return null;
+		}
+		ProjectService projectService = ServiceContainer.getProjectService();
+		return projectService == null ? null : projectService.getCurrentAppHome();
 	}
+
+	/**
+	 * 并行解析多个模块的build.gradle并缓存
+	 */
+	public void preloadConfigurations(Collection<String> buildGradlePaths) {
+		if (buildGradlePaths.size() < 2) {
+			return;
+		}
+		List<Callable<ZeroAicyBuildGradle>> tasks = new ArrayList<>(buildGradlePaths.size());
+		for (final String buildGradlePath : buildGradlePaths) {
+			tasks.add(new Callable<ZeroAicyBuildGradle>(){
+					@Override
+					public ZeroAicyBuildGradle call() {
+						return getConfiguration(buildGradlePath);
+					}
+				});
+		}
+		try {
+			ThreadPoolService.getThreadPoolService(TAG, 4).invokeAll(tasks);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	public ZeroAicyBuildGradle makeConfiguration(String path) {
 		return new ZeroAicyBuildGradle(path);
 	}
@@ -216,7 +293,7 @@ public class ZeroAicyBuildGradle extends BuildGradle {
 				syntaxError.zh = tokenStreamRecognitionException.toString();
 
 				hashMap.put(filePath, Collections.singletonList(syntaxError));
-				ServiceContainer.getErrorService().EQ("Gradle", hashMap);
+				publishGradleErrors(hashMap);
 			}
 			AppLog.e(TAG, e.getMessage(), e);
 
@@ -235,6 +312,18 @@ public class ZeroAicyBuildGradle extends BuildGradle {
 		}
 	}
 
+	/**
+	 * preloadConfigurations在线程池中解析，错误服务只能在主线程更新
+	 */
+	private static void publishGradleErrors(final Map<String, List<SyntaxError>> syntaxErrors) {
+		ThreadPoolService.postOfUi(new Runnable(){
+				@Override
+				public void run() {
+					ServiceContainer.getErrorService().EQ("Gradle", syntaxErrors);
+				}
+			});
+	}
+
 	private ZeroAicyProductFlavor defaultZeroAicyProductFlavor;
 	private SortedMap<String, ZeroAicyProductFlavor> zeroAicyProductFlavorMap;
 
@@ -0,0 +1,106 @@
+package com.aide.codemodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SyntaxTreeWalkerTest {
+
+	/**
+	 * 以数组表示的树 children[node] 为子节点
+	 */
+	private static class ArrayNodes implements SyntaxTreeWalker.Nodes {
+		final List<int[]> children = new ArrayList<>();
+
+		int addNode(int parent) {
+			int node = this.children.size();
+			this.children.add(new int[0]);
+			if (parent >= 0) {
+				int[] parentChildren = this.children.get(parent);
+				int[] newChildren = new int[parentChildren.length + 1];
+				System.arraycopy(parentChildren, 0, newChildren, 0, parentChildren.length);
+				newChildren[parentChildren.length] = node;
+				this.children.set(parent, newChildren);
+			}
+			return node;
+		}
+
+		@Override
+		public int getChildCount(int nodeIndex) {
+			return this.children.get(nodeIndex).length;
+		}
+
+		@Override
+		public int getChildNode(int nodeIndex, int childIndex) {
+			return this.children.get(nodeIndex)[childIndex];
+		}
+	}
+
+	private static class RecordingVisitor implements SyntaxTreeWalker.Visitor {
+		final List<Integer> nodes = new ArrayList<>();
+
+		@Override
+		public void visit(int nodeIndex) {
+			this.nodes.add(nodeIndex);
+		}
+	}
+
+	@Test
+	public void visitsInRecursivePreOrder() {
+		Random random = new Random(7);
+		ArrayNodes nodes = new ArrayNodes();
+		nodes.addNode(-1);
+		for (int i = 1; i < 5000; i++) {
+			nodes.addNode(random.nextInt(i));
+		}
+		List<Integer> expected = new ArrayList<>();
+		walkRecursive(nodes, 0, expected);
+
+		RecordingVisitor visitor = new RecordingVisitor();
+		SyntaxTreeWalker walker = new SyntaxTreeWalker();
+		walker.walk(nodes, 0, visitor);
+		assertEquals(expected, visitor.nodes);
+
+		// 节点栈复用
+		visitor.nodes.clear();
+		walker.walk(nodes, 0, visitor);
+		assertEquals(expected, visitor.nodes);
+	}
+
+	@Test
+	public void deepNestingDoesNotOverflow() {
+		ArrayNodes nodes = new ArrayNodes();
+		int parent = nodes.addNode(-1);
+		for (int i = 0; i < 200000; i++) {
+			parent = nodes.addNode(parent);
+		}
+		RecordingVisitor visitor = new RecordingVisitor();
+		new SyntaxTreeWalker().walk(nodes, 0, visitor);
+		assertEquals(200001, visitor.nodes.size());
+		assertEquals(200000, (int) visitor.nodes.get(200000));
+	}
+
+	@Test
+	public void wideNodeGrowsStack() {
+		ArrayNodes nodes = new ArrayNodes();
+		nodes.addNode(-1);
+		for (int i = 0; i < 1000; i++) {
+			nodes.addNode(0);
+		}
+		RecordingVisitor visitor = new RecordingVisitor();
+		new SyntaxTreeWalker().walk(nodes, 0, visitor);
+		assertEquals(1001, visitor.nodes.size());
+		assertEquals(1, (int) visitor.nodes.get(1));
+		assertEquals(1000, (int) visitor.nodes.get(1000));
+	}
+
+	private static void walkRecursive(ArrayNodes nodes, int nodeIndex, List<Integer> visited) {
+		visited.add(nodeIndex);
+		for (int childIndex = 0; childIndex < nodes.getChildCount(nodeIndex); childIndex++) {
+			walkRecursive(nodes, nodes.getChildNode(nodeIndex, childIndex), visited);
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package com.aide.codemodel.language.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 菱形依赖的12个模块: m0 <- m1..m10 <- m11
+ * 并发编译的输出与顺序编译相同
+ */
+public class AssemblyCompileSchedulerTest {
+
+	private static final int MODULES = 12;
+	private static final int CLASSES = 20;
+
+	@ClassRule
+	public static TemporaryFolder bootFolder = new TemporaryFolder();
+
+	private static String bootClasspath;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpBootClasspath() throws IOException {
+		bootClasspath = IncrementalJavaCompilerTest.createBootClasspath(bootFolder.getRoot());
+	}
+
+	@Test
+	public void topologicalOrderOfDiamond() {
+		List<Integer> order = AssemblyCompileScheduler.topologicalOrder(getAssemblys(), getDiamondReferences());
+		List<Integer> expected = new ArrayList<>();
+		for (int assembly = 0; assembly < MODULES; assembly++) {
+			expected.add(assembly);
+		}
+		assertEquals(expected, order);
+	}
+
+	@Test
+	public void cyclesAreOrderedLast() {
+		Map<Integer, Set<Integer>> references = new HashMap<>();
+		references.put(1, new TreeSet<>(Arrays.asList(2)));
+		references.put(2, new TreeSet<>(Arrays.asList(1)));
+		references.put(3, new TreeSet<>(Arrays.asList(0)));
+		assertEquals(Arrays.asList(0, 3, 1, 2), AssemblyCompileScheduler.topologicalOrder(Arrays.asList(0, 1, 2, 3), references));
+	}
+
+	@Test
+	public void failedAssemblySkipsDependents() throws InterruptedException {
+		final List<Integer> compiled = Collections.synchronizedList(new ArrayList<Integer>());
+		Map<Integer, Integer> results = new AssemblyCompileScheduler(4).run(getAssemblys(), getDiamondReferences(), new AssemblyCompileScheduler.CompileTask(){
+				@Override
+				public boolean compile(int assembly) {
+					compiled.add(assembly);
+					return assembly != 3;
+				}
+			});
+		assertEquals(MODULES - 1, compiled.size());
+		assertEquals(AssemblyCompileScheduler.FAILED, (int) results.get(3));
+		assertEquals(AssemblyCompileScheduler.SKIPPED, (int) results.get(MODULES - 1));
+		assertEquals(AssemblyCompileScheduler.SUCCESS, (int) results.get(4));
+	}
+
+	@Test
+	public void parallelOutputMatchesSequential() throws IOException, InterruptedException {
+		File sourceDir = this.temporaryFolder.newFolder("src");
+		Map<Integer, List<String>> sources = generateDiamond(sourceDir);
+
+		Build sequential = new Build(new File(this.temporaryFolder.getRoot(), "sequential"), sources);
+		Build parallel = new Build(new File(this.temporaryFolder.getRoot(), "parallel"), sources);
+		long sequentialTime = sequential.run(1);
+		long parallelTime = parallel.run(4);
+
+		assertEquals(sequential.results, parallel.results);
+		for (int result : parallel.results.values()) {
+			assertEquals(AssemblyCompileScheduler.SUCCESS, result);
+		}
+		assertEquals(sequential.diagnostics, parallel.diagnostics);
+		assertEquals(MODULES * CLASSES, contents(sequential.outputDir).size());
+		assertEquals(contents(sequential.outputDir), contents(parallel.outputDir));
+		System.out.println(MODULES + " modules: sequential " + sequentialTime + "ms, 4 threads " + parallelTime + "ms, "
+						   + Runtime.getRuntime().availableProcessors() + " cores");
+
+		// m0的签名改变 所有依赖它的模块重新编译，输出仍然相同
+		String path = sources.get(0).get(0);
+		String source = new String(java.nio.file.Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8);
+		File file = new File(path);
+		long lastModified = file.lastModified();
+		IncrementalJavaCompilerTest.writeFile(file, source.replace("public int f0(int x)", "public long f0(int x)").getBytes(StandardCharsets.UTF_8));
+		assertTrue(file.setLastModified(lastModified + 2000));
+
+		sequential.run(1);
+		parallel.run(4);
+		assertEquals(sequential.diagnostics, parallel.diagnostics);
+		assertEquals(contents(sequential.outputDir), contents(parallel.outputDir));
+		assertTrue(parallel.compiledCount > 1);
+	}
+
+	/**
+	 * 每个模块一个增量编译器，被依赖模块的输出目录作为类路径
+	 * 与 ECJJavaCodeCompiler相同，结构改变的简单名传给依赖它的模块
+	 */
+	private static class Build {
+		final File outputDir;
+		final Map<Integer, List<String>> sources;
+		final Map<Integer, IncrementalJavaCompiler> compilers = new HashMap<>();
+		final Map<Integer, Set<String>> referencedChangedNames = new HashMap<>();
+		final Map<Integer, List<String>> diagnostics = new TreeMap<>();
+		Map<Integer, Integer> results;
+		int compiledCount;
+
+		Build(File outputDir, Map<Integer, List<String>> sources) {
+			this.outputDir = outputDir;
+			this.sources = sources;
+			Map<Integer, Set<Integer>> references = getDiamondReferences();
+			for (int assembly = 0; assembly < MODULES; assembly++) {
+				List<String> referencedOutputPaths = new ArrayList<>();
+				for (int referencedAssembly : getTransitiveReferences(assembly, references)) {
+					referencedOutputPaths.add(getOutputPath(referencedAssembly));
+				}
+				this.compilers.put(assembly, new IncrementalJavaCompiler(Collections.singletonList(bootClasspath), referencedOutputPaths, getOutputPath(assembly), IncrementalJavaCompilerTest.newCompilerOptions(), "UTF-8"));
+			}
+		}
+
+		String getOutputPath(int assembly) {
+			return new File(this.outputDir, "m" + assembly).getPath();
+		}
+
+		long run(int threadCount) throws InterruptedException {
+			final Map<Integer, Set<Integer>> references = getDiamondReferences();
+			this.diagnostics.clear();
+			this.compiledCount = 0;
+			long now = System.currentTimeMillis();
+			this.results = new AssemblyCompileScheduler(threadCount).run(getAssemblys(), references, new AssemblyCompileScheduler.CompileTask(){
+					@Override
+					public boolean compile(int assembly) {
+						Set<String> changedNames;
+						synchronized (referencedChangedNames) {
+							changedNames = referencedChangedNames.remove(assembly);
+						}
+						final List<String> assemblyDiagnostics = new ArrayList<>();
+						IncrementalJavaCompiler compiler = compilers.get(assembly);
+						boolean success = compiler.compile(sources.get(assembly), changedNames, new DiagnosticListener<JavaFileObject>() {
+								@Override
+								public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+									assemblyDiagnostics.add(diagnostic.getKind() + " " + new File(diagnostic.getSource().getName()).getName() + ":" + diagnostic.getLineNumber() + " " + diagnostic.getMessage(null));
+								}
+							});
+						Set<String> lastChangedNames = compiler.getLastChangedNames();
+						synchronized (referencedChangedNames) {
+							diagnostics.put(assembly, assemblyDiagnostics);
+							compiledCount += compiler.getLastCompiledCount();
+							for (int dependent = 0; dependent < MODULES; dependent++) {
+								if (getTransitiveReferences(dependent, references).contains(assembly)) {
+									Set<String> set = referencedChangedNames.get(dependent);
+									if (set == null) {
+										set = new HashSet<>();
+										referencedChangedNames.put(dependent, set);
+									}
+									set.addAll(lastChangedNames);
+								}
+							}
+						}
+						return success;
+					}
+				});
+			return System.currentTimeMillis() - now;
+		}
+	}
+
+	private static List<Integer> getAssemblys() {
+		List<Integer> assemblys = new ArrayList<>();
+		for (int assembly = MODULES - 1; assembly >= 0; assembly--) {
+			assemblys.add(assembly);
+		}
+		return assemblys;
+	}
+
+	private static Map<Integer, Set<Integer>> getDiamondReferences() {
+		Map<Integer, Set<Integer>> references = new HashMap<>();
+		Set<Integer> middle = new TreeSet<>();
+		for (int assembly = 1; assembly < MODULES - 1; assembly++) {
+			references.put(assembly, new TreeSet<>(Arrays.asList(0)));
+			middle.add(assembly);
+		}
+		references.put(MODULES - 1, middle);
+		return references;
+	}
+
+	private static Set<Integer> getTransitiveReferences(int assembly, Map<Integer, Set<Integer>> references) {
+		Set<Integer> result = new TreeSet<>();
+		List<Integer> queue = new ArrayList<>();
+		queue.add(assembly);
+		while (!queue.isEmpty()) {
+			Set<Integer> set = references.get(queue.remove(0));
+			if (set == null) {
+				continue;
+			}
+			for (int referencedAssembly : set) {
+				if (result.add(referencedAssembly)) {
+					queue.add(referencedAssembly);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 中间模块调用m0，顶层模块调用中间模块
+	 */
+	private static Map<Integer, List<String>> generateDiamond(File sourceDir) throws IOException {
+		Map<Integer, List<String>> sources = new TreeMap<>();
+		for (int assembly = 0; assembly < MODULES; assembly++) {
+			List<String> paths = new ArrayList<>();
+			for (int index = 0; index < CLASSES; index++) {
+				StringBuilder builder = new StringBuilder();
+				builder.append("package m").append(assembly).append(";\npublic class C").append(index).append(" {\n");
+				for (int method = 0; method < 10; method++) {
+					builder.append("\tpublic int f").append(method).append("(int x) {\n");
+					builder.append("\t\tjava.util.List<String> list = new java.util.ArrayList<>();\n");
+					builder.append("\t\tfor (int i = 0; i < x; i++) list.add(String.valueOf(i * ").append(method).append("));\n");
+					builder.append("\t\treturn list.size()");
+					if (assembly > 0 && assembly < MODULES - 1) {
+						builder.append(" + (int) new m0.C").append(index).append("().f").append(method).append("(x)");
+					}
+					else if (assembly == MODULES - 1) {
+						builder.append(" + new m").append(1 + index % (MODULES - 2)).append(".C").append(index).append("().f").append(method).append("(x)");
+					}
+					builder.append(";\n\t}\n");
+				}
+				builder.append("}\n");
+				File file = new File(sourceDir, "m" + assembly + "/m" + assembly + "/C" + index + ".java");
+				IncrementalJavaCompilerTest.writeFile(file, builder.toString().getBytes(StandardCharsets.UTF_8));
+				paths.add(file.getPath());
+			}
+			sources.put(assembly, paths);
+		}
+		return sources;
+	}
+
+	/**
+	 * 只比较内容 修改时间不同
+	 */
+	private static Map<String, String> contents(File outputDir) throws IOException {
+		Map<String, String> contents = new TreeMap<>();
+		for (Map.Entry<String, String> entry : IncrementalJavaCompilerTest.snapshot(outputDir).entrySet()) {
+			String value = entry.getValue();
+			contents.put(entry.getKey(), value.substring(0, value.indexOf('@')));
+		}
+		return contents;
+	}
+}
@@ -0,0 +1,108 @@
+package com.aide.codemodel.language.java;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class BoundMethodTest {
+
+	/**
+	 * 代替底包中的Parser 私有方法
+	 */
+	static class BaseParser {
+		int count;
+
+		private void next() {
+			this.count++;
+		}
+
+		private void fail() throws IOException {
+			throw new IOException("parse");
+		}
+
+		private void fail2() {
+			throw new IllegalStateException("state");
+		}
+	}
+
+	static class ParserPro extends BaseParser {
+	}
+
+	@Test
+	public void findsPrivateMethodOfSuperclass() throws Throwable {
+		BoundMethod next = BoundMethod.find(ParserPro.class, "next");
+		assertNotNull(next);
+		ParserPro parser = new ParserPro();
+		next.invoke(parser);
+		next.invoke(parser);
+		assertEquals(2, parser.count);
+	}
+
+	@Test
+	public void missingMethodIsNull() {
+		assertNull(BoundMethod.find(ParserPro.class, "missing"));
+	}
+
+	@Test
+	public void targetExceptionsAreRethrownUnchanged() throws Throwable {
+		try {
+			BoundMethod.find(ParserPro.class, "fail").invoke(new ParserPro());
+			fail();
+		}
+		catch (IOException e) {
+			assertEquals("parse", e.getMessage());
+		}
+		IllegalStateException exception = null;
+		try {
+			BoundMethod.find(ParserPro.class, "fail2").invoke(new ParserPro());
+		}
+		catch (IllegalStateException e) {
+			exception = e;
+		}
+		assertNotNull(exception);
+		assertSame(IllegalStateException.class, exception.getClass());
+	}
+
+	@Test
+	public void boundInvokeSkipsPerCallLookup() throws Throwable {
+		int count = 200000;
+		ParserPro parser = new ParserPro();
+		BoundMethod next = BoundMethod.find(ParserPro.class, "next");
+
+		// 预热
+		for (int i = 0; i < count; i++) {
+			next.invoke(parser);
+			lookupAndInvoke(parser, "next");
+		}
+
+		long now = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			next.invoke(parser);
+		}
+		long boundTime = System.nanoTime() - now;
+
+		now = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			lookupAndInvoke(parser, "next");
+		}
+		long lookupTime = System.nanoTime() - now;
+
+		System.out.println(count + " calls: BoundMethod " + boundTime / 1000000 + "ms, lookup " + lookupTime / 1000000 + "ms");
+		assertEquals(count * 4, parser.count);
+	}
+
+	/**
+	 * 每次调用都查找方法[ReflectPie.call的方式]
+	 */
+	private static void lookupAndInvoke(Object target, String name) throws Exception {
+		Method method = BaseParser.class.getDeclaredMethod(name);
+		method.setAccessible(true);
+		method.invoke(target);
+	}
+}
@@ -0,0 +1,55 @@
+package com.aide.codemodel.language.java;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClassFileWriterTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void missingClassFile() throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), "a/A.class");
+		assertNull(ClassFileWriter.readClassFile(file));
+		assertFalse(ClassFileWriter.isSameClassFile(file, new byte[]{1}));
+	}
+
+	@Test
+	public void writeCreatesParentsAndLeavesNoTempFile() throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), "a/b/A.class");
+		byte[] bytes = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, 52};
+		ClassFileWriter.writeClassFile(file, bytes);
+
+		assertArrayEquals(bytes, ClassFileWriter.readClassFile(file));
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+		assertEquals(1, file.getParentFile().list().length);
+	}
+
+	@Test
+	public void sameClassFileComparesLengthAndContent() throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), "A.class");
+		ClassFileWriter.writeClassFile(file, new byte[]{1, 2, 3});
+
+		assertTrue(ClassFileWriter.isSameClassFile(file, new byte[]{1, 2, 3}));
+		assertFalse(ClassFileWriter.isSameClassFile(file, new byte[]{1, 2, 4}));
+		assertFalse(ClassFileWriter.isSameClassFile(file, new byte[]{1, 2}));
+	}
+
+	@Test
+	public void rewriteReplacesContent() throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), "A.class");
+		ClassFileWriter.writeClassFile(file, new byte[]{1, 2, 3});
+		ClassFileWriter.writeClassFile(file, new byte[]{4, 5});
+		assertArrayEquals(new byte[]{4, 5}, ClassFileWriter.readClassFile(file));
+	}
+}
@@ -0,0 +1,136 @@
+package com.aide.codemodel.language.java;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClassPathCacheTest {
+
+	/**
+	 * 解决方案文件 改变时版本加一
+	 */
+	private static class Solution implements ClassPathCache.Scanner {
+		final List<String[]> files = new ArrayList<>();
+		int generation;
+		int scanCount;
+
+		void add(int assembly, String path) {
+			this.files.add(new String[]{String.valueOf(assembly), path});
+			this.generation++;
+		}
+
+		void remove(String path) {
+			for (int i = this.files.size() - 1; i >= 0; i--) {
+				if (this.files.get(i)[1].equals(path)) {
+					this.files.remove(i);
+				}
+			}
+			this.generation++;
+		}
+
+		@Override
+		public void scan(int assembly, ClassPathCache.Builder builder) {
+			this.scanCount++;
+			for (String[] file : this.files) {
+				if (Integer.parseInt(file[0]) == assembly) {
+					builder.addJar(new File(file[1]).getName(), file[1]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void classPathFollowsSolutionChanges() {
+		Solution solution = new Solution();
+		solution.add(1, "/sdk/android.jar");
+		solution.add(1, "/libs/a.jar");
+		solution.add(1, "/src/A.java");
+		solution.add(2, "/libs/b.jar");
+
+		ClassPathCache cache = new ClassPathCache();
+		ClassPathCache.ClassPaths classPaths = cache.get(1, solution.generation, solution);
+		assertEquals(paths("/sdk/android.jar"), classPaths.platformClassPaths);
+		assertEquals(paths("/libs/a.jar"), classPaths.classPaths);
+		assertTrue(cache.isUnchanged(1, solution.generation));
+		assertFalse(cache.isUnchanged(2, solution.generation));
+
+		// 添加依赖
+		solution.add(1, "/libs/c.jar");
+		assertFalse(cache.isUnchanged(1, solution.generation));
+		classPaths = cache.get(1, solution.generation, solution);
+		assertEquals(paths("/libs/a.jar", "/libs/c.jar"), classPaths.classPaths);
+
+		// 切换flavor 移除依赖
+		solution.remove("/libs/a.jar");
+		classPaths = cache.get(1, solution.generation, solution);
+		assertEquals(paths("/libs/c.jar"), classPaths.classPaths);
+		assertTrue(cache.isUnchanged(1, solution.generation));
+	}
+
+	@Test
+	public void unchangedGenerationIsNotRescanned() {
+		Solution solution = new Solution();
+		solution.add(1, "/libs/a.jar");
+
+		ClassPathCache cache = new ClassPathCache();
+		ClassPathCache.ClassPaths classPaths = cache.get(1, solution.generation, solution);
+		assertSame(classPaths, cache.get(1, solution.generation, solution));
+		assertEquals(1, solution.scanCount);
+
+		// 不经过版本修改的变化不可见
+		solution.files.add(new String[]{"1", "/libs/b.jar"});
+		assertEquals(paths("/libs/a.jar"), cache.get(1, solution.generation, solution).classPaths);
+	}
+
+	@Test
+	public void duplicatesKeepFirstOrder() {
+		ClassPathCache.Builder builder = new ClassPathCache.Builder();
+		assertTrue(builder.addJar("b.jar", "/libs/b.jar"));
+		assertTrue(builder.addJar("a.jar", "/libs/a.jar"));
+		assertFalse(builder.addJar("b.jar", "/libs/b.jar"));
+		assertTrue(builder.addJar("rt.jar", "/jdk/rt.jar"));
+		assertTrue(builder.addJar("core-lambda-stubs.jar", "/jdk/core-lambda-stubs.jar"));
+		assertFalse(builder.addJar("A.java", "/src/A.java"));
+
+		assertEquals(paths("/libs/b.jar", "/libs/a.jar"), new ArrayList<>(builder.classPaths));
+		assertEquals(paths("/jdk/rt.jar", "/jdk/core-lambda-stubs.jar"), new ArrayList<>(builder.platformClassPaths));
+	}
+
+	@Test
+	public void scansEightHundredJars() {
+		Solution solution = new Solution();
+		int jarCount = 800;
+		for (int i = 0; i < jarCount; i++) {
+			solution.add(1, "/libs/lib" + i + ".jar");
+			// 每个jar的每个类都是解决方案文件
+			for (int j = 0; j < 20; j++) {
+				solution.files.add(new String[]{"1", "/libs/lib" + i + ".jar"});
+			}
+		}
+
+		ClassPathCache cache = new ClassPathCache();
+		long now = System.nanoTime();
+		ClassPathCache.ClassPaths classPaths = cache.get(1, solution.generation, solution);
+		long time = (System.nanoTime() - now) / 1000000;
+		System.out.println("scanned " + solution.files.size() + " files of " + jarCount + " jars in " + time + "ms");
+
+		assertEquals(jarCount, classPaths.classPaths.size());
+		assertEquals(new File("/libs/lib0.jar"), classPaths.classPaths.get(0));
+		assertEquals(new File("/libs/lib799.jar"), classPaths.classPaths.get(jarCount - 1));
+	}
+
+	private static List<File> paths(String... paths) {
+		List<File> files = new ArrayList<>();
+		for (String path : Arrays.asList(paths)) {
+			files.add(new File(path));
+		}
+		return files;
+	}
+}
@@ -0,0 +1,111 @@
+package com.aide.codemodel.language.java;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static io.github.zeroaicy.aide.services.EngineMemoryGovernor.LEVEL_NORMAL;
+import static io.github.zeroaicy.aide.services.EngineMemoryGovernor.LEVEL_SUSPEND_BACKGROUND;
+import static io.github.zeroaicy.aide.services.EngineMemoryGovernor.LEVEL_TRIM_CLOSED_FILES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClosedFileMemoryPolicyTest {
+
+	@Test
+	public void normalLevelKeepsCaches() {
+		ClosedFileMemoryPolicy policy = new ClosedFileMemoryPolicy();
+		assertFalse(policy.update(LEVEL_NORMAL));
+		assertFalse(policy.shouldSkip(true));
+		assertFalse(policy.shouldRelease(true));
+	}
+
+	@Test
+	public void entersTrimReleasesClosedFilesOnce() {
+		ClosedFileMemoryPolicy policy = new ClosedFileMemoryPolicy();
+		assertTrue(policy.update(LEVEL_TRIM_CLOSED_FILES));
+		// 已经释放过
+		assertFalse(policy.update(LEVEL_TRIM_CLOSED_FILES));
+		assertFalse(policy.update(LEVEL_SUSPEND_BACKGROUND));
+
+		// 恢复后再次进入时重新释放
+		assertFalse(policy.update(LEVEL_NORMAL));
+		assertTrue(policy.update(LEVEL_SUSPEND_BACKGROUND));
+	}
+
+	@Test
+	public void trimAnalyzesClosedFilesWithoutKeepingCache() {
+		ClosedFileMemoryPolicy policy = new ClosedFileMemoryPolicy();
+		policy.update(LEVEL_TRIM_CLOSED_FILES);
+		assertFalse(policy.shouldSkip(true));
+		assertTrue(policy.shouldRelease(true));
+		// 打开的文件保留缓存
+		assertFalse(policy.shouldRelease(false));
+	}
+
+	@Test
+	public void suspendSkipsOnlyClosedFiles() {
+		ClosedFileMemoryPolicy policy = new ClosedFileMemoryPolicy();
+		policy.update(LEVEL_SUSPEND_BACKGROUND);
+		assertTrue(policy.shouldSkip(true));
+		assertFalse(policy.shouldSkip(false));
+	}
+
+	@Test
+	public void skippedFilesAreResubmittedWhenLevelDrops() {
+		ClosedFileMemoryPolicy policy = new ClosedFileMemoryPolicy();
+		policy.update(LEVEL_SUSPEND_BACKGROUND);
+		policy.skipped(1);
+		policy.skipped(2);
+		assertFalse(policy.hasResubmitFiles());
+
+		// 仍然跳过
+		policy.update(LEVEL_SUSPEND_BACKGROUND);
+		assertFalse(policy.hasResubmitFiles());
+
+		policy.update(LEVEL_TRIM_CLOSED_FILES);
+		assertTrue(policy.hasResubmitFiles());
+		assertEquals(Arrays.asList(1, 2), sorted(policy.takeResubmitFileIds()));
+		assertFalse(policy.isSkipped(1));
+		assertFalse(policy.hasResubmitFiles());
+		// 重新分析时不再跳过，但不保留缓存
+		assertFalse(policy.shouldSkip(true));
+		assertTrue(policy.shouldRelease(true));
+	}
+
+	@Test
+	public void fileAnalyzedBeforeResubmitIsNotResubmitted() {
+		ClosedFileMemoryPolicy policy = new ClosedFileMemoryPolicy();
+		policy.update(LEVEL_SUSPEND_BACKGROUND);
+		policy.skipped(1);
+		policy.skipped(2);
+		policy.update(LEVEL_NORMAL);
+		// 文件被打开后已经分析
+		policy.analyzed(1);
+		assertEquals(Collections.singletonList(2), policy.takeResubmitFileIds());
+	}
+
+	@Test
+	public void levelRisingAgainSkipsResubmittedFile() {
+		ClosedFileMemoryPolicy policy = new ClosedFileMemoryPolicy();
+		policy.update(LEVEL_SUSPEND_BACKGROUND);
+		policy.skipped(1);
+		policy.update(LEVEL_NORMAL);
+		policy.update(LEVEL_SUSPEND_BACKGROUND);
+		for (int fileId : policy.takeResubmitFileIds()) {
+			// 重新分析时再次跳过
+			assertTrue(policy.shouldSkip(true));
+			policy.skipped(fileId);
+		}
+		assertTrue(policy.isSkipped(1));
+		policy.update(LEVEL_NORMAL);
+		assertEquals(Collections.singletonList(1), policy.takeResubmitFileIds());
+	}
+
+	private static List<Integer> sorted(List<Integer> fileIds) {
+		Collections.sort(fileIds);
+		return fileIds;
+	}
+}
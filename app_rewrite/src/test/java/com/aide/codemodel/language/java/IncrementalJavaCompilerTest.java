@@ -0,0 +1,328 @@
+package com.aide.codemodel.language.java;
+
+import io.github.zeroaicy.util.IOUtils;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多模块示例项目 修改一个文件后只有受影响的class改变，诊断与全量编译一致
+ */
+public class IncrementalJavaCompilerTest {
+
+	private static final String A = "package a; public class A { public int value() { return 1; } public static class Inner {} }";
+	private static final String B = "package b; public class B { public int twice() { return new a.A().value() * 2; } }";
+	private static final String C = "package c; public class C { public int get() { return new b.B().twice(); } }";
+	private static final String D = "package d; public class D { }";
+	private static final String E = "package e; import a.A; public class E { A.Inner inner; }";
+
+	@ClassRule
+	public static TemporaryFolder bootFolder = new TemporaryFolder();
+
+	private static String bootClasspath;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File projectDir;
+	private File outputDir;
+	private IncrementalJavaCompiler compiler;
+	private final List<String> diagnostics = new ArrayList<>();
+
+	@BeforeClass
+	public static void setUpBootClasspath() throws IOException {
+		bootClasspath = createBootClasspath(bootFolder.getRoot());
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		this.projectDir = this.temporaryFolder.newFolder("project");
+		this.outputDir = new File(this.temporaryFolder.getRoot(), "out");
+
+		write("m1/a/A.java", A);
+		write("m2/b/B.java", B);
+		write("m3/c/C.java", C);
+		write("m3/d/D.java", D);
+		write("m2/e/E.java", E);
+
+		this.compiler = newCompiler(this.outputDir);
+		assertTrue(compile(this.compiler));
+		assertEquals(5, this.compiler.getLastCompiledCount());
+		assertTrue(this.diagnostics.isEmpty());
+	}
+
+	@Test
+	public void unchangedProjectCompilesNothing() throws IOException {
+		Map<String, String> before = snapshot(this.outputDir);
+		assertTrue(compile(this.compiler));
+		assertEquals(0, this.compiler.getLastCompiledCount());
+		assertEquals(before, snapshot(this.outputDir));
+	}
+
+	@Test
+	public void bodyEditRewritesOnlyItsClass() throws IOException {
+		Map<String, String> before = snapshot(this.outputDir);
+		write("m1/a/A.java", A.replace("return 1;", "return 2;"));
+
+		assertTrue(compile(this.compiler));
+		assertEquals(1, this.compiler.getLastCompiledCount());
+		assertEquals(Arrays.asList("a/A.class"), changedClasses(before, snapshot(this.outputDir)));
+	}
+
+	@Test
+	public void structuralEditRecompilesDependents() throws IOException {
+		Map<String, String> before = snapshot(this.outputDir);
+		write("m1/a/A.java", A.replace("public static class", "public int other() { return 3; } public static class"));
+
+		assertTrue(compile(this.compiler));
+		// A 以及引用A的 B E；B E的class内容不变，不重写
+		assertEquals(3, this.compiler.getLastCompiledCount());
+		assertEquals(Arrays.asList("a/A.class"), changedClasses(before, snapshot(this.outputDir)));
+	}
+
+	@Test
+	public void diagnosticsMatchFullBuild() throws IOException {
+		write("m1/a/A.java", A.replace("public int value() { return 1; }", "public int other() { return 3; }"));
+
+		assertFalse(compile(this.compiler));
+		List<String> incremental = sortedDiagnostics();
+		assertEquals(1, incremental.size());
+		assertTrue(incremental.get(0), incremental.get(0).startsWith("ERROR B.java:1"));
+
+		IncrementalJavaCompiler fullCompiler = newCompiler(new File(this.temporaryFolder.getRoot(), "full"));
+		assertFalse(compile(fullCompiler));
+		assertEquals(incremental, sortedDiagnostics());
+		fullCompiler.cleanup();
+
+		// 修复后只编译B
+		write("m2/b/B.java", B.replace("value()", "other()"));
+		assertTrue(compile(this.compiler));
+		assertEquals(1, this.compiler.getLastCompiledCount());
+		assertTrue(this.diagnostics.isEmpty());
+	}
+
+	@Test
+	public void deletedSourceAndTypeRemoveClassFiles() throws IOException {
+		assertTrue(new File(this.outputDir, "a/A$Inner.class").isFile());
+		assertTrue(new File(this.projectDir, "m3/d/D.java").delete());
+		write("m1/a/A.java", A.replace("public static class Inner {}", ""));
+
+		assertFalse(compile(this.compiler));
+		assertFalse(new File(this.outputDir, "d/D.class").exists());
+		assertFalse(new File(this.outputDir, "a/A$Inner.class").exists());
+		// E引用了被删除的 A.Inner
+		List<String> errors = sortedDiagnostics();
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0), errors.get(0).startsWith("ERROR E.java:1"));
+	}
+
+	@Test
+	public void sourceContentsOverrideDisk() throws IOException {
+		final String path = new File(this.projectDir, "m1/a/A.java").getPath();
+		Map<String, String> before = snapshot(this.outputDir);
+		List<IncrementalJavaCompiler.Source> sources = new ArrayList<>();
+		for (String sourcePath : findSources(this.projectDir)) {
+			sources.add(sourcePath.equals(path)
+						// 编辑器中未保存的内容
+						? new MemorySource(path, 1, A.replace("public static class Inner", "public int other() { return 3; } public static class Inner"))
+						: IncrementalJavaCompiler.fileSource(sourcePath));
+		}
+		assertTrue(this.compiler.compileSources(sources, null, null));
+		assertEquals(Arrays.asList("a/A.class"), changedClasses(before, snapshot(this.outputDir)));
+		String classFile = new String(Files.readAllBytes(new File(this.outputDir, "a/A.class").toPath()), StandardCharsets.ISO_8859_1);
+		assertTrue(classFile.contains("other"));
+
+		// 版本未变不重新编译
+		assertTrue(this.compiler.compileSources(sources, null, null));
+		assertEquals(0, this.compiler.getLastCompiledCount());
+	}
+
+	static class MemorySource implements IncrementalJavaCompiler.Source {
+		private final String path;
+		private final long version;
+		private final String contents;
+
+		MemorySource(String path, long version, String contents) {
+			this.path = path;
+			this.version = version;
+			this.contents = contents;
+		}
+
+		@Override
+		public String getPath() {
+			return this.path;
+		}
+
+		@Override
+		public long getVersion() {
+			return this.version;
+		}
+
+		@Override
+		public char[] getContents() {
+			return this.contents.toCharArray();
+		}
+	}
+
+	private IncrementalJavaCompiler newCompiler(File outputDir) {
+		return new IncrementalJavaCompiler(Collections.singletonList(bootClasspath), outputDir.getPath(), newCompilerOptions(), "UTF-8");
+	}
+
+	static CompilerOptions newCompilerOptions() {
+		Map<String, String> options = new HashMap<>();
+		options.put(CompilerOptions.OPTION_Source, CompilerOptions.VERSION_1_8);
+		options.put(CompilerOptions.OPTION_Compliance, CompilerOptions.VERSION_1_8);
+		options.put(CompilerOptions.OPTION_TargetPlatform, CompilerOptions.VERSION_1_8);
+		return new CompilerOptions(options);
+	}
+
+	private boolean compile(IncrementalJavaCompiler compiler) throws IOException {
+		this.diagnostics.clear();
+		return compiler.compile(findSources(this.projectDir), new DiagnosticListener<JavaFileObject>() {
+				@Override
+				public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+					diagnostics.add(diagnostic.getKind() + " " + new File(diagnostic.getSource().getName()).getName()
+									+ ":" + diagnostic.getLineNumber() + ":" + diagnostic.getColumnNumber()
+									+ " " + diagnostic.getMessage(null));
+				}
+			});
+	}
+
+	private List<String> sortedDiagnostics() {
+		List<String> sorted = new ArrayList<>(this.diagnostics);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * 修改时间每次前进，isChanged不依赖文件系统的时间精度
+	 */
+	private void write(String path, String content) throws IOException {
+		File file = new File(this.projectDir, path);
+		long lastModified = file.exists() ? file.lastModified() : 0;
+		writeFile(file, content.getBytes(StandardCharsets.UTF_8));
+		assertTrue(file.setLastModified(Math.max(lastModified + 2000, System.currentTimeMillis())));
+	}
+
+	static void writeFile(File file, byte[] bytes) throws IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(bytes);
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	static List<String> findSources(File dir) throws IOException {
+		final List<String> sources = new ArrayList<>();
+		Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (file.toString().endsWith(".java")) {
+						sources.add(file.toString());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		Collections.sort(sources);
+		return sources;
+	}
+
+	/**
+	 * class相对路径 -> 内容@修改时间
+	 */
+	static Map<String, String> snapshot(final File outputDir) throws IOException {
+		final Map<String, String> snapshot = new TreeMap<>();
+		if (!outputDir.exists()) {
+			return snapshot;
+		}
+		Files.walkFileTree(outputDir.toPath(), new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					if (file.toString().endsWith(".class")) {
+						String path = outputDir.toPath().relativize(file).toString().replace(File.separatorChar, '/');
+						snapshot.put(path, Arrays.hashCode(Files.readAllBytes(file)) + "@" + file.toFile().lastModified());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		return snapshot;
+	}
+
+	static List<String> changedClasses(Map<String, String> before, Map<String, String> after) {
+		List<String> changed = new ArrayList<>();
+		for (Map.Entry<String, String> entry : after.entrySet()) {
+			if (!entry.getValue().equals(before.get(entry.getKey()))) {
+				changed.add(entry.getKey());
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * java 8的 rt.jar，否则从运行时的 java.base复制 java/lang java/io java/util
+	 */
+	static String createBootClasspath(File dir) throws IOException {
+		File rtJar = new File(System.getProperty("java.home"), "lib/rt.jar");
+		if (rtJar.isFile()) {
+			return rtJar.getPath();
+		}
+		File jarFile = new File(dir, "boot.jar");
+		final ZipOutputStream output = new ZipOutputStream(new FileOutputStream(jarFile));
+		try {
+			FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+			final Path base = jrt.getPath("/modules/java.base");
+			for (String packageName : new String[]{"java/lang", "java/io", "java/util"}) {
+				Files.walkFileTree(base.resolve(packageName), new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+							output.putNextEntry(new ZipEntry(base.relativize(file).toString()));
+							InputStream input = Files.newInputStream(file);
+							output.write(IOUtils.readAllBytes(input, true));
+							output.closeEntry();
+							return FileVisitResult.CONTINUE;
+						}
+					});
+			}
+		}
+		finally {
+			output.close();
+		}
+		return jarFile.getPath();
+	}
+}
@@ -0,0 +1,158 @@
+package com.aide.codemodel.language.java;
+
+import io.github.zeroaicy.util.IOUtils;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedNameEnvironmentTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void answersMatchFileSystem() throws IOException {
+		File jarFile = createJar("junit.jar", "org/junit/Test", "org/junit/Assert", "org/junit/runner/Description");
+
+		IndexedNameEnvironment indexedEnvironment = new IndexedNameEnvironment(Collections.singletonList(jarFile.getPath()), "UTF-8");
+		FileSystem fileSystem = new FileSystem(new String[]{jarFile.getPath()}, null, "UTF-8");
+		try {
+			String[] typeNames = {
+				"org/junit/Test",
+				"org/junit/Assert",
+				"org/junit/runner/Description",
+				"org/junit/Missing",
+				"org/other/Test",
+				"Test"
+			};
+			for (String typeName : typeNames) {
+				char[][] compoundTypeName = toCompoundName(typeName);
+				assertEquals(typeName,
+							 fileSystem.findType(compoundTypeName) != null,
+							 indexedEnvironment.findType(compoundTypeName) != null);
+			}
+
+			assertPackage(fileSystem, indexedEnvironment, null, "org");
+			assertPackage(fileSystem, indexedEnvironment, toCompoundName("org"), "junit");
+			assertPackage(fileSystem, indexedEnvironment, toCompoundName("org/junit"), "runner");
+			assertPackage(fileSystem, indexedEnvironment, toCompoundName("org/junit"), "missing");
+			assertPackage(fileSystem, indexedEnvironment, null, "com");
+		}
+		finally {
+			indexedEnvironment.cleanup();
+			fileSystem.cleanup();
+		}
+	}
+
+	@Test
+	public void directoryIsAnsweredByFileSystem() throws IOException {
+		File dir = this.temporaryFolder.newFolder("classes");
+		writeClass(new File(dir, "org/junit/Test.class"), "org/junit/Test");
+
+		IndexedNameEnvironment indexedEnvironment = new IndexedNameEnvironment(Collections.singletonList(dir.getPath()), "UTF-8");
+		try {
+			assertNotNull(indexedEnvironment.findType(toCompoundName("org/junit/Test")));
+			assertNull(indexedEnvironment.findType(toCompoundName("org/junit/Assert")));
+			assertTrue(indexedEnvironment.isPackage(toCompoundName("org"), "junit".toCharArray()));
+		}
+		finally {
+			indexedEnvironment.cleanup();
+		}
+	}
+
+	@Test
+	public void indexIsReusedUntilJarChanges() throws IOException {
+		File jarFile = createJar("lib.jar", "org/junit/Test");
+
+		IndexedNameEnvironment.JarTypeIndex jarTypeIndex = IndexedNameEnvironment.JarTypeIndex.get(jarFile.getPath());
+		assertSame(jarTypeIndex, IndexedNameEnvironment.JarTypeIndex.get(jarFile.getPath()));
+		assertTrue(jarTypeIndex.containsType("org/junit", "Test"));
+		assertFalse(jarTypeIndex.containsType("org/junit", "Assert"));
+
+		createJar("lib.jar", "org/junit/Test", "org/junit/Assert");
+		assertTrue(jarFile.setLastModified(jarTypeIndex.lastModified + 2000));
+
+		IndexedNameEnvironment.JarTypeIndex rebuilt = IndexedNameEnvironment.JarTypeIndex.get(jarFile.getPath());
+		assertTrue(rebuilt.containsType("org/junit", "Assert"));
+	}
+
+	@Test
+	public void invalidJarIsNotIndexed() throws IOException {
+		File file = this.temporaryFolder.newFile("invalid.jar");
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(new byte[]{1, 2, 3});
+		}
+		finally {
+			output.close();
+		}
+		assertNull(IndexedNameEnvironment.JarTypeIndex.get(file.getPath()));
+	}
+
+	private static void assertPackage(FileSystem fileSystem, INameEnvironment indexedEnvironment, char[][] parentPackageName, String packageName) {
+		assertEquals(packageName,
+					 fileSystem.isPackage(parentPackageName, packageName.toCharArray()),
+					 indexedEnvironment.isPackage(parentPackageName, packageName.toCharArray()));
+	}
+
+	private static char[][] toCompoundName(String typeName) {
+		String[] names = typeName.split("/");
+		char[][] compoundName = new char[names.length][];
+		for (int i = 0; i < names.length; i++) {
+			compoundName[i] = names[i].toCharArray();
+		}
+		return compoundName;
+	}
+
+	/**
+	 * 使用测试类路径中junit的class
+	 */
+	private File createJar(String name, String... typeNames) throws IOException {
+		File jarFile = new File(this.temporaryFolder.getRoot(), name);
+		ZipOutputStream output = new ZipOutputStream(new FileOutputStream(jarFile));
+		try {
+			for (String typeName : Arrays.asList(typeNames)) {
+				output.putNextEntry(new ZipEntry(typeName + ".class"));
+				output.write(readClass(typeName));
+				output.closeEntry();
+			}
+		}
+		finally {
+			output.close();
+		}
+		return jarFile;
+	}
+
+	private static void writeClass(File file, String typeName) throws IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(readClass(typeName));
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	private static byte[] readClass(String typeName) throws IOException {
+		InputStream input = IndexedNameEnvironmentTest.class.getResourceAsStream("/" + typeName + ".class");
+		return IOUtils.readAllBytes(input, true);
+	}
+}
@@ -0,0 +1,265 @@
+package com.aide.codemodel.language.smali;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SmaliStructureParserTest {
+
+	private static final String SMALI = ".class public Lcom/a/B;\n"
+	+ ".super Ljava/lang/Object;\n"
+	+ "\n"
+	+ ".field private name:Ljava/lang/String;\n"
+	+ ".field public static final MAX:I = 0x10\n"
+	+ "\n"
+	+ "  .method public constructor <init>()V\r\n"
+	+ "    .registers 1\n"
+	+ "    return-void\n"
+	+ ".end method\n"
+	+ "\n"
+	+ ".method public foo(ILjava/lang/String;)V\n"
+	+ ".end method";
+
+	@Test
+	public void parsesDefinitions() {
+		SmaliFileStructure structure = parse(SMALI);
+		assertEquals("Lcom/a/B;", structure.className);
+		assertEquals(Arrays.asList(
+						 "Lcom/a/B; [1:15]",
+						 "Lcom/a/B;->name:Ljava/lang/String; [4:16]",
+						 "Lcom/a/B;->MAX:I [5:28]",
+						 "Lcom/a/B;-><init>()V [7:30]",
+						 "Lcom/a/B;->foo(ILjava/lang/String;)V [12:16]"), toStrings(structure.definitions));
+
+		assertEquals(SmaliSymbol.KIND_TYPE, structure.definitions.get(0).kind);
+		assertEquals(SmaliSymbol.KIND_FIELD, structure.definitions.get(1).kind);
+		assertEquals(SmaliSymbol.KIND_METHOD, structure.definitions.get(4).kind);
+		assertEquals(SMALI.indexOf("Lcom/a/B;"), structure.definitions.get(0).offset);
+	}
+
+	@Test
+	public void membersWithoutClassAreIgnored() {
+		SmaliFileStructure structure = parse(".field private name:I\n.method foo()V\n");
+		assertNull(structure.className);
+		assertEquals(0, structure.definitions.size());
+	}
+
+	@Test
+	public void invalidMembersAreIgnored() {
+		SmaliFileStructure structure = parse(".class LA;\n.field name\n.method foo\n.method\n");
+		assertEquals(Arrays.asList("LA; [1:8]"), toStrings(structure.definitions));
+	}
+
+	@Test
+	public void indexFindsDefinitionsByPrefix() {
+		SmaliIndex smaliIndex = new SmaliIndex();
+		smaliIndex.updateFile("/p/B.smali", 1, parse(SMALI));
+		smaliIndex.updateFile("/p/C.smali", 1, parse(".class Lcom/a/C;\n.method bar()V\n"));
+
+		assertEquals(Arrays.asList("Lcom/a/B;", "Lcom/a/C;"), signatures(smaliIndex.findDefinitions("Lcom/a/", false, 10)));
+		// 按签名排序 最多limit个
+		assertEquals(Arrays.asList("Lcom/a/B;-><init>()V", "Lcom/a/B;->MAX:I"), signatures(smaliIndex.findDefinitions("Lcom/a/B;->", true, 2)));
+		assertEquals(Arrays.asList("Lcom/a/C;->bar()V"), signatures(smaliIndex.findDefinitions("Lcom/a/C", true, 10)));
+		assertEquals(0, smaliIndex.findDefinitions("Lcom/b/", false, 10).size());
+	}
+
+	@Test
+	public void indexReplacesAndRemovesFiles() {
+		SmaliIndex smaliIndex = new SmaliIndex();
+		smaliIndex.updateFile("/p/B.smali", 1, parse(SMALI));
+		smaliIndex.updateFile("/p/C.smali", 1, parse(".class Lcom/a/C;\n"));
+
+		// 重命名类
+		smaliIndex.updateFile("/p/B.smali", 1, parse(".class Lcom/a/D;\n"));
+		assertEquals(Arrays.asList("Lcom/a/C;", "Lcom/a/D;"), signatures(smaliIndex.findDefinitions("L", false, 10)));
+		assertEquals(0, smaliIndex.findDefinitions("Lcom/a/B;", true, 10).size());
+
+		smaliIndex.retainFiles(Arrays.asList("/p/B.smali"));
+		assertEquals(Arrays.asList("Lcom/a/D;"), signatures(smaliIndex.findDefinitions("L", false, 10)));
+
+		smaliIndex.removeFile("/p/B.smali");
+		assertEquals(0, smaliIndex.findDefinitions("L", false, 10).size());
+	}
+
+	@Test
+	public void indexKeepsDefinitionsOfEveryFile() {
+		SmaliIndex smaliIndex = new SmaliIndex();
+		smaliIndex.updateFile("/p/1/B.smali", 1, parse(".class Lcom/a/B;\n"));
+		smaliIndex.updateFile("/p/2/B.smali", 1, parse(".class Lcom/a/B;\n"));
+
+		List<SmaliIndex.Location> locations = smaliIndex.findDefinitions("Lcom/a/B;", false, 10);
+		assertEquals(2, locations.size());
+
+		smaliIndex.removeFile("/p/1/B.smali");
+		locations = smaliIndex.findDefinitions("Lcom/a/B;", false, 10);
+		assertEquals(1, locations.size());
+		assertEquals("/p/2/B.smali", locations.get(0).filePath);
+	}
+
+	// baksmali输出
+	private static final String BAKSMALI = ".class public Lcom/a/Main;\n"
+	+ ".super Landroid/app/Activity;\n"
+	+ ".source \"Main.java\"\n"
+	+ "\n"
+	+ "# interfaces\n"
+	+ ".implements Ljava/lang/Runnable;\n"
+	+ "\n"
+	+ "\n"
+	+ "# instance fields\n"
+	+ ".field private count:I\n"
+	+ "\n"
+	+ "\n"
+	+ "# direct methods\n"
+	+ ".method public constructor <init>()V\n"
+	+ "    .registers 1\n"
+	+ "\n"
+	+ "    .line 5\n"
+	+ "    invoke-direct {p0}, Landroid/app/Activity;-><init>()V\n"
+	+ "\n"
+	+ "    return-void\n"
+	+ ".end method\n"
+	+ "\n"
+	+ "\n"
+	+ "# virtual methods\n"
+	+ ".method public run()V\n"
+	+ "    .registers 4\n"
+	+ "\n"
+	+ "    iget v0, p0, Lcom/a/Main;->count:I\n"
+	+ "    add-int/lit8 v0, v0, 0x1\n"
+	+ "    iput v0, p0, Lcom/a/Main;->count:I\n"
+	+ "    new-instance v1, Lcom/a/Helper;\n"
+	+ "    invoke-direct {v1}, Lcom/a/Helper;-><init>()V\n"
+	+ "    invoke-virtual {v1, v0}, Lcom/a/Helper;->log(I)V\n"
+	+ "    const-class v2, [Lcom/a/Helper;\n"
+	+ "    new-array v3, v0, [I\n"
+	+ "    invoke-static/range {v0 .. v1}, Lcom/a/Helper;->log(I)V\n"
+	+ "    return-void\n"
+	+ ".end method\n";
+
+	@Test
+	public void parsesReferences() {
+		SmaliFileStructure structure = parse(BAKSMALI);
+		assertEquals("Landroid/app/Activity;", structure.superName);
+		assertEquals(Arrays.asList("Ljava/lang/Runnable;"), structure.interfaceNames);
+		assertEquals(Arrays.asList(
+						 "Landroid/app/Activity; [2:8]",
+						 "Ljava/lang/Runnable; [6:13]",
+						 "Landroid/app/Activity;-><init>()V [18:25]",
+						 "Lcom/a/Main;->count:I [28:18]",
+						 "Lcom/a/Main;->count:I [30:18]",
+						 "Lcom/a/Helper; [31:22]",
+						 "Lcom/a/Helper;-><init>()V [32:25]",
+						 "Lcom/a/Helper;->log(I)V [33:30]",
+						 "Lcom/a/Helper; [34:22]",
+						 "Lcom/a/Helper;->log(I)V [36:37]"), toStrings(structure.references));
+
+		// 引用所在的方法
+		assertNull(structure.references.get(0).container);
+		assertEquals("Lcom/a/Main;-><init>()V", structure.references.get(2).container);
+		assertEquals("Lcom/a/Main;->run()V", structure.references.get(3).container);
+		assertEquals(SmaliSymbol.KIND_METHOD, structure.references.get(2).kind);
+		assertEquals(SmaliSymbol.KIND_FIELD, structure.references.get(3).kind);
+		assertEquals(SmaliSymbol.KIND_TYPE, structure.references.get(5).kind);
+	}
+
+	@Test
+	public void indexFindsDefinitionsAndCountsReferences() {
+		SmaliIndex smaliIndex = new SmaliIndex();
+		smaliIndex.updateFile("/p/Main.smali", 1, parse(BAKSMALI));
+		smaliIndex.updateFile("/p/Helper.smali", 1, parse(".class public Lcom/a/Helper;\n"
+														   + ".method public log(I)V\n"
+														   + "    invoke-virtual {p0, p1}, Lcom/a/Helper;->log(I)V\n"
+														   + ".end method\n"));
+
+		List<SmaliIndex.Location> definitions = smaliIndex.getDefinitions("Lcom/a/Helper;->log(I)V");
+		assertEquals(1, definitions.size());
+		assertEquals("/p/Helper.smali:2:16", definitions.get(0).toString());
+		assertEquals("/p/Helper.smali", smaliIndex.getDefinitions("Lcom/a/Helper;").get(0).filePath);
+
+		assertEquals(3, smaliIndex.getReferenceCount("Lcom/a/Helper;->log(I)V"));
+		assertEquals(2, smaliIndex.getReferenceCount("Lcom/a/Helper;"));
+		assertEquals(2, smaliIndex.getReferenceCount("Lcom/a/Main;->count:I"));
+		assertEquals(0, smaliIndex.getReferenceCount("Lcom/a/Missing;"));
+		assertEquals(0, smaliIndex.getDefinitions("Lcom/a/Missing;").size());
+
+		// 修改文件只更新此文件的引用
+		smaliIndex.updateFile("/p/Main.smali", 2, parse(".class public Lcom/a/Main;\n"));
+		assertEquals(1, smaliIndex.getReferenceCount("Lcom/a/Helper;->log(I)V"));
+		assertEquals(0, smaliIndex.getReferenceCount("Lcom/a/Helper;"));
+		assertEquals("/p/Helper.smali", smaliIndex.getReferences("Lcom/a/Helper;->log(I)V").get(0).filePath);
+
+		smaliIndex.removeFile("/p/Helper.smali");
+		assertEquals(0, smaliIndex.getReferenceCount("Lcom/a/Helper;->log(I)V"));
+		assertEquals(1, smaliIndex.getFileCount());
+	}
+
+	@Test
+	public void indexTracksFileVersions() {
+		SmaliIndex smaliIndex = new SmaliIndex();
+		assertFalse(smaliIndex.isIndexed("/p/B.smali", 1));
+		smaliIndex.updateFile("/p/B.smali", 1, parse(SMALI));
+		assertTrue(smaliIndex.isIndexed("/p/B.smali", 1));
+		assertFalse(smaliIndex.isIndexed("/p/B.smali", 2));
+
+		smaliIndex.retainFiles(Arrays.<String>asList());
+		assertFalse(smaliIndex.isIndexed("/p/B.smali", 1));
+		assertNull(smaliIndex.getFileStructure("/p/B.smali"));
+	}
+
+	@Test
+	public void indexesTenThousandFiles() {
+		int fileCount = 10000;
+		SmaliIndex smaliIndex = new SmaliIndex();
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < fileCount; i++) {
+			String text = ".class public Lcom/gen/C" + i + ";\n"
+				+ ".super Ljava/lang/Object;\n"
+				+ ".field private value:I\n"
+				+ ".method public call()V\n"
+				+ "    .registers 2\n"
+				+ "    new-instance v0, Lcom/gen/C" + ((i + 1) % fileCount) + ";\n"
+				+ "    invoke-virtual {v0}, Lcom/gen/C" + ((i + 1) % fileCount) + ";->call()V\n"
+				+ "    iget v1, p0, Lcom/gen/C" + i + ";->value:I\n"
+				+ "    invoke-static {}, Lcom/gen/Util;->run()V\n"
+				+ "    return-void\n"
+				+ ".end method\n";
+			smaliIndex.updateFile("/p/C" + i + ".smali", 1, parse(text));
+		}
+		long time = System.currentTimeMillis() - now;
+		System.out.println("indexed " + fileCount + " smali files in " + time + "ms");
+
+		assertEquals(fileCount, smaliIndex.getFileCount());
+		assertEquals(fileCount, smaliIndex.getReferenceCount("Lcom/gen/Util;->run()V"));
+		assertEquals(1, smaliIndex.getReferenceCount("Lcom/gen/C42;->call()V"));
+		assertEquals("/p/C41.smali", smaliIndex.getReferences("Lcom/gen/C42;->call()V").get(0).filePath);
+		assertEquals("/p/C42.smali", smaliIndex.getDefinitions("Lcom/gen/C42;->value:I").get(0).filePath);
+		assertEquals(fileCount, smaliIndex.getReferenceCount("Ljava/lang/Object;"));
+	}
+
+	private static SmaliFileStructure parse(String text) {
+		char[] chars = text.toCharArray();
+		return SmaliStructureParser.parse(chars, chars.length);
+	}
+
+	private static List<String> toStrings(List<SmaliSymbol> symbols) {
+		List<String> strings = new ArrayList<>();
+		for (SmaliSymbol symbol : symbols) {
+			strings.add(symbol.toString());
+		}
+		return strings;
+	}
+
+	private static List<String> signatures(List<SmaliIndex.Location> locations) {
+		List<String> signatures = new ArrayList<>();
+		for (SmaliIndex.Location location : locations) {
+			signatures.add(location.symbol.signature);
+		}
+		return signatures;
+	}
+}
@@ -0,0 +1,128 @@
+package com.aide.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class EngineSolutionProjectCodecTest {
+
+	@Test
+	public void stringsRoundTrip() {
+		List<String> strings = Arrays.asList(
+			"/storage/emulated/0/AppProjects/app/src/main/java",
+			"/storage/emulated/0/AppProjects/app/src/main/res",
+			null,
+			"/storage/emulated/0/AppProjects/app/src/main/java",
+			"/storage/emulated/0/AppProjects/app",
+			"relative/path",
+			"",
+			"/",
+			"//double//slash/",
+			"中文/路径");
+
+		EngineSolutionProjectCodec.Writer writer = EngineSolutionProjectCodec.newWriter();
+		writer.writeBoolean(true);
+		for (String string : strings) {
+			writer.writeString(string);
+		}
+		writer.writeStringList(strings);
+		writer.writeStringList(null);
+		writer.writeBoolean(false);
+
+		EngineSolutionProjectCodec.Reader reader = EngineSolutionProjectCodec.newReader(writer.toByteArray());
+		assertTrue(reader.readBoolean());
+		for (String string : strings) {
+			assertEquals(string, reader.readString());
+		}
+		assertEquals(strings, reader.readStringList());
+		// null读取为空列表
+		assertEquals(Collections.emptyList(), reader.readStringList());
+		assertFalse(reader.readBoolean());
+	}
+
+	@Test
+	public void sharedParentsAreWrittenOnce() {
+		List<String> paths = new ArrayList<>();
+		int rawLength = 0;
+		for (int i = 0; i < 200; i++) {
+			String path = "/storage/emulated/0/.aide/maven/com/example/lib" + i + "/1.0/lib" + i + "-1.0.jar";
+			paths.add(path);
+			rawLength += path.length();
+		}
+		EngineSolutionProjectCodec.Writer writer = EngineSolutionProjectCodec.newWriter();
+		writer.writeStringList(paths);
+		// 再次写入只写序号
+		writer.writeStringList(paths);
+		byte[] data = writer.toByteArray();
+
+		assertTrue("size " + data.length + " raw " + rawLength, data.length < rawLength / 2);
+
+		EngineSolutionProjectCodec.Reader reader = EngineSolutionProjectCodec.newReader(data);
+		assertEquals(paths, reader.readStringList());
+		assertEquals(paths, reader.readStringList());
+	}
+
+	@Test
+	public void filesRoundTrip() {
+		EngineSolutionProjectCodec.Writer writer = EngineSolutionProjectCodec.newWriter();
+		// 基础jar中File的字段无法对应时使用Parcelable
+		assumeTrue(writer.canWriteFiles());
+
+		List<EngineSolution.File> files = new ArrayList<>();
+		files.add(new EngineSolution.File("/p/app/src/main/java", "Java", "debug", true, false));
+		files.add(new EngineSolution.File("/p/app/src/main/res", "Xml", null, false, true));
+		files.add(new EngineSolution.File("/p/app/build/gen", "Java", "debug", true, true));
+		files.add(new EngineSolution.File("/p/app/libs", "", "", false, false));
+		writer.writeFiles(files);
+		writer.writeFiles(null);
+		byte[] data = writer.toByteArray();
+
+		EngineSolutionProjectCodec.Reader reader = EngineSolutionProjectCodec.newReader(data);
+		assertTrue(reader.hasFiles());
+		ArrayList<EngineSolution.File> readFiles = reader.readFiles();
+		assertEquals(files.size(), readFiles.size());
+		assertEquals(0, reader.readFiles().size());
+
+		// File没有equals，比较再次写入的结果
+		EngineSolutionProjectCodec.Writer rewriter = EngineSolutionProjectCodec.newWriter();
+		rewriter.writeFiles(readFiles);
+		rewriter.writeFiles(null);
+		assertArrayEquals(data, rewriter.toByteArray());
+	}
+
+	@Test
+	public void rejectsOtherFormatVersion() throws IOException {
+		ByteArrayOutputStream byteArrayOutput = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(byteArrayOutput);
+		output.writeByte(EngineSolutionProjectCodec.FORMAT_VERSION + 1);
+		output.writeBoolean(false);
+		output.flush();
+		try {
+			EngineSolutionProjectCodec.newReader(byteArrayOutput.toByteArray());
+			fail();
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void nullStringRoundTrip() {
+		EngineSolutionProjectCodec.Writer writer = EngineSolutionProjectCodec.newWriter();
+		writer.writeString(null);
+		assertNull(EngineSolutionProjectCodec.newReader(writer.toByteArray()).readString());
+	}
+}
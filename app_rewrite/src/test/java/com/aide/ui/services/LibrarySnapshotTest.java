@@ -0,0 +1,99 @@
+package com.aide.ui.services;
+
+import com.aide.ui.util.ClassPath;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class LibrarySnapshotTest {
+
+	private static final String APP_HOME = "/p/app";
+
+	@Test
+	public void answersMatchLinearScan() {
+		Map<String, List<String>> libraryMapping = new HashMap<>();
+		List<ClassPath.Entry> classPathEntrys = new ArrayList<>();
+		List<String> appLibrarys = new ArrayList<>();
+		List<String> otherLibrarys = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			String jarPath = "/m2/com/example/lib" + i + "/1.0/lib" + i + "-1.0.jar";
+			// 一半作为classpath的lib
+			if (i % 2 == 0) {
+				classPathEntrys.add(new ClassPath.Entry("lib", jarPath, false, true));
+			} else {
+				classPathEntrys.add(new ClassPath.Entry("src", "src" + i, false));
+			}
+			if (i % 3 == 0) {
+				appLibrarys.add(jarPath);
+			} else if (i % 3 == 1) {
+				otherLibrarys.add(jarPath);
+			}
+		}
+		appLibrarys.add("/p/lib");
+		libraryMapping.put(APP_HOME, appLibrarys);
+		libraryMapping.put("/p/lib", otherLibrarys);
+
+		ZeroAicyProjectService.LibrarySnapshot snapshot = new ZeroAicyProjectService.LibrarySnapshot(libraryMapping, APP_HOME, classPathEntrys);
+
+		List<String> queries = new ArrayList<>();
+		for (int i = 0; i < 520; i++) {
+			queries.add("/m2/com/example/lib" + i + "/1.0/lib" + i + "-1.0.jar");
+		}
+		queries.add("/p/lib");
+		queries.add("/p/other");
+
+		for (String query : queries) {
+			assertEquals(query, containsLib(classPathEntrys, query), snapshot.containsLib(query));
+			assertEquals(query, appLibrarys.contains(query), snapshot.containsModuleLibrary(APP_HOME, query));
+			assertEquals(query, otherLibrarys.contains(query), snapshot.containsModuleLibrary("/p/lib", query));
+		}
+	}
+
+	@Test
+	public void libraryOwnerIsFirstDeclaringModule() {
+		Map<String, List<String>> libraryMapping = new LinkedHashMap<>();
+		List<String> appLibrarys = new ArrayList<>();
+		appLibrarys.add("/m2/a.jar");
+		libraryMapping.put(APP_HOME, appLibrarys);
+		List<String> libLibrarys = new ArrayList<>();
+		libLibrarys.add("/m2/a.jar");
+		libLibrarys.add("/m2/b.jar");
+		libraryMapping.put("/p/lib", libLibrarys);
+		libraryMapping.put("/p/empty", null);
+
+		ZeroAicyProjectService.LibrarySnapshot snapshot = new ZeroAicyProjectService.LibrarySnapshot(libraryMapping, APP_HOME, null);
+
+		assertEquals(APP_HOME, snapshot.getLibraryOwner("/m2/a.jar"));
+		assertEquals("/p/lib", snapshot.getLibraryOwner("/m2/b.jar"));
+		assertNull(snapshot.getLibraryOwner("/m2/c.jar"));
+		assertFalse(snapshot.containsModuleLibrary("/p/empty", "/m2/a.jar"));
+		assertFalse(snapshot.containsLib("/m2/a.jar"));
+	}
+
+	@Test
+	public void emptySnapshotHasNoModules() {
+		assertFalse(ZeroAicyProjectService.LibrarySnapshot.EMPTY.containsModule(APP_HOME));
+		assertFalse(new ZeroAicyProjectService.LibrarySnapshot(Collections.<String, List<String>>emptyMap(), APP_HOME, null).containsModule(APP_HOME));
+	}
+
+	/**
+	 * 建立索引前的查询方式
+	 */
+	private static boolean containsLib(List<ClassPath.Entry> classPathEntrys, String filePath) {
+		for (ClassPath.Entry entry : classPathEntrys) {
+			if (entry.isLibKind()
+				&& entry.resolveFilePath(APP_HOME).equals(filePath)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
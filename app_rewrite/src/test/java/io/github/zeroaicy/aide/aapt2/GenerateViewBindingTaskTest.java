@@ -0,0 +1,159 @@
+package io.github.zeroaicy.aide.aapt2;
+
+import io.github.zeroaicy.util.IOUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GenerateViewBindingTaskTest {
+
+	private static final long OLD_TIME = 1000000L;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File resDir;
+	private File genDir;
+	private File intermediatesDir;
+	private FakeGenerator generator;
+
+	@Before
+	public void setUp() throws IOException {
+		this.resDir = this.temporaryFolder.newFolder("res");
+		this.genDir = this.temporaryFolder.newFolder("gen");
+		this.intermediatesDir = this.temporaryFolder.newFolder("intermediates");
+		this.generator = new FakeGenerator();
+
+		write(new File(this.resDir, "layout/activity_main.xml"), "<LinearLayout />");
+		write(new File(this.resDir, "layout/item_row.xml"), "<TextView />");
+		write(new File(this.resDir, "values/strings.xml"), "<resources />");
+	}
+
+	@Test
+	public void firstRunGeneratesAllBindings() throws Exception {
+		run("1");
+		assertEquals(1, this.generator.count);
+		assertEquals("<LinearLayout />", read(binding("ActivityMainBinding")));
+		assertEquals("<TextView />", read(binding("ItemRowBinding")));
+	}
+
+	@Test
+	public void unchangedLayoutsSkipGenerator() throws Exception {
+		run("1");
+		run("1");
+		assertEquals(1, this.generator.count);
+	}
+
+	@Test
+	public void editedLayoutRewritesOnlyItsBinding() throws Exception {
+		run("1");
+		assertTrue(binding("ActivityMainBinding").setLastModified(OLD_TIME));
+		assertTrue(binding("ItemRowBinding").setLastModified(OLD_TIME));
+
+		write(new File(this.resDir, "layout/item_row.xml"), "<Button />");
+		run("1");
+
+		assertEquals(2, this.generator.count);
+		assertEquals(OLD_TIME, binding("ActivityMainBinding").lastModified());
+		assertTrue(binding("ItemRowBinding").lastModified() != OLD_TIME);
+		assertEquals("<Button />", read(binding("ItemRowBinding")));
+		// 临时目录已删除
+		assertFalse(new File(this.intermediatesDir, "viewbinding/gen").exists());
+	}
+
+	@Test
+	public void nonLayoutChangeSkipsGenerator() throws Exception {
+		run("1");
+		write(new File(this.resDir, "values/strings.xml"), "<resources><string name=\"a\">a</string></resources>");
+		run("1");
+		assertEquals(1, this.generator.count);
+	}
+
+	@Test
+	public void removedLayoutDeletesItsBinding() throws Exception {
+		run("1");
+		assertTrue(binding("ActivityMainBinding").setLastModified(OLD_TIME));
+		assertTrue(new File(this.resDir, "layout/item_row.xml").delete());
+		run("1");
+
+		assertFalse(binding("ItemRowBinding").exists());
+		assertEquals(OLD_TIME, binding("ActivityMainBinding").lastModified());
+	}
+
+	@Test
+	public void generatorChangeRegeneratesWithoutRewritingSameContent() throws Exception {
+		run("1");
+		assertTrue(binding("ActivityMainBinding").setLastModified(OLD_TIME));
+		run("2");
+		assertEquals(2, this.generator.count);
+		assertEquals(OLD_TIME, binding("ActivityMainBinding").lastModified());
+	}
+
+	@Test
+	public void deletedBindingIsGeneratedAgain() throws Exception {
+		run("1");
+		assertTrue(binding("ItemRowBinding").delete());
+		run("1");
+		assertEquals(2, this.generator.count);
+		assertEquals("<TextView />", read(binding("ItemRowBinding")));
+	}
+
+	private void run(String generatorVersion) throws Exception {
+		GenerateViewBindingTask.run(this.resDir.getPath(), this.genDir.getPath(), "com.example", true, this.intermediatesDir.getPath(), generatorVersion, this.generator);
+	}
+
+	private File binding(String name) {
+		return new File(this.genDir, "com/example/databinding/" + name + ".java");
+	}
+
+	/**
+	 * 每个布局生成一个Binding 内容为布局内容
+	 */
+	private static class FakeGenerator implements GenerateViewBindingTask.Generator {
+		int count;
+
+		@Override
+		public void generate(String resPath, String outputDir, String packageName, boolean isAndroidx) throws Exception {
+			this.count++;
+			File[] layoutFiles = new File(resPath, "layout").listFiles();
+			if (layoutFiles == null) {
+				return;
+			}
+			for (File layoutFile : layoutFiles) {
+				String layoutName = layoutFile.getName();
+				layoutName = layoutName.substring(0, layoutName.length() - ".xml".length());
+				StringBuilder bindingName = new StringBuilder();
+				for (String part : layoutName.split("_")) {
+					bindingName.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+				}
+				File bindingFile = new File(outputDir, packageName.replace('.', '/') + "/databinding/" + bindingName + "Binding.java");
+				write(bindingFile, read(layoutFile));
+			}
+		}
+	}
+
+	private static void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(IOUtils.readAllBytes(new FileInputStream(file), true), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,168 @@
+package io.github.zeroaicy.aide.cmake;
+
+import com.aide.engine.SyntaxError;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NativeDiagnosticsParserTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private String projectPath;
+	private String sourcePath;
+
+	@Before
+	public void setUp() throws IOException {
+		this.projectPath = this.temporaryFolder.getRoot().getPath();
+		File source = new File(this.temporaryFolder.newFolder("jni"), "main.c");
+		assertTrue(source.createNewFile());
+		this.sourcePath = source.getPath();
+	}
+
+	@Test
+	public void parsesErrorsAndWarnings() {
+		List<String> reported = new ArrayList<>();
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, new RecordingListener(reported));
+
+		write(parser, "[1/2] Building C object\n"
+			  + this.sourcePath + ":12:5: error: unknown type name 'foo'\n"
+			  + "jni/main.c:3: warning: unused variable\n"
+			  + this.sourcePath + ":7:1: fatal error: 'x.h' file not found\n");
+		parser.close();
+
+		assertEquals(2, parser.getErrorCount());
+		assertEquals(1, parser.getWarningCount());
+		assertEquals(Arrays.asList(
+						 "E 12:5 NDK: unknown type name 'foo'",
+						 "W 3:1 NDK warning: unused variable",
+						 "E 7:1 NDK: 'x.h' file not found"), reported);
+
+		Map<String, List<SyntaxError>> syntaxErrors = parser.getSyntaxErrors();
+		assertEquals(1, syntaxErrors.size());
+		assertEquals(3, syntaxErrors.get(this.sourcePath).size());
+	}
+
+	@Test
+	public void lineSplitAcrossWrites() {
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, null);
+		String line = this.sourcePath + ":1:2: error: split\n";
+		for (int i = 0; i < line.length(); i++) {
+			parser.write(line.charAt(i));
+		}
+		assertEquals(1, parser.getErrorCount());
+	}
+
+	@Test
+	public void lastLineIsParsedOnClose() {
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, null);
+		write(parser, this.sourcePath + ":1:2: error: no newline");
+		assertEquals(0, parser.getErrorCount());
+		parser.close();
+		assertEquals(1, parser.getErrorCount());
+	}
+
+	@Test
+	public void ignoresMissingFilesAndOtherLines() {
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, null);
+		write(parser, "jni/missing.c:1:1: error: missing\n"
+			  + "error: no location\n"
+			  + "ninja: build stopped\n");
+		parser.close();
+		assertEquals(0, parser.getErrorCount());
+		assertEquals(0, parser.getWarningCount());
+	}
+
+	@Test
+	public void longLineDoesNotBreakNextLine() {
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, null);
+		StringBuilder longLine = new StringBuilder();
+		while (longLine.length() < 64 * 1024) {
+			longLine.append("xxxxxxxx");
+		}
+		write(parser, longLine + "\n" + this.sourcePath + ":4:4: error: after long line\n");
+		assertEquals(1, parser.getErrorCount());
+	}
+
+	@Test
+	public void tailKeepsLastBytes() {
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, null);
+		byte[] data = new byte[100 * 1024];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) ('0' + i % 10);
+		}
+		// 多次写入 环形缓冲区回绕
+		for (int offset = 0; offset < data.length; offset += 3000) {
+			parser.write(data, offset, Math.min(3000, data.length - offset));
+		}
+		byte[] tail = parser.getTail();
+		assertEquals(64 * 1024, tail.length);
+		assertArrayEquals(Arrays.copyOfRange(data, data.length - tail.length, data.length), tail);
+	}
+
+	@Test
+	public void shortOutputIsKeptWhole() {
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, null);
+		write(parser, "abc");
+		write(parser, "def");
+		assertEquals("abcdef", new String(parser.getTail()));
+	}
+
+	@Test
+	public void sameDiagnosticFromAnotherAbiIsKeptOnce() {
+		List<String> reported = new ArrayList<>();
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, new RecordingListener(reported));
+		String output = this.sourcePath + ":3:1: warning: unused variable\n";
+		// arm64-v8a
+		write(parser, output);
+		parser.close();
+		// armeabi-v7a
+		parser.resetTail();
+		write(parser, output + this.sourcePath + ":9:2: warning: only on 32bit\n");
+		parser.close();
+
+		assertEquals(2, parser.getWarningCount());
+		assertEquals(2, reported.size());
+		assertEquals(2, parser.getSyntaxErrors().get(this.sourcePath).size());
+	}
+
+	@Test
+	public void resetTailKeepsDiagnostics() {
+		NativeDiagnosticsParser parser = new NativeDiagnosticsParser(this.projectPath, null);
+		write(parser, this.sourcePath + ":1:1: warning: first run\n");
+		parser.resetTail();
+		write(parser, "second run");
+		assertEquals("second run", new String(parser.getTail()));
+		assertEquals(1, parser.getWarningCount());
+	}
+
+	private static void write(NativeDiagnosticsParser parser, String text) {
+		byte[] data = text.getBytes();
+		parser.write(data, 0, data.length);
+	}
+
+	private static class RecordingListener implements NativeDiagnosticsParser.Listener {
+		private final List<String> reported;
+
+		RecordingListener(List<String> reported) {
+			this.reported = reported;
+		}
+
+		@Override
+		public void onDiagnostic(String filePath, SyntaxError syntaxError, boolean isError) {
+			this.reported.add((isError ? "E " : "W ") + syntaxError.jw + ":" + syntaxError.fY + " " + syntaxError.zh);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package io.github.zeroaicy.aide.completion;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ModuleResourceTablesTest {
+
+	/**
+	 * ResourceTable依赖android类，使用代替
+	 */
+	private static class ResourceTable {
+	}
+
+	@Test
+	public void rebuildReplacesOldAppTable() {
+		final Set<ResourceTable> moduleTables = new LinkedHashSet<>();
+		ModuleResourceTables<ResourceTable> tables = new ModuleResourceTables<ResourceTable>(moduleTables);
+		assertNull(tables.getAppTable());
+		assertTrue(tables.getTables().isEmpty());
+
+		final ResourceTable libTable = new ResourceTable();
+		tables.update(new ModuleResourceTables.Builder<ResourceTable>(){
+				@Override
+				public ResourceTable build() {
+					moduleTables.add(libTable);
+					return libTable;
+				}
+			});
+
+		ResourceTable oldAppTable = tables.rebuildAppTable(newAppTable(moduleTables));
+		assertSame(oldAppTable, tables.getAppTable());
+		assertEquals(new HashSet<>(Arrays.asList(libTable, oldAppTable)), tables.getTables());
+
+		ResourceTable newAppTable = tables.rebuildAppTable(newAppTable(moduleTables));
+		assertSame(newAppTable, tables.getAppTable());
+		assertEquals(new HashSet<>(Arrays.asList(libTable, newAppTable)), tables.getTables());
+		assertEquals(tables.getTables(), moduleTables);
+	}
+
+	@Test
+	public void readersSeeOldTablesWhileRebuilding() throws InterruptedException {
+		final Set<ResourceTable> moduleTables = new LinkedHashSet<>();
+		final ModuleResourceTables<ResourceTable> tables = new ModuleResourceTables<ResourceTable>(moduleTables);
+		final ResourceTable oldAppTable = tables.rebuildAppTable(newAppTable(moduleTables));
+
+		final CountDownLatch building = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(1);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread thread = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					try {
+						tables.rebuildAppTable(new ModuleResourceTables.Builder<ResourceTable>(){
+								@Override
+								public ResourceTable build() {
+									// 与ResourceUtils一样先移除再建立
+									moduleTables.clear();
+									building.countDown();
+									try {
+										finish.await();
+									}
+									catch (InterruptedException e) {
+										throw new RuntimeException(e);
+									}
+									ResourceTable table = new ResourceTable();
+									moduleTables.add(table);
+									return table;
+								}
+							});
+					}
+					catch (Throwable e) {
+						error.set(e);
+					}
+				}
+			});
+		thread.start();
+		assertTrue(building.await(10, TimeUnit.SECONDS));
+
+		// 建立期间不阻塞，仍然是旧的资源表
+		assertSame(oldAppTable, tables.getAppTable());
+		assertEquals(new HashSet<>(Arrays.asList(oldAppTable)), tables.getTables());
+
+		finish.countDown();
+		thread.join(10000);
+		assertNull(error.get());
+		assertEquals(1, tables.getTables().size());
+		assertTrue(tables.getTables().contains(tables.getAppTable()));
+	}
+
+	@Test
+	public void failedRebuildKeepsSnapshot() {
+		Set<ResourceTable> moduleTables = new LinkedHashSet<>();
+		ModuleResourceTables<ResourceTable> tables = new ModuleResourceTables<ResourceTable>(moduleTables);
+		ResourceTable appTable = tables.rebuildAppTable(newAppTable(moduleTables));
+		try {
+			tables.rebuildAppTable(new ModuleResourceTables.Builder<ResourceTable>(){
+					@Override
+					public ResourceTable build() {
+						throw new IllegalStateException("res");
+					}
+				});
+			fail();
+		}
+		catch (IllegalStateException e) {
+		}
+		assertSame(appTable, tables.getAppTable());
+		assertEquals(new HashSet<>(Arrays.asList(appTable)), tables.getTables());
+	}
+
+	@Test
+	public void snapshotIsNotChangedByLaterWrites() {
+		Set<ResourceTable> moduleTables = new LinkedHashSet<>();
+		ModuleResourceTables<ResourceTable> tables = new ModuleResourceTables<ResourceTable>(moduleTables);
+		tables.rebuildAppTable(newAppTable(moduleTables));
+		Set<ResourceTable> snapshot = tables.getTables();
+
+		moduleTables.add(new ResourceTable());
+		assertEquals(1, snapshot.size());
+		try {
+			snapshot.clear();
+			fail();
+		}
+		catch (UnsupportedOperationException e) {
+		}
+	}
+
+	private static ModuleResourceTables.Builder<ResourceTable> newAppTable(final Set<ResourceTable> moduleTables) {
+		return new ModuleResourceTables.Builder<ResourceTable>(){
+			@Override
+			public ResourceTable build() {
+				ResourceTable table = new ResourceTable();
+				moduleTables.add(table);
+				return table;
+			}
+		};
+	}
+}
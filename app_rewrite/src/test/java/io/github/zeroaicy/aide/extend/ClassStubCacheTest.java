@@ -0,0 +1,68 @@
+package io.github.zeroaicy.aide.extend;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClassStubCacheTest {
+
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void gcRemovesDirsOfMissingJars() throws IOException {
+		File rootCacheDir = this.temporaryFolder.newFolder("class-stub-cache");
+		File jar = this.temporaryFolder.newFile("a.jar");
+		long now = System.currentTimeMillis();
+
+		File used = newCacheDir(rootCacheDir, "used", jar.getPath());
+		File missing = newCacheDir(rootCacheDir, "missing", new File(this.temporaryFolder.getRoot(), "deleted.jar").getPath());
+
+		ClassStubCache.getSingleton().gcCacheDirs(rootCacheDir, now);
+
+		assertTrue(used.isDirectory());
+		assertFalse(missing.exists());
+	}
+
+	@Test
+	public void gcRemovesUnusedAndOldFormatDirs() throws IOException {
+		File rootCacheDir = this.temporaryFolder.newFolder("class-stub-cache");
+		File jar = this.temporaryFolder.newFile("a.jar");
+		long now = System.currentTimeMillis();
+
+		File unused = newCacheDir(rootCacheDir, "unused", jar.getPath());
+		assertTrue(new File(unused, "stamp").setLastModified(now - 31 * DAY));
+		File recent = newCacheDir(rootCacheDir, "recent", jar.getPath());
+		assertTrue(new File(recent, "stamp").setLastModified(now - 29 * DAY));
+
+		// 没有stamp 如写入stamp前中断
+		File noStamp = new File(rootCacheDir, "no-stamp");
+		assertTrue(new File(noStamp, "x.stub").getParentFile().mkdirs());
+
+		ClassStubCache.getSingleton().gcCacheDirs(rootCacheDir, now);
+
+		assertFalse(unused.exists());
+		assertTrue(recent.isDirectory());
+		assertFalse(noStamp.exists());
+	}
+
+	@Test
+	public void gcOfMissingRootDoesNothing() {
+		ClassStubCache.getSingleton().gcCacheDirs(new File(this.temporaryFolder.getRoot(), "none"), System.currentTimeMillis());
+	}
+
+	private static File newCacheDir(File rootCacheDir, String name, String zipFilePath) throws IOException {
+		File cacheDir = new File(rootCacheDir, name);
+		assertTrue(cacheDir.mkdirs());
+		assertTrue(ClassStubCache.writeStamp(cacheDir, zipFilePath, "digest", "dynamic:false:true"));
+		assertTrue(new File(cacheDir, "0.stub").createNewFile());
+		return cacheDir;
+	}
+}
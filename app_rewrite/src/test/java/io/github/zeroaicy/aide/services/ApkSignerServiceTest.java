@@ -0,0 +1,185 @@
+package io.github.zeroaicy.aide.services;
+
+import com.android.apksig.ApkSigner;
+import com.android.apksig.ApkVerifier;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ApkSignerServiceTest {
+
+	private static final String ALIAS = "test";
+	private static final String ALIAS_PASSWORD = "keypass";
+	private static final String PASSWORD = "storepass";
+
+	private static final int MIN_SDK_VERSION = 21;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File keystore;
+
+	@Before
+	public void setUp() throws IOException {
+		this.keystore = copyResource("/signing/test.jks", "test.jks");
+		ApkSignerService.invalidateSigningKeys();
+	}
+
+	@Test
+	public void signsTenApksWithOneKeystoreLoad() throws Throwable {
+		ApkSigner.SignerConfig firstSignerConfig = null;
+		for (int i = 0; i < 10; i++) {
+			ApkSigner.SignerConfig signerConfig = ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, ALIAS_PASSWORD, PASSWORD);
+			// 只解锁一次 之后复用同一个SignerConfig
+			if (firstSignerConfig == null) {
+				firstSignerConfig = signerConfig;
+			}
+			assertSame(firstSignerConfig, signerConfig);
+
+			File unsignedApk = createUnsignedApk("unsigned" + i + ".apk", i);
+			File signedApk = new File(this.temporaryFolder.getRoot(), "signed" + i + ".apk");
+			ApkSignerService.signerApk(MIN_SDK_VERSION, signerConfig, true, true, true, unsignedApk, signedApk);
+
+			ApkVerifier.Result result = new ApkVerifier.Builder(signedApk)
+				.setMinCheckedPlatformVersion(MIN_SDK_VERSION)
+				.build()
+				.verify();
+			assertTrue(result.getErrors().toString(), result.isVerified());
+			assertTrue(result.isVerifiedUsingV1Scheme());
+			assertTrue(result.isVerifiedUsingV2Scheme());
+		}
+	}
+
+	@Test
+	public void touchedKeystoreIsNotReloaded() throws Throwable {
+		ApkSigner.SignerConfig signerConfig = ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, ALIAS_PASSWORD, PASSWORD);
+		// 时间戳变化 内容未变
+		assertTrue(this.keystore.setLastModified(this.keystore.lastModified() - 60 * 1000));
+		assertSame(signerConfig, ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, ALIAS_PASSWORD, PASSWORD));
+	}
+
+	@Test
+	public void changedKeystoreIsReloaded() throws Throwable {
+		ApkSigner.SignerConfig signerConfig = ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, ALIAS_PASSWORD, PASSWORD);
+
+		InputStream inputStream = getClass().getResourceAsStream("/signing/other.jks");
+		try {
+			Files.copy(inputStream, this.keystore.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			inputStream.close();
+		}
+		assertNotSame(signerConfig, ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, ALIAS_PASSWORD, PASSWORD));
+	}
+
+	@Test
+	public void wrongPasswordIsNotAnsweredFromCache() throws Throwable {
+		ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, ALIAS_PASSWORD, PASSWORD);
+		try {
+			ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, "wrong", PASSWORD);
+			fail();
+		}
+		catch (Throwable e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void invalidateReloadsKeystore() throws Throwable {
+		ApkSigner.SignerConfig signerConfig = ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, ALIAS_PASSWORD, PASSWORD);
+		ApkSignerService.invalidateSigningKeys();
+		assertNotSame(signerConfig, ApkSignerService.getSignerConfig(this.keystore.getPath(), ALIAS, ALIAS_PASSWORD, PASSWORD));
+	}
+
+	private File copyResource(String name, String fileName) throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), fileName);
+		InputStream inputStream = getClass().getResourceAsStream(name);
+		try {
+			Files.copy(inputStream, file.toPath());
+		}
+		finally {
+			inputStream.close();
+		}
+		return file;
+	}
+
+	private File createUnsignedApk(String name, int index) throws IOException {
+		File file = this.temporaryFolder.newFile(name);
+		ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			output.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+			output.write(createBinaryManifest());
+			output.closeEntry();
+			output.putNextEntry(new ZipEntry("classes.dex"));
+			output.write(("dex " + index).getBytes(StandardCharsets.UTF_8));
+			output.closeEntry();
+		}
+		finally {
+			output.close();
+		}
+		return file;
+	}
+
+	/**
+	 * 只有 <manifest/> 的二进制AndroidManifest.xml
+	 */
+	private static byte[] createBinaryManifest() throws IOException {
+		// 字符串池 UTF-16: "manifest"
+		String string = "manifest";
+		ByteBuffer strings = ByteBuffer.allocate(2 + string.length() * 2 + 2).order(ByteOrder.LITTLE_ENDIAN);
+		strings.putShort((short) string.length());
+		for (char c : string.toCharArray()) {
+			strings.putShort((short) c);
+		}
+		strings.putShort((short) 0);
+		int stringsSize = (strings.position() + 3) & ~3;
+
+		int stringPoolSize = 28 + 4 + stringsSize;
+		ByteBuffer stringPool = ByteBuffer.allocate(stringPoolSize).order(ByteOrder.LITTLE_ENDIAN);
+		stringPool.putShort((short) 0x0001).putShort((short) 28).putInt(stringPoolSize);
+		// stringCount styleCount flags stringsStart stylesStart
+		stringPool.putInt(1).putInt(0).putInt(0).putInt(28 + 4).putInt(0);
+		stringPool.putInt(0);
+		stringPool.put(strings.array(), 0, strings.position());
+
+		ByteBuffer startElement = ByteBuffer.allocate(36).order(ByteOrder.LITTLE_ENDIAN);
+		startElement.putShort((short) 0x0102).putShort((short) 16).putInt(36);
+		// lineNumber comment
+		startElement.putInt(1).putInt(-1);
+		// ns name attributeStart attributeSize attributeCount idIndex classIndex styleIndex
+		startElement.putInt(-1).putInt(0).putShort((short) 20).putShort((short) 20).putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 0);
+
+		ByteBuffer endElement = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+		endElement.putShort((short) 0x0103).putShort((short) 16).putInt(24);
+		endElement.putInt(1).putInt(-1).putInt(-1).putInt(0);
+
+		int size = 8 + stringPoolSize + 36 + 24;
+		ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		header.putShort((short) 0x0003).putShort((short) 8).putInt(size);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+		output.write(header.array());
+		output.write(stringPool.array());
+		output.write(startElement.array());
+		output.write(endElement.array());
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,230 @@
+package io.github.zeroaicy.aide.services;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 用java代替app_process启动D8Worker
+ * 设置系统属性 r8.jar[com.android.tools.r8.zip或r8.jar]时 运行真实的d8
+ */
+public class D8WorkerProcessTest {
+
+	private static final int JOB_COUNT = 20;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test(timeout = 60 * 1000)
+	public void reusesOneWorkerForSequentialJobs() throws Exception {
+		File input = this.temporaryFolder.newFile("input.class");
+		Files.write(input.toPath(), new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 1, 2, 3});
+
+		D8WorkerProcess worker = startWorker(getClassPath());
+		try {
+			byte[] firstDex = null;
+			for (int i = 1; i <= JOB_COUNT; i++) {
+				File outputDir = this.temporaryFolder.newFolder("out" + i);
+				D8WorkerProcess.Result result = worker.execute(FakeD8Task.class.getName(), d8Args(outputDir, input));
+				assertTrue(result.error, result.isSuccessful());
+				// 类只加载一次 同一个进程运行了所有任务
+				assertEquals("loads=1 runs=" + i, result.diagnostics.trim());
+				assertTrue(worker.isAlive());
+
+				byte[] dex = Files.readAllBytes(new File(outputDir, "classes.dex").toPath());
+				if (firstDex == null) {
+					firstDex = dex;
+				}
+				assertArrayEquals(firstDex, dex);
+			}
+		}
+		finally {
+			worker.destroy();
+		}
+	}
+
+	@Test(timeout = 5 * 60 * 1000)
+	public void warmWorkerRunsRealD8Faster() throws Exception {
+		String r8Path = System.getProperty("r8.jar");
+		assumeTrue(r8Path != null && new File(r8Path).isFile());
+
+		File input = classFileOf(FakeD8Task.class);
+		D8WorkerProcess worker = startWorker(r8Path + File.pathSeparator + getClassPath());
+		try {
+			long[] elapsed = new long[JOB_COUNT];
+			byte[] firstDex = null;
+			for (int i = 0; i < JOB_COUNT; i++) {
+				File outputDir = this.temporaryFolder.newFolder("d8-" + i);
+				D8WorkerProcess.Result result = worker.execute("com.android.tools.r8.D8", d8Args(outputDir, input));
+				assertTrue(result.diagnostics + result.error, result.isSuccessful());
+				elapsed[i] = result.elapsed;
+
+				byte[] dex = Files.readAllBytes(new File(outputDir, "classes.dex").toPath());
+				if (firstDex == null) {
+					firstDex = dex;
+				}
+				assertArrayEquals(firstDex, dex);
+			}
+			// 第一次包含类加载与JIT预热
+			for (int i = 1; i < JOB_COUNT; i++) {
+				assertTrue(Arrays.toString(elapsed), elapsed[i] < elapsed[0]);
+			}
+		}
+		finally {
+			worker.destroy();
+		}
+	}
+
+	@Test(timeout = 60 * 1000)
+	public void corruptResponseDoesNotHang() throws Exception {
+		D8WorkerProcess worker = startWorker(getClassPath());
+		try {
+			worker.execute(CorruptResponseTask.class.getName(), new ArrayList<String>());
+			fail();
+		}
+		catch (IOException e) {
+			// worker仍在运行，超时后被结束
+			assertTrue(worker.isAlive());
+			worker.waitForExit(500);
+			assertFalse(worker.isAlive());
+		}
+		finally {
+			worker.destroy();
+		}
+	}
+
+	@Test(timeout = 60 * 1000)
+	public void errorExitsWorker() throws Exception {
+		D8WorkerProcess worker = startWorker(getClassPath());
+		try {
+			D8WorkerProcess.Result result = worker.execute(ErrorTask.class.getName(), new ArrayList<String>());
+			assertTrue(result.isFatal());
+			assertTrue(result.error.contains(OutOfMemoryError.class.getName()));
+			assertEquals(D8Worker.EXIT_FATAL, worker.waitForExit(10 * 1000));
+		}
+		finally {
+			worker.destroy();
+		}
+	}
+
+	@Test(timeout = 60 * 1000)
+	public void exceptionKeepsWorker() throws Exception {
+		D8WorkerProcess worker = startWorker(getClassPath());
+		try {
+			D8WorkerProcess.Result result = worker.execute("not.exists.Task", new ArrayList<String>());
+			assertFalse(result.isSuccessful());
+			assertFalse(result.isFatal());
+			assertTrue(result.error.contains(ClassNotFoundException.class.getName()));
+
+			File input = this.temporaryFolder.newFile("input.class");
+			result = worker.execute(FakeD8Task.class.getName(), d8Args(this.temporaryFolder.newFolder("out"), input));
+			assertTrue(result.error, result.isSuccessful());
+		}
+		finally {
+			worker.destroy();
+		}
+	}
+
+	private static List<String> d8Args(File outputDir, File input) {
+		List<String> args = new ArrayList<>();
+		args.add("--thread-count");
+		args.add("1");
+		args.add("--output");
+		args.add(outputDir.getPath());
+		args.add(input.getPath());
+		return args;
+	}
+
+	private static D8WorkerProcess startWorker(String classPath) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		command.add("-cp");
+		command.add(classPath);
+		command.add(D8Worker.class.getName());
+		return new D8WorkerProcess(command, null, "", false);
+	}
+
+	private static String getClassPath() throws URISyntaxException {
+		// D8Worker与测试任务
+		return codeSourceOf(D8Worker.class) + File.pathSeparator + codeSourceOf(FakeD8Task.class);
+	}
+
+	private static String codeSourceOf(Class<?> clazz) throws URISyntaxException {
+		return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+	}
+
+	private static File classFileOf(Class<?> clazz) throws URISyntaxException {
+		return new File(codeSourceOf(clazz), clazz.getName().replace('.', '/') + ".class");
+	}
+
+	/**
+	 * 模拟d8 将输入文件写入 --output/classes.dex
+	 */
+	public static class FakeD8Task {
+		private static int loads;
+		private static int runs;
+
+		static {
+			loads++;
+		}
+
+		public static void main(String[] args) throws IOException {
+			String output = null;
+			String input = null;
+			for (int i = 0; i < args.length; i++) {
+				if ("--output".equals(args[i])) {
+					output = args[++i];
+				} else if ("--thread-count".equals(args[i])) {
+					i++;
+				} else {
+					input = args[i];
+				}
+			}
+			byte[] data = Files.readAllBytes(new File(input).toPath());
+			byte[] dex = new byte[data.length + 4];
+			System.arraycopy("dex\n".getBytes(), 0, dex, 0, 4);
+			System.arraycopy(data, 0, dex, 4, data.length);
+			Files.write(new File(output, "classes.dex").toPath(), dex);
+
+			runs++;
+			System.out.println("loads=" + loads + " runs=" + runs);
+		}
+	}
+
+	/**
+	 * 绕过协议直接向stdout写入错误的响应，之后不再退出
+	 */
+	public static class CorruptResponseTask {
+		public static void main(String[] args) throws Exception {
+			DataOutputStream output = new DataOutputStream(new FileOutputStream(FileDescriptor.out));
+			output.writeInt(D8Worker.STATUS_OK);
+			output.writeLong(0);
+			output.writeInt(Integer.MAX_VALUE);
+			output.flush();
+			Thread.sleep(60 * 1000);
+		}
+	}
+
+	public static class ErrorTask {
+		public static void main(String[] args) {
+			throw new OutOfMemoryError("fake");
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package io.github.zeroaicy.aide.services;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DexingJarTaskTest {
+
+	private static final long MB = 1024L * 1024;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void batchWithinLimitRunsOnce() throws Throwable {
+		FakeD8 d8 = new FakeD8(1000);
+		List<String> jars = jars(d8, 100, 100, 100, 100);
+		DexingJarTask.dexingBisect(jars, outputs(jars), d8);
+
+		assertEquals(1, d8.batchRuns);
+		assertEquals(0, d8.ooms);
+		assertEquals(new LinkedHashSet<>(outputs(jars)), d8.dexed);
+	}
+
+	@Test
+	public void oomBisectsUntilBatchesFit() throws Throwable {
+		FakeD8 d8 = new FakeD8(250);
+		List<String> jars = jars(d8, 100, 100, 100, 100, 100, 100, 100, 100);
+		DexingJarTask.dexingBisect(jars, outputs(jars), d8);
+
+		// 800 -> 400 -> 200 200 | 400 -> 200 200
+		assertEquals(7, d8.batchRuns);
+		assertEquals(3, d8.ooms);
+		assertEquals(0, d8.singleRuns);
+		assertEquals(new LinkedHashSet<>(outputs(jars)), d8.dexed);
+	}
+
+	@Test
+	public void oversizedJarRunsAlone() throws Throwable {
+		FakeD8 d8 = new FakeD8(250);
+		List<String> jars = jars(d8, 300, 300);
+		DexingJarTask.dexingBisect(jars, outputs(jars), d8);
+
+		assertEquals(1, d8.ooms);
+		// 独立子进程 不受本进程堆限制
+		assertEquals(2, d8.singleRuns);
+		assertEquals(new LinkedHashSet<>(outputs(jars)), d8.dexed);
+	}
+
+	@Test
+	public void oomOfSingleJarBatchIsThrown() throws Throwable {
+		FakeD8 d8 = new FakeD8(250);
+		List<String> jars = jars(d8, 300);
+		try {
+			DexingJarTask.dexingBisect(jars, outputs(jars), d8);
+			fail();
+		}
+		catch (OutOfMemoryError e) {
+			// expected
+		}
+		assertEquals(0, d8.singleRuns);
+	}
+
+	@Test
+	public void plannedBatchesCompleteWithoutRetries() throws Throwable {
+		int[] classCounts = {40, 600, 120, 800, 3000, 60, 500, 900, 1400, 300, 30, 1200};
+		for (long availMemory : new long[]{0, 256 * MB, 512 * MB, 1024 * MB, 4096 * MB}) {
+			DexingPlanner planner = new DexingPlanner(availMemory, 8);
+			// d8的实际开销与估算一致
+			FakeD8 d8 = new FakeD8(planner.getBatchClassLimit());
+			List<List<String>> batches = planner.planBatches(createJars(d8, "plan" + availMemory, classCounts));
+			runPlannedBatches(batches, d8);
+
+			assertEquals("availMemory " + availMemory, 0, d8.ooms);
+			assertEquals(classCounts.length, d8.dexed.size());
+		}
+	}
+
+	@Test
+	public void underestimatedBatchesCompleteWithFewRetries() throws Throwable {
+		int[] classCounts = {40, 600, 120, 800, 3000, 60, 500, 900, 1400, 300, 30, 1200};
+		for (long availMemory : new long[]{256 * MB, 512 * MB, 1024 * MB}) {
+			DexingPlanner planner = new DexingPlanner(availMemory, 8);
+			// d8的实际开销是估算的两倍
+			FakeD8 d8 = new FakeD8(planner.getBatchClassLimit() / 2);
+			List<List<String>> batches = planner.planBatches(createJars(d8, "under" + availMemory, classCounts));
+			runPlannedBatches(batches, d8);
+
+			assertEquals(classCounts.length, d8.dexed.size());
+			// 每次OOM只二分一次 不会重试已完成的部分
+			int maxSplits = 0;
+			for (List<String> batch : batches) {
+				maxSplits += batch.size() - 1;
+			}
+			assertTrue("ooms " + d8.ooms + " maxSplits " + maxSplits, d8.ooms > 0 && d8.ooms <= maxSplits);
+			// 每组是一棵二分树 成功的运行数 = OOM数 + 组数
+			assertEquals(d8.ooms + batches.size(), d8.batchRuns + d8.singleRuns - d8.ooms);
+		}
+	}
+
+	@Test
+	public void outputsKeepInputOrder() throws Throwable {
+		FakeD8 d8 = new FakeD8(150);
+		List<String> jars = jars(d8, 100, 100, 100);
+		DexingJarTask.dexingBisect(jars, outputs(jars), d8);
+		assertEquals(Arrays.asList("lib0.jar.dex.zip", "lib1.jar.dex.zip", "lib2.jar.dex.zip"), new ArrayList<>(d8.dexed));
+	}
+
+	private static void runPlannedBatches(List<List<String>> batches, FakeD8 d8) throws Throwable {
+		for (List<String> batch : batches) {
+			if (batch.size() == 1) {
+				d8.dexing(batch.get(0), batch.get(0) + ".dex.zip");
+			} else {
+				DexingJarTask.dexingBisect(batch, outputs(batch), d8);
+			}
+		}
+	}
+
+	private static List<String> jars(FakeD8 d8, int... classCounts) {
+		List<String> jars = new ArrayList<>();
+		for (int i = 0; i < classCounts.length; i++) {
+			String jar = "lib" + i + ".jar";
+			d8.classCounts.put(jar, classCounts[i]);
+			jars.add(jar);
+		}
+		return jars;
+	}
+
+	private List<String> createJars(FakeD8 d8, String dirName, int... classCounts) throws IOException {
+		File dir = this.temporaryFolder.newFolder(dirName);
+		List<String> jars = new ArrayList<>();
+		for (int i = 0; i < classCounts.length; i++) {
+			File file = new File(dir, "lib" + i + ".jar");
+			ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+			try {
+				for (int j = 0; j < classCounts[i]; j++) {
+					output.putNextEntry(new ZipEntry("a/C" + j + ".class"));
+					output.closeEntry();
+				}
+			}
+			finally {
+				output.close();
+			}
+			d8.classCounts.put(file.getPath(), classCounts[i]);
+			jars.add(file.getPath());
+		}
+		return jars;
+	}
+
+	private static List<String> outputs(List<String> jars) {
+		List<String> outputs = new ArrayList<>();
+		for (String jar : jars) {
+			outputs.add(jar + ".dex.zip");
+		}
+		return outputs;
+	}
+
+	/**
+	 * 批量任务的类数量超过上限时OOM
+	 */
+	private static class FakeD8 implements DexingJarTask.Dexer {
+		final Map<String, Integer> classCounts = new HashMap<>();
+		final long classLimit;
+		final Set<String> dexed = new LinkedHashSet<>();
+		int batchRuns;
+		int singleRuns;
+		int ooms;
+
+		FakeD8(long classLimit) {
+			this.classLimit = classLimit;
+		}
+
+		@Override
+		public void dexingBatch(List<String> inputJarFiles, List<String> outputDexZipFiles) {
+			this.batchRuns++;
+			long classes = 0;
+			for (String inputJarFile : inputJarFiles) {
+				classes += this.classCounts.get(inputJarFile);
+			}
+			if (classes > this.classLimit) {
+				this.ooms++;
+				throw new OutOfMemoryError("fake d8 " + classes + " classes");
+			}
+			this.dexed.addAll(outputDexZipFiles);
+		}
+
+		@Override
+		public void dexing(String inputJarFile, String outputDexZipFile) {
+			this.singleRuns++;
+			this.dexed.add(outputDexZipFile);
+		}
+	}
+
+}
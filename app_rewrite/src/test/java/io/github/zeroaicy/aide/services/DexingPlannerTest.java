@@ -0,0 +1,104 @@
+package io.github.zeroaicy.aide.services;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class DexingPlannerTest {
+
+	private static final long MB = 1024L * 1024;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void availHeapMemoryIsMaxMinusUsed() {
+		assertEquals(300 * MB, DexingPlanner.getAvailHeapMemory(512 * MB, 400 * MB, 188 * MB));
+		// 没有限制时按512MB
+		assertEquals(412 * MB, DexingPlanner.getAvailHeapMemory(Long.MAX_VALUE, 200 * MB, 100 * MB));
+		assertEquals(0, DexingPlanner.getAvailHeapMemory(256 * MB, 300 * MB, 0));
+	}
+
+	@Test
+	public void lowMemoryUsesSingleTask() {
+		DexingPlanner planner = new DexingPlanner(0, 8);
+		assertEquals(1, planner.getTaskCount());
+		assertEquals(2, planner.getThreadCount());
+		assertEquals(DexingPlanner.MIN_BATCH_CLASSES, planner.getBatchClassLimit());
+	}
+
+	@Test
+	public void largeMemoryIsLimitedByMaxTasks() {
+		DexingPlanner planner = new DexingPlanner(4096 * MB, 8);
+		assertEquals(DexingPlanner.MAX_TASKS, planner.getTaskCount());
+		assertEquals(8 / DexingPlanner.MAX_TASKS, planner.getThreadCount());
+		// (4096MB / 100 * 75 / 3 - 96MB) / 32KB
+		assertEquals(29695, planner.getBatchClassLimit());
+	}
+
+	@Test
+	public void tasksAreLimitedByCores() {
+		DexingPlanner planner = new DexingPlanner(4096 * MB, 1);
+		assertEquals(1, planner.getTaskCount());
+		assertEquals(1, planner.getThreadCount());
+	}
+
+	@Test
+	public void threadsAreLimitedByMaxThreads() {
+		DexingPlanner planner = new DexingPlanner(64 * 1024 * MB, 64);
+		assertEquals(DexingPlanner.MAX_THREADS, planner.getThreadCount());
+	}
+
+	@Test
+	public void planBatchesByClassCount() throws IOException {
+		DexingPlanner planner = new DexingPlanner(0, 1);
+		String a = createJar("a.jar", 300);
+		String b = createJar("b.jar", 300);
+		String c = createJar("c.jar", 600);
+		String d = createJar("d.jar", 100);
+
+		List<List<String>> batches = planner.planBatches(Arrays.asList(a, b, c, d));
+
+		// 超过上限的c单独成组，d并入b所在的组
+		assertEquals(Arrays.asList(Arrays.asList(a), Arrays.asList(c), Arrays.asList(b, d)), batches);
+	}
+
+	@Test
+	public void classCountOfInvalidJarUsesSize() throws IOException {
+		File file = this.temporaryFolder.newFile("invalid.jar");
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(new byte[(int) (3 * DexingPlanner.BYTES_PER_CLASS)]);
+		}
+		finally {
+			output.close();
+		}
+		assertEquals(3, new DexingPlanner(0, 1).getClassCount(file.getPath()));
+	}
+
+	private String createJar(String name, int classCount) throws IOException {
+		File file = this.temporaryFolder.newFile(name);
+		ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			for (int i = 0; i < classCount; i++) {
+				output.putNextEntry(new ZipEntry("a/C" + i + ".class"));
+				output.closeEntry();
+			}
+			output.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+			output.closeEntry();
+		}
+		finally {
+			output.close();
+		}
+		return file.getPath();
+	}
+}
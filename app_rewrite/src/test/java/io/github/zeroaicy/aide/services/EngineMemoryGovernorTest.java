@@ -0,0 +1,88 @@
+package io.github.zeroaicy.aide.services;
+
+import org.junit.Test;
+
+import static io.github.zeroaicy.aide.services.EngineMemoryGovernor.LEVEL_NORMAL;
+import static io.github.zeroaicy.aide.services.EngineMemoryGovernor.LEVEL_SUSPEND_BACKGROUND;
+import static io.github.zeroaicy.aide.services.EngineMemoryGovernor.LEVEL_TRIM_CLOSED_FILES;
+import static io.github.zeroaicy.aide.services.EngineMemoryGovernor.computeLevel;
+import static org.junit.Assert.assertEquals;
+
+public class EngineMemoryGovernorTest {
+
+	@Test
+	public void entersLevelAtThreshold() {
+		assertEquals(LEVEL_NORMAL, computeLevel(LEVEL_NORMAL, 74));
+		assertEquals(LEVEL_TRIM_CLOSED_FILES, computeLevel(LEVEL_NORMAL, 75));
+		assertEquals(LEVEL_TRIM_CLOSED_FILES, computeLevel(LEVEL_NORMAL, 84));
+		assertEquals(LEVEL_SUSPEND_BACKGROUND, computeLevel(LEVEL_NORMAL, 85));
+		assertEquals(LEVEL_SUSPEND_BACKGROUND, computeLevel(LEVEL_NORMAL, 100));
+	}
+
+	@Test
+	public void raisesDirectlyToTargetLevel() {
+		assertEquals(LEVEL_SUSPEND_BACKGROUND, computeLevel(LEVEL_NORMAL, 95));
+	}
+
+	@Test
+	public void restoresOnlyBelowRestoreGap() {
+		// 进入85 恢复需低于75
+		assertEquals(LEVEL_SUSPEND_BACKGROUND, computeLevel(LEVEL_SUSPEND_BACKGROUND, 75));
+		assertEquals(LEVEL_TRIM_CLOSED_FILES, computeLevel(LEVEL_SUSPEND_BACKGROUND, 74));
+		// 进入75 恢复需低于65
+		assertEquals(LEVEL_TRIM_CLOSED_FILES, computeLevel(LEVEL_TRIM_CLOSED_FILES, 65));
+		assertEquals(LEVEL_NORMAL, computeLevel(LEVEL_TRIM_CLOSED_FILES, 64));
+	}
+
+	@Test
+	public void restoresSeveralLevelsWhenFarBelow() {
+		// 一次采样退出多个级别
+		assertEquals(LEVEL_NORMAL, computeLevel(LEVEL_SUSPEND_BACKGROUND, 10));
+		assertEquals(LEVEL_NORMAL, computeLevel(LEVEL_SUSPEND_BACKGROUND, 64));
+		// 低于75退出 LEVEL_SUSPEND_BACKGROUND，但不低于65时保留 LEVEL_TRIM_CLOSED_FILES
+		assertEquals(LEVEL_TRIM_CLOSED_FILES, computeLevel(LEVEL_SUSPEND_BACKGROUND, 70));
+	}
+
+	@Test
+	public void forceSampleUsesHeapMonitor() {
+		FakeHeapMonitor heapMonitor = new FakeHeapMonitor(100);
+		EngineMemoryGovernor governor = new EngineMemoryGovernor(heapMonitor);
+
+		heapMonitor.used = 90;
+		assertEquals(LEVEL_SUSPEND_BACKGROUND, governor.forceSample());
+		assertEquals(LEVEL_SUSPEND_BACKGROUND, governor.getLevel());
+
+		heapMonitor.used = 80;
+		assertEquals(LEVEL_SUSPEND_BACKGROUND, governor.forceSample());
+
+		heapMonitor.used = 50;
+		assertEquals(LEVEL_NORMAL, governor.forceSample());
+	}
+
+	@Test
+	public void unlimitedHeapKeepsLevel() {
+		FakeHeapMonitor heapMonitor = new FakeHeapMonitor(Long.MAX_VALUE);
+		heapMonitor.used = Long.MAX_VALUE - 1;
+		EngineMemoryGovernor governor = new EngineMemoryGovernor(heapMonitor);
+		assertEquals(LEVEL_NORMAL, governor.forceSample());
+	}
+
+	private static class FakeHeapMonitor implements EngineMemoryGovernor.HeapMonitor {
+		final long max;
+		long used;
+
+		FakeHeapMonitor(long max) {
+			this.max = max;
+		}
+
+		@Override
+		public long getUsedMemory() {
+			return this.used;
+		}
+
+		@Override
+		public long getMaxMemory() {
+			return this.max;
+		}
+	}
+}
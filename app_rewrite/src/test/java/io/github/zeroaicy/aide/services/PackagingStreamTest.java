@@ -0,0 +1,147 @@
+package io.github.zeroaicy.aide.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PackagingStreamTest {
+
+	// 与 PackagingStream.MAX_BUFFERED_ENTRY_SIZE 相同
+	private static final int MAX_BUFFERED_ENTRY_SIZE = 4 * 1024 * 1024;
+
+	@Test
+	public void roundTripOnCallerThread() throws IOException {
+		assertRoundTrip(null);
+	}
+
+	@Test
+	public void roundTripWithExecutor() throws IOException {
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			assertRoundTrip(executorService);
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void duplicateEntryIsRejected() throws IOException {
+		PackagingStream packagingStream = new PackagingStream(new ByteArrayOutputStream());
+		packagingStream.putNextEntry(new ZipEntry("a.txt"));
+		packagingStream.closeEntry();
+		assertTrue(packagingStream.contains("a.txt"));
+		assertFalse(packagingStream.contains("b.txt"));
+		try {
+			packagingStream.putNextEntry(new ZipEntry("a.txt"));
+			fail();
+		}
+		catch (ZipException e) {
+			// expected
+		}
+		assertEquals(1, packagingStream.getZipEntryCount());
+		packagingStream.close();
+	}
+
+	@Test
+	public void writeWithoutEntryFails() throws IOException {
+		PackagingStream packagingStream = new PackagingStream(new ByteArrayOutputStream());
+		try {
+			packagingStream.write(1);
+			fail();
+		}
+		catch (ZipException e) {
+			// expected
+		}
+		packagingStream.close();
+	}
+
+	private static void assertRoundTrip(ExecutorService executorService) throws IOException {
+		Random random = new Random(1);
+		// 名称 -> 数据 按写入顺序
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put("empty.txt", new byte[0]);
+		entries.put("small.txt", "hello".getBytes("UTF-8"));
+		entries.put("中文/名称.txt", "utf-8".getBytes("UTF-8"));
+		for (int i = 0; i < 32; i++) {
+			entries.put("classes/C" + i + ".class", randomText(random, 1024 + i * 100));
+		}
+		// 缓冲上限
+		entries.put("limit.bin", randomText(random, MAX_BUFFERED_ENTRY_SIZE));
+		// 写入过程中转为流式
+		entries.put("grow.bin", randomText(random, MAX_BUFFERED_ENTRY_SIZE + 1));
+		// 已知大小 直接流式
+		entries.put("large.bin", randomText(random, MAX_BUFFERED_ENTRY_SIZE + 4096));
+		entries.put("stored.txt", "stored".getBytes("UTF-8"));
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PackagingStream packagingStream = new PackagingStream(output, executorService);
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			ZipEntry zipEntry = new ZipEntry(entry.getKey());
+			byte[] data = entry.getValue();
+			if (entry.getKey().equals("large.bin")) {
+				zipEntry.setSize(data.length);
+			}
+			if (entry.getKey().equals("stored.txt")) {
+				zipEntry.setMethod(ZipEntry.STORED);
+			}
+			packagingStream.putNextEntry(zipEntry);
+			// 分段写入
+			for (int offset = 0; offset < data.length; offset += 8192) {
+				packagingStream.write(data, offset, Math.min(8192, data.length - offset));
+			}
+			packagingStream.closeEntry();
+		}
+		packagingStream.close();
+
+		List<String> names = new ArrayList<>();
+		ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()));
+		try {
+			ZipEntry zipEntry;
+			while ((zipEntry = zipInput.getNextEntry()) != null) {
+				names.add(zipEntry.getName());
+				assertArrayEquals(zipEntry.getName(), entries.get(zipEntry.getName()), readAll(zipInput));
+			}
+		}
+		finally {
+			zipInput.close();
+		}
+		assertEquals(new ArrayList<>(entries.keySet()), names);
+	}
+
+	private static byte[] randomText(Random random, int size) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) ('a' + random.nextInt(8));
+		}
+		return data;
+	}
+
+	private static byte[] readAll(InputStream input) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int count;
+		while ((count = input.read(buffer)) > 0) {
+			output.write(buffer, 0, count);
+		}
+		return output.toByteArray();
+	}
+}
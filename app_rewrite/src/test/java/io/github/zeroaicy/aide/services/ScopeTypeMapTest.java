@@ -0,0 +1,76 @@
+package io.github.zeroaicy.aide.services;
+
+import io.github.zeroaicy.aide.services.ScopeTypeQuerier.ScopeType;
+import io.github.zeroaicy.aide.services.ScopeTypeQuerier.ScopeTypeMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ScopeTypeMapTest {
+
+	@Test
+	public void getReturnsFileScopeType() {
+		ScopeTypeMap scopeTypeMap = new ScopeTypeMap();
+		scopeTypeMap.put("/p/libs/a.jar", ScopeType.compileOnly);
+		assertEquals(ScopeType.compileOnly, scopeTypeMap.get("/p/libs/a.jar"));
+		assertNull(scopeTypeMap.get("/p/libs/b.jar"));
+		assertNull(scopeTypeMap.get(null));
+	}
+
+	@Test
+	public void getUsesLongestMatchedDir() {
+		ScopeTypeMap scopeTypeMap = new ScopeTypeMap();
+		scopeTypeMap.putDir("/p/libs", ScopeType.compileOnly);
+		scopeTypeMap.putDir("/p/libs/runtime", ScopeType.runtimeOnly);
+
+		assertEquals(ScopeType.compileOnly, scopeTypeMap.get("/p/libs/a.jar"));
+		assertEquals(ScopeType.runtimeOnly, scopeTypeMap.get("/p/libs/runtime/b.jar"));
+		assertEquals(ScopeType.runtimeOnly, scopeTypeMap.get("/p/libs/runtime/x/c.jar"));
+	}
+
+	@Test
+	public void dirMatchesWholePathSegments() {
+		ScopeTypeMap scopeTypeMap = new ScopeTypeMap();
+		scopeTypeMap.putDir("/p/libs", ScopeType.compileOnly);
+		assertNull(scopeTypeMap.get("/p/libs2/a.jar"));
+		assertNull(scopeTypeMap.get("/p/lib"));
+	}
+
+	@Test
+	public void fileScopeTypeOverridesDir() {
+		ScopeTypeMap scopeTypeMap = new ScopeTypeMap();
+		scopeTypeMap.putDir("/p/libs", ScopeType.compileOnly);
+		scopeTypeMap.put("/p/libs/natives.jar", ScopeType.libgdxNatives);
+		assertEquals(ScopeType.libgdxNatives, scopeTypeMap.get("/p/libs/natives.jar"));
+	}
+
+	@Test
+	public void putDirInvalidatesMatchedDirCache() {
+		ScopeTypeMap scopeTypeMap = new ScopeTypeMap();
+		assertNull(scopeTypeMap.get("/p/libs/a.jar"));
+		scopeTypeMap.putDir("/p/libs", ScopeType.runtimeOnly);
+		assertEquals(ScopeType.runtimeOnly, scopeTypeMap.get("/p/libs/a.jar"));
+
+		scopeTypeMap.putDir("/p", ScopeType.compileOnly);
+		assertEquals(ScopeType.runtimeOnly, scopeTypeMap.get("/p/libs/a.jar"));
+		assertEquals(ScopeType.compileOnly, scopeTypeMap.get("/p/other/b.jar"));
+	}
+
+	@Test
+	public void sortRuntimeOnlyKeepsDeclaredOrder() {
+		ScopeTypeMap scopeTypeMap = new ScopeTypeMap();
+		scopeTypeMap.put("/p/z.jar", ScopeType.runtimeOnly);
+		scopeTypeMap.putDir("/p/dir", ScopeType.runtimeOnly);
+		scopeTypeMap.put("/p/a.jar", ScopeType.runtimeOnly);
+
+		List<String> runtimeOnlyLibs = new ArrayList<>(Arrays.asList("/p/unknown.jar", "/p/a.jar", "/p/dir/m.jar", "/p/z.jar"));
+		scopeTypeMap.sortRuntimeOnly(runtimeOnlyLibs);
+
+		// 目录中的文件使用目录的序号，未声明的最后打包
+		assertEquals(Arrays.asList("/p/z.jar", "/p/dir/m.jar", "/p/a.jar", "/p/unknown.jar"), runtimeOnlyLibs);
+	}
+}
@@ -0,0 +1,152 @@
+package io.github.zeroaicy.aide.utils;
+
+import io.github.zeroaicy.util.IOUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AarExtractorTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void extractsAllMembersExceptLintJar() throws IOException {
+		Map<String, String> entries = fixtureAar();
+		File aar = writeAar("a.aar", entries);
+		File outDir = new File(this.temporaryFolder.getRoot(), "exploded");
+
+		AarExtractor.extract(aar.getPath(), outDir.getPath());
+
+		assertTrue(AarExtractor.isExtracted(outDir.getPath()));
+		entries.remove(AarExtractor.LINT_JAR);
+		assertEquals(new TreeSet<>(entries.keySet()), listFiles(outDir));
+		for (Map.Entry<String, String> entry : entries.entrySet()) {
+			assertEquals(entry.getValue(), read(new File(outDir, entry.getKey())));
+		}
+		assertFalse(new File(outDir, AarExtractor.LINT_JAR).exists());
+	}
+
+	@Test
+	public void unchangedAarIsNotExtractedAgain() throws IOException {
+		File aar = writeAar("a.aar", fixtureAar());
+		File outDir = new File(this.temporaryFolder.getRoot(), "exploded");
+		AarExtractor.extract(aar.getPath(), outDir.getPath());
+
+		File classesJar = new File(outDir, "classes.jar");
+		assertTrue(classesJar.setLastModified(1000000L));
+		AarExtractor.extract(aar.getPath(), outDir.getPath());
+		assertEquals(1000000L, classesJar.lastModified());
+
+		// 重新下载，内容相同
+		assertTrue(aar.setLastModified(aar.lastModified() + 2000));
+		AarExtractor.extract(aar.getPath(), outDir.getPath());
+		assertEquals(1000000L, classesJar.lastModified());
+	}
+
+	@Test
+	public void changedAarReplacesOldMembers() throws IOException {
+		Map<String, String> entries = fixtureAar();
+		File aar = writeAar("a.aar", entries);
+		File outDir = new File(this.temporaryFolder.getRoot(), "exploded");
+		AarExtractor.extract(aar.getPath(), outDir.getPath());
+
+		entries.remove("res/values/values.xml");
+		entries.put("classes.jar", "classes v2");
+		long lastModified = aar.lastModified();
+		writeAar("a.aar", entries);
+		assertTrue(aar.setLastModified(lastModified + 2000));
+		AarExtractor.extract(aar.getPath(), outDir.getPath());
+
+		assertEquals("classes v2", read(new File(outDir, "classes.jar")));
+		assertFalse(new File(outDir, "res/values/values.xml").exists());
+	}
+
+	@Test
+	public void skipsEntriesOutsideOutDir() throws IOException {
+		Map<String, String> entries = new LinkedHashMap<>();
+		entries.put("../evil.txt", "evil");
+		entries.put("classes.jar", "classes");
+		File aar = writeAar("a.aar", entries);
+		File outDir = new File(this.temporaryFolder.getRoot(), "exploded");
+		AarExtractor.extract(aar.getPath(), outDir.getPath());
+
+		assertFalse(new File(this.temporaryFolder.getRoot(), "evil.txt").exists());
+		assertTrue(new File(outDir, "classes.jar").isFile());
+	}
+
+	private static Map<String, String> fixtureAar() {
+		Map<String, String> entries = new LinkedHashMap<>();
+		entries.put("AndroidManifest.xml", "<manifest package=\"a\"/>");
+		entries.put("classes.jar", "classes");
+		entries.put("R.txt", "int string app_name 0x7f010001");
+		entries.put("proguard.txt", "-keep class a.**");
+		entries.put("res/values/values.xml", "<resources/>");
+		entries.put("res/layout/main.xml", "<LinearLayout/>");
+		entries.put("assets/a.txt", "asset");
+		entries.put("jni/arm64-v8a/liba.so", "so");
+		entries.put("libs/b.jar", "b");
+		entries.put(AarExtractor.LINT_JAR, "lint");
+		return entries;
+	}
+
+	private File writeAar(String name, Map<String, String> entries) throws IOException {
+		File aar = new File(this.temporaryFolder.getRoot(), name);
+		ZipOutputStream output = new ZipOutputStream(new FileOutputStream(aar));
+		try {
+			for (Map.Entry<String, String> entry : entries.entrySet()) {
+				output.putNextEntry(new ZipEntry(entry.getKey()));
+				output.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+				output.closeEntry();
+			}
+		}
+		finally {
+			output.close();
+		}
+		return aar;
+	}
+
+	/**
+	 * 不含标记文件
+	 */
+	private static TreeSet<String> listFiles(File outDir) {
+		List<String> paths = new ArrayList<>();
+		listFiles(outDir, "", paths);
+		paths.remove(AarExtractor.MARKER_FILE_NAME);
+		return new TreeSet<>(paths);
+	}
+
+	private static void listFiles(File dir, String prefix, List<String> paths) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				listFiles(file, prefix + file.getName() + "/", paths);
+			} else {
+				paths.add(prefix + file.getName());
+			}
+		}
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(IOUtils.readAllBytes(new FileInputStream(file), true), StandardCharsets.UTF_8);
+	}
+}
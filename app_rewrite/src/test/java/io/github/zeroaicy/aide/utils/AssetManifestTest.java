@@ -0,0 +1,156 @@
+package io.github.zeroaicy.aide.utils;
+
+import io.github.zeroaicy.util.IOUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AssetManifestTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void apkAssetStampFromCentralDirectory() throws IOException {
+		Map<String, String> entries = new LinkedHashMap<>();
+		entries.put("assets/android.jar.zip", "android");
+		entries.put("assets/other", "other");
+		File apk = new File(this.temporaryFolder.getRoot(), "base.apk");
+		writeZip(apk, entries);
+
+		AssetManifest.Stamp stamp = AssetManifest.getApkAssetStamp(apk.getPath(), "missing", "android.jar.zip");
+		assertNotNull(stamp);
+		assertEquals("android".length(), stamp.size);
+		assertEquals(crc("android"), stamp.crc);
+
+		assertNull(AssetManifest.getApkAssetStamp(apk.getPath(), "missing"));
+		assertNull(AssetManifest.getApkAssetStamp(new File(this.temporaryFolder.getRoot(), "none.apk").getPath(), "other"));
+
+		// apk被替换[如更新]后读取新的内容
+		entries.put("assets/android.jar.zip", "android v2");
+		writeZip(apk, entries);
+		assertEquals("android v2".length(), AssetManifest.getApkAssetStamp(apk.getPath(), "android.jar.zip").size);
+	}
+
+	@Test
+	public void manifestRoundTrip() {
+		String outputPath = new File(this.temporaryFolder.getRoot(), "ndk").getPath();
+		Map<String, AssetManifest.Stamp> members = new LinkedHashMap<>();
+		members.put("bin/clang", new AssetManifest.Stamp(10, 20));
+		members.put("dir with space/a b.txt", new AssetManifest.Stamp(0, 0));
+		new AssetManifest(new AssetManifest.Stamp(100, 200), members).write(outputPath);
+
+		AssetManifest manifest = AssetManifest.read(outputPath);
+		assertNotNull(manifest);
+		assertTrue(new AssetManifest.Stamp(100, 200).isSame(manifest.getAssetStamp()));
+		assertEquals(members.keySet(), manifest.getMembers().keySet());
+		assertTrue(members.get("dir with space/a b.txt").isSame(manifest.getMembers().get("dir with space/a b.txt")));
+		assertFalse(new File(outputPath + ".manifest.tmp").exists());
+	}
+
+	@Test
+	public void corruptManifestIsIgnored() throws IOException {
+		String outputPath = new File(this.temporaryFolder.getRoot(), "ndk").getPath();
+		assertNull(AssetManifest.read(outputPath));
+
+		FileOutputStream output = new FileOutputStream(AssetManifest.getManifestFile(outputPath));
+		try {
+			output.write("asset x y\n".getBytes(StandardCharsets.UTF_8));
+		}
+		finally {
+			output.close();
+		}
+		assertNull(AssetManifest.read(outputPath));
+	}
+
+	@Test
+	public void unZipWritesOnlyChangedMembers() throws IOException {
+		File outputDir = new File(this.temporaryFolder.getRoot(), "out");
+		Map<String, String> entries = new LinkedHashMap<>();
+		entries.put("same.txt", "same");
+		entries.put("changed.txt", "old");
+		entries.put("removed.txt", "removed");
+		Map<String, AssetManifest.Stamp> members = AssetManifest.unZipChanged(zip(entries), outputDir.getPath(), null);
+		assertEquals(3, members.size());
+
+		File same = new File(outputDir, "same.txt");
+		assertTrue(same.setLastModified(1000000L));
+
+		entries.put("changed.txt", "new content");
+		entries.remove("removed.txt");
+		entries.put("added/a.txt", "added");
+		Map<String, AssetManifest.Stamp> newMembers = AssetManifest.unZipChanged(zip(entries), outputDir.getPath(), members);
+
+		assertEquals(entries.keySet(), newMembers.keySet());
+		assertEquals(1000000L, same.lastModified());
+		assertEquals("new content", read(new File(outputDir, "changed.txt")));
+		assertEquals("added", read(new File(outputDir, "added/a.txt")));
+		assertFalse(new File(outputDir, "removed.txt").exists());
+		assertTrue(newMembers.get("changed.txt").isSame(new AssetManifest.Stamp("new content".length(), crc("new content"))));
+	}
+
+	@Test
+	public void unZipSkipsEntriesOutsideOutputDir() throws IOException {
+		File outputDir = new File(this.temporaryFolder.getRoot(), "out");
+		Map<String, String> entries = new LinkedHashMap<>();
+		entries.put("../evil.txt", "evil");
+		entries.put("ok.txt", "ok");
+		Map<String, AssetManifest.Stamp> members = AssetManifest.unZipChanged(zip(entries), outputDir.getPath(), null);
+
+		assertEquals(1, members.size());
+		assertFalse(new File(this.temporaryFolder.getRoot(), "evil.txt").exists());
+	}
+
+	private static long crc(String content) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(content.getBytes(StandardCharsets.UTF_8));
+		return crc32.getValue();
+	}
+
+	private static ByteArrayInputStream zip(Map<String, String> entries) throws IOException {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		writeZip(data, entries);
+		return new ByteArrayInputStream(data.toByteArray());
+	}
+
+	private static void writeZip(File file, Map<String, String> entries) throws IOException {
+		writeZip(new FileOutputStream(file), entries);
+	}
+
+	private static void writeZip(OutputStream output, Map<String, String> entries) throws IOException {
+		ZipOutputStream zipOutput = new ZipOutputStream(output);
+		try {
+			for (Map.Entry<String, String> entry : entries.entrySet()) {
+				zipOutput.putNextEntry(new ZipEntry(entry.getKey()));
+				zipOutput.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+				zipOutput.closeEntry();
+			}
+		}
+		finally {
+			zipOutput.close();
+		}
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(IOUtils.readAllBytes(new FileInputStream(file), true), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,193 @@
+package io.github.zeroaicy.aide.utils;
+
+import io.github.zeroaicy.util.IOUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BuildTraceTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@After
+	public void tearDown() {
+		BuildTrace.setEnabled(false);
+	}
+
+	@Test
+	public void disabledSpansAreShared() {
+		BuildTrace.setEnabled(false);
+		BuildTrace.Span span = BuildTrace.begin("a");
+		assertSame(span, BuildTrace.begin("b"));
+		span.addFiles(1).addBytes(1).end();
+		assertTrue(BuildTrace.getFinishedSpans(span).isEmpty());
+	}
+
+	@Test
+	public void nestedSpansHaveParents() {
+		BuildTrace.setEnabled(true);
+		BuildTrace.Span root = BuildTrace.begin("root");
+		BuildTrace.Span child = BuildTrace.begin("child");
+		BuildTrace.Span grandChild = BuildTrace.begin("grandChild");
+		grandChild.end();
+		child.end();
+		BuildTrace.Span sibling = BuildTrace.begin("sibling");
+		sibling.end();
+		root.end();
+
+		assertEquals(0, root.getParentId());
+		assertEquals(root.getId(), child.getParentId());
+		assertEquals(child.getId(), grandChild.getParentId());
+		assertEquals(root.getId(), sibling.getParentId());
+		assertTrue(root.getDurationNanos() >= child.getDurationNanos());
+
+		// 按结束顺序
+		assertEquals(Arrays.asList(grandChild, child, sibling, root), BuildTrace.getFinishedSpans(root));
+		assertSame(root, grandChild.getRoot());
+		BuildTrace.discard(root);
+	}
+
+	@Test
+	public void unfinishedChildDoesNotLeak() {
+		BuildTrace.setEnabled(true);
+		BuildTrace.Span root = BuildTrace.begin("root");
+		// 异常时未结束
+		BuildTrace.Span child = BuildTrace.begin("failed");
+		root.end();
+
+		BuildTrace.Span next = BuildTrace.begin("next");
+		next.end();
+		assertEquals(0, next.getParentId());
+		assertEquals(Arrays.asList(root), BuildTrace.getFinishedSpans(root));
+		assertFalse(BuildTrace.getFinishedSpans(next).contains(child));
+		BuildTrace.discard(root);
+		BuildTrace.discard(next);
+	}
+
+	@Test
+	public void endTwiceIsIgnored() {
+		BuildTrace.setEnabled(true);
+		BuildTrace.Span span = BuildTrace.begin("once");
+		span.end();
+		long duration = span.getDurationNanos();
+		span.end();
+		assertEquals(duration, span.getDurationNanos());
+		assertEquals(Arrays.asList(span), BuildTrace.getFinishedSpans(span));
+		BuildTrace.discard(span);
+	}
+
+	@Test
+	public void parentOnOtherThread() throws InterruptedException {
+		BuildTrace.setEnabled(true);
+		final BuildTrace.Span root = BuildTrace.begin("root");
+		final BuildTrace.Span[] worker = new BuildTrace.Span[1];
+		Thread thread = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					worker[0] = BuildTrace.begin("worker", root);
+					worker[0].end();
+				}
+			});
+		thread.start();
+		thread.join();
+		root.end();
+		assertEquals(root.getId(), worker[0].getParentId());
+		assertEquals(Arrays.asList(worker[0], root), BuildTrace.getFinishedSpans(root));
+		BuildTrace.discard(root);
+	}
+
+	@Test
+	public void concurrentTracesAreWrittenSeparately() throws Exception {
+		BuildTrace.setEnabled(true);
+		// aapt2 与打包在不同线程同时进行
+		final BuildTrace.Span aapt2 = BuildTrace.begin("aapt2");
+		final BuildTrace.Span[] packaging = new BuildTrace.Span[1];
+		Thread thread = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					packaging[0] = BuildTrace.begin("packaging");
+					BuildTrace.begin("dexing").end();
+					packaging[0].end();
+				}
+			});
+		thread.start();
+		BuildTrace.begin("link").end();
+		thread.join();
+		aapt2.end();
+
+		File intermediatesDir = this.temporaryFolder.getRoot();
+		BuildTrace.write(aapt2, intermediatesDir.getPath(), "aapt2");
+		String aapt2Json = read(new File(intermediatesDir, BuildTrace.TRACE_DIR_NAME + "/aapt2.json"));
+		assertEquals(2, count(aapt2Json, "\"ph\":\"X\""));
+		assertTrue(aapt2Json.contains("\"name\":\"link\""));
+		assertFalse(aapt2Json.contains("\"name\":\"dexing\""));
+		assertTrue(BuildTrace.getFinishedSpans(aapt2).isEmpty());
+
+		// 打包的Span未被aapt2写入
+		assertEquals(2, BuildTrace.getFinishedSpans(packaging[0]).size());
+		BuildTrace.write(packaging[0], intermediatesDir.getPath(), "packaging");
+		String packagingJson = read(new File(intermediatesDir, BuildTrace.TRACE_DIR_NAME + "/packaging.json"));
+		assertEquals(2, count(packagingJson, "\"ph\":\"X\""));
+		assertTrue(packagingJson.contains("\"name\":\"dexing\""));
+		assertFalse(packagingJson.contains("\"name\":\"link\""));
+	}
+
+	@Test
+	public void writeWithoutSpansDoesNotCreateFile() {
+		BuildTrace.setEnabled(true);
+		BuildTrace.Span root = BuildTrace.begin("root");
+		BuildTrace.write(root, this.temporaryFolder.getRoot().getPath(), "empty");
+		assertFalse(new File(this.temporaryFolder.getRoot(), BuildTrace.TRACE_DIR_NAME + "/empty.json").exists());
+		root.end();
+		BuildTrace.discard(root);
+	}
+
+	@Test
+	public void writesTraceEvents() throws IOException {
+		BuildTrace.setEnabled(true);
+		BuildTrace.Span root = BuildTrace.begin("root \"quoted\"");
+		BuildTrace.Span child = BuildTrace.begin("child\n").addFiles(3).addBytes(1024);
+		child.end();
+		root.end();
+
+		StringWriter writer = new StringWriter();
+		BuildTrace.writeTraceEvents(writer, Arrays.asList(child, root), 42);
+		String json = writer.toString();
+
+		assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+		assertTrue(json.endsWith("]}"));
+		assertEquals(2, count(json, "\"ph\":\"X\""));
+		assertEquals(1, count(json, "\"ph\":\"M\""));
+		assertTrue(json.contains("\"name\":\"root \\\"quoted\\\"\""));
+		assertTrue(json.contains("\"name\":\"child\\n\""));
+		assertTrue(json.contains("\"parent\":" + root.getId() + ",\"files\":3,\"bytes\":1024"));
+		assertTrue(json.contains("\"pid\":42"));
+		BuildTrace.discard(root);
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(IOUtils.readAllBytes(new FileInputStream(file), true), "UTF-8");
+	}
+
+	private static int count(String text, String str) {
+		int count = 0;
+		int index = text.indexOf(str);
+		while (index >= 0) {
+			count++;
+			index = text.indexOf(str, index + str.length());
+		}
+		return count;
+	}
+}
@@ -0,0 +1,115 @@
+package io.github.zeroaicy.aide.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class FileContentCacheTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final AtomicInteger loadCount = new AtomicInteger();
+
+	private final FileContentCache<String> cache = new FileContentCache<>(new FileContentCache.Loader<String>(){
+			@Override
+			public String load(String path) {
+				FileContentCacheTest.this.loadCount.incrementAndGet();
+				try {
+					return new String(Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8);
+				}
+				catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+
+	@Test
+	public void loadsOnceWhileUnchanged() throws IOException {
+		File file = write("build.gradle", "apply plugin: 'com.android.application'");
+		String value = this.cache.get(file.getPath());
+		assertSame(value, this.cache.get(file.getPath()));
+		assertEquals(1, this.loadCount.get());
+	}
+
+	@Test
+	public void touchedFileWithSameContentIsNotReloaded() throws IOException {
+		File file = write("build.gradle", "apply plugin: 'com.android.application'");
+		String value = this.cache.get(file.getPath());
+		file.setLastModified(file.lastModified() - 60 * 1000);
+		assertSame(value, this.cache.get(file.getPath()));
+		assertEquals(1, this.loadCount.get());
+	}
+
+	@Test
+	public void changedContentIsReloaded() throws IOException {
+		File file = write("build.gradle", "apply plugin: 'com.android.application'");
+		this.cache.get(file.getPath());
+		write("build.gradle", "apply plugin: 'com.android.library'");
+		file.setLastModified(file.lastModified() + 60 * 1000);
+		assertEquals("apply plugin: 'com.android.library'", this.cache.get(file.getPath()));
+		assertEquals(2, this.loadCount.get());
+	}
+
+	@Test
+	public void clearReloads() throws IOException {
+		File file = write("build.gradle", "android {}");
+		this.cache.get(file.getPath());
+		this.cache.clear();
+		this.cache.get(file.getPath());
+		assertEquals(2, this.loadCount.get());
+	}
+
+	@Test
+	public void missingFileReturnsNull() {
+		assertNull(this.cache.get(new File(this.temporaryFolder.getRoot(), "missing.gradle").getPath()));
+		assertEquals(0, this.loadCount.get());
+	}
+
+	@Test
+	public void parallelModulesAreLoadedOnce() throws Exception {
+		final List<String> paths = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			paths.add(write("module" + i + ".gradle", "dependencies { implementation project(':module" + (i + 1) + "') }").getPath());
+		}
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			for (int round = 0; round < 3; round++) {
+				List<Callable<String>> tasks = new ArrayList<>();
+				for (final String path : paths) {
+					tasks.add(new Callable<String>(){
+							@Override
+							public String call() {
+								return FileContentCacheTest.this.cache.get(path);
+							}
+						});
+				}
+				executorService.invokeAll(tasks);
+			}
+		}
+		finally {
+			executorService.shutdown();
+		}
+		assertEquals(paths.size(), this.loadCount.get());
+	}
+
+	private File write(String name, String content) throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -0,0 +1,157 @@
+package io.github.zeroaicy.aide.utils;
+
+import io.github.zeroaicy.aide.utils.JavaCodeFormatter.FormatEdit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JavaCodeFormatterTest {
+
+	// 格式化只改变行内空白，不合并与拆分行
+	private static final String SAMPLE = "package a;\n"
+	+ "\n"
+	+ "public class A {\n"
+	+ "int a=1;\n"
+	+ "      int b =2;\n"
+	+ "\n"
+	+ "public int sum(int x,int y){\n"
+	+ "return x+y;\n"
+	+ "}\n"
+	+ "\n"
+	+ "  public void run(){\n"
+	+ "        if(a>b){\n"
+	+ "a=b;\n"
+	+ "     }\n"
+	+ "  }\n"
+	+ "}\n";
+
+	@Test
+	public void fullFormat() {
+		List<FormatEdit> edits = JavaCodeFormatter.format(SAMPLE, 0, 0);
+		String outputText = JavaCodeFormatter.apply(SAMPLE, edits);
+		assertEquals("package a;\n"
+					 + "\n"
+					 + "public class A {\n"
+					 + "\tint a = 1;\n"
+					 + "\tint b = 2;\n"
+					 + "\n"
+					 + "\tpublic int sum(int x, int y) {\n"
+					 + "\t\treturn x + y;\n"
+					 + "\t}\n"
+					 + "\n"
+					 + "\tpublic void run() {\n"
+					 + "\t\tif (a > b) {\n"
+					 + "\t\t\ta = b;\n"
+					 + "\t\t}\n"
+					 + "\t}\n"
+					 + "}\n", outputText);
+		assertMinimal(SAMPLE, edits);
+	}
+
+	@Test
+	public void regionMatchesFullFormatInsideAndKeepsOutside() {
+		String fullText = JavaCodeFormatter.apply(SAMPLE, JavaCodeFormatter.format(SAMPLE, 0, 0));
+		List<String> fullLines = lines(fullText);
+
+		// ECJ按区域之前代码的缩进对齐，所以只打乱已格式化文件中区域内的行
+		int[][] regions = {{7, 9}, {11, 15}, {4, 5}, {12, 13}, {16, 16}};
+		for (int[] region : regions) {
+			int startLine = region[0];
+			int endLine = region[1];
+			List<String> inputLines = new ArrayList<>(fullLines);
+			for (int line = startLine; line <= endLine; line++) {
+				inputLines.set(line - 1, lines(SAMPLE).get(line - 1));
+			}
+			String inputText = join(inputLines);
+
+			List<FormatEdit> edits = JavaCodeFormatter.format(inputText, startLine, endLine);
+			assertMinimal(inputText, edits);
+			assertEquals(Arrays.toString(region), fullText, JavaCodeFormatter.apply(inputText, edits));
+		}
+	}
+
+	@Test
+	public void regionNeverChangesOtherLines() {
+		List<String> inputLines = lines(SAMPLE);
+		int[][] regions = {{7, 9}, {11, 15}, {4, 5}, {12, 12}, {16, 16}};
+		for (int[] region : regions) {
+			int startLine = region[0];
+			int endLine = region[1];
+			List<FormatEdit> edits = JavaCodeFormatter.format(SAMPLE, startLine, endLine);
+			assertMinimal(SAMPLE, edits);
+			List<String> regionLines = lines(JavaCodeFormatter.apply(SAMPLE, edits));
+			assertEquals(inputLines.size(), regionLines.size());
+			for (int line = 1; line <= inputLines.size(); line++) {
+				if (line < startLine || line > endLine) {
+					assertEquals(Arrays.toString(region) + " line " + line, inputLines.get(line - 1), regionLines.get(line - 1));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void formattedTextHasNoEdits() {
+		String fullText = JavaCodeFormatter.apply(SAMPLE, JavaCodeFormatter.format(SAMPLE, 0, 0));
+		assertTrue(JavaCodeFormatter.format(fullText, 0, 0).isEmpty());
+	}
+
+	@Test
+	public void outputOffsetFollowsEdits() {
+		// "ab  cd" -> "ab cd"，"x" 插入到开头
+		List<FormatEdit> edits = Arrays.asList(new FormatEdit(0, 0, "x"), new FormatEdit(2, 2, " "));
+		assertEquals("xab cd", JavaCodeFormatter.apply("ab  cd", edits));
+		assertEquals(1, JavaCodeFormatter.getOutputOffset(edits, 0));
+		assertEquals(3, JavaCodeFormatter.getOutputOffset(edits, 2));
+		// 位于被替换的空白中时移到修改之后
+		assertEquals(4, JavaCodeFormatter.getOutputOffset(edits, 3));
+		assertEquals(4, JavaCodeFormatter.getOutputOffset(edits, 4));
+		assertEquals(6, JavaCodeFormatter.getOutputOffset(edits, 6));
+	}
+
+	@Test
+	public void lineStarts() {
+		int[] lineStarts = JavaCodeFormatter.getLineStarts("a\nbc\n");
+		assertEquals(Arrays.toString(new int[]{0, 2, 5}), Arrays.toString(lineStarts));
+		assertEquals(0, JavaCodeFormatter.getLine(lineStarts, 1));
+		assertEquals(1, JavaCodeFormatter.getLine(lineStarts, 2));
+		assertEquals(1, JavaCodeFormatter.getLine(lineStarts, 4));
+		assertEquals(2, JavaCodeFormatter.getLine(lineStarts, 5));
+	}
+
+	/**
+	 * 修改按偏移排序、不重叠，且每个修改都改变了内容
+	 */
+	private static void assertMinimal(String inputText, List<FormatEdit> edits) {
+		int end = 0;
+		for (FormatEdit edit : edits) {
+			assertTrue(edit.offset >= end);
+			end = edit.offset + edit.length;
+			String replaced = inputText.substring(edit.offset, end);
+			assertTrue(!replaced.equals(edit.text));
+			if (!replaced.isEmpty() && !edit.text.isEmpty()) {
+				// 去掉了相同的首尾字符
+				assertTrue(replaced.charAt(0) != edit.text.charAt(0));
+				assertTrue(replaced.charAt(replaced.length() - 1) != edit.text.charAt(edit.text.length() - 1));
+			}
+		}
+	}
+
+	private static List<String> lines(String text) {
+		return Arrays.asList(text.split("\n", -1));
+	}
+
+	private static String join(List<String> lines) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < lines.size(); i++) {
+			if (i > 0) {
+				builder.append('\n');
+			}
+			builder.append(lines.get(i));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,138 @@
+package io.github.zeroaicy.aide.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 解析真实项目风格的build.gradle
+ * 需要基础jar中的BuildGradle与groovy解析器
+ */
+public class ZeroAicyBuildGradleTest {
+
+	private static final String[] FIXTURES = {
+		"app-flavors.gradle",
+		"library.gradle",
+		"native-cmake.gradle",
+		"legacy-compile.gradle"
+	};
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final FileContentCache<ZeroAicyBuildGradle> cache = new FileContentCache<>(new FileContentCache.Loader<ZeroAicyBuildGradle>(){
+			@Override
+			public ZeroAicyBuildGradle load(String path) {
+				return new ZeroAicyBuildGradle(path);
+			}
+		});
+
+	@Test
+	public void cachedModelEqualsFreshModel() throws IOException {
+		for (String fixture : FIXTURES) {
+			File file = copyFixture(fixture, this.temporaryFolder.newFolder(fixture));
+			ZeroAicyBuildGradle cached = this.cache.get(file.getPath());
+			String fresh = describe(new ZeroAicyBuildGradle(file.getPath()));
+			assertEquals(fixture, fresh, describe(cached));
+
+			// 只有修改时间变化
+			file.setLastModified(file.lastModified() - 60 * 1000);
+			assertSame(cached, this.cache.get(file.getPath()));
+		}
+	}
+
+	@Test
+	public void fixturesAreParsed() throws IOException {
+		File app = copyFixture("app-flavors.gradle", this.temporaryFolder.newFolder("app"));
+		ZeroAicyBuildGradle buildGradle = new ZeroAicyBuildGradle(app.getPath());
+		assertEquals("com.example.shop.free", buildGradle.getFlavorApplicationId("free"));
+		assertEquals("24", buildGradle.getMinSdkVersion("pro"));
+		assertTrue(buildGradle.isMinifyEnabled());
+		assertTrue(buildGradle.isViewBindingEnabled());
+
+		File nativeGame = copyFixture("native-cmake.gradle", this.temporaryFolder.newFolder("native"));
+		buildGradle = new ZeroAicyBuildGradle(nativeGame.getPath());
+		assertEquals("25.2.9519653", buildGradle.getNdkVersion());
+		assertEquals("src/main/cpp/CMakeLists.txt", buildGradle.getCmakeListsTxtPath());
+	}
+
+	/**
+	 * 30个模块 首次解析与缓存命中的耗时
+	 */
+	@Test
+	public void benchmarkThirtyModules() throws IOException {
+		List<String> paths = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			File moduleDir = this.temporaryFolder.newFolder("module" + i);
+			paths.add(copyFixture(FIXTURES[i % FIXTURES.length], moduleDir).getPath());
+		}
+
+		long now = System.nanoTime();
+		for (String path : paths) {
+			this.cache.get(path);
+		}
+		long freshNanos = System.nanoTime() - now;
+
+		now = System.nanoTime();
+		for (String path : paths) {
+			this.cache.get(path);
+		}
+		long cachedNanos = System.nanoTime() - now;
+
+		System.out.printf("30 modules: fresh %.1fms cached %.1fms%n", freshNanos / 1e6, cachedNanos / 1e6);
+		assertTrue(cachedNanos < freshNanos);
+	}
+
+	private static String describe(ZeroAicyBuildGradle buildGradle) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("applicationId=").append(buildGradle.getFlavorApplicationId(null)).append('\n');
+		sb.append("minSdk=").append(buildGradle.getMinSdkVersion(null)).append('\n');
+		sb.append("targetSdk=").append(buildGradle.getTargetSdkVersion(null)).append('\n');
+		sb.append("versionCode=").append(buildGradle.getVersionCode(null)).append('\n');
+		sb.append("versionName=").append(buildGradle.getVersionName(null)).append('\n');
+		sb.append("multiDex=").append(buildGradle.isMultiDexEnabled(null)).append('\n');
+		for (String flavor : new String[]{"free", "pro"}) {
+			sb.append(flavor).append(".applicationId=").append(buildGradle.getFlavorApplicationId(flavor)).append('\n');
+			sb.append(flavor).append(".minSdk=").append(buildGradle.getMinSdkVersion(flavor)).append('\n');
+			sb.append(flavor).append(".dependencies=").append(buildGradle.getFlavorDependencies(flavor).size()).append('\n');
+		}
+		sb.append("minify=").append(buildGradle.isMinifyEnabled()).append('\n');
+		sb.append("shrinkResources=").append(buildGradle.isShrinkResources()).append('\n');
+		sb.append("proguardFiles=").append(buildGradle.getProguardFiles()).append('\n');
+		sb.append("viewBinding=").append(buildGradle.isViewBindingEnabled()).append('\n');
+		sb.append("androidx=").append(buildGradle.isUseAndroidx()).append('\n');
+		sb.append("sourceCompatibility=").append(buildGradle.getSourceCompatibility()).append('\n');
+		sb.append("targetCompatibility=").append(buildGradle.getTargetCompatibility()).append('\n');
+		sb.append("ndkVersion=").append(buildGradle.getNdkVersion()).append('\n');
+		sb.append("cmakeLists=").append(buildGradle.getCmakeListsTxtPath()).append('\n');
+		sb.append("cmakeVersion=").append(buildGradle.getCmakeVersion()).append('\n');
+		sb.append("cmakeCppFlags=").append(buildGradle.getCmakeCppFlags()).append('\n');
+		sb.append("cmakeAbiFilters=").append(buildGradle.getCmakeAbiFilters()).append('\n');
+		sb.append("assets=").append(buildGradle.getDefaultAssetsSrcDirs()).append('\n');
+		sb.append("projectDependencys=").append(buildGradle.getProjectDependencys().size()).append('\n');
+		sb.append("dependencyExts=").append(buildGradle.getDependencyExts().size()).append('\n');
+		return sb.toString();
+	}
+
+	private File copyFixture(String fixture, File dir) throws IOException {
+		File file = new File(dir, "build.gradle");
+		InputStream inputStream = getClass().getResourceAsStream("/gradle/" + fixture);
+		try {
+			Files.copy(inputStream, file.toPath());
+		}
+		finally {
+			inputStream.close();
+		}
+		return file;
+	}
+}